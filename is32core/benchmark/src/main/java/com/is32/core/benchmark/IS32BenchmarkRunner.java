@@ -0,0 +1,35 @@
+package com.is32.core.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Accepts the regular JMH command line and always adds the GC
+ * profiler, so every run reports throughput, the latency percentiles of the SampleTime mode and
+ * the allocation rate per operation (gc.alloc.rate.norm). For example
+ *
+ * <pre>
+ * java -jar is32core-benchmarks.jar IS32QuotaAggregationBenchmark -p rowCount=1000000 -rf json
+ * </pre>
+ *
+ * Keep the JSON result of a run on the base revision and compare it with the result of the change.
+ */
+public final class IS32BenchmarkRunner
+{
+    private IS32BenchmarkRunner()
+    {
+    }
+
+    public static void main(final String[] args) throws CommandLineOptionException, RunnerException
+    {
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
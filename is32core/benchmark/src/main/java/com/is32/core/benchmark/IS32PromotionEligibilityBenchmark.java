@@ -0,0 +1,119 @@
+package com.is32.core.benchmark;
+
+import com.is32.core.benchmark.data.IS32BenchmarkDataGenerator;
+import com.is32.core.benchmark.stub.BenchmarkIS32PromotionEvaluationStrategy;
+import com.is32.core.benchmark.stub.InMemoryConfigurationService;
+import com.is32.core.benchmark.stub.InMemoryIS32AccountQuotaService;
+import com.is32.core.benchmark.stub.InMemoryIS32PromotionDao;
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.quota.IS32RedemptionCounts;
+import com.is32.core.service.impl.DefaultIS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
+import com.is32.core.strategies.IS32PromotionEvaluationStrategy;
+import de.hybris.platform.core.model.user.CustomerModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link IS32PromotionEvaluationStrategy#evaluateEligiblePromotions} against a real
+ * promotion snapshot built from synthetic promotions. Account quotas and redemption counts come
+ * from {@link InMemoryIS32AccountQuotaService}, so the numbers cover the evaluation itself and
+ * not the quota queries. Customers are evaluated round-robin.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IS32PromotionEligibilityBenchmark
+{
+    private static final int REDEMPTION_PROFILES = 16;
+    private static final int REWARDS_PER_PROMOTION = 3;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int promotionCount;
+
+    @Param({"200"})
+    private int accountCount;
+
+    @Param({"1000"})
+    private int customerCount;
+
+    @Param({"100"})
+    private int maxResults;
+
+    private IS32PromotionEvaluationStrategy strategy;
+    private CustomerModel[] customers;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        final IS32BenchmarkDataGenerator generator = new IS32BenchmarkDataGenerator();
+
+        final List<IS32PromotionModel> promotions =
+                generator.createPromotions(promotionCount, REWARDS_PER_PROMOTION, accountCount);
+        final DefaultIS32PromotionSnapshotService snapshotService = new DefaultIS32PromotionSnapshotService();
+        snapshotService.setIs32PromotionDao(new InMemoryIS32PromotionDao(promotions));
+        snapshotService.setIs32PromotionActivityDao(Collections::emptyList);
+
+        final List<String> limitedPromotionUids = new ArrayList<>();
+        for (final IS32PromotionSnapshotEntry entry : snapshotService.getSnapshot().getEntries())
+        {
+            if (entry.hasRedemptionLimit())
+            {
+                limitedPromotionUids.add(entry.getUid());
+            }
+        }
+
+        // Customers share a few redemption histories; one per customer would not fit the heap at 1M promotions
+        final IS32RedemptionCounts[] redemptionProfiles = new IS32RedemptionCounts[REDEMPTION_PROFILES];
+        for (int i = 0; i < REDEMPTION_PROFILES; i++)
+        {
+            redemptionProfiles[i] = generator.createRedemptionCounts(limitedPromotionUids);
+        }
+
+        final InMemoryIS32AccountQuotaService quotaService = new InMemoryIS32AccountQuotaService();
+        customers = generator.createCustomers(customerCount).toArray(new CustomerModel[customerCount]);
+        for (int i = 0; i < customers.length; i++)
+        {
+            quotaService.register(customers[i], generator.createAccountQuotas(accountCount),
+                    redemptionProfiles[i % REDEMPTION_PROFILES]);
+        }
+
+        strategy = new BenchmarkIS32PromotionEvaluationStrategy(promotions);
+        strategy.setIs32PromotionSnapshotService(snapshotService);
+        strategy.setIs32AccountQuotaService(quotaService);
+        strategy.setConfigurationService(new InMemoryConfigurationService()
+                .with(IS32CoreConstants.Config.EVALUATION_MAX_RESULTS, Integer.valueOf(maxResults)));
+    }
+
+    @State(Scope.Thread)
+    public static class CustomerCursor
+    {
+        private int next;
+    }
+
+    @Benchmark
+    public List<IS32PromotionModel> evaluateEligiblePromotions(final CustomerCursor cursor)
+    {
+        final CustomerModel customer = customers[cursor.next++ % customers.length];
+        return strategy.evaluateEligiblePromotions(customer, null);
+    }
+}
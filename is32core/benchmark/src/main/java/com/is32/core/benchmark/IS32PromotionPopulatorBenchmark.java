@@ -0,0 +1,69 @@
+package com.is32.core.benchmark;
+
+import com.is32.core.benchmark.data.IS32BenchmarkDataGenerator;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.facades.dto.PromotionDisplayData;
+import com.is32.facades.populators.IS32PromotionPopulator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link IS32PromotionPopulator#populate} of one promotion with its tag and rewards into
+ * a new PromotionDisplayData. Promotions are populated round-robin so that the data does not stay
+ * in the CPU caches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class IS32PromotionPopulatorBenchmark
+{
+    @Param({"1000", "100000"})
+    private int promotionCount;
+
+    @Param({"1", "5", "20"})
+    private int rewardsPerPromotion;
+
+    @Param({"200"})
+    private int accountCount;
+
+    private IS32PromotionPopulator populator;
+    private IS32PromotionModel[] promotions;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        populator = new IS32PromotionPopulator();
+        promotions = new IS32BenchmarkDataGenerator()
+                .createPromotions(promotionCount, rewardsPerPromotion, accountCount)
+                .toArray(new IS32PromotionModel[promotionCount]);
+    }
+
+    @State(Scope.Thread)
+    public static class PromotionCursor
+    {
+        private int next;
+    }
+
+    @Benchmark
+    public PromotionDisplayData populate(final PromotionCursor cursor)
+    {
+        final PromotionDisplayData target = new PromotionDisplayData();
+        populator.populate(promotions[cursor.next++ % promotions.length], target);
+        return target;
+    }
+}
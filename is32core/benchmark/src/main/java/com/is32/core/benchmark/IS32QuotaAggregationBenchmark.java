@@ -0,0 +1,74 @@
+package com.is32.core.benchmark;
+
+import com.is32.core.benchmark.data.IS32BenchmarkDataGenerator;
+import com.is32.core.benchmark.stub.BenchmarkIS32AccountQuotaService;
+import com.is32.core.quota.IS32AccountQuota;
+import com.is32.core.quota.IS32AccountQuotas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures both ways DefaultIS32AccountQuotaService turns query rows into account quotas for the
+ * same customer: grouping raw rows in memory ({@code aggregateQuotaData}) and converting rows the
+ * database has already grouped ({@code toAccountQuotas}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class IS32QuotaAggregationBenchmark
+{
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int rowCount;
+
+    @Param({"50"})
+    private int accountCount;
+
+    private BenchmarkIS32AccountQuotaService accountQuotaService;
+    private List<List<Object>> rawRows;
+    private List<List<Object>> aggregatedRows;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        accountQuotaService = new BenchmarkIS32AccountQuotaService();
+        rawRows = new IS32BenchmarkDataGenerator().createRawQuotaRows(rowCount, accountCount);
+
+        // The grouped query returns exactly what the in-memory grouping computes
+        aggregatedRows = new ArrayList<>();
+        for (final IS32AccountQuota quota : accountQuotaService.aggregateQuotaData(rawRows))
+        {
+            aggregatedRows.add(Arrays.asList(quota.getAccountId(), quota.getSiebelAcctId(),
+                    Integer.valueOf(quota.getThreshold()), Integer.valueOf(quota.getOrderedAmt())));
+        }
+    }
+
+    @Benchmark
+    public IS32AccountQuotas aggregateQuotaData()
+    {
+        return accountQuotaService.aggregateQuotaData(rawRows);
+    }
+
+    @Benchmark
+    public IS32AccountQuotas toAccountQuotas()
+    {
+        return accountQuotaService.toAccountQuotas(aggregatedRows);
+    }
+}
@@ -0,0 +1,52 @@
+package com.is32.core.benchmark.data;
+
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.model.IS32PromotionModel;
+
+/**
+ * Detached promotion model for the benchmarks. Localized attributes and the dynamic isActive
+ * attribute are resolved through the platform's i18n and attribute handler registries, which do
+ * not exist outside a running server, so they are held in plain fields instead. isActive mirrors
+ * IS32PromotionActiveHandler.
+ */
+public class BenchmarkPromotionModel extends IS32PromotionModel
+{
+    private String title;
+    private String description;
+    private String termsAndConditions;
+
+    public void setLocalizedValues(final String title, final String description, final String termsAndConditions)
+    {
+        this.title = title;
+        this.description = description;
+        this.termsAndConditions = termsAndConditions;
+    }
+
+    @Override
+    public String getTitle()
+    {
+        return title;
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return description;
+    }
+
+    @Override
+    public String getTermsAndConditions()
+    {
+        return termsAndConditions;
+    }
+
+    @Override
+    public Boolean getIsActive()
+    {
+        final long now = System.currentTimeMillis();
+        return Boolean.valueOf(IS32PromotionStatus.ACTIVE.equals(getStatus())
+                && !Boolean.TRUE.equals(getSuspended())
+                && getStartDate() != null && getStartDate().getTime() <= now
+                && getEndDate() != null && now < getEndDate().getTime());
+    }
+}
@@ -0,0 +1,31 @@
+package com.is32.core.benchmark.data;
+
+import com.is32.core.model.IS32PromotionTagModel;
+
+/**
+ * Detached promotion tag model for the benchmarks, holding its localized attributes in plain
+ * fields. See {@link BenchmarkPromotionModel}.
+ */
+public class BenchmarkPromotionTagModel extends IS32PromotionTagModel
+{
+    private String name;
+    private String description;
+
+    public void setLocalizedValues(final String name, final String description)
+    {
+        this.name = name;
+        this.description = description;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name;
+    }
+
+    @Override
+    public String getDescription()
+    {
+        return description;
+    }
+}
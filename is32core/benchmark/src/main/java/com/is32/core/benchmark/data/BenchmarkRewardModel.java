@@ -0,0 +1,23 @@
+package com.is32.core.benchmark.data;
+
+import com.is32.core.model.IS32RewardModel;
+
+/**
+ * Detached reward model for the benchmarks, holding its localized description in a plain field.
+ * See {@link BenchmarkPromotionModel}.
+ */
+public class BenchmarkRewardModel extends IS32RewardModel
+{
+    private String rewardDescription;
+
+    public void setLocalizedValues(final String rewardDescription)
+    {
+        this.rewardDescription = rewardDescription;
+    }
+
+    @Override
+    public String getRewardDescription()
+    {
+        return rewardDescription;
+    }
+}
@@ -0,0 +1,228 @@
+package com.is32.core.benchmark.data;
+
+import com.is32.core.enums.IS32PromotionDisplayType;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.enums.IS32RewardType;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.model.IS32PromotionTagModel;
+import com.is32.core.model.IS32RewardModel;
+import com.is32.core.quota.IS32AccountQuota;
+import com.is32.core.quota.IS32AccountQuotas;
+import com.is32.core.quota.IS32RedemptionCounts;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates synthetic IS32 promotions, rewards, account quota rows and customers for the
+ * benchmarks. Generation is seeded, so two runs with the same parameters measure the same data.
+ *
+ * The shape of the data follows production: most promotions are live, a few are suspended or
+ * not started yet, half of them limit redemptions per user and most rewards increase an
+ * e-stamp member account.
+ */
+public class IS32BenchmarkDataGenerator
+{
+    public static final long DEFAULT_SEED = 0x1532L;
+
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private static final int LIVE_PERCENT = 90;
+    private static final int SUSPENDED_PERCENT = 5;
+    private static final int REDEMPTION_LIMITED_PERCENT = 50;
+    private static final int ACCOUNT_REWARD_PERCENT = 70;
+    private static final int REDEEMED_ROW_PERCENT = 30;
+    private static final int MAX_THRESHOLD = 20;
+
+    private final Random random;
+    private final long now;
+
+    public IS32BenchmarkDataGenerator()
+    {
+        this(DEFAULT_SEED, System.currentTimeMillis());
+    }
+
+    public IS32BenchmarkDataGenerator(final long seed, final long now)
+    {
+        this.random = new Random(seed);
+        this.now = now;
+    }
+
+    public static String accountId(final int index)
+    {
+        return String.format("ACC-%06d", Integer.valueOf(index));
+    }
+
+    public static String siebelAcctId(final int index)
+    {
+        return String.format("SBL-%06d", Integer.valueOf(index));
+    }
+
+    /**
+     * Thresholds are derived from the account index so that raw rows, aggregated rows and
+     * customer quotas generated separately agree on them.
+     */
+    public static int threshold(final int accountIndex)
+    {
+        return 1 + accountIndex % MAX_THRESHOLD;
+    }
+
+    /**
+     * Creates ACTIVE promotions with a tag and the given number of rewards each.
+     *
+     * @param count               number of promotions
+     * @param rewardsPerPromotion number of rewards per promotion
+     * @param accountCount        number of distinct e-stamp accounts the rewards are spread over
+     */
+    public List<IS32PromotionModel> createPromotions(final int count, final int rewardsPerPromotion,
+                                                     final int accountCount)
+    {
+        final IS32PromotionTagModel[] tags = createTags(16);
+        final List<IS32PromotionModel> promotions = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++)
+        {
+            final boolean live = random.nextInt(100) < LIVE_PERCENT;
+            final long startTime = live ? now - (1 + random.nextInt(60)) * DAY : now + (1 + random.nextInt(60)) * DAY;
+            final long endTime = live ? now + (1 + random.nextInt(60)) * DAY : startTime + 30 * DAY;
+
+            final BenchmarkPromotionModel promotion = new BenchmarkPromotionModel();
+            promotion.setUid(String.format("PROMO-%07d", Integer.valueOf(i)));
+            promotion.setLocalizedValues("Promotion " + i, "Synthetic benchmark promotion " + i,
+                    "Terms and conditions of promotion " + i);
+            promotion.setStatus(IS32PromotionStatus.ACTIVE);
+            promotion.setSuspended(Boolean.valueOf(random.nextInt(100) < SUSPENDED_PERCENT));
+            promotion.setStartDate(new Date(startTime));
+            promotion.setEndDate(new Date(endTime));
+            promotion.setPriority(Integer.valueOf(random.nextInt(100)));
+            promotion.setImageUrl("/medias/promo-" + i + ".png");
+            promotion.setRedeemDigitalCoupon("COUPON-" + i);
+            promotion.setMaxRedemptionPerUser(random.nextInt(100) < REDEMPTION_LIMITED_PERCENT
+                    ? Integer.valueOf(1 + random.nextInt(3)) : null);
+            promotion.setTotalRedemptionLimit(Integer.valueOf(1000 + random.nextInt(10000)));
+            promotion.setPromotionTag(tags[i % tags.length]);
+            promotion.setRewards(createRewards(promotion, rewardsPerPromotion, accountCount));
+            promotions.add(promotion);
+        }
+        return promotions;
+    }
+
+    /**
+     * Creates raw account quota rows of [accountId, siebelAcctId, threshold, userPk] as returned by
+     * the un-aggregated account quota query: one row per coupon of a quota promotion, with the
+     * customer's PK where the coupon was redeemed by the customer and null otherwise.
+     */
+    public List<List<Object>> createRawQuotaRows(final int rowCount, final int accountCount)
+    {
+        final PK customerPk = PK.fromLong(8796093054980L);
+        final List<List<Object>> rows = new ArrayList<>(rowCount);
+
+        for (int i = 0; i < rowCount; i++)
+        {
+            final int account = random.nextInt(accountCount);
+            rows.add(Arrays.asList(accountId(account), siebelAcctId(account), Integer.valueOf(threshold(account)),
+                    random.nextInt(100) < REDEEMED_ROW_PERCENT ? customerPk : null));
+        }
+        return rows;
+    }
+
+    public List<CustomerModel> createCustomers(final int count)
+    {
+        final List<CustomerModel> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            final CustomerModel customer = new CustomerModel();
+            customer.setUid(String.format("customer-%07d@is32.test", Integer.valueOf(i)));
+            customers.add(customer);
+        }
+        return customers;
+    }
+
+    /**
+     * Creates the quotas of one customer over all accounts. Roughly a third of the accounts are
+     * exhausted.
+     */
+    public IS32AccountQuotas createAccountQuotas(final int accountCount)
+    {
+        final List<IS32AccountQuota> quotas = new ArrayList<>(accountCount);
+        for (int account = 0; account < accountCount; account++)
+        {
+            final int threshold = threshold(account);
+            quotas.add(new IS32AccountQuota(accountId(account), siebelAcctId(account), threshold,
+                    random.nextInt(threshold + threshold / 2 + 1)));
+        }
+        return new IS32AccountQuotas(quotas);
+    }
+
+    /**
+     * Creates redemption counts of one customer for the given promotion UIDs.
+     */
+    public IS32RedemptionCounts createRedemptionCounts(final Collection<String> promotionUids)
+    {
+        final Map<String, Integer> counts = new HashMap<>();
+        for (final String uid : promotionUids)
+        {
+            final int count = random.nextInt(4);
+            if (count > 0)
+            {
+                counts.put(uid, Integer.valueOf(count));
+            }
+        }
+        return IS32RedemptionCounts.of(counts);
+    }
+
+    private IS32PromotionTagModel[] createTags(final int count)
+    {
+        final IS32PromotionDisplayType[] displayTypes = {
+                IS32PromotionDisplayType.ESTAMP, IS32PromotionDisplayType.COUPON, IS32PromotionDisplayType.POINTS,
+                IS32PromotionDisplayType.CASHBACK, IS32PromotionDisplayType.BUNDLE};
+
+        final IS32PromotionTagModel[] tags = new IS32PromotionTagModel[count];
+        for (int i = 0; i < count; i++)
+        {
+            final BenchmarkPromotionTagModel tag = new BenchmarkPromotionTagModel();
+            tag.setCode("TAG-" + i);
+            tag.setLocalizedValues("Tag " + i, "Synthetic benchmark tag " + i);
+            tag.setElabPromotionDisplayType(displayTypes[i % displayTypes.length]);
+            tags[i] = tag;
+        }
+        return tags;
+    }
+
+    private List<IS32RewardModel> createRewards(final IS32PromotionModel promotion, final int count,
+                                                final int accountCount)
+    {
+        final List<IS32RewardModel> rewards = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+        {
+            final BenchmarkRewardModel reward = new BenchmarkRewardModel();
+            reward.setPromotion(promotion);
+            reward.setPromotionUid(promotion.getUid());
+            reward.setLocalizedValues("Reward " + i + " of " + promotion.getUid());
+            reward.setRewardValue(Double.valueOf(1 + random.nextInt(50)));
+            reward.setMinSpend(Double.valueOf(random.nextInt(200)));
+            reward.setMaxRewardCap(Double.valueOf(100 + random.nextInt(400)));
+
+            if (random.nextInt(100) < ACCOUNT_REWARD_PERCENT)
+            {
+                reward.setRewardType(IS32RewardType.INCREASE_MEMBER_ACCOUNT);
+                reward.setIncreaseMemberAccountId(accountId(random.nextInt(accountCount)));
+            }
+            else
+            {
+                reward.setRewardType(IS32RewardType.DISCOUNT);
+            }
+            rewards.add(reward);
+        }
+        return rewards;
+    }
+}
@@ -0,0 +1,25 @@
+package com.is32.core.benchmark.stub;
+
+import com.is32.core.quota.IS32AccountQuotas;
+import com.is32.core.service.impl.DefaultIS32AccountQuotaService;
+
+import java.util.List;
+
+/**
+ * Opens the row conversion steps of {@link DefaultIS32AccountQuotaService} to the benchmarks.
+ * Both methods are the unchanged service implementations.
+ */
+public class BenchmarkIS32AccountQuotaService extends DefaultIS32AccountQuotaService
+{
+    @Override
+    public IS32AccountQuotas aggregateQuotaData(final List<List<Object>> rawData)
+    {
+        return super.aggregateQuotaData(rawData);
+    }
+
+    @Override
+    public IS32AccountQuotas toAccountQuotas(final List<List<Object>> aggregatedData)
+    {
+        return super.toAccountQuotas(aggregatedData);
+    }
+}
@@ -0,0 +1,41 @@
+package com.is32.core.benchmark.stub;
+
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
+import com.is32.core.strategies.IS32PromotionEvaluationStrategy;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link IS32PromotionEvaluationStrategy} resolving the eligible promotions by UID from the
+ * generated promotions. Detached benchmark models have no PK and there is no ModelService
+ * outside a running server; the evaluation itself is the unchanged strategy implementation.
+ */
+public class BenchmarkIS32PromotionEvaluationStrategy extends IS32PromotionEvaluationStrategy
+{
+    private final Map<String, IS32PromotionModel> promotionsByUid;
+
+    public BenchmarkIS32PromotionEvaluationStrategy(final Collection<IS32PromotionModel> promotions)
+    {
+        promotionsByUid = new HashMap<>(promotions.size() * 2);
+        for (final IS32PromotionModel promotion : promotions)
+        {
+            promotionsByUid.put(promotion.getUid(), promotion);
+        }
+    }
+
+    @Override
+    protected List<IS32PromotionModel> resolvePromotions(final List<IS32PromotionSnapshotEntry> entries)
+    {
+        final List<IS32PromotionModel> promotions = new ArrayList<>(entries.size());
+        for (final IS32PromotionSnapshotEntry entry : entries)
+        {
+            promotions.add(promotionsByUid.get(entry.getUid()));
+        }
+        return promotions;
+    }
+}
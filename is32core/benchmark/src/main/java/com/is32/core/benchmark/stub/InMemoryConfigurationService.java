@@ -0,0 +1,26 @@
+package com.is32.core.benchmark.stub;
+
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import org.apache.commons.configuration.BaseConfiguration;
+import org.apache.commons.configuration.Configuration;
+
+/**
+ * ConfigurationService backed by an in-memory configuration. Unset keys fall back to the defaults
+ * passed by the callers, as they would on a server without the property.
+ */
+public class InMemoryConfigurationService implements ConfigurationService
+{
+    private final Configuration configuration = new BaseConfiguration();
+
+    @Override
+    public Configuration getConfiguration()
+    {
+        return configuration;
+    }
+
+    public InMemoryConfigurationService with(final String key, final Object value)
+    {
+        configuration.setProperty(key, value);
+        return this;
+    }
+}
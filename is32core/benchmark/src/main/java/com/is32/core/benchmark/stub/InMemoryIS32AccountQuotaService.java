@@ -0,0 +1,95 @@
+package com.is32.core.benchmark.stub;
+
+import com.is32.core.quota.IS32AccountQuotas;
+import com.is32.core.quota.IS32RedemptionCounts;
+import com.is32.core.service.IS32AccountQuotaService;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * IS32AccountQuotaService returning pre-generated quotas and redemption counts per customer, so
+ * that promotion evaluation can be measured without the quota queries. Redemption counts are
+ * generated for every redemption-limited promotion up front and returned as is, regardless of the
+ * requested UIDs. The customer set as the current customer stands in for the session user.
+ */
+public class InMemoryIS32AccountQuotaService implements IS32AccountQuotaService
+{
+    private final Map<CustomerModel, IS32AccountQuotas> quotas = new IdentityHashMap<>();
+    private final Map<CustomerModel, IS32RedemptionCounts> redemptionCounts = new IdentityHashMap<>();
+
+    private CustomerModel currentCustomer;
+
+    public void register(final CustomerModel customer, final IS32AccountQuotas customerQuotas,
+                         final IS32RedemptionCounts customerRedemptionCounts)
+    {
+        quotas.put(customer, customerQuotas);
+        redemptionCounts.put(customer, customerRedemptionCounts);
+    }
+
+    /**
+     * @param currentCustomer the customer {@link #getAccountQuotasForCurrentUser()} answers for, or null for none
+     */
+    public void setCurrentCustomer(final CustomerModel currentCustomer)
+    {
+        this.currentCustomer = currentCustomer;
+    }
+
+    @Override
+    public IS32AccountQuotas getAccountQuotas(final CustomerModel customer, final CatalogVersionModel catalogVersion)
+    {
+        final IS32AccountQuotas customerQuotas = quotas.get(customer);
+        return customerQuotas != null ? customerQuotas : IS32AccountQuotas.empty();
+    }
+
+    @Override
+    public Map<PK, IS32AccountQuotas> getAccountQuotasForCustomers(final Collection<CustomerModel> customers,
+                                                                   final CatalogVersionModel catalogVersion)
+    {
+        final Map<PK, IS32AccountQuotas> quotasByCustomer = new HashMap<>();
+        for (final CustomerModel customer : customers)
+        {
+            quotasByCustomer.put(customer.getPk(), getAccountQuotas(customer, catalogVersion));
+        }
+        return quotasByCustomer;
+    }
+
+    @Override
+    public IS32AccountQuotas getAccountQuotasForCurrentUser()
+    {
+        final CustomerModel customer = currentCustomer;
+        return customer != null ? getAccountQuotas(customer, null) : IS32AccountQuotas.empty();
+    }
+
+    @Override
+    public int getRedemptionCount(final String promotionUid, final CustomerModel customer)
+    {
+        final IS32RedemptionCounts counts = redemptionCounts.get(customer);
+        return counts != null ? counts.getCount(promotionUid) : 0;
+    }
+
+    @Override
+    public IS32RedemptionCounts getRedemptionCounts(final Collection<String> promotionUids,
+                                                    final CustomerModel customer)
+    {
+        final IS32RedemptionCounts counts = redemptionCounts.get(customer);
+        return counts != null ? counts : IS32RedemptionCounts.empty();
+    }
+
+    @Override
+    public Map<PK, IS32RedemptionCounts> getRedemptionCountsForCustomers(final Collection<String> promotionUids,
+                                                                         final Collection<CustomerModel> customers)
+    {
+        final Map<PK, IS32RedemptionCounts> countsByCustomer = new HashMap<>();
+        for (final CustomerModel customer : customers)
+        {
+            countsByCustomer.put(customer.getPk(), getRedemptionCounts(promotionUids, customer));
+        }
+        return countsByCustomer;
+    }
+}
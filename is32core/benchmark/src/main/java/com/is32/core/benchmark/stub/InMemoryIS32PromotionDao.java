@@ -0,0 +1,185 @@
+package com.is32.core.benchmark.stub;
+
+import com.is32.core.dao.IS32PromotionDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.enums.IS32RewardType;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.model.IS32PromotionTagModel;
+import com.is32.core.model.IS32RewardModel;
+import com.is32.core.search.IS32PromotionSearchCriteria;
+import com.is32.core.search.IS32PromotionSearchResult;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * IS32PromotionDao over a fixed list of detached promotions. Queries are evaluated by a linear
+ * scan; the benchmarks only use it to feed the services under test, never to measure it.
+ */
+public class InMemoryIS32PromotionDao implements IS32PromotionDao
+{
+    private final List<IS32PromotionModel> promotions;
+
+    public InMemoryIS32PromotionDao(final Collection<IS32PromotionModel> promotions)
+    {
+        this.promotions = new ArrayList<>(promotions);
+    }
+
+    @Override
+    public IS32PromotionModel findByUid(final String uid)
+    {
+        final List<IS32PromotionModel> result = filter(promotion -> uid.equals(promotion.getUid()));
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    @Override
+    public List<IS32PromotionModel> findByStatus(final IS32PromotionStatus status)
+    {
+        return filter(promotion -> status.equals(promotion.getStatus()));
+    }
+
+    @Override
+    public List<IS32PromotionModel> findActivePromotions(final Date currentDate)
+    {
+        return filter(promotion -> IS32PromotionStatus.ACTIVE.equals(promotion.getStatus())
+                && isInDateRange(promotion, currentDate));
+    }
+
+    @Override
+    public List<IS32PromotionModel> findActiveNonSuspendedPromotions(final Date currentDate)
+    {
+        return filter(promotion -> IS32PromotionStatus.ACTIVE.equals(promotion.getStatus())
+                && !Boolean.TRUE.equals(promotion.getSuspended())
+                && isInDateRange(promotion, currentDate));
+    }
+
+    @Override
+    public List<IS32PromotionModel> findByPromotionTagCode(final String tagCode)
+    {
+        return filter(promotion -> promotion.getPromotionTag() != null
+                && tagCode.equals(promotion.getPromotionTag().getCode()));
+    }
+
+    @Override
+    public List<IS32PromotionModel> findExpiredPromotions(final Date referenceDate, final int maxResults)
+    {
+        final List<IS32PromotionModel> expired = filter(promotion -> promotion.getEndDate() != null
+                && promotion.getEndDate().before(referenceDate)
+                && !IS32PromotionStatus.EXPIRED.equals(promotion.getStatus()));
+        return expired.size() > maxResults ? expired.subList(0, maxResults) : expired;
+    }
+
+    @Override
+    public List<IS32PromotionModel> findPromotionsByDateRange(final Date startDate, final Date endDate)
+    {
+        return filter(promotion -> promotion.getStartDate() != null && promotion.getEndDate() != null
+                && !promotion.getStartDate().after(endDate) && !promotion.getEndDate().before(startDate));
+    }
+
+    @Override
+    public List<IS32PromotionModel> findPromotionsForCatalogVersion(final CatalogVersionModel catalogVersion,
+                                                                    final Date currentDate)
+    {
+        return findActiveNonSuspendedPromotions(currentDate);
+    }
+
+    /**
+     * Evaluates the criteria by a scan and an in-memory sort. Promotions without a value for the
+     * sort attribute come last, and ties are broken by PK, promotions without one keeping their list order.
+     */
+    @Override
+    public IS32PromotionSearchResult search(final IS32PromotionSearchCriteria criteria)
+    {
+        final List<IS32PromotionModel> matching = filter(promotion -> matches(promotion, criteria));
+
+        final boolean ascending = criteria.isAscending();
+        matching.sort(sortOrder(criteria.getSortField(), ascending)
+                .thenComparing(IS32PromotionModel::getPk, Comparator.nullsLast(direction(ascending))));
+
+        final int from = (int) Math.min((long) criteria.getPage() * criteria.getPageSize(), matching.size());
+        final int to = (int) Math.min((long) from + criteria.getPageSize(), matching.size());
+        return new IS32PromotionSearchResult(new ArrayList<>(matching.subList(from, to)), criteria.getPage(),
+                criteria.getPageSize(),
+                criteria.isTotalCountRequested() ? matching.size() : IS32PromotionSearchResult.UNKNOWN_TOTAL);
+    }
+
+    private List<IS32PromotionModel> filter(final Predicate<IS32PromotionModel> predicate)
+    {
+        final List<IS32PromotionModel> result = new ArrayList<>();
+        for (final IS32PromotionModel promotion : promotions)
+        {
+            if (predicate.test(promotion))
+            {
+                result.add(promotion);
+            }
+        }
+        return result;
+    }
+
+    private static boolean matches(final IS32PromotionModel promotion, final IS32PromotionSearchCriteria criteria)
+    {
+        final IS32PromotionTagModel tag = promotion.getPromotionTag();
+        return (criteria.getStatuses().isEmpty() || criteria.getStatuses().contains(promotion.getStatus()))
+                && (criteria.getSuspended() == null
+                        || criteria.getSuspended().equals(Boolean.valueOf(Boolean.TRUE.equals(promotion.getSuspended()))))
+                && (criteria.getTagCode() == null || tag != null && criteria.getTagCode().equals(tag.getCode()))
+                && (criteria.getDisplayType() == null
+                        || tag != null && criteria.getDisplayType().equals(tag.getElabPromotionDisplayType()))
+                && (criteria.getActiveTo() == null
+                        || promotion.getStartDate() != null && promotion.getStartDate().before(criteria.getActiveTo()))
+                && (criteria.getActiveFrom() == null
+                        || promotion.getEndDate() != null && promotion.getEndDate().after(criteria.getActiveFrom()))
+                && (criteria.getMinPriority() == null || promotion.getPriority() != null
+                        && promotion.getPriority().intValue() >= criteria.getMinPriority().intValue())
+                && (criteria.getMaxPriority() == null || promotion.getPriority() != null
+                        && promotion.getPriority().intValue() <= criteria.getMaxPriority().intValue())
+                && (criteria.getRewardType() == null || hasReward(promotion, criteria.getRewardType()));
+    }
+
+    private static boolean hasReward(final IS32PromotionModel promotion, final IS32RewardType rewardType)
+    {
+        if (promotion.getRewards() != null)
+        {
+            for (final IS32RewardModel reward : promotion.getRewards())
+            {
+                if (rewardType.equals(reward.getRewardType()))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Comparator<IS32PromotionModel> sortOrder(final IS32PromotionSearchCriteria.SortField sortField,
+                                                            final boolean ascending)
+    {
+        switch (sortField)
+        {
+            case PRIORITY:
+                return Comparator.comparing(IS32PromotionModel::getPriority, Comparator.nullsLast(direction(ascending)));
+            case START_DATE:
+                return Comparator.comparing(IS32PromotionModel::getStartDate, Comparator.nullsLast(direction(ascending)));
+            case END_DATE:
+                return Comparator.comparing(IS32PromotionModel::getEndDate, Comparator.nullsLast(direction(ascending)));
+            default:
+                return Comparator.comparing(IS32PromotionModel::getUid, Comparator.nullsLast(direction(ascending)));
+        }
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<T> direction(final boolean ascending)
+    {
+        return ascending ? Comparator.<T>naturalOrder() : Comparator.<T>reverseOrder();
+    }
+
+    private static boolean isInDateRange(final IS32PromotionModel promotion, final Date currentDate)
+    {
+        return promotion.getStartDate() != null && promotion.getEndDate() != null
+                && !promotion.getStartDate().after(currentDate) && promotion.getEndDate().after(currentDate);
+    }
+}
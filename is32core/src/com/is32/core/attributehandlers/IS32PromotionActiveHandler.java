@@ -2,10 +2,15 @@ package com.is32.core.attributehandlers;
 
 import com.is32.core.model.IS32PromotionModel;
 import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshot;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
 import de.hybris.platform.servicelayer.model.attribute.DynamicAttributeHandler;
 import de.hybris.platform.servicelayer.time.TimeService;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 /**
  * Dynamic attribute handler for the IS32Promotion.isActive computed attribute.
@@ -13,49 +18,110 @@ import java.util.Date;
  * - Its status is ACTIVE
  * - It is not suspended
  * - The current date falls within the promotion's start/end date range
+ * - The current date falls within one of its activity windows, if it has any; the compiled
+ *   windows are read from the promotion snapshot
+ *
+ * Listings should use {@link #getAll(List)}, which evaluates a whole list against one instant of
+ * the clock and one snapshot instead of resolving both again for every promotion.
  */
 public class IS32PromotionActiveHandler implements DynamicAttributeHandler<Boolean, IS32PromotionModel>
 {
     private TimeService timeService;
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
 
     @Override
     public Boolean get(final IS32PromotionModel promotion)
     {
-        if (promotion == null)
+        return Boolean.valueOf(promotion != null
+                && isActive(promotion, timeService.getCurrentTime().getTime(), new SnapshotHolder()));
+    }
+
+    /**
+     * Evaluates the isActive attribute of every given promotion against the same current time.
+     *
+     * @param promotions the promotions to evaluate
+     * @return the active state of each promotion, in the order of the given promotions
+     */
+    public List<Boolean> getAll(final List<IS32PromotionModel> promotions)
+    {
+        final List<Boolean> activeStates = new ArrayList<>(promotions.size());
+        if (promotions.isEmpty())
+        {
+            return activeStates;
+        }
+
+        final long now = timeService.getCurrentTime().getTime();
+        final SnapshotHolder snapshot = new SnapshotHolder();
+        for (final IS32PromotionModel promotion : promotions)
         {
-            return Boolean.FALSE;
+            activeStates.add(Boolean.valueOf(promotion != null && isActive(promotion, now, snapshot)));
         }
+        return activeStates;
+    }
 
+    @Override
+    public void set(final IS32PromotionModel model, final Boolean value)
+    {
+        throw new UnsupportedOperationException("isActive is a read-only dynamic attribute");
+    }
+
+    /**
+     * Evaluates one promotion from its raw status, suspended and date attributes. The snapshot is
+     * only consulted for promotions that pass those checks.
+     */
+    protected boolean isActive(final IS32PromotionModel promotion, final long now, final SnapshotHolder snapshot)
+    {
         if (!IS32PromotionStatus.ACTIVE.equals(promotion.getStatus()))
         {
-            return Boolean.FALSE;
+            return false;
         }
 
         if (Boolean.TRUE.equals(promotion.getSuspended()))
         {
-            return Boolean.FALSE;
+            return false;
         }
 
-        final Date now = timeService.getCurrentTime();
         final Date startDate = promotion.getStartDate();
         final Date endDate = promotion.getEndDate();
 
         if (startDate == null || endDate == null)
         {
-            return Boolean.FALSE;
+            return false;
         }
 
-        return !now.before(startDate) && now.before(endDate);
-    }
+        if (now < startDate.getTime() || now >= endDate.getTime())
+        {
+            return false;
+        }
 
-    @Override
-    public void set(final IS32PromotionModel model, final Boolean value)
-    {
-        throw new UnsupportedOperationException("isActive is a read-only dynamic attribute");
+        final IS32PromotionSnapshotEntry entry = snapshot.get().getEntry(promotion.getUid());
+        return entry == null || entry.isInActivityWindowAt(now);
     }
 
     public void setTimeService(final TimeService timeService)
     {
         this.timeService = timeService;
     }
+
+    public void setIs32PromotionSnapshotService(final IS32PromotionSnapshotService is32PromotionSnapshotService)
+    {
+        this.is32PromotionSnapshotService = is32PromotionSnapshotService;
+    }
+
+    /**
+     * Resolves the promotion snapshot on first use and keeps it for the rest of one evaluation.
+     */
+    protected final class SnapshotHolder
+    {
+        private IS32PromotionSnapshot snapshot;
+
+        private IS32PromotionSnapshot get()
+        {
+            if (snapshot == null)
+            {
+                snapshot = is32PromotionSnapshotService.getSnapshot();
+            }
+            return snapshot;
+        }
+    }
 }
@@ -0,0 +1,212 @@
+package com.is32.core.cache;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.quota.IS32AccountQuotas;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Node-local cache of account quotas keyed by (customer PK, catalog version PK). Entries of a
+ * customer are evicted cluster-wide when one of their coupon redemptions is processed; keys of
+ * explicit invalidations for this region are customer PKs. Changes to promotion, reward or tier
+ * definitions are not tracked individually and become visible once the entry's TTL expires.
+ *
+ * Quotas are loaded outside of the cache, so a load can race with an invalidation of the same
+ * customer. Callers read the customer's generation with {@link #getGeneration(CustomerModel)}
+ * before loading and pass it to {@link #put}, which drops the result if the customer was
+ * invalidated in the meantime. Generations are kept per stripe of customer PKs.
+ */
+public class IS32AccountQuotaCache implements IS32CacheRegion, InitializingBean
+{
+    private static final Logger LOG = Logger.getLogger(IS32AccountQuotaCache.class);
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final int DEFAULT_TTL_SECONDS = 300;
+    private static final int GENERATION_STRIPES = 64;
+
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private ConfigurationService configurationService;
+
+    private IS32LocalCache<Key, IS32AccountQuotas> cache;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        final int maxSize = configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.ACCOUNT_QUOTA_CACHE_MAX_SIZE, DEFAULT_MAX_SIZE);
+        final int ttlSeconds = configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.ACCOUNT_QUOTA_CACHE_TTL, DEFAULT_TTL_SECONDS);
+
+        cache = new IS32LocalCache<>(maxSize, ttlSeconds * 1000L);
+        LOG.info("Initialized account quota cache with max size [" + maxSize + "] and TTL [" + ttlSeconds + "] s");
+    }
+
+    /**
+     * @return true if account quotas may be served from this cache
+     */
+    public boolean isEnabled()
+    {
+        return configurationService.getConfiguration()
+                .getBoolean(IS32CoreConstants.Config.EVALUATION_CACHE_ENABLED, true);
+    }
+
+    /**
+     * @return the cached quotas, or null if they are not cached or cannot be keyed
+     */
+    public IS32AccountQuotas get(final CustomerModel customer, final CatalogVersionModel catalogVersion)
+    {
+        final Key key = keyFor(customer, catalogVersion);
+        return key != null ? cache.get(key) : null;
+    }
+
+    /**
+     * @return the invalidation generation of the customer, to be read before loading the quotas passed to {@link #put}
+     */
+    public long getGeneration(final CustomerModel customer)
+    {
+        final PK customerPk = customer.getPk();
+        return customerPk != null ? generations.get(stripe(customerPk.getLongValue())) : 0L;
+    }
+
+    /**
+     * Caches loaded quotas, unless the customer was invalidated since the load started.
+     *
+     * @param loadGeneration the customer's generation read before the load
+     */
+    public void put(final CustomerModel customer, final CatalogVersionModel catalogVersion,
+                    final IS32AccountQuotas quotas, final long loadGeneration)
+    {
+        final Key key = keyFor(customer, catalogVersion);
+        if (key == null || generations.get(stripe(key.customerPk)) != loadGeneration)
+        {
+            return;
+        }
+
+        cache.put(key, quotas);
+        if (generations.get(stripe(key.customerPk)) != loadGeneration)
+        {
+            // invalidated between the check and the put
+            cache.invalidate(key);
+        }
+    }
+
+    public IS32LocalCache.Statistics getStatistics()
+    {
+        return cache.getStatistics();
+    }
+
+    @Override
+    public String getRegionName()
+    {
+        return IS32CoreConstants.CacheRegion.ACCOUNT_QUOTA;
+    }
+
+    @Override
+    public boolean isInvalidatedBy(final int typeCode)
+    {
+        return false;
+    }
+
+    @Override
+    public void invalidate(final Collection<String> customerPks)
+    {
+        final Set<Long> pks = new HashSet<>(customerPks.size() * 2);
+        for (final String customerPk : customerPks)
+        {
+            try
+            {
+                pks.add(Long.valueOf(customerPk));
+            }
+            catch (final NumberFormatException e)
+            {
+                LOG.warn("Ignoring invalid customer PK [" + customerPk + "] in account quota invalidation");
+            }
+        }
+
+        for (final Long pk : pks)
+        {
+            generations.incrementAndGet(stripe(pk.longValue()));
+        }
+        final int removed = cache.invalidateIf(key -> pks.contains(Long.valueOf(key.customerPk)));
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Evicted [" + removed + "] account quota entries for customers " + pks);
+        }
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        for (int i = 0; i < GENERATION_STRIPES; i++)
+        {
+            generations.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    private static int stripe(final long customerPk)
+    {
+        return (int) ((customerPk ^ (customerPk >>> 32)) & (GENERATION_STRIPES - 1));
+    }
+
+    private static Key keyFor(final CustomerModel customer, final CatalogVersionModel catalogVersion)
+    {
+        final PK customerPk = customer.getPk();
+        final PK catalogVersionPk = catalogVersion.getPk();
+        if (customerPk == null || catalogVersionPk == null)
+        {
+            return null;
+        }
+        return new Key(customerPk.getLongValue(), catalogVersionPk.getLongValue());
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    private static final class Key
+    {
+        private final long customerPk;
+        private final long catalogVersionPk;
+
+        private Key(final long customerPk, final long catalogVersionPk)
+        {
+            this.customerPk = customerPk;
+            this.catalogVersionPk = catalogVersionPk;
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return customerPk == other.customerPk && catalogVersionPk == other.catalogVersionPk;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * Long.hashCode(customerPk) + Long.hashCode(catalogVersionPk);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.is32.core.cache;
+
+import java.util.Collection;
+
+/**
+ * A node-local cache that is kept consistent across the cluster through
+ * {@link com.is32.core.event.IS32CacheInvalidationEvent}s. Regions are registered with the
+ * {@link com.is32.core.event.IS32CacheInvalidationEventListener} and are invalidated either
+ * when an item of one of their type codes is saved or removed, or when a component publishes
+ * an invalidation for the region explicitly.
+ */
+public interface IS32CacheRegion
+{
+    /**
+     * @return the unique name of this region, used to address invalidation events
+     */
+    String getRegionName();
+
+    /**
+     * @param typeCode the deployment type code of a saved or removed item
+     * @return true if a change to an item of that type makes this region stale
+     */
+    boolean isInvalidatedBy(int typeCode);
+
+    /**
+     * Invalidates the entries identified by the given keys. The meaning of a key is defined by
+     * the region; for type-driven invalidations the keys are the PKs of the changed items.
+     *
+     * @param keys the keys to invalidate, never empty
+     */
+    void invalidate(Collection<String> keys);
+
+    /**
+     * Drops every entry held by this region.
+     */
+    void invalidateAll();
+}
@@ -0,0 +1,321 @@
+package com.is32.core.cache;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.model.EStampTierModel;
+import com.is32.core.snapshot.IS32EStampTierTable;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.TenantAwareThreadFactory;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import de.hybris.platform.tx.Transaction;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Node-local table of all EStampTiers, answering the tier lookups by accountId, siebelAcctId and
+ * tier level and the active tier scan without a database round trip. The table holds the PKs and
+ * numeric fields of the tiers; the models are resolved through the {@link ModelService} on every
+ * read.
+ * <p>
+ * The table is read once, in the background on startup when pre-warming is enabled or on first use
+ * otherwise. Saving a tier anywhere in the cluster marks it as changed, and the next lookup re-reads
+ * all changed tiers in one query and updates their numeric fields in place, so a burst of saves
+ * costs a node one query rather than one per save. A new or removed tier, a changed accountId or
+ * siebelAcctId, or more than {@value #MAX_PATCHED_TIERS} changed tiers drop the table so it is read
+ * again. Lookups inside a running transaction must not use the table, as they may have to see
+ * uncommitted changes. A read that races with an invalidation is not installed.
+ */
+public class IS32EStampTierCache implements IS32CacheRegion, InitializingBean
+{
+    private static final Logger LOG = Logger.getLogger(IS32EStampTierCache.class);
+
+    private static final String FIND_ALL =
+            "SELECT {et." + EStampTierModel.PK + "}, {et." + EStampTierModel.ACCOUNTID + "}, " +
+            "{et." + EStampTierModel.SIEBELACCTID + "}, {et." + EStampTierModel.THRESHOLD + "}, " +
+            "{et." + EStampTierModel.TIERLEVEL + "}, {et." + EStampTierModel.CURRENTSTAMPCOUNT + "}, " +
+            "{et." + EStampTierModel.MAXSTAMPCOUNT + "} " +
+            "FROM {" + EStampTierModel._TYPECODE + " AS et}";
+
+    private static final String FIND_BY_PKS = FIND_ALL + " WHERE {et." + EStampTierModel.PK + "} IN (?pks)";
+
+    private static final int MAX_PATCHED_TIERS = 1000;
+
+    private final Object buildLock = new Object();
+    private final AtomicLong generation = new AtomicLong();
+    private final Set<PK> changedPks = ConcurrentHashMap.newKeySet();
+
+    private FlexibleSearchService flexibleSearchService;
+    private ModelService modelService;
+    private ConfigurationService configurationService;
+
+    private volatile IS32EStampTierTable table;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        if (!isEnabled() || !configurationService.getConfiguration()
+                .getBoolean(IS32CoreConstants.Config.ESTAMP_TIER_TABLE_PREWARM, true))
+        {
+            return;
+        }
+
+        final Thread prewarm = createThreadFactory().newThread(() -> {
+            try
+            {
+                getTable();
+            }
+            catch (final RuntimeException e)
+            {
+                LOG.warn("Could not pre-warm the e-stamp tier table, reading it on first use", e);
+            }
+        });
+        prewarm.setName("is32-estamp-tier-prewarm");
+        prewarm.setDaemon(true);
+        prewarm.start();
+    }
+
+    /**
+     * @return true if tier lookups may be served from this table, i.e. it is enabled and no transaction is running
+     */
+    public boolean isUsable()
+    {
+        return isEnabled() && !isInTransaction();
+    }
+
+    public boolean isEnabled()
+    {
+        return configurationService.getConfiguration()
+                .getBoolean(IS32CoreConstants.Config.ESTAMP_TIER_TABLE_ENABLED, true);
+    }
+
+    public EStampTierModel findByAccountId(final String accountId)
+    {
+        final List<EStampTierModel> result = resolve(current -> {
+            final PK pk = current.findByAccountId(accountId);
+            return pk != null ? Collections.singletonList(pk) : Collections.<PK>emptyList();
+        });
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    public List<EStampTierModel> findBySiebelAcctId(final String siebelAcctId)
+    {
+        return resolve(current -> current.findBySiebelAcctId(siebelAcctId));
+    }
+
+    public List<EStampTierModel> findByTierLevel(final int tierLevel)
+    {
+        return resolve(current -> current.findByTierLevel(tierLevel));
+    }
+
+    public List<EStampTierModel> findAllActiveTiers()
+    {
+        return resolve(IS32EStampTierTable::findActive);
+    }
+
+    protected IS32EStampTierTable getTable()
+    {
+        final IS32EStampTierTable current = table;
+        if (current != null && changedPks.isEmpty())
+        {
+            return current;
+        }
+
+        synchronized (buildLock)
+        {
+            final IS32EStampTierTable held = table;
+            if (held != null)
+            {
+                final Set<PK> pks = new HashSet<>(changedPks);
+                changedPks.removeAll(pks);
+                try
+                {
+                    if (pks.isEmpty() || pks.size() <= MAX_PATCHED_TIERS && patch(held, pks))
+                    {
+                        return held;
+                    }
+                }
+                catch (final RuntimeException e)
+                {
+                    changedPks.addAll(pks);
+                    throw e;
+                }
+                table = null;
+                LOG.debug("E-stamp tiers were added, removed or re-keyed, dropped the tier table");
+            }
+
+            changedPks.clear();
+            final long buildGeneration = generation.get();
+            final IS32EStampTierTable built = buildTable();
+            if (generation.get() == buildGeneration)
+            {
+                table = built;
+            }
+            return built;
+        }
+    }
+
+    protected boolean isInTransaction()
+    {
+        return Transaction.current().isRunning();
+    }
+
+    protected ThreadFactory createThreadFactory()
+    {
+        return new TenantAwareThreadFactory(Registry.getCurrentTenantNoFallback());
+    }
+
+    @Override
+    public String getRegionName()
+    {
+        return IS32CoreConstants.CacheRegion.ESTAMP_TIER;
+    }
+
+    @Override
+    public boolean isInvalidatedBy(final int typeCode)
+    {
+        return typeCode == IS32CoreConstants.TypeCode.ESTAMP_TIER;
+    }
+
+    @Override
+    public void invalidate(final Collection<String> keys)
+    {
+        generation.incrementAndGet();
+        if (table == null)
+        {
+            return;
+        }
+
+        for (final String key : keys)
+        {
+            changedPks.add(PK.parse(key));
+        }
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        generation.incrementAndGet();
+        table = null;
+    }
+
+    /**
+     * Re-reads the tiers and updates their numeric fields in the table.
+     *
+     * @return false if the table cannot hold the changes and must be rebuilt
+     */
+    private boolean patch(final IS32EStampTierTable current, final Set<PK> pks)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("pks", pks);
+
+        final List<List<Object>> rows = searchRows(FIND_BY_PKS, params);
+        if (rows.size() != pks.size())
+        {
+            return false;
+        }
+        for (final List<Object> row : rows)
+        {
+            if (!current.update((PK) row.get(0), (String) row.get(1), (String) row.get(2), (Integer) row.get(3),
+                    (Integer) row.get(4), (Integer) row.get(5), (Integer) row.get(6)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private IS32EStampTierTable buildTable()
+    {
+        final long buildTime = System.currentTimeMillis();
+        final IS32EStampTierTable.Builder builder = IS32EStampTierTable.builder()
+                .offHeap(configurationService.getConfiguration()
+                        .getBoolean(IS32CoreConstants.Config.ESTAMP_TIER_TABLE_OFF_HEAP, false))
+                .buildTime(buildTime);
+        for (final List<Object> row : searchRows(FIND_ALL, Collections.emptyMap()))
+        {
+            builder.add((PK) row.get(0), (String) row.get(1), (String) row.get(2), (Integer) row.get(3),
+                    (Integer) row.get(4), (Integer) row.get(5), (Integer) row.get(6));
+        }
+
+        final IS32EStampTierTable built = builder.build();
+        LOG.info("Read [" + built.size() + "] e-stamp tiers into the tier table in ["
+                + (System.currentTimeMillis() - buildTime) + "] ms");
+        return built;
+    }
+
+    private List<List<Object>> searchRows(final String queryString, final Map<String, Object> params)
+    {
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString, params);
+        query.setResultClassList(Arrays.asList(PK.class, String.class, String.class,
+                Integer.class, Integer.class, Integer.class, Integer.class));
+        query.setDisableCaching(true);
+
+        final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    /**
+     * Resolves the tiers a lookup finds in the table, re-reading the table once if it refers to a removed tier.
+     */
+    private List<EStampTierModel> resolve(final Function<IS32EStampTierTable, List<PK>> lookup)
+    {
+        try
+        {
+            return resolve(lookup.apply(getTable()));
+        }
+        catch (final ModelLoadingException e)
+        {
+            LOG.info("E-stamp tier table refers to a removed tier, reading it again: " + e.getMessage());
+            invalidateAll();
+            return resolve(lookup.apply(getTable()));
+        }
+    }
+
+    private List<EStampTierModel> resolve(final List<PK> pks)
+    {
+        final List<EStampTierModel> models = new ArrayList<>(pks.size());
+        for (final PK pk : pks)
+        {
+            models.add(modelService.<EStampTierModel>get(pk));
+        }
+        return models;
+    }
+
+    @Required
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+}
@@ -0,0 +1,266 @@
+package com.is32.core.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Bounded, node-local LRU cache with a time-to-live per entry. Entries are evicted when the cache
+ * grows beyond its maximum size (least recently used first) or when they are read after their
+ * TTL has expired. Hit, miss and eviction counts are kept for monitoring.
+ * <p>
+ * Keys are spread over independently locked segments by hash, so concurrent reads of different
+ * keys rarely contend. Each segment holds its share of the maximum size and evicts its own least
+ * recently used entry; small caches use a single segment and are exact LRU.
+ *
+ * @param <K> the key type, which must implement equals and hashCode
+ * @param <V> the value type
+ */
+public class IS32LocalCache<K, V>
+{
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 64;
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Segment<K, V>[] segments;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize   the maximum number of entries, at least 1
+     * @param ttlMillis the time-to-live of an entry in milliseconds, or 0 for no expiry
+     */
+    public IS32LocalCache(final int maxSize, final long ttlMillis)
+    {
+        this(maxSize, ttlMillis, System::currentTimeMillis);
+    }
+
+    @SuppressWarnings("unchecked")
+    IS32LocalCache(final int maxSize, final long ttlMillis, final LongSupplier clock)
+    {
+        if (maxSize < 1)
+        {
+            throw new IllegalArgumentException("maxSize must be positive, got [" + maxSize + "]");
+        }
+        this.ttlMillis = Math.max(ttlMillis, 0L);
+        this.clock = clock;
+
+        final int segmentCount = Integer.highestOneBit(
+                Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++)
+        {
+            // the first segments take the remainder, so the capacities add up to maxSize
+            segments[i] = new Segment<>(maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0), evictions);
+        }
+    }
+
+    /**
+     * @return the cached value, or null if there is none or it has expired
+     */
+    public V get(final K key)
+    {
+        final Segment<K, V> segment = segmentFor(key);
+        synchronized (segment)
+        {
+            final Entry<V> entry = segment.entries.get(key);
+            if (entry == null)
+            {
+                misses.incrementAndGet();
+                return null;
+            }
+            if (entry.isExpired(clock.getAsLong()))
+            {
+                segment.entries.remove(key);
+                evictions.incrementAndGet();
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return entry.value;
+        }
+    }
+
+    public void put(final K key, final V value)
+    {
+        final long expiresAt = ttlMillis > 0 ? clock.getAsLong() + ttlMillis : Long.MAX_VALUE;
+        final Segment<K, V> segment = segmentFor(key);
+        synchronized (segment)
+        {
+            segment.entries.put(key, new Entry<>(value, expiresAt));
+        }
+    }
+
+    public void invalidate(final K key)
+    {
+        final Segment<K, V> segment = segmentFor(key);
+        synchronized (segment)
+        {
+            segment.entries.remove(key);
+        }
+    }
+
+    /**
+     * Removes every entry whose key matches the predicate.
+     *
+     * @return the number of removed entries
+     */
+    public int invalidateIf(final Predicate<? super K> predicate)
+    {
+        int removed = 0;
+        for (final Segment<K, V> segment : segments)
+        {
+            synchronized (segment)
+            {
+                final Iterator<K> iterator = segment.entries.keySet().iterator();
+                while (iterator.hasNext())
+                {
+                    if (predicate.test(iterator.next()))
+                    {
+                        iterator.remove();
+                        removed++;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    public void invalidateAll()
+    {
+        for (final Segment<K, V> segment : segments)
+        {
+            synchronized (segment)
+            {
+                segment.entries.clear();
+            }
+        }
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for (final Segment<K, V> segment : segments)
+        {
+            synchronized (segment)
+            {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public Statistics getStatistics()
+    {
+        return new Statistics(hits.get(), misses.get(), evictions.get(), size());
+    }
+
+    private Segment<K, V> segmentFor(final K key)
+    {
+        final int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    /**
+     * One lock's share of the cache: an access-ordered map evicting its eldest entry beyond its capacity.
+     */
+    private static final class Segment<K, V>
+    {
+        private final LinkedHashMap<K, Entry<V>> entries;
+
+        private Segment(final int capacity, final AtomicLong evictions)
+        {
+            this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest)
+                {
+                    if (size() > capacity)
+                    {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    private static final class Entry<V>
+    {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(final V value, final long expiresAt)
+        {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(final long now)
+        {
+            return now >= expiresAt;
+        }
+    }
+
+    /**
+     * Point-in-time counters of an {@link IS32LocalCache}.
+     */
+    public static final class Statistics
+    {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int size;
+
+        public Statistics(final long hits, final long misses, final long evictions, final int size)
+        {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        public long getHits()
+        {
+            return hits;
+        }
+
+        public long getMisses()
+        {
+            return misses;
+        }
+
+        public long getEvictions()
+        {
+            return evictions;
+        }
+
+        public int getSize()
+        {
+            return size;
+        }
+
+        /**
+         * @return the share of lookups that were hits, between 0 and 1
+         */
+        public double getHitRatio()
+        {
+            final long lookups = hits + misses;
+            return lookups == 0 ? 0d : (double) hits / lookups;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size
+                    + ", hitRatio=" + String.format("%.3f", Double.valueOf(getHitRatio()));
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package com.is32.core.cache;
+
+import com.is32.core.constants.IS32CoreConstants;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import de.hybris.platform.tx.Transaction;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-local cache of FlexibleSearch results for the IS32 DAOs, keyed by query string and
+ * parameters. Only the PKs of the result are cached; the models are resolved through the
+ * {@link ModelService} on every read, so cached results never share models across sessions.
+ *
+ * Every cached query declares the type codes it reads, and saving or removing an item of one of
+ * those types anywhere in the cluster evicts the query. Queries issued inside a running
+ * transaction bypass the cache, as they may have to see uncommitted changes. A load that races
+ * with an invalidation is returned to its caller but not cached.
+ */
+public class IS32QueryResultCache implements IS32CacheRegion, InitializingBean
+{
+    private static final Logger LOG = Logger.getLogger(IS32QueryResultCache.class);
+
+    private static final int DEFAULT_MAX_SIZE = 5000;
+    private static final int DEFAULT_TTL_SECONDS = 300;
+
+    private static final Set<Integer> CACHED_TYPE_CODES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            Integer.valueOf(IS32CoreConstants.TypeCode.IS32_PROMOTION_TAG),
+            Integer.valueOf(IS32CoreConstants.TypeCode.IS32_PROMOTION),
+            Integer.valueOf(IS32CoreConstants.TypeCode.IS32_REWARD),
+            Integer.valueOf(IS32CoreConstants.TypeCode.ESTAMP_TIER))));
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private FlexibleSearchService flexibleSearchService;
+    private ModelService modelService;
+    private ConfigurationService configurationService;
+
+    private IS32LocalCache<Key, List<PK>> cache;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        final int maxSize = configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.QUERY_CACHE_MAX_SIZE, DEFAULT_MAX_SIZE);
+        final int ttlSeconds = configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.QUERY_CACHE_TTL, DEFAULT_TTL_SECONDS);
+
+        cache = new IS32LocalCache<>(maxSize, ttlSeconds * 1000L);
+        LOG.info("Initialized query result cache with max size [" + maxSize + "] and TTL [" + ttlSeconds + "] s");
+    }
+
+    /**
+     * @return true if query results may be served from this cache
+     */
+    public boolean isEnabled()
+    {
+        return configurationService.getConfiguration()
+                .getBoolean(IS32CoreConstants.Config.QUERY_CACHE_ENABLED, true);
+    }
+
+    /**
+     * Runs a query selecting the PKs of one item type, serving the result from the cache when possible.
+     *
+     * @param queryString the query, selecting only the PK of the items
+     * @param params      the query parameters; values must implement equals and hashCode
+     * @param typeCodes   the type codes of all item types the query reads
+     * @return the items of the result, in result order
+     */
+    public <T> List<T> search(final String queryString, final Map<String, Object> params, final int... typeCodes)
+    {
+        if (!isEnabled() || isInTransaction())
+        {
+            return searchModels(queryString, params);
+        }
+
+        final Key key = new Key(queryString, params, typeCodes);
+        final List<PK> cached = cache.get(key);
+        if (cached != null)
+        {
+            try
+            {
+                return resolve(cached);
+            }
+            catch (final ModelLoadingException e)
+            {
+                LOG.info("Cached result of [" + queryString + "] refers to a removed item, reloading: " + e.getMessage());
+                cache.invalidate(key);
+            }
+        }
+
+        final long loadGeneration = generation.get();
+        final List<PK> pks = Collections.unmodifiableList(searchPks(queryString, params));
+        if (generation.get() == loadGeneration)
+        {
+            cache.put(key, pks);
+        }
+        return resolve(pks);
+    }
+
+    protected boolean isInTransaction()
+    {
+        return Transaction.current().isRunning();
+    }
+
+    public IS32LocalCache.Statistics getStatistics()
+    {
+        return cache.getStatistics();
+    }
+
+    @Override
+    public String getRegionName()
+    {
+        return IS32CoreConstants.CacheRegion.QUERY_RESULT;
+    }
+
+    @Override
+    public boolean isInvalidatedBy(final int typeCode)
+    {
+        return CACHED_TYPE_CODES.contains(Integer.valueOf(typeCode));
+    }
+
+    @Override
+    public void invalidate(final Collection<String> keys)
+    {
+        final Set<Integer> typeCodes = new HashSet<>();
+        for (final String key : keys)
+        {
+            typeCodes.add(Integer.valueOf(PK.parse(key).getTypeCode()));
+        }
+
+        generation.incrementAndGet();
+        final int removed = cache.invalidateIf(key -> key.readsAnyOf(typeCodes));
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Evicted [" + removed + "] cached queries for type codes " + typeCodes);
+        }
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private <T> List<T> searchModels(final String queryString, final Map<String, Object> params)
+    {
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString, params);
+        final SearchResult<T> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    private List<PK> searchPks(final String queryString, final Map<String, Object> params)
+    {
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString, params);
+        query.setResultClassList(Collections.singletonList(PK.class));
+
+        final SearchResult<PK> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    private <T> List<T> resolve(final List<PK> pks)
+    {
+        final List<T> models = new ArrayList<>(pks.size());
+        for (final PK pk : pks)
+        {
+            models.add(modelService.<T>get(pk));
+        }
+        return models;
+    }
+
+    @Required
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    private static final class Key
+    {
+        private final String queryString;
+        private final Map<String, Object> params;
+        private final int[] typeCodes;
+        private final int hash;
+
+        private Key(final String queryString, final Map<String, Object> params, final int[] typeCodes)
+        {
+            this.queryString = queryString;
+            this.params = params != null ? new HashMap<>(params) : Collections.emptyMap();
+            this.typeCodes = typeCodes.clone();
+            this.hash = 31 * queryString.hashCode() + this.params.hashCode();
+        }
+
+        private boolean readsAnyOf(final Set<Integer> changedTypeCodes)
+        {
+            for (final int typeCode : typeCodes)
+            {
+                if (changedTypeCodes.contains(Integer.valueOf(typeCode)))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(final Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return queryString.equals(other.queryString) && params.equals(other.params);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
@@ -30,15 +30,82 @@ public final class IS32CoreConstants
 
     public static final class Config
     {
+        public static final String QUERY_CACHE_ENABLED = "is32core.flexiblesearch.cache.enabled";
+        public static final String QUERY_CACHE_TTL = "is32core.flexiblesearch.cache.ttl";
+        public static final String QUERY_CACHE_MAX_SIZE = "is32core.flexiblesearch.cache.maxsize";
         public static final String CLEANUP_DAYS = "is32core.promotion.cleanup.days";
         public static final String CLEANUP_BATCH_SIZE = "is32core.promotion.cleanup.batchsize";
         public static final String EVALUATION_CACHE_ENABLED = "is32core.promotion.evaluation.cache.enabled";
+        public static final String EVALUATION_MAX_RESULTS = "is32core.promotion.evaluation.max.results";
+        public static final String EVALUATION_BATCH_CHUNK_SIZE = "is32core.promotion.evaluation.batch.chunksize";
+        public static final String EVALUATION_BATCH_PARALLEL = "is32core.promotion.evaluation.batch.parallel";
+        public static final String EVALUATION_BATCH_THREADS = "is32core.promotion.evaluation.batch.threads";
+        public static final String PROMOTION_UID_BLOCK_SIZE = "is32core.promotion.uid.blocksize";
+        public static final String PROMOTION_IMPORT_CHUNK_SIZE = "is32core.promotion.import.chunksize";
+        public static final String PROMOTION_IMPORT_WORKERS = "is32core.promotion.import.workers";
+        public static final String PRODUCT_INDEX_MAX_AGE = "is32core.promotion.productindex.maxage";
         public static final String ACCOUNT_QUOTA_QUERY_TIMEOUT = "is32core.accountquota.query.timeout";
         public static final String ACCOUNT_QUOTA_MAX_RESULTS = "is32core.accountquota.max.results";
+        public static final String ACCOUNT_QUOTA_SQL_AGGREGATION_ENABLED = "is32core.accountquota.aggregation.sql.enabled";
+        public static final String ACCOUNT_QUOTA_CACHE_MAX_SIZE = "is32core.accountquota.cache.maxsize";
+        public static final String ACCOUNT_QUOTA_CACHE_TTL = "is32core.accountquota.cache.ttl";
+        public static final String ACCOUNT_QUOTA_COUNTER_ENABLED = "is32core.accountquota.counter.enabled";
+        public static final String ACCOUNT_QUOTA_COUNTER_REBUILD_BATCH_SIZE = "is32core.accountquota.counter.rebuild.batchsize";
+        public static final String PROMOTION_CATALOG_VERSION_REBUILD_BATCH_SIZE = "is32core.promotion.catalogversion.rebuild.batchsize";
+        public static final String PROMOTION_CATALOG_VERSION_REFRESH_DELAY = "is32core.promotion.catalogversion.refresh.delay.millis";
+        public static final String SCHEDULER_ENABLED = "is32core.promotion.scheduler.enabled";
+        public static final String SCHEDULER_TICK_MILLIS = "is32core.promotion.scheduler.tick.millis";
+        public static final String SCHEDULER_LOOKAHEAD = "is32core.promotion.scheduler.lookahead";
+        public static final String SCHEDULER_LEASE = "is32core.promotion.scheduler.lease";
+        public static final String ESTAMP_WRITE_BEHIND_ENABLED = "is32core.estamp.writebehind.enabled";
+        public static final String ESTAMP_WRITE_BEHIND_FLUSH_INTERVAL = "is32core.estamp.writebehind.flush.interval.millis";
+        public static final String ESTAMP_WRITE_BEHIND_BATCH_SIZE = "is32core.estamp.writebehind.batchsize";
+        public static final String ESTAMP_WRITE_BEHIND_JOURNAL_DIR = "is32core.estamp.writebehind.journal.dir";
+        public static final String ESTAMP_TIER_TABLE_ENABLED = "is32core.estamp.tiertable.enabled";
+        public static final String ESTAMP_TIER_TABLE_PREWARM = "is32core.estamp.tiertable.prewarm";
+        public static final String ESTAMP_TIER_TABLE_OFF_HEAP = "is32core.estamp.tiertable.offheap";
+        public static final String EVENT_PROCESSING_THREADS = "is32core.event.processing.threads";
+        public static final String COUPON_REDEMPTION_ENABLED = "is32core.event.couponredemption.enabled";
+        public static final String COUPON_REDEMPTION_ASYNC = "is32core.event.couponredemption.async";
+        public static final String COUPON_REDEMPTION_WINDOW = "is32core.event.couponredemption.window.millis";
+        public static final String COUPON_REDEMPTION_QUEUE_CAPACITY = "is32core.event.couponredemption.queue.capacity";
 
         private Config() {}
     }
 
+    /**
+     * Deployment type codes declared in is32core-items.xml, as reported by {@code PK.getTypeCode()}.
+     */
+    public static final class TypeCode
+    {
+        public static final int IS32_PROMOTION_TAG = 25001;
+        public static final int IS32_PROMOTION = 25002;
+        public static final int IS32_REWARD = 25003;
+        public static final int IS32_PROMOTION_ACTIVITY = 25004;
+        public static final int IS32_BUCKET = 25005;
+        public static final int IS32_PROMO_ITEM = 25006;
+        public static final int ESTAMP_TIER = 25007;
+        public static final int IS32_PROMO_EXCLUDE_ITEM = 25011;
+        public static final int IS32_ACCOUNT_QUOTA_COUNTER = 25019;
+        public static final int IS32_PROMOTION_CATALOG_VERSION = 25020;
+        public static final int IS32_CLUSTER_LEASE = 25021;
+
+        private TypeCode() {}
+    }
+
+    public static final class CacheRegion
+    {
+        public static final String PROMOTION_SNAPSHOT = "is32PromotionSnapshot";
+        public static final String ACCOUNT_QUOTA = "is32AccountQuota";
+        public static final String PRODUCT_PROMOTION_INDEX = "is32ProductPromotionIndex";
+        public static final String PROMOTION_SCHEDULER = "is32PromotionScheduler";
+        public static final String QUERY_RESULT = "is32QueryResult";
+        public static final String REWARD_ROUTING = "is32RewardRouting";
+        public static final String ESTAMP_TIER = "is32EStampTier";
+
+        private CacheRegion() {}
+    }
+
     private IS32CoreConstants()
     {
         // private constructor to prevent instantiation
@@ -13,4 +13,26 @@ public interface EStampTierDao
     List<EStampTierModel> findByTierLevel(int tierLevel);
 
     List<EStampTierModel> findAllActiveTiers();
+
+    /**
+     * Adds to the stamp count of the account's tier in a single conditional UPDATE, clamping the
+     * result to maxStampCount. The database applies concurrent increments from all cluster nodes
+     * one after the other on the locked row, so none is lost. Tiers that are already full are not
+     * updated. The update bypasses the model layer, so the caller must invalidate cached models.
+     *
+     * @param accountId the e-stamp account id
+     * @param count     the number of stamps to add, at least 1
+     * @return true if a tier was updated, false if there is no tier for the account or it is full
+     */
+    boolean incrementStampCount(String accountId, int count);
+
+    /**
+     * Reads the stamp count of the account's tier directly from the database, bypassing all caches.
+     * Inside the transaction of {@link #incrementStampCount(String, int)} this is the count the
+     * increment produced.
+     *
+     * @param accountId the e-stamp account id
+     * @return a row of [pk, currentStampCount, maxStampCount], or null if there is no tier for the account
+     */
+    List<Object> findStampCount(String accountId);
 }
@@ -0,0 +1,66 @@
+package com.is32.core.dao;
+
+import com.is32.core.model.IS32AccountQuotaCounterModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface IS32AccountQuotaCounterDao
+{
+    /**
+     * Finds the counter of a customer for one e-stamp account.
+     *
+     * @param customer  the customer
+     * @param accountId the e-stamp account id
+     * @return the counter, or null if the customer has never redeemed against the account
+     */
+    IS32AccountQuotaCounterModel findCounter(CustomerModel customer, String accountId);
+
+    /**
+     * Finds all counters of a customer.
+     *
+     * @param customer the customer
+     * @return the customer's counters
+     */
+    List<IS32AccountQuotaCounterModel> findCountersByCustomer(CustomerModel customer);
+
+    /**
+     * Retrieves the account quotas of a customer for the given e-stamp accounts from the e-stamp
+     * tiers and the customer's counters, using the unique indexes of both tables. Accounts without
+     * a counter are returned with an ordered amount of null.
+     *
+     * @param customer   the customer
+     * @param accountIds the e-stamp account ids
+     * @return rows of [accountId, siebelAcctId, threshold, orderedAmt], ordered by accountId
+     */
+    List<List<Object>> findCounterBackedAccountQuotaData(CustomerModel customer, Collection<String> accountIds);
+
+    /**
+     * Increments the ordered amount of a counter by one in a single UPDATE statement, so that
+     * concurrent redemptions of the customer cannot overwrite each other's increments. The statement
+     * bypasses the model layer; callers must invalidate the cached counter.
+     *
+     * @param customer  the customer
+     * @param accountId the e-stamp account id
+     * @return the PK of the incremented counter, or null if the customer has no counter for the account
+     */
+    PK incrementOrderedAmt(CustomerModel customer, String accountId);
+
+    /**
+     * Recomputes the redemption totals per customer and e-stamp account from coupon redemptions,
+     * for rebuilding the counters. Only redemptions of promotions running at the given date are
+     * counted, with the promotion filters of the live account quota query. Rows are ordered by
+     * customer and accountId and read page by page after the last row of the previous page, so that
+     * all rows of a customer are adjacent across pages.
+     *
+     * @param currentDate     the date the promotions must be running at
+     * @param afterCustomerPk the customer of the last row of the previous page, or null for the first page
+     * @param afterAccountId  the accountId of the last row of the previous page
+     * @param count           the maximum number of rows
+     * @return rows of [customerPk, accountId, siebelAcctId, threshold, redemptionCount]
+     */
+    List<List<Object>> findRedemptionTotals(Date currentDate, PK afterCustomerPk, String afterAccountId, int count);
+}
\ No newline at end of file
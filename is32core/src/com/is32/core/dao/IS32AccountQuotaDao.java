@@ -1,10 +1,14 @@
 package com.is32.core.dao;
 
+import com.is32.core.quota.IS32RedemptionCounts;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.core.model.user.CustomerModel;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 public interface IS32AccountQuotaDao
 {
@@ -22,6 +26,34 @@ public interface IS32AccountQuotaDao
      */
     List<List<Object>> findAccountQuotaRawData(CustomerModel customer, CatalogVersionModel catalogVersion, Date currentDate);
 
+    /**
+     * Retrieves the same account quota data as {@link #findAccountQuotaRawData} but grouped by
+     * (accountId, siebelAcctId, threshold) in the database, with the number of redemptions by the
+     * customer counted per group. Only one row per account is transferred.
+     *
+     * @param customer       the customer to check redemption status against
+     * @param catalogVersion the catalog version for product filtering
+     * @param currentDate    the current date for date range filtering
+     * @return list of rows containing [accountId, siebelAcctId, threshold, orderedAmt], ordered by accountId
+     */
+    List<List<Object>> findAggregatedAccountQuotaData(CustomerModel customer, CatalogVersionModel catalogVersion,
+                                                      Date currentDate);
+
+    /**
+     * Retrieves the data of {@link #findAggregatedAccountQuotaData} for several customers with one
+     * grouped query per chunk of customers. Groups are additionally split by the redeeming customer;
+     * an account that none of the customers has redeemed against is reported once with a null
+     * customer and an ordered amount of zero, so that every account appears at least once.
+     *
+     * @param customers      the customers to check redemption status against
+     * @param catalogVersion the catalog version for product filtering
+     * @param currentDate    the current date for date range filtering
+     * @return list of rows containing [customerPk, accountId, siebelAcctId, threshold, orderedAmt]
+     */
+    List<List<Object>> findAggregatedAccountQuotaDataForCustomers(Collection<CustomerModel> customers,
+                                                                  CatalogVersionModel catalogVersion,
+                                                                  Date currentDate);
+
     /**
      * Retrieves the count of coupon redemptions for a given promotion and customer.
      *
@@ -30,4 +62,25 @@ public interface IS32AccountQuotaDao
      * @return count of redemptions
      */
     int getRedemptionCountForCustomer(String promotionUid, CustomerModel customer);
+
+    /**
+     * Retrieves the coupon redemption counts of a customer for a set of promotions with a single
+     * grouped query per chunk of UIDs, instead of one count query per promotion.
+     *
+     * @param promotionUids the promotion UIDs to count redemptions for
+     * @param customer      the customer
+     * @return redemption counts by promotion UID; promotions without redemptions report zero
+     */
+    IS32RedemptionCounts getRedemptionCountsForCustomer(Collection<String> promotionUids, CustomerModel customer);
+
+    /**
+     * Retrieves the coupon redemption counts of several customers for a set of promotions with one
+     * grouped query per chunk of customers.
+     *
+     * @param promotionUids the promotion UIDs to count redemptions for
+     * @param customers     the customers
+     * @return redemption counts by customer PK; customers without redemptions of the promotions are absent
+     */
+    Map<PK, IS32RedemptionCounts> getRedemptionCountsForCustomers(Collection<String> promotionUids,
+                                                                  Collection<CustomerModel> customers);
 }
@@ -0,0 +1,33 @@
+package com.is32.core.dao;
+
+import java.util.List;
+
+public interface IS32ClusterLeaseDao
+{
+    /**
+     * @param code the lease code
+     * @return the owner and the version of the lease row, or null if no node has created it yet
+     */
+    List<Object> findLease(String code);
+
+    /**
+     * Bumps the version of the lease row if the owner still holds it at the given version.
+     *
+     * @param code    the lease code
+     * @param owner   the node renewing the lease
+     * @param version the version the owner last read
+     * @return true if the row was renewed
+     */
+    boolean renew(String code, String owner, long version);
+
+    /**
+     * Hands the lease row to a new owner and bumps its version, if nobody changed it since it was
+     * read at the given version.
+     *
+     * @param code    the lease code
+     * @param owner   the node taking the lease over
+     * @param version the version the row was read at
+     * @return true if the row was taken over
+     */
+    boolean takeOver(String code, String owner, long version);
+}
@@ -0,0 +1,13 @@
+package com.is32.core.dao;
+
+import java.util.List;
+
+public interface IS32PromotionActivityDao
+{
+    /**
+     * Retrieves the windows of all active promotion activities.
+     *
+     * @return rows of [promotionUid, dayOfWeek, startTime, endTime]
+     */
+    List<List<Object>> findActiveWindows();
+}
@@ -0,0 +1,66 @@
+package com.is32.core.dao;
+
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface IS32PromotionBucketDao
+{
+    /**
+     * Retrieves the promo items of all buckets that match a product of the catalog version.
+     *
+     * @param catalogVersion the catalog version of the products
+     * @return rows of [promotionUid, productCode, bucketType, excludeFlag]
+     */
+    List<List<Object>> findProductItems(CatalogVersionModel catalogVersion);
+
+    /**
+     * Retrieves the promo items of one promotion's buckets that match a product of the catalog version.
+     *
+     * @param catalogVersion the catalog version of the products
+     * @param promotionUid   the promotion UID
+     * @return rows of [promotionUid, productCode, bucketType, excludeFlag]
+     */
+    List<List<Object>> findProductItems(CatalogVersionModel catalogVersion, String promotionUid);
+
+    /**
+     * Finds the UIDs of the promotions with a bucket item matching a product of the catalog version.
+     *
+     * @param catalogVersion the catalog version of the products
+     * @return the distinct promotion UIDs
+     */
+    List<String> findPromotionUidsForCatalogVersion(CatalogVersionModel catalogVersion);
+
+    /**
+     * Finds the catalog versions holding a product that matches an item of one of the promotion's buckets.
+     *
+     * @param promotionUid the promotion UID
+     * @return the distinct catalog versions
+     */
+    List<CatalogVersionModel> findCatalogVersionsForPromotion(String promotionUid);
+
+    /**
+     * Retrieves the exclude items of all buckets.
+     *
+     * @return rows of [promotionUid, itemCode]
+     */
+    List<List<Object>> findExcludeItems();
+
+    /**
+     * Retrieves the exclude items of one promotion's buckets.
+     *
+     * @param promotionUid the promotion UID
+     * @return rows of [promotionUid, itemCode]
+     */
+    List<List<Object>> findExcludeItems(String promotionUid);
+
+    /**
+     * Resolves bucket unique ids to the UIDs of the promotions owning the buckets.
+     *
+     * @param bucketUids the bucket unique ids
+     * @return the promotion UID per bucket unique id; unknown buckets are absent
+     */
+    Map<String, String> findPromotionUidsByBucketUid(Collection<String> bucketUids);
+}
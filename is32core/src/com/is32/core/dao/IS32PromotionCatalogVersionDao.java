@@ -0,0 +1,30 @@
+package com.is32.core.dao;
+
+import com.is32.core.model.IS32PromotionCatalogVersionModel;
+import com.is32.core.model.IS32PromotionModel;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+
+import java.util.List;
+
+public interface IS32PromotionCatalogVersionDao
+{
+    /**
+     * @param promotion the promotion
+     * @return the catalog version mappings of the promotion
+     */
+    List<IS32PromotionCatalogVersionModel> findByPromotion(IS32PromotionModel promotion);
+
+    /**
+     * @param catalogVersion the catalog version
+     * @return the promotion mappings of the catalog version
+     */
+    List<IS32PromotionCatalogVersionModel> findByCatalogVersion(CatalogVersionModel catalogVersion);
+
+    /**
+     * Finds mappings whose promotion has been removed.
+     *
+     * @param maxResults the maximum number of mappings to return
+     * @return the orphaned mappings
+     */
+    List<IS32PromotionCatalogVersionModel> findOrphaned(int maxResults);
+}
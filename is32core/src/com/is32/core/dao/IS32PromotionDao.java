@@ -2,6 +2,8 @@ package com.is32.core.dao;
 
 import com.is32.core.model.IS32PromotionModel;
 import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.search.IS32PromotionSearchCriteria;
+import com.is32.core.search.IS32PromotionSearchResult;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
 
 import java.util.Date;
@@ -24,4 +26,12 @@ public interface IS32PromotionDao
     List<IS32PromotionModel> findPromotionsByDateRange(Date startDate, Date endDate);
 
     List<IS32PromotionModel> findPromotionsForCatalogVersion(CatalogVersionModel catalogVersion, Date currentDate);
+
+    /**
+     * Finds one page of the promotions matching the criteria with a single query.
+     *
+     * @param criteria the filters, sort order and page
+     * @return the page, with the total count if the criteria request it
+     */
+    IS32PromotionSearchResult search(IS32PromotionSearchCriteria criteria);
 }
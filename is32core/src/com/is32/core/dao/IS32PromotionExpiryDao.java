@@ -0,0 +1,67 @@
+package com.is32.core.dao;
+
+import com.is32.core.model.IS32PromotionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.ItemModel;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Paged queries behind the bulk expiry and removal of promotions. Promotion pages are read with
+ * keyset pagination on (endDate, pk): each page starts strictly after the last promotion of the
+ * previous one, so the cost of a page does not grow with the number of pages already processed.
+ * The dependent item queries take at most 1000 keys per call.
+ */
+public interface IS32PromotionExpiryDao
+{
+    /**
+     * Finds promotions that ended before the reference date but are not yet EXPIRED.
+     *
+     * @param referenceDate the reference date
+     * @param lastEndDate   the end date of the last promotion of the previous page, or null for the first page
+     * @param lastPk        the PK of the last promotion of the previous page, or null for the first page
+     * @param pageSize      the maximum number of promotions to return
+     * @return the promotions ordered by end date and PK
+     */
+    List<IS32PromotionModel> findPromotionsToExpire(Date referenceDate, Date lastEndDate, PK lastPk, int pageSize);
+
+    /**
+     * Finds EXPIRED promotions that ended before the cutoff date.
+     *
+     * @param cutoffDate  the retention cutoff date
+     * @param lastEndDate the end date of the last promotion of the previous page, or null for the first page
+     * @param lastPk      the PK of the last promotion of the previous page, or null for the first page
+     * @param pageSize    the maximum number of promotions to return
+     * @return the promotions ordered by end date and PK
+     */
+    List<IS32PromotionModel> findPromotionsToRemove(Date cutoffDate, Date lastEndDate, PK lastPk, int pageSize);
+
+    /**
+     * @param promotionUids the promotion UIDs
+     * @return the unique ids of the promotions' buckets
+     */
+    List<String> findBucketUids(Collection<String> promotionUids);
+
+    /**
+     * @param bucketUids the bucket unique ids
+     * @param maxResults the maximum number of items to return
+     * @return IS32PromoItems and IS32PromoExcludeItems of the buckets
+     */
+    List<ItemModel> findBucketItems(Collection<String> bucketUids, int maxResults);
+
+    /**
+     * @param promotionUids the promotion UIDs
+     * @param maxResults    the maximum number of items to return
+     * @return IS32Buckets, IS32Rewards and IS32PromotionActivities of the promotions
+     */
+    List<ItemModel> findPromotionItems(Collection<String> promotionUids, int maxResults);
+
+    /**
+     * @param promotions the promotions
+     * @param maxResults the maximum number of mappings to return
+     * @return the IS32PromotionCatalogVersion mappings of the promotions
+     */
+    List<ItemModel> findCatalogVersionMappings(Collection<IS32PromotionModel> promotions, int maxResults);
+}
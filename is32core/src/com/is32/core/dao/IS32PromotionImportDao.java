@@ -0,0 +1,32 @@
+package com.is32.core.dao;
+
+import de.hybris.platform.core.PK;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based lookups behind the promotion import, so a whole chunk of records is checked against
+ * the database with a few queries instead of one per record.
+ */
+public interface IS32PromotionImportDao
+{
+    /**
+     * @param uids the promotion UIDs
+     * @return the UIDs that are already taken
+     */
+    Set<String> findExistingPromotionUids(Collection<String> uids);
+
+    /**
+     * @param uniqueIds the bucket unique ids
+     * @return the unique ids that are already taken
+     */
+    Set<String> findExistingBucketUids(Collection<String> uniqueIds);
+
+    /**
+     * @param codes the promotion tag codes
+     * @return the PK of each existing tag by its code; unknown codes are absent
+     */
+    Map<String, PK> findTagPksByCode(Collection<String> codes);
+}
@@ -0,0 +1,25 @@
+package com.is32.core.dao;
+
+import java.util.Date;
+import java.util.List;
+
+public interface IS32PromotionSchedulerDao
+{
+    /**
+     * Finds ACTIVE promotions starting in the window.
+     *
+     * @param from the exclusive start of the window
+     * @param to   the inclusive end of the window
+     * @return rows of [pk, startDate]
+     */
+    List<List<Object>> findStartingPromotions(Date from, Date to);
+
+    /**
+     * Finds promotions that are not yet EXPIRED and end in the window.
+     *
+     * @param from the exclusive start of the window
+     * @param to   the inclusive end of the window
+     * @return rows of [pk, endDate]
+     */
+    List<List<Object>> findEndingPromotions(Date from, Date to);
+}
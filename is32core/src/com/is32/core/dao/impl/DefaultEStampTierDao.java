@@ -1,12 +1,25 @@
 package com.is32.core.dao.impl;
 
+import com.is32.core.cache.IS32EStampTierCache;
+import com.is32.core.cache.IS32QueryResultCache;
+import com.is32.core.constants.IS32CoreConstants;
 import com.is32.core.dao.EStampTierDao;
 import com.is32.core.model.EStampTierModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.core.model.type.ComposedTypeModel;
 import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
 import de.hybris.platform.servicelayer.search.FlexibleSearchService;
 import de.hybris.platform.servicelayer.search.SearchResult;
+import de.hybris.platform.servicelayer.type.TypeService;
 import org.apache.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -38,48 +51,154 @@ public class DefaultEStampTierDao implements EStampTierDao
             "WHERE {et." + EStampTierModel.CURRENTSTAMPCOUNT + "} < {et." + EStampTierModel.MAXSTAMPCOUNT + "} " +
             "ORDER BY {et." + EStampTierModel.TIERLEVEL + "} ASC";
 
+    /** Version column of every item table, bumped so that optimistic locking sees the direct update. */
+    private static final String VERSION_COLUMN = "hjmpTS";
+
     private FlexibleSearchService flexibleSearchService;
+    private IS32QueryResultCache is32QueryResultCache;
+    private IS32EStampTierCache is32EStampTierCache;
+    private TypeService typeService;
+
+    private volatile StampCountStatements stampCountStatements;
 
     @Override
     public EStampTierModel findByAccountId(final String accountId)
     {
+        if (isTierTableUsable())
+        {
+            return is32EStampTierCache.findByAccountId(accountId);
+        }
+
         final Map<String, Object> params = new HashMap<>();
         params.put("accountId", accountId);
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_ACCOUNT_ID, params);
-        query.setResultClassList(Collections.singletonList(EStampTierModel.class));
-
-        final SearchResult<EStampTierModel> result = flexibleSearchService.search(query);
-        return result.getResult().isEmpty() ? null : result.getResult().get(0);
+        final List<EStampTierModel> result = search(FIND_BY_ACCOUNT_ID, params, IS32CoreConstants.TypeCode.ESTAMP_TIER);
+        return result.isEmpty() ? null : result.get(0);
     }
 
     @Override
     public List<EStampTierModel> findBySiebelAcctId(final String siebelAcctId)
     {
+        if (isTierTableUsable())
+        {
+            return is32EStampTierCache.findBySiebelAcctId(siebelAcctId);
+        }
+
         final Map<String, Object> params = new HashMap<>();
         params.put("siebelAcctId", siebelAcctId);
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_SIEBEL_ACCT_ID, params);
-        final SearchResult<EStampTierModel> result = flexibleSearchService.search(query);
-        return result.getResult();
+        return search(FIND_BY_SIEBEL_ACCT_ID, params, IS32CoreConstants.TypeCode.ESTAMP_TIER);
     }
 
     @Override
     public List<EStampTierModel> findByTierLevel(final int tierLevel)
     {
+        if (isTierTableUsable())
+        {
+            return is32EStampTierCache.findByTierLevel(tierLevel);
+        }
+
         final Map<String, Object> params = new HashMap<>();
         params.put("tierLevel", Integer.valueOf(tierLevel));
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_TIER_LEVEL, params);
-        final SearchResult<EStampTierModel> result = flexibleSearchService.search(query);
-        return result.getResult();
+        return search(FIND_BY_TIER_LEVEL, params, IS32CoreConstants.TypeCode.ESTAMP_TIER);
     }
 
     @Override
     public List<EStampTierModel> findAllActiveTiers()
     {
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_ALL_ACTIVE);
-        final SearchResult<EStampTierModel> result = flexibleSearchService.search(query);
+        if (isTierTableUsable())
+        {
+            return is32EStampTierCache.findAllActiveTiers();
+        }
+
+        return search(FIND_ALL_ACTIVE, Collections.emptyMap(), IS32CoreConstants.TypeCode.ESTAMP_TIER);
+    }
+
+    @Override
+    public boolean incrementStampCount(final String accountId, final int count)
+    {
+        final int updated = getJdbcTemplate().update(getStampCountStatements().increment, Integer.valueOf(count),
+                Integer.valueOf(count), new Timestamp(System.currentTimeMillis()), accountId);
+        if (updated > 1)
+        {
+            LOG.warn("Incremented the stamp count of [" + updated + "] tiers for account [" + accountId + "]");
+        }
+        return updated > 0;
+    }
+
+    @Override
+    public List<Object> findStampCount(final String accountId)
+    {
+        final List<List<Object>> rows = getJdbcTemplate().query(getStampCountStatements().read,
+                (resultSet, rowNum) -> Arrays.asList(PK.fromLong(resultSet.getLong(1)),
+                        integerOrNull(resultSet, 2), integerOrNull(resultSet, 3)), accountId);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * @return a template on the tenant's data source, which takes part in the current transaction
+     */
+    protected JdbcTemplate getJdbcTemplate()
+    {
+        return new JdbcTemplate(Registry.getCurrentTenant().getDataSource());
+    }
+
+    /**
+     * Builds the stamp count statements from the deployment of EStampTier on first use.
+     */
+    private StampCountStatements getStampCountStatements()
+    {
+        StampCountStatements statements = stampCountStatements;
+        if (statements == null)
+        {
+            final ComposedTypeModel type = typeService.getComposedTypeForClass(EStampTierModel.class);
+            final String current = column(type, EStampTierModel.CURRENTSTAMPCOUNT);
+            final String max = column(type, EStampTierModel.MAXSTAMPCOUNT);
+            final String accountId = column(type, EStampTierModel.ACCOUNTID);
+
+            statements = new StampCountStatements(
+                    "UPDATE " + type.getTable() + " SET " +
+                    current + " = CASE WHEN " + max + " IS NOT NULL AND COALESCE(" + current + ", 0) + ? > " + max +
+                    " THEN " + max + " ELSE COALESCE(" + current + ", 0) + ? END, " +
+                    column(type, ItemModel.MODIFIEDTIME) + " = ?, " +
+                    VERSION_COLUMN + " = COALESCE(" + VERSION_COLUMN + ", 0) + 1 " +
+                    "WHERE " + accountId + " = ? " +
+                    "AND (" + max + " IS NULL OR COALESCE(" + current + ", 0) < " + max + ")",
+                    "SELECT " + column(type, ItemModel.PK) + ", " + current + ", " + max + " " +
+                    "FROM " + type.getTable() + " " +
+                    "WHERE " + accountId + " = ?");
+            stampCountStatements = statements;
+        }
+        return statements;
+    }
+
+    private String column(final ComposedTypeModel type, final String qualifier)
+    {
+        return typeService.getAttributeDescriptor(type, qualifier).getDatabaseColumn();
+    }
+
+    private static Integer integerOrNull(final ResultSet resultSet, final int column) throws SQLException
+    {
+        final int value = resultSet.getInt(column);
+        return resultSet.wasNull() ? null : Integer.valueOf(value);
+    }
+
+    private boolean isTierTableUsable()
+    {
+        return is32EStampTierCache != null && is32EStampTierCache.isUsable();
+    }
+
+    /**
+     * Runs a query selecting item PKs, through the query result cache when one is configured.
+     */
+    private <T> List<T> search(final String queryString, final Map<String, Object> params, final int... typeCodes)
+    {
+        if (is32QueryResultCache != null)
+        {
+            return is32QueryResultCache.search(queryString, params, typeCodes);
+        }
+        final SearchResult<T> result = flexibleSearchService.search(new FlexibleSearchQuery(queryString, params));
         return result.getResult();
     }
 
@@ -87,4 +206,31 @@ public class DefaultEStampTierDao implements EStampTierDao
     {
         this.flexibleSearchService = flexibleSearchService;
     }
+
+    public void setIs32QueryResultCache(final IS32QueryResultCache is32QueryResultCache)
+    {
+        this.is32QueryResultCache = is32QueryResultCache;
+    }
+
+    public void setIs32EStampTierCache(final IS32EStampTierCache is32EStampTierCache)
+    {
+        this.is32EStampTierCache = is32EStampTierCache;
+    }
+
+    public void setTypeService(final TypeService typeService)
+    {
+        this.typeService = typeService;
+    }
+
+    private static final class StampCountStatements
+    {
+        private final String increment;
+        private final String read;
+
+        private StampCountStatements(final String increment, final String read)
+        {
+            this.increment = increment;
+            this.read = read;
+        }
+    }
 }
@@ -0,0 +1,285 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.dao.IS32AccountQuotaCounterDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.enums.IS32RewardType;
+import com.is32.core.model.EStampTierModel;
+import com.is32.core.model.IS32AccountQuotaCounterModel;
+import com.is32.core.model.IS32PromotionActivityModel;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.model.IS32RewardModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.core.model.type.ComposedTypeModel;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.couponservices.model.AbstractCouponModel;
+import de.hybris.platform.couponservices.model.CouponRedemptionModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import de.hybris.platform.servicelayer.type.TypeService;
+import org.apache.log4j.Logger;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+public class DefaultIS32AccountQuotaCounterDao implements IS32AccountQuotaCounterDao
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32AccountQuotaCounterDao.class);
+
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
+    private static final String FIND_BY_CUSTOMER_AND_ACCOUNT =
+            "SELECT {qc." + IS32AccountQuotaCounterModel.PK + "} " +
+            "FROM {" + IS32AccountQuotaCounterModel._TYPECODE + " AS qc} " +
+            "WHERE {qc." + IS32AccountQuotaCounterModel.CUSTOMER + "} = ?customer " +
+            "AND {qc." + IS32AccountQuotaCounterModel.ACCOUNTID + "} = ?accountId";
+
+    private static final String FIND_BY_CUSTOMER =
+            "SELECT {qc." + IS32AccountQuotaCounterModel.PK + "} " +
+            "FROM {" + IS32AccountQuotaCounterModel._TYPECODE + " AS qc} " +
+            "WHERE {qc." + IS32AccountQuotaCounterModel.CUSTOMER + "} = ?customer";
+
+    private static final String FIND_COUNTER_BACKED_QUOTA_DATA =
+            "SELECT {et." + EStampTierModel.ACCOUNTID + "}, {et." + EStampTierModel.SIEBELACCTID + "}, " +
+            "{et." + EStampTierModel.THRESHOLD + "}, {qc." + IS32AccountQuotaCounterModel.ORDEREDAMT + "} " +
+            "FROM {" + EStampTierModel._TYPECODE + " AS et " +
+            "LEFT JOIN " + IS32AccountQuotaCounterModel._TYPECODE + " AS qc " +
+            "ON {qc." + IS32AccountQuotaCounterModel.ACCOUNTID + "} = {et." + EStampTierModel.ACCOUNTID + "} " +
+            "AND {qc." + IS32AccountQuotaCounterModel.CUSTOMER + "} = ?customer} " +
+            "WHERE {et." + EStampTierModel.ACCOUNTID + "} IN (?accountIds) " +
+            "ORDER BY {et." + EStampTierModel.ACCOUNTID + "}";
+
+    /**
+     * Redemptions of the promotions the live account quota query counts: active, not suspended and
+     * running promotions with an active activity. The catalog version filter of the live query does
+     * not apply, as counters are kept per customer and account only.
+     */
+    private static final String REDEMPTION_TOTALS_FROM_WHERE =
+            "FROM {" + CouponRedemptionModel._TYPECODE + " AS cr " +
+            "JOIN " + AbstractCouponModel._TYPECODE + " AS c " +
+            "ON {cr." + CouponRedemptionModel.COUPON + "} = {c." + AbstractCouponModel.PK + "} " +
+            "JOIN " + IS32PromotionModel._TYPECODE + " AS p " +
+            "ON {c." + AbstractCouponModel.COUPONID + "} = {p." + IS32PromotionModel.REDEEMDIGITALCOUPON + "} " +
+            "JOIN " + IS32RewardModel._TYPECODE + " AS r " +
+            "ON {r." + IS32RewardModel.PROMOTION + "} = {p." + IS32PromotionModel.PK + "} " +
+            "JOIN " + EStampTierModel._TYPECODE + " AS et " +
+            "ON {et." + EStampTierModel.ACCOUNTID + "} = {r." + IS32RewardModel.INCREASEMEMBERACCOUNTID + "}} " +
+            "WHERE {r." + IS32RewardModel.REWARDTYPE + "} = ?rewardType " +
+            "AND {cr." + CouponRedemptionModel.USER + "} IS NOT NULL " +
+            "AND {p." + IS32PromotionModel.STATUS + "} = ?status " +
+            "AND {p." + IS32PromotionModel.SUSPENDED + "} = ?suspended " +
+            "AND {p." + IS32PromotionModel.STARTDATE + "} <= ?currentDate " +
+            "AND {p." + IS32PromotionModel.ENDDATE + "} > ?currentDate " +
+            "AND EXISTS ({{ SELECT {a." + IS32PromotionActivityModel.PK + "} " +
+            "FROM {" + IS32PromotionActivityModel._TYPECODE + " AS a} " +
+            "WHERE {a." + IS32PromotionActivityModel.PROMOTIONUID + "} = {p." + IS32PromotionModel.UID + "} " +
+            "AND {a." + IS32PromotionActivityModel.ACTIVE + "} = ?activityActive }}) ";
+
+    private static final String REDEMPTION_TOTALS_GROUP_ORDER =
+            "GROUP BY {cr." + CouponRedemptionModel.USER + "}, {et." + EStampTierModel.ACCOUNTID + "}, " +
+            "{et." + EStampTierModel.SIEBELACCTID + "}, {et." + EStampTierModel.THRESHOLD + "} " +
+            "ORDER BY {cr." + CouponRedemptionModel.USER + "}, {et." + EStampTierModel.ACCOUNTID + "}";
+
+    private static final String REDEMPTION_TOTALS_SELECT =
+            "SELECT {cr." + CouponRedemptionModel.USER + "}, {et." + EStampTierModel.ACCOUNTID + "}, " +
+            "{et." + EStampTierModel.SIEBELACCTID + "}, {et." + EStampTierModel.THRESHOLD + "}, " +
+            "COUNT(DISTINCT {cr." + CouponRedemptionModel.PK + "}) ";
+
+    private static final String FIND_REDEMPTION_TOTALS =
+            REDEMPTION_TOTALS_SELECT +
+            REDEMPTION_TOTALS_FROM_WHERE +
+            REDEMPTION_TOTALS_GROUP_ORDER;
+
+    private static final String FIND_REDEMPTION_TOTALS_AFTER =
+            REDEMPTION_TOTALS_SELECT +
+            REDEMPTION_TOTALS_FROM_WHERE +
+            "AND ({cr." + CouponRedemptionModel.USER + "} > ?afterCustomer " +
+            "OR ({cr." + CouponRedemptionModel.USER + "} = ?afterCustomer " +
+            "AND {et." + EStampTierModel.ACCOUNTID + "} > ?afterAccountId)) " +
+            REDEMPTION_TOTALS_GROUP_ORDER;
+
+    private static final String VERSION_COLUMN = "hjmpTS";
+
+    private FlexibleSearchService flexibleSearchService;
+    private TypeService typeService;
+
+    private volatile CounterStatements counterStatements;
+
+    @Override
+    public IS32AccountQuotaCounterModel findCounter(final CustomerModel customer, final String accountId)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("customer", customer);
+        params.put("accountId", accountId);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_CUSTOMER_AND_ACCOUNT, params);
+        query.setResultClassList(Collections.singletonList(IS32AccountQuotaCounterModel.class));
+
+        final SearchResult<IS32AccountQuotaCounterModel> result = flexibleSearchService.search(query);
+        return result.getResult().isEmpty() ? null : result.getResult().get(0);
+    }
+
+    @Override
+    public List<IS32AccountQuotaCounterModel> findCountersByCustomer(final CustomerModel customer)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("customer", customer);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_CUSTOMER, params);
+        final SearchResult<IS32AccountQuotaCounterModel> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    @Override
+    public List<List<Object>> findCounterBackedAccountQuotaData(final CustomerModel customer,
+                                                                final Collection<String> accountIds)
+    {
+        if (accountIds == null || accountIds.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        final List<String> ids = new ArrayList<>(new LinkedHashSet<>(accountIds));
+        final List<List<Object>> rows = new ArrayList<>();
+
+        for (int from = 0; from < ids.size(); from += MAX_IN_CLAUSE_SIZE)
+        {
+            final Map<String, Object> params = new HashMap<>();
+            params.put("customer", customer);
+            params.put("accountIds", ids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, ids.size())));
+
+            final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_COUNTER_BACKED_QUOTA_DATA, params);
+            query.setResultClassList(Arrays.asList(String.class, String.class, Integer.class, Integer.class));
+
+            final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+            rows.addAll(result.getResult());
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Found [" + rows.size() + "] counter-backed account quota rows for customer ["
+                    + customer.getUid() + "]");
+        }
+
+        return rows;
+    }
+
+    @Override
+    public PK incrementOrderedAmt(final CustomerModel customer, final String accountId)
+    {
+        final Long customerPk = Long.valueOf(customer.getPk().getLongValue());
+        final int updated = getJdbcTemplate().update(getCounterStatements().increment,
+                new Timestamp(System.currentTimeMillis()), customerPk, accountId);
+        if (updated == 0)
+        {
+            return null;
+        }
+
+        final List<PK> pks = getJdbcTemplate().query(getCounterStatements().read,
+                (resultSet, rowNum) -> PK.fromLong(resultSet.getLong(1)), customerPk, accountId);
+        return pks.isEmpty() ? null : pks.get(0);
+    }
+
+    @Override
+    public List<List<Object>> findRedemptionTotals(final Date currentDate, final PK afterCustomerPk,
+                                                   final String afterAccountId, final int count)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("rewardType", IS32RewardType.INCREASE_MEMBER_ACCOUNT);
+        params.put("status", IS32PromotionStatus.ACTIVE);
+        params.put("suspended", Boolean.FALSE);
+        params.put("currentDate", currentDate);
+        params.put("activityActive", Boolean.TRUE);
+
+        final String queryString;
+        if (afterCustomerPk != null)
+        {
+            params.put("afterCustomer", afterCustomerPk);
+            params.put("afterAccountId", afterAccountId);
+            queryString = FIND_REDEMPTION_TOTALS_AFTER;
+        }
+        else
+        {
+            queryString = FIND_REDEMPTION_TOTALS;
+        }
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString, params);
+        query.setResultClassList(Arrays.asList(PK.class, String.class, String.class, Integer.class, Integer.class));
+        query.setCount(count);
+        query.setNeedTotal(false);
+
+        final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    /**
+     * @return a template on the tenant's data source, which takes part in the current transaction
+     */
+    protected JdbcTemplate getJdbcTemplate()
+    {
+        return new JdbcTemplate(Registry.getCurrentTenant().getDataSource());
+    }
+
+    /**
+     * Builds the counter statements from the deployment of IS32AccountQuotaCounter on first use.
+     */
+    private CounterStatements getCounterStatements()
+    {
+        CounterStatements statements = counterStatements;
+        if (statements == null)
+        {
+            final ComposedTypeModel type = typeService.getComposedTypeForClass(IS32AccountQuotaCounterModel.class);
+            final String orderedAmt = column(type, IS32AccountQuotaCounterModel.ORDEREDAMT);
+            final String where = "WHERE " + column(type, IS32AccountQuotaCounterModel.CUSTOMER) + " = ? " +
+                    "AND " + column(type, IS32AccountQuotaCounterModel.ACCOUNTID) + " = ?";
+
+            statements = new CounterStatements(
+                    "UPDATE " + type.getTable() + " SET " +
+                    orderedAmt + " = COALESCE(" + orderedAmt + ", 0) + 1, " +
+                    column(type, ItemModel.MODIFIEDTIME) + " = ?, " +
+                    VERSION_COLUMN + " = COALESCE(" + VERSION_COLUMN + ", 0) + 1 " +
+                    where,
+                    "SELECT " + column(type, ItemModel.PK) + " FROM " + type.getTable() + " " + where);
+            counterStatements = statements;
+        }
+        return statements;
+    }
+
+    private String column(final ComposedTypeModel type, final String qualifier)
+    {
+        return typeService.getAttributeDescriptor(type, qualifier).getDatabaseColumn();
+    }
+
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+
+    public void setTypeService(final TypeService typeService)
+    {
+        this.typeService = typeService;
+    }
+
+    private static final class CounterStatements
+    {
+        private final String increment;
+        private final String read;
+
+        private CounterStatements(final String increment, final String read)
+        {
+            this.increment = increment;
+            this.read = read;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32AccountQuotaDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.enums.IS32RewardType;
+import com.is32.core.model.EStampTierModel;
+import com.is32.core.model.IS32BucketModel;
+import com.is32.core.model.IS32PromoItemModel;
+import com.is32.core.model.IS32PromotionActivityModel;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.model.IS32PromotionTagModel;
+import com.is32.core.model.IS32RewardModel;
+import com.is32.core.quota.IS32RedemptionCounts;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.couponservices.model.AbstractCouponModel;
+import de.hybris.platform.couponservices.model.CouponRedemptionModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class DefaultIS32AccountQuotaDao implements IS32AccountQuotaDao
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32AccountQuotaDao.class);
+
+    private static final int DEFAULT_MAX_RESULTS = 50000;
+
+    /**
+     * Maximum number of bind values in one IN clause; larger UID sets are split into several queries.
+     */
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
+    private static final String ACCOUNT_QUOTA_JOINS =
+            "FROM {" + IS32PromotionModel._TYPECODE + " AS p " +
+            "JOIN " + IS32PromotionTagModel._TYPECODE + " AS pt " +
+            "ON {p." + IS32PromotionModel.PROMOTIONTAG + "} = {pt." + IS32PromotionTagModel.PK + "} " +
+            "JOIN " + IS32RewardModel._TYPECODE + " AS r " +
+            "ON {r." + IS32RewardModel.PROMOTION + "} = {p." + IS32PromotionModel.PK + "} " +
+            "JOIN " + EStampTierModel._TYPECODE + " AS et " +
+            "ON {et." + EStampTierModel.ACCOUNTID + "} = {r." + IS32RewardModel.INCREASEMEMBERACCOUNTID + "} " +
+            "LEFT JOIN " + AbstractCouponModel._TYPECODE + " AS c " +
+            "ON {c." + AbstractCouponModel.COUPONID + "} = {p." + IS32PromotionModel.REDEEMDIGITALCOUPON + "} " +
+            "LEFT JOIN " + CouponRedemptionModel._TYPECODE + " AS cr " +
+            "ON {cr." + CouponRedemptionModel.COUPON + "} = {c." + AbstractCouponModel.PK + "} ";
+
+    private static final String ACCOUNT_QUOTA_WHERE =
+            "WHERE {p." + IS32PromotionModel.STATUS + "} = ?status " +
+            "AND {p." + IS32PromotionModel.SUSPENDED + "} = ?suspended " +
+            "AND {p." + IS32PromotionModel.STARTDATE + "} <= ?currentDate " +
+            "AND {p." + IS32PromotionModel.ENDDATE + "} > ?currentDate " +
+            "AND {r." + IS32RewardModel.REWARDTYPE + "} = ?rewardType " +
+            "AND EXISTS ({{ SELECT {a." + IS32PromotionActivityModel.PK + "} " +
+            "FROM {" + IS32PromotionActivityModel._TYPECODE + " AS a} " +
+            "WHERE {a." + IS32PromotionActivityModel.PROMOTIONUID + "} = {p." + IS32PromotionModel.UID + "} " +
+            "AND {a." + IS32PromotionActivityModel.ACTIVE + "} = ?activityActive }}) " +
+            "AND EXISTS ({{ SELECT {b." + IS32BucketModel.PK + "} " +
+            "FROM {" + IS32BucketModel._TYPECODE + " AS b " +
+            "JOIN " + IS32PromoItemModel._TYPECODE + " AS pi " +
+            "ON {pi." + IS32PromoItemModel.BUCKETUID + "} = {b." + IS32BucketModel.UNIQUEID + "} " +
+            "JOIN Product AS prod ON {prod.code} = {pi." + IS32PromoItemModel.ITEMCODE + "}} " +
+            "WHERE {b." + IS32BucketModel.PROMOTIONUID + "} = {p." + IS32PromotionModel.UID + "} " +
+            "AND {prod.catalogVersion} = ?catalogVersion }}) ";
+
+    private static final String ACCOUNT_QUOTA_FROM_WHERE =
+            ACCOUNT_QUOTA_JOINS +
+            "AND {cr." + CouponRedemptionModel.USER + "} = ?customer} " +
+            ACCOUNT_QUOTA_WHERE;
+
+    private static final String ACCOUNT_QUOTA_FOR_CUSTOMERS_FROM_WHERE =
+            ACCOUNT_QUOTA_JOINS +
+            "AND {cr." + CouponRedemptionModel.USER + "} IN (?customers)} " +
+            ACCOUNT_QUOTA_WHERE;
+
+    private static final String FIND_ACCOUNT_QUOTA_RAW_DATA =
+            "SELECT {et." + EStampTierModel.ACCOUNTID + "}, {et." + EStampTierModel.SIEBELACCTID + "}, " +
+            "{et." + EStampTierModel.THRESHOLD + "}, {cr." + CouponRedemptionModel.USER + "} " +
+            ACCOUNT_QUOTA_FROM_WHERE;
+
+    private static final String FIND_AGGREGATED_ACCOUNT_QUOTA_DATA =
+            "SELECT {et." + EStampTierModel.ACCOUNTID + "}, {et." + EStampTierModel.SIEBELACCTID + "}, " +
+            "{et." + EStampTierModel.THRESHOLD + "}, COUNT({cr." + CouponRedemptionModel.USER + "}) " +
+            ACCOUNT_QUOTA_FROM_WHERE +
+            "GROUP BY {et." + EStampTierModel.ACCOUNTID + "}, {et." + EStampTierModel.SIEBELACCTID + "}, " +
+            "{et." + EStampTierModel.THRESHOLD + "} " +
+            "ORDER BY {et." + EStampTierModel.ACCOUNTID + "}";
+
+    private static final String FIND_AGGREGATED_ACCOUNT_QUOTA_DATA_FOR_CUSTOMERS =
+            "SELECT {cr." + CouponRedemptionModel.USER + "}, {et." + EStampTierModel.ACCOUNTID + "}, " +
+            "{et." + EStampTierModel.SIEBELACCTID + "}, {et." + EStampTierModel.THRESHOLD + "}, " +
+            "COUNT({cr." + CouponRedemptionModel.USER + "}) " +
+            ACCOUNT_QUOTA_FOR_CUSTOMERS_FROM_WHERE +
+            "GROUP BY {cr." + CouponRedemptionModel.USER + "}, {et." + EStampTierModel.ACCOUNTID + "}, " +
+            "{et." + EStampTierModel.SIEBELACCTID + "}, {et." + EStampTierModel.THRESHOLD + "} " +
+            "ORDER BY {et." + EStampTierModel.ACCOUNTID + "}";
+
+    private static final String REDEMPTIONS_FROM =
+            "FROM {" + CouponRedemptionModel._TYPECODE + " AS cr " +
+            "JOIN " + AbstractCouponModel._TYPECODE + " AS c " +
+            "ON {cr." + CouponRedemptionModel.COUPON + "} = {c." + AbstractCouponModel.PK + "} " +
+            "JOIN " + IS32PromotionModel._TYPECODE + " AS p " +
+            "ON {c." + AbstractCouponModel.COUPONID + "} = {p." + IS32PromotionModel.REDEEMDIGITALCOUPON + "}} ";
+
+    private static final String COUNT_REDEMPTIONS_FOR_CUSTOMER =
+            "SELECT COUNT({cr." + CouponRedemptionModel.PK + "}) " +
+            REDEMPTIONS_FROM +
+            "WHERE {p." + IS32PromotionModel.UID + "} = ?promotionUid " +
+            "AND {cr." + CouponRedemptionModel.USER + "} = ?customer";
+
+    private static final String COUNT_REDEMPTIONS_BY_PROMOTION_FOR_CUSTOMER =
+            "SELECT {p." + IS32PromotionModel.UID + "}, COUNT({cr." + CouponRedemptionModel.PK + "}) " +
+            REDEMPTIONS_FROM +
+            "WHERE {p." + IS32PromotionModel.UID + "} IN (?promotionUids) " +
+            "AND {cr." + CouponRedemptionModel.USER + "} = ?customer " +
+            "GROUP BY {p." + IS32PromotionModel.UID + "}";
+
+    private static final String COUNT_REDEMPTIONS_BY_PROMOTION_FOR_CUSTOMERS =
+            "SELECT {cr." + CouponRedemptionModel.USER + "}, {p." + IS32PromotionModel.UID + "}, " +
+            "COUNT({cr." + CouponRedemptionModel.PK + "}) " +
+            REDEMPTIONS_FROM +
+            "WHERE {cr." + CouponRedemptionModel.USER + "} IN (?customers) " +
+            "GROUP BY {cr." + CouponRedemptionModel.USER + "}, {p." + IS32PromotionModel.UID + "}";
+
+    private FlexibleSearchService flexibleSearchService;
+    private ConfigurationService configurationService;
+
+    @Override
+    public List<List<Object>> findAccountQuotaRawData(final CustomerModel customer,
+                                                      final CatalogVersionModel catalogVersion,
+                                                      final Date currentDate)
+    {
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_ACCOUNT_QUOTA_RAW_DATA,
+                buildAccountQuotaParams(customer, catalogVersion, currentDate));
+        query.setResultClassList(Arrays.asList(String.class, String.class, Integer.class, PK.class));
+        query.setCount(getMaxResults());
+
+        final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Found [" + result.getResult().size() + "] account quota rows for customer ["
+                    + customer.getUid() + "]");
+        }
+
+        return result.getResult();
+    }
+
+    @Override
+    public List<List<Object>> findAggregatedAccountQuotaData(final CustomerModel customer,
+                                                             final CatalogVersionModel catalogVersion,
+                                                             final Date currentDate)
+    {
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_AGGREGATED_ACCOUNT_QUOTA_DATA,
+                buildAccountQuotaParams(customer, catalogVersion, currentDate));
+        query.setResultClassList(Arrays.asList(String.class, String.class, Integer.class, Integer.class));
+        query.setCount(getMaxResults());
+
+        final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Found [" + result.getResult().size() + "] aggregated account quota rows for customer ["
+                    + customer.getUid() + "]");
+        }
+
+        return result.getResult();
+    }
+
+    @Override
+    public List<List<Object>> findAggregatedAccountQuotaDataForCustomers(final Collection<CustomerModel> customers,
+                                                                         final CatalogVersionModel catalogVersion,
+                                                                         final Date currentDate)
+    {
+        if (customers == null || customers.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        final List<CustomerModel> distinctCustomers = new ArrayList<>(new LinkedHashSet<>(customers));
+        final List<List<Object>> rows = new ArrayList<>();
+
+        for (int from = 0; from < distinctCustomers.size(); from += MAX_IN_CLAUSE_SIZE)
+        {
+            final Map<String, Object> params = buildAccountQuotaFilterParams(catalogVersion, currentDate);
+            params.put("customers", distinctCustomers.subList(from,
+                    Math.min(from + MAX_IN_CLAUSE_SIZE, distinctCustomers.size())));
+
+            final FlexibleSearchQuery query =
+                    new FlexibleSearchQuery(FIND_AGGREGATED_ACCOUNT_QUOTA_DATA_FOR_CUSTOMERS, params);
+            query.setResultClassList(Arrays.asList(PK.class, String.class, String.class, Integer.class, Integer.class));
+
+            final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+            rows.addAll(result.getResult());
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Found [" + rows.size() + "] aggregated account quota rows for ["
+                    + distinctCustomers.size() + "] customers");
+        }
+
+        return rows;
+    }
+
+    @Override
+    public int getRedemptionCountForCustomer(final String promotionUid, final CustomerModel customer)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("promotionUid", promotionUid);
+        params.put("customer", customer);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(COUNT_REDEMPTIONS_FOR_CUSTOMER, params);
+        query.setResultClassList(Collections.singletonList(Integer.class));
+
+        final SearchResult<Integer> result = flexibleSearchService.search(query);
+        return result.getResult().isEmpty() || result.getResult().get(0) == null
+                ? 0 : result.getResult().get(0).intValue();
+    }
+
+    @Override
+    public IS32RedemptionCounts getRedemptionCountsForCustomer(final Collection<String> promotionUids,
+                                                               final CustomerModel customer)
+    {
+        if (promotionUids == null || promotionUids.isEmpty())
+        {
+            return IS32RedemptionCounts.empty();
+        }
+
+        final List<String> uids = new ArrayList<>(new LinkedHashSet<>(promotionUids));
+        final Map<String, Integer> countsByUid = new HashMap<>();
+
+        for (int from = 0; from < uids.size(); from += MAX_IN_CLAUSE_SIZE)
+        {
+            final List<String> chunk = uids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, uids.size()));
+
+            final Map<String, Object> params = new HashMap<>();
+            params.put("promotionUids", chunk);
+            params.put("customer", customer);
+
+            final FlexibleSearchQuery query =
+                    new FlexibleSearchQuery(COUNT_REDEMPTIONS_BY_PROMOTION_FOR_CUSTOMER, params);
+            query.setResultClassList(Arrays.asList(String.class, Integer.class));
+
+            final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+            for (final List<Object> row : result.getResult())
+            {
+                countsByUid.put((String) row.get(0), (Integer) row.get(1));
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Found redemptions for [" + countsByUid.size() + "] of [" + uids.size()
+                    + "] promotions for customer [" + customer.getUid() + "]");
+        }
+
+        return IS32RedemptionCounts.of(countsByUid);
+    }
+
+    @Override
+    public Map<PK, IS32RedemptionCounts> getRedemptionCountsForCustomers(final Collection<String> promotionUids,
+                                                                         final Collection<CustomerModel> customers)
+    {
+        if (promotionUids == null || promotionUids.isEmpty() || customers == null || customers.isEmpty())
+        {
+            return Collections.emptyMap();
+        }
+
+        final Set<String> uids = new HashSet<>(promotionUids);
+        final List<CustomerModel> distinctCustomers = new ArrayList<>(new LinkedHashSet<>(customers));
+        final Map<PK, Map<String, Integer>> countsByCustomer = new HashMap<>();
+
+        for (int from = 0; from < distinctCustomers.size(); from += MAX_IN_CLAUSE_SIZE)
+        {
+            final Map<String, Object> params = new HashMap<>();
+            params.put("customers", distinctCustomers.subList(from,
+                    Math.min(from + MAX_IN_CLAUSE_SIZE, distinctCustomers.size())));
+
+            final FlexibleSearchQuery query =
+                    new FlexibleSearchQuery(COUNT_REDEMPTIONS_BY_PROMOTION_FOR_CUSTOMERS, params);
+            query.setResultClassList(Arrays.asList(PK.class, String.class, Integer.class));
+
+            final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+            for (final List<Object> row : result.getResult())
+            {
+                final String uid = (String) row.get(1);
+                if (uids.contains(uid))
+                {
+                    countsByCustomer.computeIfAbsent((PK) row.get(0), pk -> new HashMap<>())
+                            .put(uid, (Integer) row.get(2));
+                }
+            }
+        }
+
+        final Map<PK, IS32RedemptionCounts> redemptionCounts = new HashMap<>(countsByCustomer.size() * 2);
+        for (final Map.Entry<PK, Map<String, Integer>> entry : countsByCustomer.entrySet())
+        {
+            redemptionCounts.put(entry.getKey(), IS32RedemptionCounts.of(entry.getValue()));
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Found redemptions of [" + redemptionCounts.size() + "] of [" + distinctCustomers.size()
+                    + "] customers for [" + uids.size() + "] promotions");
+        }
+
+        return redemptionCounts;
+    }
+
+    /**
+     * @return the maximum number of account quota rows one query may return
+     */
+    protected int getMaxResults()
+    {
+        return configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.ACCOUNT_QUOTA_MAX_RESULTS, DEFAULT_MAX_RESULTS);
+    }
+
+    protected Map<String, Object> buildAccountQuotaParams(final CustomerModel customer,
+                                                          final CatalogVersionModel catalogVersion,
+                                                          final Date currentDate)
+    {
+        final Map<String, Object> params = buildAccountQuotaFilterParams(catalogVersion, currentDate);
+        params.put("customer", customer);
+        return params;
+    }
+
+    /**
+     * @return the parameters of the account quota query that do not depend on the customer
+     */
+    protected Map<String, Object> buildAccountQuotaFilterParams(final CatalogVersionModel catalogVersion,
+                                                                final Date currentDate)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("catalogVersion", catalogVersion);
+        params.put("currentDate", currentDate);
+        params.put("status", IS32PromotionStatus.ACTIVE);
+        params.put("suspended", Boolean.FALSE);
+        params.put("rewardType", IS32RewardType.INCREASE_MEMBER_ACCOUNT);
+        params.put("activityActive", Boolean.TRUE);
+        return params;
+    }
+
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+}
@@ -0,0 +1,108 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.dao.IS32ClusterLeaseDao;
+import com.is32.core.model.IS32ClusterLeaseModel;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.core.model.type.ComposedTypeModel;
+import de.hybris.platform.servicelayer.type.TypeService;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes the lease rows with plain JDBC, so that every renewal and takeover is a single
+ * conditional UPDATE on the version column and the database decides which of two racing nodes wins.
+ */
+public class DefaultIS32ClusterLeaseDao implements IS32ClusterLeaseDao
+{
+    /** Version column of every item table, bumped on each renewal and takeover. */
+    private static final String VERSION_COLUMN = "hjmpTS";
+
+    private TypeService typeService;
+
+    private volatile LeaseStatements leaseStatements;
+
+    @Override
+    public List<Object> findLease(final String code)
+    {
+        final List<List<Object>> rows = getJdbcTemplate().query(getLeaseStatements().read,
+                (resultSet, rowNum) -> Arrays.<Object>asList(resultSet.getString(1),
+                        Long.valueOf(resultSet.getLong(2))), code);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    @Override
+    public boolean renew(final String code, final String owner, final long version)
+    {
+        return getJdbcTemplate().update(getLeaseStatements().renew, new Timestamp(System.currentTimeMillis()),
+                code, owner, Long.valueOf(version)) > 0;
+    }
+
+    @Override
+    public boolean takeOver(final String code, final String owner, final long version)
+    {
+        return getJdbcTemplate().update(getLeaseStatements().takeOver, owner,
+                new Timestamp(System.currentTimeMillis()), code, Long.valueOf(version)) > 0;
+    }
+
+    /**
+     * @return a template on the tenant's data source, which takes part in the current transaction
+     */
+    protected JdbcTemplate getJdbcTemplate()
+    {
+        return new JdbcTemplate(Registry.getCurrentTenant().getDataSource());
+    }
+
+    /**
+     * Builds the lease statements from the deployment of IS32ClusterLease on first use.
+     */
+    private LeaseStatements getLeaseStatements()
+    {
+        LeaseStatements statements = leaseStatements;
+        if (statements == null)
+        {
+            final ComposedTypeModel type = typeService.getComposedTypeForClass(IS32ClusterLeaseModel.class);
+            final String code = column(type, IS32ClusterLeaseModel.CODE);
+            final String owner = column(type, IS32ClusterLeaseModel.OWNER);
+            final String bump = column(type, ItemModel.MODIFIEDTIME) + " = ?, " +
+                    VERSION_COLUMN + " = COALESCE(" + VERSION_COLUMN + ", 0) + 1 ";
+            final String version = "COALESCE(" + VERSION_COLUMN + ", 0)";
+
+            statements = new LeaseStatements(
+                    "SELECT " + owner + ", " + version + " FROM " + type.getTable() + " WHERE " + code + " = ?",
+                    "UPDATE " + type.getTable() + " SET " + bump +
+                    "WHERE " + code + " = ? AND " + owner + " = ? AND " + version + " = ?",
+                    "UPDATE " + type.getTable() + " SET " + owner + " = ?, " + bump +
+                    "WHERE " + code + " = ? AND " + version + " = ?");
+            leaseStatements = statements;
+        }
+        return statements;
+    }
+
+    private String column(final ComposedTypeModel type, final String qualifier)
+    {
+        return typeService.getAttributeDescriptor(type, qualifier).getDatabaseColumn();
+    }
+
+    public void setTypeService(final TypeService typeService)
+    {
+        this.typeService = typeService;
+    }
+
+    private static final class LeaseStatements
+    {
+        private final String read;
+        private final String renew;
+        private final String takeOver;
+
+        private LeaseStatements(final String read, final String renew, final String takeOver)
+        {
+            this.read = read;
+            this.renew = renew;
+            this.takeOver = takeOver;
+        }
+    }
+}
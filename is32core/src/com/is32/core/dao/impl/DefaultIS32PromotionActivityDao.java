@@ -0,0 +1,42 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.dao.IS32PromotionActivityDao;
+import com.is32.core.model.IS32PromotionActivityModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DefaultIS32PromotionActivityDao implements IS32PromotionActivityDao
+{
+    private static final String FIND_ACTIVE_WINDOWS =
+            "SELECT {a." + IS32PromotionActivityModel.PROMOTIONUID + "}, {a." + IS32PromotionActivityModel.DAYOFWEEK + "}, " +
+            "{a." + IS32PromotionActivityModel.STARTTIME + "}, {a." + IS32PromotionActivityModel.ENDTIME + "} " +
+            "FROM {" + IS32PromotionActivityModel._TYPECODE + " AS a} " +
+            "WHERE {a." + IS32PromotionActivityModel.ACTIVE + "} = ?active";
+
+    private FlexibleSearchService flexibleSearchService;
+
+    @Override
+    public List<List<Object>> findActiveWindows()
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("active", Boolean.TRUE);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_ACTIVE_WINDOWS, params);
+        query.setResultClassList(Arrays.asList(String.class, Integer.class, Date.class, Date.class));
+
+        final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+}
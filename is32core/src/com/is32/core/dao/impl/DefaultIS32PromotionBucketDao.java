@@ -0,0 +1,183 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.dao.IS32PromotionBucketDao;
+import com.is32.core.enums.IS32BucketType;
+import com.is32.core.model.IS32BucketModel;
+import com.is32.core.model.IS32PromoExcludeItemModel;
+import com.is32.core.model.IS32PromoItemModel;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+public class DefaultIS32PromotionBucketDao implements IS32PromotionBucketDao
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32PromotionBucketDao.class);
+
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
+    private static final String BUCKET_PRODUCT_JOINS =
+            "FROM {" + IS32BucketModel._TYPECODE + " AS b " +
+            "JOIN " + IS32PromoItemModel._TYPECODE + " AS pi " +
+            "ON {pi." + IS32PromoItemModel.BUCKETUID + "} = {b." + IS32BucketModel.UNIQUEID + "} " +
+            "JOIN " + ProductModel._TYPECODE + " AS prod " +
+            "ON {prod." + ProductModel.CODE + "} = {pi." + IS32PromoItemModel.ITEMCODE + "}} ";
+
+    private static final String FIND_PRODUCT_ITEMS =
+            "SELECT {b." + IS32BucketModel.PROMOTIONUID + "}, {prod." + ProductModel.CODE + "}, " +
+            "{b." + IS32BucketModel.BUCKETTYPE + "}, {pi." + IS32PromoItemModel.EXCLUDEFLAG + "} " +
+            BUCKET_PRODUCT_JOINS +
+            "WHERE {prod." + ProductModel.CATALOGVERSION + "} = ?catalogVersion";
+
+    private static final String FIND_PRODUCT_ITEMS_BY_PROMOTION =
+            FIND_PRODUCT_ITEMS + " AND {b." + IS32BucketModel.PROMOTIONUID + "} = ?promotionUid";
+
+    private static final String FIND_PROMOTION_UIDS_FOR_CATALOG_VERSION =
+            "SELECT DISTINCT {b." + IS32BucketModel.PROMOTIONUID + "} " +
+            BUCKET_PRODUCT_JOINS +
+            "WHERE {prod." + ProductModel.CATALOGVERSION + "} = ?catalogVersion";
+
+    private static final String FIND_CATALOG_VERSIONS_FOR_PROMOTION =
+            "SELECT DISTINCT {prod." + ProductModel.CATALOGVERSION + "} " +
+            BUCKET_PRODUCT_JOINS +
+            "WHERE {b." + IS32BucketModel.PROMOTIONUID + "} = ?promotionUid";
+
+    private static final String FIND_EXCLUDE_ITEMS =
+            "SELECT {b." + IS32BucketModel.PROMOTIONUID + "}, {ei." + IS32PromoExcludeItemModel.ITEMCODE + "} " +
+            "FROM {" + IS32BucketModel._TYPECODE + " AS b " +
+            "JOIN " + IS32PromoExcludeItemModel._TYPECODE + " AS ei " +
+            "ON {ei." + IS32PromoExcludeItemModel.BUCKETUID + "} = {b." + IS32BucketModel.UNIQUEID + "}}";
+
+    private static final String FIND_EXCLUDE_ITEMS_BY_PROMOTION =
+            FIND_EXCLUDE_ITEMS + " WHERE {b." + IS32BucketModel.PROMOTIONUID + "} = ?promotionUid";
+
+    private static final String FIND_PROMOTION_UIDS_BY_BUCKET_UID =
+            "SELECT {b." + IS32BucketModel.UNIQUEID + "}, {b." + IS32BucketModel.PROMOTIONUID + "} " +
+            "FROM {" + IS32BucketModel._TYPECODE + " AS b} " +
+            "WHERE {b." + IS32BucketModel.UNIQUEID + "} IN (?bucketUids)";
+
+    private FlexibleSearchService flexibleSearchService;
+
+    @Override
+    public List<List<Object>> findProductItems(final CatalogVersionModel catalogVersion)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("catalogVersion", catalogVersion);
+        return searchProductItems(FIND_PRODUCT_ITEMS, params);
+    }
+
+    @Override
+    public List<List<Object>> findProductItems(final CatalogVersionModel catalogVersion, final String promotionUid)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("catalogVersion", catalogVersion);
+        params.put("promotionUid", promotionUid);
+        return searchProductItems(FIND_PRODUCT_ITEMS_BY_PROMOTION, params);
+    }
+
+    @Override
+    public List<String> findPromotionUidsForCatalogVersion(final CatalogVersionModel catalogVersion)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("catalogVersion", catalogVersion);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_PROMOTION_UIDS_FOR_CATALOG_VERSION, params);
+        query.setResultClassList(Collections.singletonList(String.class));
+
+        final SearchResult<String> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    @Override
+    public List<CatalogVersionModel> findCatalogVersionsForPromotion(final String promotionUid)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("promotionUid", promotionUid);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_CATALOG_VERSIONS_FOR_PROMOTION, params);
+        query.setResultClassList(Collections.singletonList(CatalogVersionModel.class));
+
+        final SearchResult<CatalogVersionModel> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    @Override
+    public List<List<Object>> findExcludeItems()
+    {
+        return searchExcludeItems(FIND_EXCLUDE_ITEMS, Collections.emptyMap());
+    }
+
+    @Override
+    public List<List<Object>> findExcludeItems(final String promotionUid)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("promotionUid", promotionUid);
+        return searchExcludeItems(FIND_EXCLUDE_ITEMS_BY_PROMOTION, params);
+    }
+
+    @Override
+    public Map<String, String> findPromotionUidsByBucketUid(final Collection<String> bucketUids)
+    {
+        if (bucketUids == null || bucketUids.isEmpty())
+        {
+            return Collections.emptyMap();
+        }
+
+        final List<String> uids = new ArrayList<>(new LinkedHashSet<>(bucketUids));
+        final Map<String, String> promotionUids = new HashMap<>();
+
+        for (int from = 0; from < uids.size(); from += MAX_IN_CLAUSE_SIZE)
+        {
+            final Map<String, Object> params = new HashMap<>();
+            params.put("bucketUids", uids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, uids.size())));
+
+            final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_PROMOTION_UIDS_BY_BUCKET_UID, params);
+            query.setResultClassList(Arrays.asList(String.class, String.class));
+
+            final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+            for (final List<Object> row : result.getResult())
+            {
+                promotionUids.put((String) row.get(0), (String) row.get(1));
+            }
+        }
+        return promotionUids;
+    }
+
+    private List<List<Object>> searchProductItems(final String queryString, final Map<String, Object> params)
+    {
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString, params);
+        query.setResultClassList(Arrays.asList(String.class, String.class, IS32BucketType.class, Boolean.class));
+
+        final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Found [" + result.getResult().size() + "] bucket product items for " + params.keySet());
+        }
+        return result.getResult();
+    }
+
+    private List<List<Object>> searchExcludeItems(final String queryString, final Map<String, Object> params)
+    {
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString, params);
+        query.setResultClassList(Arrays.asList(String.class, String.class));
+
+        final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+}
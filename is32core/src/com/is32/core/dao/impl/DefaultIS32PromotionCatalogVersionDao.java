@@ -0,0 +1,72 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.dao.IS32PromotionCatalogVersionDao;
+import com.is32.core.model.IS32PromotionCatalogVersionModel;
+import com.is32.core.model.IS32PromotionModel;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DefaultIS32PromotionCatalogVersionDao implements IS32PromotionCatalogVersionDao
+{
+    private static final String FIND_BY_PROMOTION =
+            "SELECT {pcv." + IS32PromotionCatalogVersionModel.PK + "} " +
+            "FROM {" + IS32PromotionCatalogVersionModel._TYPECODE + " AS pcv} " +
+            "WHERE {pcv." + IS32PromotionCatalogVersionModel.PROMOTION + "} = ?promotion";
+
+    private static final String FIND_BY_CATALOG_VERSION =
+            "SELECT {pcv." + IS32PromotionCatalogVersionModel.PK + "} " +
+            "FROM {" + IS32PromotionCatalogVersionModel._TYPECODE + " AS pcv} " +
+            "WHERE {pcv." + IS32PromotionCatalogVersionModel.CATALOGVERSION + "} = ?catalogVersion";
+
+    private static final String FIND_ORPHANED =
+            "SELECT {pcv." + IS32PromotionCatalogVersionModel.PK + "} " +
+            "FROM {" + IS32PromotionCatalogVersionModel._TYPECODE + " AS pcv} " +
+            "WHERE NOT EXISTS ({{ SELECT {p." + IS32PromotionModel.PK + "} " +
+            "FROM {" + IS32PromotionModel._TYPECODE + " AS p} " +
+            "WHERE {p." + IS32PromotionModel.PK + "} = {pcv." + IS32PromotionCatalogVersionModel.PROMOTION + "} }})";
+
+    private FlexibleSearchService flexibleSearchService;
+
+    @Override
+    public List<IS32PromotionCatalogVersionModel> findByPromotion(final IS32PromotionModel promotion)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("promotion", promotion);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_PROMOTION, params);
+        final SearchResult<IS32PromotionCatalogVersionModel> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    @Override
+    public List<IS32PromotionCatalogVersionModel> findByCatalogVersion(final CatalogVersionModel catalogVersion)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("catalogVersion", catalogVersion);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_CATALOG_VERSION, params);
+        final SearchResult<IS32PromotionCatalogVersionModel> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    @Override
+    public List<IS32PromotionCatalogVersionModel> findOrphaned(final int maxResults)
+    {
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_ORPHANED, Collections.emptyMap());
+        query.setCount(maxResults);
+        final SearchResult<IS32PromotionCatalogVersionModel> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+}
@@ -1,8 +1,14 @@
 package com.is32.core.dao.impl;
 
+import com.is32.core.cache.IS32QueryResultCache;
+import com.is32.core.constants.IS32CoreConstants;
 import com.is32.core.dao.IS32PromotionDao;
+import com.is32.core.model.IS32PromotionCatalogVersionModel;
 import com.is32.core.model.IS32PromotionModel;
 import com.is32.core.model.IS32PromotionTagModel;
+import com.is32.core.model.IS32RewardModel;
+import com.is32.core.search.IS32PromotionSearchCriteria;
+import com.is32.core.search.IS32PromotionSearchResult;
 import com.is32.core.enums.IS32PromotionStatus;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
 import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
@@ -11,11 +17,12 @@ import de.hybris.platform.servicelayer.search.SearchResult;
 import de.hybris.platform.servicelayer.model.ModelService;
 import org.apache.log4j.Logger;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DefaultIS32PromotionDao implements IS32PromotionDao
 {
@@ -69,16 +76,29 @@ public class DefaultIS32PromotionDao implements IS32PromotionDao
 
     private static final String FIND_FOR_CATALOG_VERSION =
             "SELECT {p." + IS32PromotionModel.PK + "} " +
-            "FROM {" + IS32PromotionModel._TYPECODE + " AS p " +
-            "JOIN IS32Bucket AS b ON {p." + IS32PromotionModel.UID + "} = {b.promotionUid} " +
-            "JOIN IS32PromoItem AS pi ON {pi.bucketUid} = {b.uniqueId} " +
-            "JOIN Product AS prod ON {prod.code} = {pi.itemCode}} " +
-            "WHERE {prod.catalogVersion} = ?catalogVersion " +
+            "FROM {" + IS32PromotionCatalogVersionModel._TYPECODE + " AS pcv " +
+            "JOIN " + IS32PromotionModel._TYPECODE + " AS p " +
+            "ON {p." + IS32PromotionModel.PK + "} = {pcv." + IS32PromotionCatalogVersionModel.PROMOTION + "}} " +
+            "WHERE {pcv." + IS32PromotionCatalogVersionModel.CATALOGVERSION + "} = ?catalogVersion " +
             "AND {p." + IS32PromotionModel.STATUS + "} = ?status " +
             "AND {p." + IS32PromotionModel.STARTDATE + "} <= ?currentDate " +
             "AND {p." + IS32PromotionModel.ENDDATE + "} > ?currentDate";
 
+    private static final String SEARCH_TAG_JOIN =
+            " JOIN " + IS32PromotionTagModel._TYPECODE + " AS pt " +
+            "ON {p." + IS32PromotionModel.PROMOTIONTAG + "} = {pt." + IS32PromotionTagModel.PK + "}";
+
+    private static final String SEARCH_REWARD_EXISTS =
+            "EXISTS ({{SELECT {r." + IS32RewardModel.PK + "} " +
+            "FROM {" + IS32RewardModel._TYPECODE + " AS r} " +
+            "WHERE {r." + IS32RewardModel.REWARDTYPE + "} = ?rewardType " +
+            "AND {r." + IS32RewardModel.PROMOTIONUID + "} = {p." + IS32PromotionModel.UID + "}}})";
+
+    /** Search queries by criteria shape; there are a few hundred shapes at most. */
+    private final Map<Integer, String> searchQueries = new ConcurrentHashMap<>();
+
     private FlexibleSearchService flexibleSearchService;
+    private IS32QueryResultCache is32QueryResultCache;
     private ModelService modelService;
 
     @Override
@@ -87,11 +107,8 @@ public class DefaultIS32PromotionDao implements IS32PromotionDao
         final Map<String, Object> params = new HashMap<>();
         params.put("uid", uid);
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_UID, params);
-        query.setResultClassList(Collections.singletonList(IS32PromotionModel.class));
-
-        final SearchResult<IS32PromotionModel> result = flexibleSearchService.search(query);
-        return result.getResult().isEmpty() ? null : result.getResult().get(0);
+        final List<IS32PromotionModel> result = search(FIND_BY_UID, params, IS32CoreConstants.TypeCode.IS32_PROMOTION);
+        return result.isEmpty() ? null : result.get(0);
     }
 
     @Override
@@ -100,9 +117,7 @@ public class DefaultIS32PromotionDao implements IS32PromotionDao
         final Map<String, Object> params = new HashMap<>();
         params.put("status", status);
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_STATUS, params);
-        final SearchResult<IS32PromotionModel> result = flexibleSearchService.search(query);
-        return result.getResult();
+        return search(FIND_BY_STATUS, params, IS32CoreConstants.TypeCode.IS32_PROMOTION);
     }
 
     @Override
@@ -136,9 +151,8 @@ public class DefaultIS32PromotionDao implements IS32PromotionDao
         final Map<String, Object> params = new HashMap<>();
         params.put("tagCode", tagCode);
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_TAG_CODE, params);
-        final SearchResult<IS32PromotionModel> result = flexibleSearchService.search(query);
-        return result.getResult();
+        return search(FIND_BY_TAG_CODE, params,
+                IS32CoreConstants.TypeCode.IS32_PROMOTION, IS32CoreConstants.TypeCode.IS32_PROMOTION_TAG);
     }
 
     @Override
@@ -180,6 +194,120 @@ public class DefaultIS32PromotionDao implements IS32PromotionDao
         return result.getResult();
     }
 
+    @Override
+    public IS32PromotionSearchResult search(final IS32PromotionSearchCriteria criteria)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        putIfSet(params, "statuses", criteria.getStatuses().isEmpty() ? null : criteria.getStatuses());
+        putIfSet(params, "suspended", criteria.getSuspended());
+        putIfSet(params, "tagCode", criteria.getTagCode());
+        putIfSet(params, "displayType", criteria.getDisplayType());
+        putIfSet(params, "activeFrom", criteria.getActiveFrom());
+        putIfSet(params, "activeTo", criteria.getActiveTo());
+        putIfSet(params, "rewardType", criteria.getRewardType());
+        putIfSet(params, "minPriority", criteria.getMinPriority());
+        putIfSet(params, "maxPriority", criteria.getMaxPriority());
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(getSearchQuery(criteria), params);
+        query.setStart(criteria.getStart());
+        query.setCount(criteria.getPageSize());
+        query.setNeedTotal(criteria.isTotalCountRequested());
+
+        final SearchResult<IS32PromotionModel> result = flexibleSearchService.search(query);
+        return new IS32PromotionSearchResult(result.getResult(), criteria.getPage(), criteria.getPageSize(),
+                criteria.isTotalCountRequested() ? result.getTotalCount() : IS32PromotionSearchResult.UNKNOWN_TOTAL);
+    }
+
+    /**
+     * @return the search query for the shape of the criteria, built on first use
+     */
+    protected String getSearchQuery(final IS32PromotionSearchCriteria criteria)
+    {
+        return searchQueries.computeIfAbsent(Integer.valueOf(criteria.getShape()), shape -> buildSearchQuery(criteria));
+    }
+
+    private static String buildSearchQuery(final IS32PromotionSearchCriteria criteria)
+    {
+        final boolean joinTag = criteria.getTagCode() != null || criteria.getDisplayType() != null;
+        final List<String> conditions = new ArrayList<>();
+
+        if (!criteria.getStatuses().isEmpty())
+        {
+            conditions.add("{p." + IS32PromotionModel.STATUS + "} IN (?statuses)");
+        }
+        if (criteria.getSuspended() != null)
+        {
+            conditions.add("{p." + IS32PromotionModel.SUSPENDED + "} = ?suspended");
+        }
+        if (criteria.getTagCode() != null)
+        {
+            conditions.add("{pt." + IS32PromotionTagModel.CODE + "} = ?tagCode");
+        }
+        if (criteria.getDisplayType() != null)
+        {
+            conditions.add("{pt." + IS32PromotionTagModel.ELABPROMOTIONDISPLAYTYPE + "} = ?displayType");
+        }
+        if (criteria.getActiveTo() != null)
+        {
+            conditions.add("{p." + IS32PromotionModel.STARTDATE + "} < ?activeTo");
+        }
+        if (criteria.getActiveFrom() != null)
+        {
+            conditions.add("{p." + IS32PromotionModel.ENDDATE + "} > ?activeFrom");
+        }
+        if (criteria.getMinPriority() != null)
+        {
+            conditions.add("{p." + IS32PromotionModel.PRIORITY + "} >= ?minPriority");
+        }
+        if (criteria.getMaxPriority() != null)
+        {
+            conditions.add("{p." + IS32PromotionModel.PRIORITY + "} <= ?maxPriority");
+        }
+        if (criteria.getRewardType() != null)
+        {
+            conditions.add(SEARCH_REWARD_EXISTS);
+        }
+
+        final String direction = criteria.isAscending() ? " ASC" : " DESC";
+        final StringBuilder query = new StringBuilder()
+                .append("SELECT {p.").append(IS32PromotionModel.PK).append("} ")
+                .append("FROM {").append(IS32PromotionModel._TYPECODE).append(" AS p")
+                .append(joinTag ? SEARCH_TAG_JOIN : "").append("}");
+        if (!conditions.isEmpty())
+        {
+            query.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        query.append(" ORDER BY {p.").append(criteria.getSortField().getAttribute()).append("}").append(direction)
+                .append(", {p.").append(IS32PromotionModel.PK).append("}").append(direction);
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Built promotion search query for shape [" + criteria.getShape() + "]: " + query);
+        }
+        return query.toString();
+    }
+
+    private static void putIfSet(final Map<String, Object> params, final String name, final Object value)
+    {
+        if (value != null)
+        {
+            params.put(name, value);
+        }
+    }
+
+    /**
+     * Runs a query selecting item PKs, through the query result cache when one is configured.
+     */
+    private <T> List<T> search(final String queryString, final Map<String, Object> params, final int... typeCodes)
+    {
+        if (is32QueryResultCache != null)
+        {
+            return is32QueryResultCache.search(queryString, params, typeCodes);
+        }
+        final SearchResult<T> result = flexibleSearchService.search(new FlexibleSearchQuery(queryString, params));
+        return result.getResult();
+    }
+
     public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
     {
         this.flexibleSearchService = flexibleSearchService;
@@ -189,4 +317,9 @@ public class DefaultIS32PromotionDao implements IS32PromotionDao
     {
         this.modelService = modelService;
     }
+
+    public void setIs32QueryResultCache(final IS32QueryResultCache is32QueryResultCache)
+    {
+        this.is32QueryResultCache = is32QueryResultCache;
+    }
 }
@@ -0,0 +1,184 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.dao.IS32PromotionExpiryDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.model.IS32BucketModel;
+import com.is32.core.model.IS32PromoExcludeItemModel;
+import com.is32.core.model.IS32PromoItemModel;
+import com.is32.core.model.IS32PromotionActivityModel;
+import com.is32.core.model.IS32PromotionCatalogVersionModel;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.model.IS32RewardModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DefaultIS32PromotionExpiryDao implements IS32PromotionExpiryDao
+{
+    private static final String KEYSET_CONDITION =
+            " AND ({p." + IS32PromotionModel.ENDDATE + "} > ?lastEndDate " +
+            "OR ({p." + IS32PromotionModel.ENDDATE + "} = ?lastEndDate " +
+            "AND {p." + IS32PromotionModel.PK + "} > ?lastPk))";
+
+    private static final String KEYSET_ORDER =
+            " ORDER BY {p." + IS32PromotionModel.ENDDATE + "} ASC, {p." + IS32PromotionModel.PK + "} ASC";
+
+    private static final String FIND_TO_EXPIRE =
+            "SELECT {p." + IS32PromotionModel.PK + "} " +
+            "FROM {" + IS32PromotionModel._TYPECODE + " AS p} " +
+            "WHERE {p." + IS32PromotionModel.ENDDATE + "} < ?referenceDate " +
+            "AND {p." + IS32PromotionModel.STATUS + "} <> ?expiredStatus";
+
+    private static final String FIND_TO_REMOVE =
+            "SELECT {p." + IS32PromotionModel.PK + "} " +
+            "FROM {" + IS32PromotionModel._TYPECODE + " AS p} " +
+            "WHERE {p." + IS32PromotionModel.ENDDATE + "} < ?referenceDate " +
+            "AND {p." + IS32PromotionModel.STATUS + "} = ?expiredStatus";
+
+    private static final String FIND_BUCKET_UIDS =
+            "SELECT {b." + IS32BucketModel.UNIQUEID + "} " +
+            "FROM {" + IS32BucketModel._TYPECODE + " AS b} " +
+            "WHERE {b." + IS32BucketModel.PROMOTIONUID + "} IN (?keys)";
+
+    private static final List<String> FIND_BUCKET_ITEMS = Arrays.asList(
+            "SELECT {pi." + IS32PromoItemModel.PK + "} " +
+            "FROM {" + IS32PromoItemModel._TYPECODE + " AS pi} " +
+            "WHERE {pi." + IS32PromoItemModel.BUCKETUID + "} IN (?keys)",
+            "SELECT {ei." + IS32PromoExcludeItemModel.PK + "} " +
+            "FROM {" + IS32PromoExcludeItemModel._TYPECODE + " AS ei} " +
+            "WHERE {ei." + IS32PromoExcludeItemModel.BUCKETUID + "} IN (?keys)");
+
+    private static final List<String> FIND_PROMOTION_ITEMS = Arrays.asList(
+            "SELECT {b." + IS32BucketModel.PK + "} " +
+            "FROM {" + IS32BucketModel._TYPECODE + " AS b} " +
+            "WHERE {b." + IS32BucketModel.PROMOTIONUID + "} IN (?keys)",
+            "SELECT {r." + IS32RewardModel.PK + "} " +
+            "FROM {" + IS32RewardModel._TYPECODE + " AS r} " +
+            "WHERE {r." + IS32RewardModel.PROMOTIONUID + "} IN (?keys)",
+            "SELECT {a." + IS32PromotionActivityModel.PK + "} " +
+            "FROM {" + IS32PromotionActivityModel._TYPECODE + " AS a} " +
+            "WHERE {a." + IS32PromotionActivityModel.PROMOTIONUID + "} IN (?keys)");
+
+    private static final List<String> FIND_CATALOG_VERSION_MAPPINGS = Collections.singletonList(
+            "SELECT {pcv." + IS32PromotionCatalogVersionModel.PK + "} " +
+            "FROM {" + IS32PromotionCatalogVersionModel._TYPECODE + " AS pcv} " +
+            "WHERE {pcv." + IS32PromotionCatalogVersionModel.PROMOTION + "} IN (?keys)");
+
+    private FlexibleSearchService flexibleSearchService;
+
+    @Override
+    public List<IS32PromotionModel> findPromotionsToExpire(final Date referenceDate, final Date lastEndDate,
+                                                           final PK lastPk, final int pageSize)
+    {
+        return searchPage(FIND_TO_EXPIRE, referenceDate, lastEndDate, lastPk, pageSize);
+    }
+
+    @Override
+    public List<IS32PromotionModel> findPromotionsToRemove(final Date cutoffDate, final Date lastEndDate,
+                                                           final PK lastPk, final int pageSize)
+    {
+        return searchPage(FIND_TO_REMOVE, cutoffDate, lastEndDate, lastPk, pageSize);
+    }
+
+    @Override
+    public List<String> findBucketUids(final Collection<String> promotionUids)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("keys", promotionUids);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BUCKET_UIDS, params);
+        query.setResultClassList(Collections.singletonList(String.class));
+
+        final SearchResult<String> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    @Override
+    public List<ItemModel> findBucketItems(final Collection<String> bucketUids, final int maxResults)
+    {
+        return searchItems(FIND_BUCKET_ITEMS, bucketUids, maxResults);
+    }
+
+    @Override
+    public List<ItemModel> findPromotionItems(final Collection<String> promotionUids, final int maxResults)
+    {
+        return searchItems(FIND_PROMOTION_ITEMS, promotionUids, maxResults);
+    }
+
+    @Override
+    public List<ItemModel> findCatalogVersionMappings(final Collection<IS32PromotionModel> promotions,
+                                                      final int maxResults)
+    {
+        return searchItems(FIND_CATALOG_VERSION_MAPPINGS, promotions, maxResults);
+    }
+
+    private List<IS32PromotionModel> searchPage(final String queryString, final Date referenceDate,
+                                                final Date lastEndDate, final PK lastPk, final int pageSize)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("referenceDate", referenceDate);
+        params.put("expiredStatus", IS32PromotionStatus.EXPIRED);
+
+        final StringBuilder pageQuery = new StringBuilder(queryString);
+        if (lastEndDate != null && lastPk != null)
+        {
+            pageQuery.append(KEYSET_CONDITION);
+            params.put("lastEndDate", lastEndDate);
+            params.put("lastPk", lastPk);
+        }
+        pageQuery.append(KEYSET_ORDER);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(pageQuery.toString(), params);
+        query.setCount(pageSize);
+        final SearchResult<IS32PromotionModel> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    /**
+     * Runs the queries in turn until maxResults items are collected, so that a caller removing
+     * the returned items sees the next type once the previous one is exhausted.
+     */
+    private List<ItemModel> searchItems(final List<String> queryStrings, final Collection<?> keys,
+                                        final int maxResults)
+    {
+        if (keys.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        final List<ItemModel> items = new ArrayList<>();
+        for (final String queryString : queryStrings)
+        {
+            final int remaining = maxResults - items.size();
+            if (remaining <= 0)
+            {
+                break;
+            }
+
+            final Map<String, Object> params = new HashMap<>();
+            params.put("keys", keys);
+
+            final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString, params);
+            query.setCount(remaining);
+            final SearchResult<ItemModel> result = flexibleSearchService.search(query);
+            items.addAll(result.getResult());
+        }
+        return items;
+    }
+
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+}
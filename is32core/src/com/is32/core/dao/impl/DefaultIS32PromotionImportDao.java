@@ -0,0 +1,110 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.dao.IS32PromotionImportDao;
+import com.is32.core.model.IS32BucketModel;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.model.IS32PromotionTagModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class DefaultIS32PromotionImportDao implements IS32PromotionImportDao
+{
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
+    private static final String FIND_EXISTING_PROMOTION_UIDS =
+            "SELECT {p." + IS32PromotionModel.UID + "} " +
+            "FROM {" + IS32PromotionModel._TYPECODE + " AS p} " +
+            "WHERE {p." + IS32PromotionModel.UID + "} IN (?keys)";
+
+    private static final String FIND_EXISTING_BUCKET_UIDS =
+            "SELECT {b." + IS32BucketModel.UNIQUEID + "} " +
+            "FROM {" + IS32BucketModel._TYPECODE + " AS b} " +
+            "WHERE {b." + IS32BucketModel.UNIQUEID + "} IN (?keys)";
+
+    private static final String FIND_TAG_PKS_BY_CODE =
+            "SELECT {t." + IS32PromotionTagModel.CODE + "}, {t." + IS32PromotionTagModel.PK + "} " +
+            "FROM {" + IS32PromotionTagModel._TYPECODE + " AS t} " +
+            "WHERE {t." + IS32PromotionTagModel.CODE + "} IN (?keys)";
+
+    private FlexibleSearchService flexibleSearchService;
+
+    @Override
+    public Set<String> findExistingPromotionUids(final Collection<String> uids)
+    {
+        final Set<String> existing = new HashSet<>();
+        for (final List<Object> row : searchInParts(FIND_EXISTING_PROMOTION_UIDS, uids,
+                Collections.singletonList(String.class)))
+        {
+            existing.add((String) row.get(0));
+        }
+        return existing;
+    }
+
+    @Override
+    public Set<String> findExistingBucketUids(final Collection<String> uniqueIds)
+    {
+        final Set<String> existing = new HashSet<>();
+        for (final List<Object> row : searchInParts(FIND_EXISTING_BUCKET_UIDS, uniqueIds,
+                Collections.singletonList(String.class)))
+        {
+            existing.add((String) row.get(0));
+        }
+        return existing;
+    }
+
+    @Override
+    public Map<String, PK> findTagPksByCode(final Collection<String> codes)
+    {
+        final Map<String, PK> tagPks = new HashMap<>();
+        for (final List<Object> row : searchInParts(FIND_TAG_PKS_BY_CODE, codes, Arrays.asList(String.class, PK.class)))
+        {
+            tagPks.put((String) row.get(0), (PK) row.get(1));
+        }
+        return tagPks;
+    }
+
+    /**
+     * Runs the query once per 1000 keys.
+     */
+    private List<List<Object>> searchInParts(final String queryString, final Collection<String> keys,
+                                             final List<Class> resultClasses)
+    {
+        if (keys == null || keys.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        final List<String> distinctKeys = new ArrayList<>(new LinkedHashSet<>(keys));
+        final List<List<Object>> rows = new ArrayList<>();
+        for (int from = 0; from < distinctKeys.size(); from += MAX_IN_CLAUSE_SIZE)
+        {
+            final Map<String, Object> params = new HashMap<>();
+            params.put("keys", distinctKeys.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, distinctKeys.size())));
+
+            final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString, params);
+            query.setResultClassList(resultClasses);
+
+            final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+            rows.addAll(result.getResult());
+        }
+        return rows;
+    }
+
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+}
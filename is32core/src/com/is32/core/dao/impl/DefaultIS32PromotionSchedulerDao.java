@@ -0,0 +1,66 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.dao.IS32PromotionSchedulerDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.model.IS32PromotionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DefaultIS32PromotionSchedulerDao implements IS32PromotionSchedulerDao
+{
+    private static final String FIND_STARTING =
+            "SELECT {p." + IS32PromotionModel.PK + "}, {p." + IS32PromotionModel.STARTDATE + "} " +
+            "FROM {" + IS32PromotionModel._TYPECODE + " AS p} " +
+            "WHERE {p." + IS32PromotionModel.STARTDATE + "} > ?from " +
+            "AND {p." + IS32PromotionModel.STARTDATE + "} <= ?to " +
+            "AND {p." + IS32PromotionModel.STATUS + "} = ?status";
+
+    private static final String FIND_ENDING =
+            "SELECT {p." + IS32PromotionModel.PK + "}, {p." + IS32PromotionModel.ENDDATE + "} " +
+            "FROM {" + IS32PromotionModel._TYPECODE + " AS p} " +
+            "WHERE {p." + IS32PromotionModel.ENDDATE + "} > ?from " +
+            "AND {p." + IS32PromotionModel.ENDDATE + "} <= ?to " +
+            "AND {p." + IS32PromotionModel.STATUS + "} <> ?status";
+
+    private FlexibleSearchService flexibleSearchService;
+
+    @Override
+    public List<List<Object>> findStartingPromotions(final Date from, final Date to)
+    {
+        return searchBoundaries(FIND_STARTING, from, to, IS32PromotionStatus.ACTIVE);
+    }
+
+    @Override
+    public List<List<Object>> findEndingPromotions(final Date from, final Date to)
+    {
+        return searchBoundaries(FIND_ENDING, from, to, IS32PromotionStatus.EXPIRED);
+    }
+
+    private List<List<Object>> searchBoundaries(final String queryString, final Date from, final Date to,
+                                                final IS32PromotionStatus status)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("from", from);
+        params.put("to", to);
+        params.put("status", status);
+
+        final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString, params);
+        query.setResultClassList(Arrays.asList(PK.class, Date.class));
+
+        final SearchResult<List<Object>> result = flexibleSearchService.search(query);
+        return result.getResult();
+    }
+
+    public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+    {
+        this.flexibleSearchService = flexibleSearchService;
+    }
+}
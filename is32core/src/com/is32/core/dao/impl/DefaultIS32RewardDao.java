@@ -1,5 +1,7 @@
 package com.is32.core.dao.impl;
 
+import com.is32.core.cache.IS32QueryResultCache;
+import com.is32.core.constants.IS32CoreConstants;
 import com.is32.core.dao.IS32RewardDao;
 import com.is32.core.model.IS32RewardModel;
 import com.is32.core.enums.IS32RewardType;
@@ -8,7 +10,6 @@ import de.hybris.platform.servicelayer.search.FlexibleSearchService;
 import de.hybris.platform.servicelayer.search.SearchResult;
 import org.apache.log4j.Logger;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -39,6 +40,7 @@ public class DefaultIS32RewardDao implements IS32RewardDao
             "AND {r." + IS32RewardModel.REWARDTYPE + "} = ?rewardType";
 
     private FlexibleSearchService flexibleSearchService;
+    private IS32QueryResultCache is32QueryResultCache;
 
     @Override
     public List<IS32RewardModel> findByPromotionUid(final String promotionUid)
@@ -46,9 +48,7 @@ public class DefaultIS32RewardDao implements IS32RewardDao
         final Map<String, Object> params = new HashMap<>();
         params.put("promotionUid", promotionUid);
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_PROMOTION_UID, params);
-        final SearchResult<IS32RewardModel> result = flexibleSearchService.search(query);
-        return result.getResult();
+        return search(FIND_BY_PROMOTION_UID, params, IS32CoreConstants.TypeCode.IS32_REWARD);
     }
 
     @Override
@@ -57,9 +57,7 @@ public class DefaultIS32RewardDao implements IS32RewardDao
         final Map<String, Object> params = new HashMap<>();
         params.put("rewardType", rewardType);
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_REWARD_TYPE, params);
-        final SearchResult<IS32RewardModel> result = flexibleSearchService.search(query);
-        return result.getResult();
+        return search(FIND_BY_REWARD_TYPE, params, IS32CoreConstants.TypeCode.IS32_REWARD);
     }
 
     @Override
@@ -68,9 +66,7 @@ public class DefaultIS32RewardDao implements IS32RewardDao
         final Map<String, Object> params = new HashMap<>();
         params.put("accountId", accountId);
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_ACCOUNT_ID, params);
-        final SearchResult<IS32RewardModel> result = flexibleSearchService.search(query);
-        return result.getResult();
+        return search(FIND_BY_ACCOUNT_ID, params, IS32CoreConstants.TypeCode.IS32_REWARD);
     }
 
     @Override
@@ -80,14 +76,30 @@ public class DefaultIS32RewardDao implements IS32RewardDao
         params.put("promotionUid", promotionUid);
         params.put("rewardType", rewardType);
 
-        final FlexibleSearchQuery query = new FlexibleSearchQuery(FIND_BY_UID_AND_TYPE, params);
-        query.setResultClassList(Collections.singletonList(IS32RewardModel.class));
-        final SearchResult<IS32RewardModel> result = flexibleSearchService.search(query);
-        return result.getResult().isEmpty() ? null : result.getResult().get(0);
+        final List<IS32RewardModel> result = search(FIND_BY_UID_AND_TYPE, params, IS32CoreConstants.TypeCode.IS32_REWARD);
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Runs a query selecting item PKs, through the query result cache when one is configured.
+     */
+    private <T> List<T> search(final String queryString, final Map<String, Object> params, final int... typeCodes)
+    {
+        if (is32QueryResultCache != null)
+        {
+            return is32QueryResultCache.search(queryString, params, typeCodes);
+        }
+        final SearchResult<T> result = flexibleSearchService.search(new FlexibleSearchQuery(queryString, params));
+        return result.getResult();
     }
 
     public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
     {
         this.flexibleSearchService = flexibleSearchService;
     }
+
+    public void setIs32QueryResultCache(final IS32QueryResultCache is32QueryResultCache)
+    {
+        this.is32QueryResultCache = is32QueryResultCache;
+    }
 }
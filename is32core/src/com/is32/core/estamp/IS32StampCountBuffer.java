@@ -0,0 +1,373 @@
+package com.is32.core.estamp;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind buffer of e-stamp count increments. Increments are journaled and summed per account
+ * in memory, and written to the database in periodic flushes of at most batchSize accounts per
+ * {@link Writer#write(Map)} call, so a popular account costs one update per flush rather than one
+ * per redemption.
+ * <p>
+ * A flush swaps the accumulators and rotates the journal together, so every delta not yet in the
+ * database is in exactly one journal generation. The accounts of each written batch are committed
+ * in the journal generations their deltas came from, and a generation is deleted once all of its
+ * accounts are committed. Deltas of a failed batch stay with their generation and are retried by
+ * the next flush, summed with newer deltas of the same account; deltas recovered from the journal
+ * on {@link #start} are handled the same way. Recovery therefore replays only uncommitted accounts,
+ * so a batch is written twice only if the JVM dies between its database commit and its journal
+ * commit.
+ */
+public class IS32StampCountBuffer
+{
+    private static final Logger LOG = Logger.getLogger(IS32StampCountBuffer.class);
+
+    private static final long STOP_TIMEOUT_SECONDS = 30L;
+
+    private final IS32StampCountJournal journal;
+    private final Writer writer;
+    private final int batchSize;
+
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object flushMonitor = new Object();
+    private final AtomicLong pendingDelta = new AtomicLong();
+    private final AtomicLong oldestPendingTime = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedBatchCount = new AtomicLong();
+
+    private final NavigableMap<Long, Map<String, Integer>> unwritten = new TreeMap<>();
+
+    private volatile ConcurrentHashMap<String, Integer> accumulators = new ConcurrentHashMap<>();
+    private volatile int flushingAccounts;
+    private volatile long flushingSince;
+    private volatile long lastFlushTime;
+    private ScheduledExecutorService executor;
+
+    /**
+     * Writes summed deltas to the database in one transaction, failing as a whole.
+     */
+    public interface Writer
+    {
+        void write(Map<String, Integer> deltas);
+    }
+
+    public IS32StampCountBuffer(final IS32StampCountJournal journal, final Writer writer, final int batchSize)
+    {
+        this.journal = journal;
+        this.writer = writer;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Buffers the deltas recovered from the journal and starts flushing periodically.
+     */
+    public synchronized void start(final ThreadFactory threadFactory, final long flushIntervalMillis) throws IOException
+    {
+        final Map<Long, Map<String, Integer>> recovered = journal.recover();
+        synchronized (flushMonitor)
+        {
+            for (final Map.Entry<Long, Map<String, Integer>> generation : recovered.entrySet())
+            {
+                unwritten.put(generation.getKey(), new HashMap<>(generation.getValue()));
+                flushingAccounts += generation.getValue().size();
+                pendingDelta.addAndGet(sum(generation.getValue()));
+            }
+            if (flushingAccounts > 0)
+            {
+                flushingSince = System.currentTimeMillis();
+                LOG.info("Replaying buffered e-stamp count increments of [" + flushingAccounts + "] accounts");
+            }
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        executor.scheduleWithFixedDelay(this::safeFlush, flushIntervalMillis, flushIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic flushes, flushes what is buffered and closes the journal. Deltas that still
+     * cannot be written stay in the journal for the next start.
+     */
+    public synchronized void stop() throws IOException, InterruptedException
+    {
+        if (executor != null)
+        {
+            executor.shutdown();
+            executor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            executor = null;
+        }
+        flush();
+        journal.close();
+    }
+
+    /**
+     * Buffers an increment of an account's stamp count.
+     *
+     * @throws IllegalArgumentException if the account id is null or empty
+     */
+    public void add(final String accountId, final int delta)
+    {
+        swapLock.readLock().lock();
+        try
+        {
+            journal.append(accountId, delta);
+            accumulators.merge(accountId, Integer.valueOf(delta), Integer::sum);
+            oldestPendingTime.compareAndSet(0L, System.currentTimeMillis());
+        }
+        catch (final IOException e)
+        {
+            throw new UncheckedIOException("Could not journal e-stamp count increment of account [" + accountId + "]", e);
+        }
+        finally
+        {
+            swapLock.readLock().unlock();
+        }
+        pendingDelta.addAndGet(delta);
+    }
+
+    /**
+     * Writes all buffered deltas to the database.
+     */
+    public void flush() throws IOException
+    {
+        synchronized (flushMonitor)
+        {
+            swapLock.writeLock().lock();
+            try
+            {
+                final Map<String, Integer> deltas = accumulators;
+                if (!deltas.isEmpty())
+                {
+                    unwritten.put(Long.valueOf(journal.rotate()), deltas);
+                    accumulators = new ConcurrentHashMap<>();
+                    flushingAccounts += deltas.size();
+                    flushingSince = oldest(flushingSince, oldestPendingTime.getAndSet(0L));
+                }
+            }
+            finally
+            {
+                swapLock.writeLock().unlock();
+            }
+            if (unwritten.isEmpty())
+            {
+                return;
+            }
+
+            final Map<String, Integer> deltas = new LinkedHashMap<>();
+            for (final Map<String, Integer> generation : unwritten.values())
+            {
+                generation.forEach((accountId, delta) -> deltas.merge(accountId, delta, Integer::sum));
+            }
+            for (final Map<String, Integer> batch : batches(deltas))
+            {
+                writeBatch(batch);
+            }
+
+            for (final Iterator<Map.Entry<Long, Map<String, Integer>>> generations = unwritten.entrySet().iterator();
+                 generations.hasNext(); )
+            {
+                final Map.Entry<Long, Map<String, Integer>> generation = generations.next();
+                if (generation.getValue().isEmpty())
+                {
+                    journal.delete(generation.getKey().longValue());
+                    generations.remove();
+                }
+            }
+            if (unwritten.isEmpty())
+            {
+                flushingAccounts = 0;
+                flushingSince = 0L;
+            }
+            flushCount.incrementAndGet();
+            lastFlushTime = System.currentTimeMillis();
+        }
+    }
+
+    public Statistics getStatistics()
+    {
+        final long now = System.currentTimeMillis();
+        final long oldest = oldest(oldestPendingTime.get(), flushingSince);
+        return new Statistics(accumulators.size() + flushingAccounts, pendingDelta.get(),
+                oldest == 0L ? 0L : now - oldest, lastFlushTime, flushCount.get(), failedBatchCount.get());
+    }
+
+    /**
+     * Writes a batch and commits its accounts in the generations their deltas came from. The deltas
+     * are dropped from the buffer before the journal commit, so a failing commit cannot make the
+     * buffer write them again.
+     */
+    private void writeBatch(final Map<String, Integer> batch) throws IOException
+    {
+        try
+        {
+            writer.write(batch);
+        }
+        catch (final RuntimeException e)
+        {
+            failedBatchCount.incrementAndGet();
+            LOG.error("Could not write e-stamp count increments of [" + batch.size()
+                    + "] accounts, retrying with the next flush", e);
+            return;
+        }
+        pendingDelta.addAndGet(-sum(batch));
+
+        final Map<Long, List<String>> committed = new LinkedHashMap<>();
+        for (final Map.Entry<Long, Map<String, Integer>> generation : unwritten.entrySet())
+        {
+            for (final String accountId : batch.keySet())
+            {
+                if (generation.getValue().remove(accountId) != null)
+                {
+                    committed.computeIfAbsent(generation.getKey(), key -> new ArrayList<>()).add(accountId);
+                    flushingAccounts--;
+                }
+            }
+        }
+        for (final Map.Entry<Long, List<String>> generation : committed.entrySet())
+        {
+            journal.commit(generation.getKey().longValue(), generation.getValue());
+        }
+    }
+
+    private void safeFlush()
+    {
+        try
+        {
+            flush();
+        }
+        catch (final Exception e)
+        {
+            LOG.error("Error flushing buffered e-stamp count increments", e);
+        }
+    }
+
+    private List<Map<String, Integer>> batches(final Map<String, Integer> deltas)
+    {
+        final List<Map<String, Integer>> batches = new ArrayList<>(deltas.size() / batchSize + 1);
+        Map<String, Integer> batch = new LinkedHashMap<>();
+        for (final Map.Entry<String, Integer> delta : deltas.entrySet())
+        {
+            batch.put(delta.getKey(), delta.getValue());
+            if (batch.size() == batchSize)
+            {
+                batches.add(batch);
+                batch = new LinkedHashMap<>();
+            }
+        }
+        if (!batch.isEmpty())
+        {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static long sum(final Map<String, Integer> deltas)
+    {
+        long sum = 0L;
+        for (final Integer delta : deltas.values())
+        {
+            sum += delta.longValue();
+        }
+        return sum;
+    }
+
+    private static long oldest(final long first, final long second)
+    {
+        if (first == 0L || second == 0L)
+        {
+            return Math.max(first, second);
+        }
+        return Math.min(first, second);
+    }
+
+    /**
+     * Point-in-time metrics of an {@link IS32StampCountBuffer}.
+     */
+    public static final class Statistics
+    {
+        private final int pendingAccounts;
+        private final long pendingDelta;
+        private final long flushLagMillis;
+        private final long lastFlushTime;
+        private final long flushCount;
+        private final long failedBatchCount;
+
+        public Statistics(final int pendingAccounts, final long pendingDelta, final long flushLagMillis,
+                          final long lastFlushTime, final long flushCount, final long failedBatchCount)
+        {
+            this.pendingAccounts = pendingAccounts;
+            this.pendingDelta = pendingDelta;
+            this.flushLagMillis = flushLagMillis;
+            this.lastFlushTime = lastFlushTime;
+            this.flushCount = flushCount;
+            this.failedBatchCount = failedBatchCount;
+        }
+
+        /**
+         * @return the number of accounts with increments not yet in the database
+         */
+        public int getPendingAccounts()
+        {
+            return pendingAccounts;
+        }
+
+        /**
+         * @return the sum of the increments not yet in the database
+         */
+        public long getPendingDelta()
+        {
+            return pendingDelta;
+        }
+
+        /**
+         * @return the age of the oldest increment not yet in the database, 0 if there is none
+         */
+        public long getFlushLagMillis()
+        {
+            return flushLagMillis;
+        }
+
+        /**
+         * @return the time of the last completed flush in epoch milliseconds, 0 if there was none
+         */
+        public long getLastFlushTime()
+        {
+            return lastFlushTime;
+        }
+
+        public long getFlushCount()
+        {
+            return flushCount;
+        }
+
+        public long getFailedBatchCount()
+        {
+            return failedBatchCount;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "pendingAccounts=" + pendingAccounts + ", pendingDelta=" + pendingDelta + ", flushLagMillis="
+                    + flushLagMillis + ", flushCount=" + flushCount + ", failedBatchCount=" + failedBatchCount;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.is32.core.estamp;
+
+import org.apache.log4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only journal of buffered e-stamp count increments, kept in memory-mapped files in a local
+ * directory so increments that were not yet written to the database survive a crash of the JVM.
+ * <p>
+ * The journal is split into generations, one file each. Appends go to the current generation;
+ * {@link #rotate()} starts a new one, and a generation is deleted once its increments are in the
+ * database. A record is the length of the UTF-8 account id as an int, the id and the delta as an
+ * int; the files are mapped in zero-filled segments, so a length of 0 marks the end of a file and
+ * empty account ids are rejected. Mapped writes survive a JVM crash as soon as they are made;
+ * {@link #rotate()} forces the previous generation to disk, which bounds what an operating system
+ * crash can lose.
+ * <p>
+ * Once the deltas of some accounts of a generation are in the database, {@link #commit} records
+ * those account ids in a commit file next to the generation, and {@link #recover()} leaves them out.
+ * Only a crash between the database commit and the commit record can replay a batch.
+ */
+public final class IS32StampCountJournal implements Closeable
+{
+    private static final Logger LOG = Logger.getLogger(IS32StampCountJournal.class);
+
+    private static final String FILE_PREFIX = "estamp-";
+    private static final String FILE_SUFFIX = ".journal";
+    private static final String COMMIT_SUFFIX = ".commit";
+    private static final int SEGMENT_SIZE = 1 << 20;
+
+    private final Path directory;
+    private final List<Long> recoveredGenerations;
+
+    private long generation;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private int recordCount;
+
+    /**
+     * Opens the journal in a directory, starting a generation after the ones already present.
+     */
+    public IS32StampCountJournal(final Path directory) throws IOException
+    {
+        this.directory = directory;
+        Files.createDirectories(directory);
+
+        final List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX))
+        {
+            for (final Path file : files)
+            {
+                final Long fileGeneration = parseGeneration(file, FILE_SUFFIX);
+                if (fileGeneration != null)
+                {
+                    generations.add(fileGeneration);
+                }
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + COMMIT_SUFFIX))
+        {
+            for (final Path file : files)
+            {
+                final Long fileGeneration = parseGeneration(file, COMMIT_SUFFIX);
+                if (fileGeneration != null && !generations.contains(fileGeneration))
+                {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        Collections.sort(generations);
+        recoveredGenerations = Collections.unmodifiableList(generations);
+
+        open(generations.isEmpty() ? 1L : generations.get(generations.size() - 1).longValue() + 1L);
+    }
+
+    /**
+     * Reads the increments left by a previous run that were not committed, summed per account.
+     *
+     * @return the uncommitted deltas by account id, by generation present when the journal was opened
+     */
+    public Map<Long, Map<String, Integer>> recover() throws IOException
+    {
+        final Map<Long, Map<String, Integer>> generations = new LinkedHashMap<>();
+        for (final Long recoveredGeneration : recoveredGenerations)
+        {
+            final Map<String, Integer> deltas = new HashMap<>();
+            final int records = read(file(recoveredGeneration.longValue()), deltas);
+            final Path commitFile = commitFile(recoveredGeneration.longValue());
+            if (Files.exists(commitFile))
+            {
+                final Map<String, Integer> committed = new HashMap<>();
+                read(commitFile, committed);
+                deltas.keySet().removeAll(committed.keySet());
+            }
+            generations.put(recoveredGeneration, deltas);
+            LOG.info("Recovered [" + records + "] e-stamp count increments of [" + deltas.size()
+                    + "] uncommitted accounts from journal generation [" + recoveredGeneration + "]");
+        }
+        return generations;
+    }
+
+    public synchronized void append(final String accountId, final int delta) throws IOException
+    {
+        if (accountId == null || accountId.isEmpty())
+        {
+            throw new IllegalArgumentException("Cannot journal an e-stamp count increment without an account id");
+        }
+        final byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+        final int recordSize = 4 + id.length + 4;
+        if (segment.remaining() < recordSize + 4)
+        {
+            map(segmentStart + segment.position(), Math.max(SEGMENT_SIZE, recordSize + 4));
+        }
+        segment.putInt(id.length).put(id).putInt(delta);
+        recordCount++;
+    }
+
+    /**
+     * Forces the current generation to disk and starts the next one.
+     *
+     * @return the generation that was current until now
+     */
+    public synchronized long rotate() throws IOException
+    {
+        final long previous = generation;
+        closeCurrent();
+        open(previous + 1L);
+        return previous;
+    }
+
+    /**
+     * Records that the deltas of the accounts in an earlier generation are in the database, forcing
+     * the record to disk before returning.
+     */
+    public void commit(final long committedGeneration, final Collection<String> accountIds) throws IOException
+    {
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (final String accountId : accountIds)
+        {
+            final byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+            records.write(ByteBuffer.allocate(4 + id.length + 4).putInt(id.length).put(id).putInt(0).array());
+        }
+
+        try (FileChannel commitChannel = FileChannel.open(commitFile(committedGeneration), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND))
+        {
+            final ByteBuffer content = ByteBuffer.wrap(records.toByteArray());
+            while (content.hasRemaining())
+            {
+                commitChannel.write(content);
+            }
+            commitChannel.force(false);
+        }
+    }
+
+    /**
+     * Deletes a generation and its commit file, unless it is the current generation.
+     */
+    public void delete(final long deletedGeneration) throws IOException
+    {
+        synchronized (this)
+        {
+            if (deletedGeneration == generation)
+            {
+                return;
+            }
+        }
+        Files.deleteIfExists(file(deletedGeneration));
+        // a commit file left behind by a crash here is removed when the journal is opened next
+        Files.deleteIfExists(commitFile(deletedGeneration));
+    }
+
+    /**
+     * Closes the journal, deleting the current generation if nothing was appended to it.
+     */
+    @Override
+    public synchronized void close() throws IOException
+    {
+        final boolean empty = recordCount == 0;
+        closeCurrent();
+        if (empty)
+        {
+            Files.deleteIfExists(file(generation));
+        }
+    }
+
+    private void open(final long newGeneration) throws IOException
+    {
+        generation = newGeneration;
+        channel = FileChannel.open(file(newGeneration), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        recordCount = 0;
+        map(0L, SEGMENT_SIZE);
+    }
+
+    private void map(final long start, final int size) throws IOException
+    {
+        if (segment != null)
+        {
+            segment.force();
+        }
+        segmentStart = start;
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+    }
+
+    private void closeCurrent() throws IOException
+    {
+        segment.force();
+        channel.close();
+    }
+
+    private Path file(final long fileGeneration)
+    {
+        return directory.resolve(FILE_PREFIX + fileGeneration + FILE_SUFFIX);
+    }
+
+    private Path commitFile(final long fileGeneration)
+    {
+        return directory.resolve(FILE_PREFIX + fileGeneration + COMMIT_SUFFIX);
+    }
+
+    private static Long parseGeneration(final Path file, final String suffix)
+    {
+        final String name = file.getFileName().toString();
+        try
+        {
+            return Long.valueOf(name.substring(FILE_PREFIX.length(), name.length() - suffix.length()));
+        }
+        catch (final NumberFormatException e)
+        {
+            LOG.warn("Ignoring unexpected file [" + file + "] in the e-stamp count journal");
+            return null;
+        }
+    }
+
+    private static int read(final Path file, final Map<String, Integer> deltas) throws IOException
+    {
+        final ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        int records = 0;
+        while (content.remaining() >= 4)
+        {
+            final int length = content.getInt();
+            if (length <= 0 || content.remaining() < length + 4)
+            {
+                break;
+            }
+            final byte[] id = new byte[length];
+            content.get(id);
+            deltas.merge(new String(id, StandardCharsets.UTF_8), Integer.valueOf(content.getInt()), Integer::sum);
+            records++;
+        }
+        return records;
+    }
+}
@@ -0,0 +1,70 @@
+package com.is32.core.event;
+
+import com.is32.core.cache.IS32CacheRegion;
+import de.hybris.platform.servicelayer.event.EventService;
+import de.hybris.platform.tx.AfterSaveEvent;
+import de.hybris.platform.tx.AfterSaveListener;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Translates committed saves and removals of IS32 items into cluster-wide
+ * {@link IS32CacheInvalidationEvent}s. One event is published per affected region and
+ * transaction, carrying the PKs of the changed items; very large batches are collapsed into a
+ * single invalidate-all to keep the cluster message small.
+ */
+public class IS32CacheInvalidationAfterSaveListener implements AfterSaveListener
+{
+    private static final int MAX_KEYS_PER_EVENT = 500;
+
+    private EventService eventService;
+    private List<IS32CacheRegion> cacheRegions = Collections.emptyList();
+
+    @Override
+    public void afterSave(final Collection<AfterSaveEvent> events)
+    {
+        if (events == null || events.isEmpty())
+        {
+            return;
+        }
+
+        final Map<String, Set<String>> changedKeysByRegion = new LinkedHashMap<>();
+
+        for (final AfterSaveEvent event : events)
+        {
+            final int typeCode = event.getPk().getTypeCode();
+            for (final IS32CacheRegion region : cacheRegions)
+            {
+                if (region.isInvalidatedBy(typeCode))
+                {
+                    changedKeysByRegion.computeIfAbsent(region.getRegionName(), k -> new LinkedHashSet<>())
+                            .add(event.getPk().getLongValueAsString());
+                }
+            }
+        }
+
+        for (final Map.Entry<String, Set<String>> entry : changedKeysByRegion.entrySet())
+        {
+            final Set<String> keys = entry.getValue();
+            eventService.publishEvent(keys.size() > MAX_KEYS_PER_EVENT
+                    ? new IS32CacheInvalidationEvent(entry.getKey())
+                    : new IS32CacheInvalidationEvent(entry.getKey(), keys));
+        }
+    }
+
+    public void setEventService(final EventService eventService)
+    {
+        this.eventService = eventService;
+    }
+
+    public void setCacheRegions(final List<IS32CacheRegion> cacheRegions)
+    {
+        this.cacheRegions = cacheRegions;
+    }
+}
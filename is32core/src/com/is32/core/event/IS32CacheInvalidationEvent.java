@@ -0,0 +1,53 @@
+package com.is32.core.event;
+
+import de.hybris.platform.servicelayer.event.ClusterAwareEvent;
+import de.hybris.platform.servicelayer.event.PublishEventContext;
+import de.hybris.platform.servicelayer.event.events.AbstractEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Cluster-aware event instructing every node to invalidate a node-local IS32 cache region.
+ * An empty key list means the whole region must be dropped.
+ */
+public class IS32CacheInvalidationEvent extends AbstractEvent implements ClusterAwareEvent
+{
+    private final String regionName;
+    private final List<String> keys;
+
+    public IS32CacheInvalidationEvent(final String regionName)
+    {
+        this(regionName, Collections.emptyList());
+    }
+
+    public IS32CacheInvalidationEvent(final String regionName, final Collection<String> keys)
+    {
+        super();
+        this.regionName = regionName;
+        this.keys = new ArrayList<>(keys);
+    }
+
+    @Override
+    public boolean canPublish(final PublishEventContext publishEventContext)
+    {
+        return true;
+    }
+
+    public String getRegionName()
+    {
+        return regionName;
+    }
+
+    public List<String> getKeys()
+    {
+        return Collections.unmodifiableList(keys);
+    }
+
+    public boolean isInvalidateAll()
+    {
+        return keys.isEmpty();
+    }
+}
@@ -0,0 +1,56 @@
+package com.is32.core.event;
+
+import com.is32.core.cache.IS32CacheRegion;
+import de.hybris.platform.servicelayer.event.impl.AbstractEventListener;
+import org.apache.log4j.Logger;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Applies {@link IS32CacheInvalidationEvent}s to the node-local cache regions. Because the event
+ * is cluster-aware this listener runs on every node, including the one that published it.
+ */
+public class IS32CacheInvalidationEventListener extends AbstractEventListener<IS32CacheInvalidationEvent>
+{
+    private static final Logger LOG = Logger.getLogger(IS32CacheInvalidationEventListener.class);
+
+    private List<IS32CacheRegion> cacheRegions = Collections.emptyList();
+
+    @Override
+    protected void onEvent(final IS32CacheInvalidationEvent event)
+    {
+        if (event == null || event.getRegionName() == null)
+        {
+            return;
+        }
+
+        for (final IS32CacheRegion region : cacheRegions)
+        {
+            if (!event.getRegionName().equals(region.getRegionName()))
+            {
+                continue;
+            }
+
+            if (event.isInvalidateAll())
+            {
+                region.invalidateAll();
+            }
+            else
+            {
+                region.invalidate(event.getKeys());
+            }
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Invalidated cache region [" + region.getRegionName() + "] for ["
+                        + (event.isInvalidateAll() ? "all" : event.getKeys().size()) + "] keys");
+            }
+        }
+    }
+
+    public void setCacheRegions(final List<IS32CacheRegion> cacheRegions)
+    {
+        this.cacheRegions = cacheRegions;
+    }
+}
@@ -0,0 +1,64 @@
+package com.is32.core.event;
+
+import com.is32.core.service.IS32PromotionCatalogVersionService;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.catalog.model.synchronization.CatalogVersionSyncJobModel;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.servicelayer.event.events.AfterCronJobFinishedEvent;
+import de.hybris.platform.servicelayer.event.impl.AbstractEventListener;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.apache.log4j.Logger;
+
+/**
+ * Refreshes the IS32PromotionCatalogVersion mappings of a catalog version after a successful
+ * catalog synchronization into it, since the sync may add or remove products matched by bucket items.
+ */
+public class IS32CatalogSyncPromotionCatalogVersionListener extends AbstractEventListener<AfterCronJobFinishedEvent>
+{
+    private static final Logger LOG = Logger.getLogger(IS32CatalogSyncPromotionCatalogVersionListener.class);
+
+    private IS32PromotionCatalogVersionService is32PromotionCatalogVersionService;
+    private ModelService modelService;
+
+    @Override
+    protected void onEvent(final AfterCronJobFinishedEvent event)
+    {
+        if (event == null || event.getJobPK() == null || event.getResult() != CronJobResult.SUCCESS)
+        {
+            return;
+        }
+
+        final Object job = modelService.get(event.getJobPK());
+        if (!(job instanceof CatalogVersionSyncJobModel))
+        {
+            return;
+        }
+
+        final CatalogVersionModel targetVersion = ((CatalogVersionSyncJobModel) job).getTargetVersion();
+        if (targetVersion == null)
+        {
+            return;
+        }
+
+        try
+        {
+            is32PromotionCatalogVersionService.refreshCatalogVersion(targetVersion);
+        }
+        catch (final RuntimeException e)
+        {
+            LOG.error("Error refreshing promotions of catalog version [" + targetVersion.getPk()
+                    + "] after sync job [" + ((CatalogVersionSyncJobModel) job).getCode() + "]", e);
+        }
+    }
+
+    public void setIs32PromotionCatalogVersionService(
+            final IS32PromotionCatalogVersionService is32PromotionCatalogVersionService)
+    {
+        this.is32PromotionCatalogVersionService = is32PromotionCatalogVersionService;
+    }
+
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+}
@@ -0,0 +1,98 @@
+package com.is32.core.event;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.service.IS32PromotionCatalogVersionService;
+import com.is32.core.strategies.IS32BucketPromotionResolver;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.tx.AfterSaveEvent;
+import de.hybris.platform.tx.AfterSaveListener;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Refreshes the IS32PromotionCatalogVersion mappings of the promotions whose buckets or promo
+ * items were saved in the committed transaction. Removed buckets and items can no longer be
+ * loaded here, so their promotions are marked by the
+ * {@link com.is32.core.interceptors.IS32PromotionCatalogVersionRemoveInterceptor} before the
+ * removal and taken by the PKs of the removals in the transaction. The promotions of one
+ * transaction are refreshed together, in the background.
+ */
+public class IS32PromotionCatalogVersionAfterSaveListener implements AfterSaveListener
+{
+    private static final Logger LOG = Logger.getLogger(IS32PromotionCatalogVersionAfterSaveListener.class);
+
+    private IS32PromotionCatalogVersionService is32PromotionCatalogVersionService;
+    private IS32BucketPromotionResolver is32BucketPromotionResolver;
+
+    @Override
+    public void afterSave(final Collection<AfterSaveEvent> events)
+    {
+        if (events == null || events.isEmpty())
+        {
+            return;
+        }
+
+        final List<PK> savedPks = new ArrayList<>();
+        final List<PK> removedPks = new ArrayList<>();
+        for (final AfterSaveEvent event : events)
+        {
+            final int typeCode = event.getPk().getTypeCode();
+            if (typeCode == IS32CoreConstants.TypeCode.IS32_BUCKET
+                    || typeCode == IS32CoreConstants.TypeCode.IS32_PROMO_ITEM)
+            {
+                (event.getType() == AfterSaveEvent.REMOVE ? removedPks : savedPks).add(event.getPk());
+            }
+        }
+
+        if (savedPks.isEmpty() && removedPks.isEmpty())
+        {
+            return;
+        }
+
+        try
+        {
+            final Set<String> promotionUids = new LinkedHashSet<>();
+            if (!savedPks.isEmpty())
+            {
+                final Set<String> savedPromotionUids = is32BucketPromotionResolver.resolvePromotionUids(savedPks);
+                if (savedPromotionUids != null)
+                {
+                    promotionUids.addAll(savedPromotionUids);
+                }
+                else
+                {
+                    LOG.warn("Could not resolve the promotions of [" + savedPks.size()
+                            + "] saved bucket items; their catalog versions are fixed by the next rebuild");
+                }
+            }
+            if (!removedPks.isEmpty())
+            {
+                promotionUids.addAll(is32PromotionCatalogVersionService.takeMarkedPromotionUids(removedPks));
+            }
+            is32PromotionCatalogVersionService.scheduleRefresh(promotionUids);
+        }
+        catch (final RuntimeException e)
+        {
+            LOG.error("Error refreshing promotion catalog versions after save", e);
+        }
+    }
+
+    @Required
+    public void setIs32PromotionCatalogVersionService(
+            final IS32PromotionCatalogVersionService is32PromotionCatalogVersionService)
+    {
+        this.is32PromotionCatalogVersionService = is32PromotionCatalogVersionService;
+    }
+
+    @Required
+    public void setIs32BucketPromotionResolver(final IS32BucketPromotionResolver is32BucketPromotionResolver)
+    {
+        this.is32BucketPromotionResolver = is32BucketPromotionResolver;
+    }
+}
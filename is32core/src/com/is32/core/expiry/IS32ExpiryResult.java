@@ -0,0 +1,65 @@
+package com.is32.core.expiry;
+
+/**
+ * Immutable outcome of a bulk expiry or removal run: how many promotions and dependent items were
+ * written, in how many chunks, how long it took and whether the run was aborted before the end.
+ */
+public final class IS32ExpiryResult
+{
+    private final int promotionCount;
+    private final int dependentCount;
+    private final int chunkCount;
+    private final long elapsedMillis;
+    private final boolean aborted;
+
+    public IS32ExpiryResult(final int promotionCount, final int dependentCount, final int chunkCount,
+                            final long elapsedMillis, final boolean aborted)
+    {
+        this.promotionCount = promotionCount;
+        this.dependentCount = dependentCount;
+        this.chunkCount = chunkCount;
+        this.elapsedMillis = elapsedMillis;
+        this.aborted = aborted;
+    }
+
+    public int getPromotionCount()
+    {
+        return promotionCount;
+    }
+
+    public int getDependentCount()
+    {
+        return dependentCount;
+    }
+
+    public int getChunkCount()
+    {
+        return chunkCount;
+    }
+
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+
+    public boolean isAborted()
+    {
+        return aborted;
+    }
+
+    /**
+     * @return promotions processed per second
+     */
+    public double getThroughput()
+    {
+        return elapsedMillis > 0 ? promotionCount * 1000d / elapsedMillis : promotionCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[" + promotionCount + "] promotions and [" + dependentCount + "] dependent items in ["
+                + chunkCount + "] chunks, [" + elapsedMillis + "] ms ("
+                + String.format("%.1f", getThroughput()) + " promotions/s)" + (aborted ? ", aborted" : "");
+    }
+}
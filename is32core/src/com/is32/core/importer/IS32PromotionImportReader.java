@@ -0,0 +1,380 @@
+package com.is32.core.importer;
+
+import com.is32.core.enums.IS32BucketType;
+import com.is32.core.enums.IS32PromoItemType;
+import com.is32.core.enums.IS32PromotionDisplayType;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.enums.IS32RewardType;
+import de.hybris.platform.core.HybrisEnumValue;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming reader of promotion import files. The file is read line by line and handed out one
+ * {@link IS32PromotionImportRecord} at a time, so only the record being read is held in memory
+ * however large the file is.
+ * <p>
+ * Every line is one row of semicolon separated fields, the first naming the row type; blank lines
+ * and lines starting with # are skipped, and empty fields are null. Dates are ISO local date-times
+ * (2024-01-31T00:00:00) and times are HH:mm, both in the time zone the reader was created with.
+ * <pre>
+ * TAG;code;displayType;name
+ * PROMOTION;uid;tagCode;status;startDate;endDate;priority;maxRedemptionPerUser;totalRedemptionLimit;title
+ * REWARD;rewardType;rewardValue;minSpend;maxRewardCap;increaseMemberAccountId
+ * BUCKET;uniqueId;bucketType;bucketName;minQuantity;maxQuantity
+ * ITEM;itemCode;itemType;excludeFlag
+ * ACTIVITY;dayOfWeek;startTime;endTime
+ * </pre>
+ * REWARD, BUCKET and ACTIVITY rows belong to the PROMOTION row above them and ITEM rows to the
+ * BUCKET row above them. A blank promotion uid is generated on import. Enumeration codes must be
+ * values declared for the enumeration. Field values cannot contain the separator.
+ */
+public class IS32PromotionImportReader implements Closeable
+{
+    public static final String TAG = "TAG";
+    public static final String PROMOTION = "PROMOTION";
+    public static final String REWARD = "REWARD";
+    public static final String BUCKET = "BUCKET";
+    public static final String ITEM = "ITEM";
+    public static final String ACTIVITY = "ACTIVITY";
+
+    private static final String SEPARATOR = ";";
+    private static final String COMMENT = "#";
+    private static final Set<String> PROMOTION_ROWS = new HashSet<>(Arrays.asList(REWARD, BUCKET, ITEM, ACTIVITY));
+    private static final Map<Class<?>, Map<String, HybrisEnumValue>> DECLARED_ENUM_VALUES = new ConcurrentHashMap<>();
+
+    private final BufferedReader reader;
+    private final TimeZone timeZone;
+
+    private int lineNumber;
+    private int rowCount;
+    private String[] pendingRow;
+    private int pendingLine;
+
+    public IS32PromotionImportReader(final Reader reader, final TimeZone timeZone)
+    {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the record, rejected if one of its rows is malformed, or null at the end of the file
+     * @throws IOException if the file cannot be read
+     */
+    public IS32PromotionImportRecord next() throws IOException
+    {
+        String[] row = pendingRow;
+        int line = pendingLine;
+        pendingRow = null;
+        if (row == null)
+        {
+            row = readRow();
+            line = lineNumber;
+            if (row == null)
+            {
+                return null;
+            }
+        }
+
+        final IS32PromotionImportRecord record = new IS32PromotionImportRecord(line, row[0]);
+        if (!record.isTag() && !record.isPromotion())
+        {
+            record.reject(PROMOTION_ROWS.contains(row[0])
+                    ? row[0] + " row is not preceded by a PROMOTION row"
+                    : "Unknown row type [" + row[0] + "]");
+            return record;
+        }
+
+        try
+        {
+            if (record.isTag())
+            {
+                record.setTag(parseTag(row));
+                return record;
+            }
+            parsePromotion(record, row);
+        }
+        catch (final IllegalArgumentException e)
+        {
+            record.reject(e.getMessage());
+        }
+
+        IS32PromotionImportRecord.BucketRow bucket = null;
+        while ((row = readRow()) != null)
+        {
+            if (!PROMOTION_ROWS.contains(row[0]))
+            {
+                pendingRow = row;
+                pendingLine = lineNumber;
+                break;
+            }
+
+            record.addRow();
+            try
+            {
+                bucket = parsePromotionRow(record, bucket, row);
+            }
+            catch (final IllegalArgumentException e)
+            {
+                record.reject(row[0] + " row at line " + lineNumber + ": " + e.getMessage());
+            }
+        }
+        return record;
+    }
+
+    /**
+     * @return the number of rows read so far, not counting blank and comment lines
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        reader.close();
+    }
+
+    private String[] readRow() throws IOException
+    {
+        String line;
+        while ((line = reader.readLine()) != null)
+        {
+            lineNumber++;
+            final String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith(COMMENT))
+            {
+                rowCount++;
+                final String[] row = trimmed.split(SEPARATOR, -1);
+                row[0] = row[0].trim().toUpperCase();
+                return row;
+            }
+        }
+        return null;
+    }
+
+    private IS32PromotionImportRecord.TagRow parseTag(final String[] row)
+    {
+        return new IS32PromotionImportRecord.TagRow(
+                required(row, 1, "code"),
+                toEnum(IS32PromotionDisplayType.class, field(row, 2), "displayType"),
+                field(row, 3));
+    }
+
+    /**
+     * Parses the PROMOTION row. The uid is set first, so that a rejection of the row names it.
+     */
+    private void parsePromotion(final IS32PromotionImportRecord record, final String[] row)
+    {
+        record.setUid(field(row, 1));
+        record.setPromotion(
+                required(row, 2, "tagCode"),
+                toEnum(IS32PromotionStatus.class, field(row, 3), "status"),
+                toDate(row, 4, "startDate"),
+                toDate(row, 5, "endDate"),
+                toInteger(row, 6, "priority"),
+                toInteger(row, 7, "maxRedemptionPerUser"),
+                toInteger(row, 8, "totalRedemptionLimit"),
+                field(row, 9));
+    }
+
+    /**
+     * Parses a row belonging to the promotion and adds it to the record.
+     *
+     * @return the bucket that following ITEM rows belong to
+     */
+    private IS32PromotionImportRecord.BucketRow parsePromotionRow(final IS32PromotionImportRecord record,
+                                                                  final IS32PromotionImportRecord.BucketRow bucket,
+                                                                  final String[] row)
+    {
+        switch (row[0])
+        {
+            case REWARD:
+                record.addReward(parseReward(row));
+                return bucket;
+            case BUCKET:
+                final IS32PromotionImportRecord.BucketRow newBucket = parseBucket(row);
+                record.addBucket(newBucket);
+                return newBucket;
+            case ITEM:
+                if (bucket == null)
+                {
+                    throw new IllegalArgumentException("ITEM row is not preceded by a BUCKET row");
+                }
+                bucket.addItem(parseItem(row));
+                return bucket;
+            default:
+                record.addActivity(parseActivity(row));
+                return bucket;
+        }
+    }
+
+    private IS32PromotionImportRecord.RewardRow parseReward(final String[] row)
+    {
+        return new IS32PromotionImportRecord.RewardRow(
+                toEnum(IS32RewardType.class, required(row, 1, "rewardType"), "rewardType"),
+                toDouble(row, 2, "rewardValue"),
+                toDouble(row, 3, "minSpend"),
+                toDouble(row, 4, "maxRewardCap"),
+                field(row, 5));
+    }
+
+    private IS32PromotionImportRecord.BucketRow parseBucket(final String[] row)
+    {
+        return new IS32PromotionImportRecord.BucketRow(
+                required(row, 1, "uniqueId"),
+                toEnum(IS32BucketType.class, required(row, 2, "bucketType"), "bucketType"),
+                field(row, 3),
+                toInteger(row, 4, "minQuantity"),
+                toInteger(row, 5, "maxQuantity"));
+    }
+
+    private IS32PromotionImportRecord.ItemRow parseItem(final String[] row)
+    {
+        final String excludeFlag = field(row, 3);
+        return new IS32PromotionImportRecord.ItemRow(
+                required(row, 1, "itemCode"),
+                toEnum(IS32PromoItemType.class, required(row, 2, "itemType"), "itemType"),
+                excludeFlag != null ? Boolean.valueOf(excludeFlag) : null);
+    }
+
+    private IS32PromotionImportRecord.ActivityRow parseActivity(final String[] row)
+    {
+        return new IS32PromotionImportRecord.ActivityRow(
+                toInteger(row, 1, "dayOfWeek"),
+                toTime(row, 2, "startTime"),
+                toTime(row, 3, "endTime"));
+    }
+
+    private static String field(final String[] row, final int index)
+    {
+        return index < row.length ? StringUtils.trimToNull(row[index]) : null;
+    }
+
+    private static String required(final String[] row, final int index, final String name)
+    {
+        final String value = field(row, index);
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return value;
+    }
+
+    /**
+     * Resolves the code against the values declared for the enumeration. The enumerations are
+     * dynamic, so their valueOf would accept any code and create a new value on import.
+     *
+     * @return the declared value, or null if the code is null
+     */
+    private static <E extends HybrisEnumValue> E toEnum(final Class<E> type, final String code, final String name)
+    {
+        if (code == null)
+        {
+            return null;
+        }
+
+        final E value = type.cast(DECLARED_ENUM_VALUES.computeIfAbsent(type, IS32PromotionImportReader::declaredValues)
+                .get(code));
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Unknown " + name + " [" + code + "]");
+        }
+        return value;
+    }
+
+    private static Map<String, HybrisEnumValue> declaredValues(final Class<?> type)
+    {
+        final Map<String, HybrisEnumValue> values = new HashMap<>();
+        for (final Field field : type.getFields())
+        {
+            if (Modifier.isStatic(field.getModifiers()) && type.equals(field.getType()))
+            {
+                try
+                {
+                    final HybrisEnumValue value = (HybrisEnumValue) field.get(null);
+                    values.put(value.getCode(), value);
+                }
+                catch (final IllegalAccessException e)
+                {
+                    throw new IllegalStateException("Cannot read the values of " + type.getName(), e);
+                }
+            }
+        }
+        return values;
+    }
+
+    private static Integer toInteger(final String[] row, final int index, final String name)
+    {
+        final String value = field(row, index);
+        try
+        {
+            return value != null ? Integer.valueOf(value) : null;
+        }
+        catch (final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid " + name + " [" + value + "]");
+        }
+    }
+
+    private static Double toDouble(final String[] row, final int index, final String name)
+    {
+        final String value = field(row, index);
+        try
+        {
+            return value != null ? Double.valueOf(value) : null;
+        }
+        catch (final NumberFormatException e)
+        {
+            throw new IllegalArgumentException("Invalid " + name + " [" + value + "]");
+        }
+    }
+
+    private Date toDate(final String[] row, final int index, final String name)
+    {
+        final String value = required(row, index, name);
+        try
+        {
+            return Date.from(LocalDateTime.parse(value).atZone(timeZone.toZoneId()).toInstant());
+        }
+        catch (final DateTimeException e)
+        {
+            throw new IllegalArgumentException("Invalid " + name + " [" + value + "]");
+        }
+    }
+
+    private Date toTime(final String[] row, final int index, final String name)
+    {
+        final String value = required(row, index, name);
+        try
+        {
+            return Date.from(LocalTime.parse(value).atDate(LocalDate.of(1970, 1, 1))
+                    .atZone(timeZone.toZoneId()).toInstant());
+        }
+        catch (final DateTimeException e)
+        {
+            throw new IllegalArgumentException("Invalid " + name + " [" + value + "]");
+        }
+    }
+}
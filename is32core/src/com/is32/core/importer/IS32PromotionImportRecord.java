@@ -0,0 +1,395 @@
+package com.is32.core.importer;
+
+import com.is32.core.enums.IS32BucketType;
+import com.is32.core.enums.IS32PromoItemType;
+import com.is32.core.enums.IS32PromotionDisplayType;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.enums.IS32RewardType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One unit of a promotion import file as read by {@link IS32PromotionImportReader}: a TAG row, a
+ * PROMOTION row together with the REWARD, BUCKET, ITEM and ACTIVITY rows following it, or a row that
+ * could not be attached to either. A record is imported or rejected as a whole, so a promotion is
+ * never written without the rows that belong to it.
+ */
+public final class IS32PromotionImportRecord
+{
+    private final int line;
+    private final String rowType;
+    private int rowCount = 1;
+    private String rejectReason;
+
+    private TagRow tag;
+
+    private String uid;
+    private String tagCode;
+    private IS32PromotionStatus status;
+    private Date startDate;
+    private Date endDate;
+    private Integer priority;
+    private Integer maxRedemptionPerUser;
+    private Integer totalRedemptionLimit;
+    private String title;
+    private final List<RewardRow> rewards = new ArrayList<>();
+    private final List<BucketRow> buckets = new ArrayList<>();
+    private final List<ActivityRow> activities = new ArrayList<>();
+
+    IS32PromotionImportRecord(final int line, final String rowType)
+    {
+        this.line = line;
+        this.rowType = rowType;
+    }
+
+    /**
+     * @return the line number of the first row of the record
+     */
+    public int getLine()
+    {
+        return line;
+    }
+
+    /**
+     * @return the number of rows of the record
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    /**
+     * @return why the record cannot be imported, or null if it is valid so far
+     */
+    public String getRejectReason()
+    {
+        return rejectReason;
+    }
+
+    public boolean isRejected()
+    {
+        return rejectReason != null;
+    }
+
+    /**
+     * Rejects the record; the first reason is kept.
+     */
+    public void reject(final String reason)
+    {
+        if (rejectReason == null)
+        {
+            rejectReason = reason;
+        }
+    }
+
+    /**
+     * @return the tag of a TAG record
+     */
+    public TagRow getTag()
+    {
+        return tag;
+    }
+
+    public boolean isTag()
+    {
+        return IS32PromotionImportReader.TAG.equals(rowType);
+    }
+
+    public boolean isPromotion()
+    {
+        return IS32PromotionImportReader.PROMOTION.equals(rowType);
+    }
+
+    public String getUid()
+    {
+        return uid;
+    }
+
+    public void setUid(final String uid)
+    {
+        this.uid = uid;
+    }
+
+    public String getTagCode()
+    {
+        return tagCode;
+    }
+
+    public IS32PromotionStatus getStatus()
+    {
+        return status;
+    }
+
+    public Date getStartDate()
+    {
+        return startDate;
+    }
+
+    public Date getEndDate()
+    {
+        return endDate;
+    }
+
+    public Integer getPriority()
+    {
+        return priority;
+    }
+
+    public Integer getMaxRedemptionPerUser()
+    {
+        return maxRedemptionPerUser;
+    }
+
+    public Integer getTotalRedemptionLimit()
+    {
+        return totalRedemptionLimit;
+    }
+
+    public String getTitle()
+    {
+        return title;
+    }
+
+    public List<RewardRow> getRewards()
+    {
+        return Collections.unmodifiableList(rewards);
+    }
+
+    public List<BucketRow> getBuckets()
+    {
+        return Collections.unmodifiableList(buckets);
+    }
+
+    public List<ActivityRow> getActivities()
+    {
+        return Collections.unmodifiableList(activities);
+    }
+
+    void setTag(final TagRow tag)
+    {
+        this.tag = tag;
+    }
+
+    void setPromotion(final String tagCode, final IS32PromotionStatus status, final Date startDate,
+                      final Date endDate, final Integer priority, final Integer maxRedemptionPerUser,
+                      final Integer totalRedemptionLimit, final String title)
+    {
+        this.tagCode = tagCode;
+        this.status = status;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.priority = priority;
+        this.maxRedemptionPerUser = maxRedemptionPerUser;
+        this.totalRedemptionLimit = totalRedemptionLimit;
+        this.title = title;
+    }
+
+    void addRow()
+    {
+        rowCount++;
+    }
+
+    void addReward(final RewardRow reward)
+    {
+        rewards.add(reward);
+    }
+
+    void addBucket(final BucketRow bucket)
+    {
+        buckets.add(bucket);
+    }
+
+    void addActivity(final ActivityRow activity)
+    {
+        activities.add(activity);
+    }
+
+    public static final class TagRow
+    {
+        private final String code;
+        private final IS32PromotionDisplayType displayType;
+        private final String name;
+
+        TagRow(final String code, final IS32PromotionDisplayType displayType, final String name)
+        {
+            this.code = code;
+            this.displayType = displayType;
+            this.name = name;
+        }
+
+        public String getCode()
+        {
+            return code;
+        }
+
+        public IS32PromotionDisplayType getDisplayType()
+        {
+            return displayType;
+        }
+
+        public String getName()
+        {
+            return name;
+        }
+    }
+
+    public static final class RewardRow
+    {
+        private final IS32RewardType rewardType;
+        private final Double rewardValue;
+        private final Double minSpend;
+        private final Double maxRewardCap;
+        private final String increaseMemberAccountId;
+
+        RewardRow(final IS32RewardType rewardType, final Double rewardValue, final Double minSpend,
+                  final Double maxRewardCap, final String increaseMemberAccountId)
+        {
+            this.rewardType = rewardType;
+            this.rewardValue = rewardValue;
+            this.minSpend = minSpend;
+            this.maxRewardCap = maxRewardCap;
+            this.increaseMemberAccountId = increaseMemberAccountId;
+        }
+
+        public IS32RewardType getRewardType()
+        {
+            return rewardType;
+        }
+
+        public Double getRewardValue()
+        {
+            return rewardValue;
+        }
+
+        public Double getMinSpend()
+        {
+            return minSpend;
+        }
+
+        public Double getMaxRewardCap()
+        {
+            return maxRewardCap;
+        }
+
+        public String getIncreaseMemberAccountId()
+        {
+            return increaseMemberAccountId;
+        }
+    }
+
+    public static final class BucketRow
+    {
+        private final String uniqueId;
+        private final IS32BucketType bucketType;
+        private final String bucketName;
+        private final Integer minQuantity;
+        private final Integer maxQuantity;
+        private final List<ItemRow> items = new ArrayList<>();
+
+        BucketRow(final String uniqueId, final IS32BucketType bucketType, final String bucketName,
+                  final Integer minQuantity, final Integer maxQuantity)
+        {
+            this.uniqueId = uniqueId;
+            this.bucketType = bucketType;
+            this.bucketName = bucketName;
+            this.minQuantity = minQuantity;
+            this.maxQuantity = maxQuantity;
+        }
+
+        public String getUniqueId()
+        {
+            return uniqueId;
+        }
+
+        public IS32BucketType getBucketType()
+        {
+            return bucketType;
+        }
+
+        public String getBucketName()
+        {
+            return bucketName;
+        }
+
+        public Integer getMinQuantity()
+        {
+            return minQuantity;
+        }
+
+        public Integer getMaxQuantity()
+        {
+            return maxQuantity;
+        }
+
+        public List<ItemRow> getItems()
+        {
+            return Collections.unmodifiableList(items);
+        }
+
+        void addItem(final ItemRow item)
+        {
+            items.add(item);
+        }
+    }
+
+    public static final class ItemRow
+    {
+        private final String itemCode;
+        private final IS32PromoItemType itemType;
+        private final Boolean excludeFlag;
+
+        ItemRow(final String itemCode, final IS32PromoItemType itemType, final Boolean excludeFlag)
+        {
+            this.itemCode = itemCode;
+            this.itemType = itemType;
+            this.excludeFlag = excludeFlag;
+        }
+
+        public String getItemCode()
+        {
+            return itemCode;
+        }
+
+        public IS32PromoItemType getItemType()
+        {
+            return itemType;
+        }
+
+        public Boolean getExcludeFlag()
+        {
+            return excludeFlag;
+        }
+    }
+
+    public static final class ActivityRow
+    {
+        private final Integer dayOfWeek;
+        private final Date startTime;
+        private final Date endTime;
+
+        ActivityRow(final Integer dayOfWeek, final Date startTime, final Date endTime)
+        {
+            this.dayOfWeek = dayOfWeek;
+            this.startTime = startTime;
+            this.endTime = endTime;
+        }
+
+        public Integer getDayOfWeek()
+        {
+            return dayOfWeek;
+        }
+
+        public Date getStartTime()
+        {
+            return startTime;
+        }
+
+        public Date getEndTime()
+        {
+            return endTime;
+        }
+    }
+}
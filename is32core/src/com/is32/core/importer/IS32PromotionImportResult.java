@@ -0,0 +1,142 @@
+package com.is32.core.importer;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable outcome of a promotion import: how many rows were read, imported and rejected, why
+ * rows were rejected, in how many chunks they were written and how long it took.
+ */
+public final class IS32PromotionImportResult
+{
+    private final int rowCount;
+    private final int importedRowCount;
+    private final int promotionCount;
+    private final int tagCount;
+    private final int rejectedRowCount;
+    private final List<Rejection> rejections;
+    private final int chunkCount;
+    private final long elapsedMillis;
+
+    public IS32PromotionImportResult(final int rowCount, final int importedRowCount, final int promotionCount,
+                                     final int tagCount, final int rejectedRowCount, final List<Rejection> rejections,
+                                     final int chunkCount, final long elapsedMillis)
+    {
+        this.rowCount = rowCount;
+        this.importedRowCount = importedRowCount;
+        this.promotionCount = promotionCount;
+        this.tagCount = tagCount;
+        this.rejectedRowCount = rejectedRowCount;
+        this.rejections = Collections.unmodifiableList(rejections);
+        this.chunkCount = chunkCount;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return the number of rows read, not counting blank and comment lines
+     */
+    public int getRowCount()
+    {
+        return rowCount;
+    }
+
+    public int getImportedRowCount()
+    {
+        return importedRowCount;
+    }
+
+    public int getPromotionCount()
+    {
+        return promotionCount;
+    }
+
+    public int getTagCount()
+    {
+        return tagCount;
+    }
+
+    public int getRejectedRowCount()
+    {
+        return rejectedRowCount;
+    }
+
+    /**
+     * @return the rejected records in file order; capped, so there may be fewer than rejected rows
+     */
+    public List<Rejection> getRejections()
+    {
+        return rejections;
+    }
+
+    public int getChunkCount()
+    {
+        return chunkCount;
+    }
+
+    public long getElapsedMillis()
+    {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return rows read per second
+     */
+    public double getRowsPerSecond()
+    {
+        return elapsedMillis > 0 ? rowCount * 1000d / elapsedMillis : rowCount;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "[" + importedRowCount + "] of [" + rowCount + "] rows ([" + promotionCount + "] promotions, ["
+                + tagCount + "] tags) in [" + chunkCount + "] chunks, [" + rejectedRowCount + "] rejected, ["
+                + elapsedMillis + "] ms (" + String.format("%.1f", getRowsPerSecond()) + " rows/s)";
+    }
+
+    /**
+     * A rejected record: the line of its first row, the promotion UID if known, how many rows were
+     * dropped with it and why.
+     */
+    public static final class Rejection
+    {
+        private final int line;
+        private final String uid;
+        private final int rowCount;
+        private final String reason;
+
+        public Rejection(final int line, final String uid, final int rowCount, final String reason)
+        {
+            this.line = line;
+            this.uid = uid;
+            this.rowCount = rowCount;
+            this.reason = reason;
+        }
+
+        public int getLine()
+        {
+            return line;
+        }
+
+        public String getUid()
+        {
+            return uid;
+        }
+
+        public int getRowCount()
+        {
+            return rowCount;
+        }
+
+        public String getReason()
+        {
+            return reason;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "Line " + line + (uid != null ? " [" + uid + "]" : "") + ": " + reason;
+        }
+    }
+}
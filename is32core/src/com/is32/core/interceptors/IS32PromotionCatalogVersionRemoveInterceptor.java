@@ -0,0 +1,45 @@
+package com.is32.core.interceptors;
+
+import com.is32.core.service.IS32PromotionCatalogVersionService;
+import com.is32.core.strategies.IS32BucketPromotionResolver;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.servicelayer.interceptor.InterceptorContext;
+import de.hybris.platform.servicelayer.interceptor.InterceptorException;
+import de.hybris.platform.servicelayer.interceptor.RemoveInterceptor;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.Collections;
+
+/**
+ * Marks the promotion of an IS32Bucket or IS32PromoItem that is about to be removed, so that its
+ * catalog version mappings are refreshed once the removal of this item is committed. After the commit the item
+ * and its bucket UID are gone and the promotion can no longer be resolved.
+ */
+public class IS32PromotionCatalogVersionRemoveInterceptor implements RemoveInterceptor<ItemModel>
+{
+    private IS32PromotionCatalogVersionService is32PromotionCatalogVersionService;
+    private IS32BucketPromotionResolver is32BucketPromotionResolver;
+
+    @Override
+    public void onRemove(final ItemModel item, final InterceptorContext ctx) throws InterceptorException
+    {
+        for (final String promotionUid
+                : is32BucketPromotionResolver.resolvePromotionUidsOfItems(Collections.singleton(item)))
+        {
+            is32PromotionCatalogVersionService.markForRefresh(item.getPk(), promotionUid);
+        }
+    }
+
+    @Required
+    public void setIs32PromotionCatalogVersionService(
+            final IS32PromotionCatalogVersionService is32PromotionCatalogVersionService)
+    {
+        this.is32PromotionCatalogVersionService = is32PromotionCatalogVersionService;
+    }
+
+    @Required
+    public void setIs32BucketPromotionResolver(final IS32BucketPromotionResolver is32BucketPromotionResolver)
+    {
+        this.is32BucketPromotionResolver = is32BucketPromotionResolver;
+    }
+}
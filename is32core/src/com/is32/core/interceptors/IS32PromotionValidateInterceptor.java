@@ -1,14 +1,11 @@
 package com.is32.core.interceptors;
 
 import com.is32.core.model.IS32PromotionModel;
-import com.is32.core.enums.IS32PromotionStatus;
 import de.hybris.platform.servicelayer.interceptor.InterceptorContext;
 import de.hybris.platform.servicelayer.interceptor.InterceptorException;
 import de.hybris.platform.servicelayer.interceptor.ValidateInterceptor;
 import org.apache.log4j.Logger;
 
-import java.util.Date;
-
 public class IS32PromotionValidateInterceptor implements ValidateInterceptor<IS32PromotionModel>
 {
     private static final Logger LOG = Logger.getLogger(IS32PromotionValidateInterceptor.class);
@@ -24,40 +21,13 @@ public class IS32PromotionValidateInterceptor implements ValidateInterceptor<IS3
 
     private void validateDateRange(final IS32PromotionModel promotion) throws InterceptorException
     {
-        final Date startDate = promotion.getStartDate();
-        final Date endDate = promotion.getEndDate();
-
-        if (startDate != null && endDate != null && !endDate.after(startDate))
-        {
-            throw new InterceptorException(
-                    "IS32Promotion end date must be after start date. Start: ["
-                    + startDate + "], End: [" + endDate + "]");
-        }
+        failIfViolated(IS32PromotionValidationRules.checkDateRange(promotion.getStartDate(), promotion.getEndDate()));
     }
 
     private void validateRedemptionLimits(final IS32PromotionModel promotion) throws InterceptorException
     {
-        final Integer maxPerUser = promotion.getMaxRedemptionPerUser();
-        final Integer totalLimit = promotion.getTotalRedemptionLimit();
-
-        if (maxPerUser != null && maxPerUser <= 0)
-        {
-            throw new InterceptorException(
-                    "IS32Promotion maxRedemptionPerUser must be positive, got [" + maxPerUser + "]");
-        }
-
-        if (totalLimit != null && totalLimit <= 0)
-        {
-            throw new InterceptorException(
-                    "IS32Promotion totalRedemptionLimit must be positive, got [" + totalLimit + "]");
-        }
-
-        if (maxPerUser != null && totalLimit != null && maxPerUser > totalLimit)
-        {
-            throw new InterceptorException(
-                    "IS32Promotion maxRedemptionPerUser [" + maxPerUser
-                    + "] cannot exceed totalRedemptionLimit [" + totalLimit + "]");
-        }
+        failIfViolated(IS32PromotionValidationRules.checkRedemptionLimits(
+                promotion.getMaxRedemptionPerUser(), promotion.getTotalRedemptionLimit()));
     }
 
     private void validateStatusTransition(final IS32PromotionModel promotion, final InterceptorContext ctx)
@@ -68,21 +38,15 @@ public class IS32PromotionValidateInterceptor implements ValidateInterceptor<IS3
             return;
         }
 
-        final IS32PromotionStatus status = promotion.getStatus();
+        failIfViolated(IS32PromotionValidationRules.checkActivation(promotion.getStatus(),
+                promotion.getStartDate(), promotion.getEndDate(), promotion.getPromotionTag() != null));
+    }
 
-        if (IS32PromotionStatus.ACTIVE.equals(status))
+    private static void failIfViolated(final String violation) throws InterceptorException
+    {
+        if (violation != null)
         {
-            if (promotion.getStartDate() == null || promotion.getEndDate() == null)
-            {
-                throw new InterceptorException(
-                        "IS32Promotion cannot be set to ACTIVE without both startDate and endDate defined");
-            }
-
-            if (promotion.getPromotionTag() == null)
-            {
-                throw new InterceptorException(
-                        "IS32Promotion cannot be set to ACTIVE without a promotionTag assigned");
-            }
+            throw new InterceptorException(violation);
         }
     }
 }
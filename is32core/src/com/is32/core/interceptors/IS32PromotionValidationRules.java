@@ -0,0 +1,82 @@
+package com.is32.core.interceptors;
+
+import com.is32.core.enums.IS32PromotionStatus;
+
+import java.util.Date;
+
+/**
+ * The consistency rules of an IS32Promotion, shared by {@link IS32PromotionValidateInterceptor} and
+ * the bulk import, which validates whole chunks before writing them with the interceptors switched
+ * off. Every check returns the violation message, or null when the values are valid.
+ */
+public final class IS32PromotionValidationRules
+{
+    private IS32PromotionValidationRules()
+    {
+    }
+
+    /**
+     * @param startDate the start date, may be null
+     * @param endDate   the end date, may be null
+     * @return the violation, or null if the end date is after the start date or either is missing
+     */
+    public static String checkDateRange(final Date startDate, final Date endDate)
+    {
+        if (startDate != null && endDate != null && !endDate.after(startDate))
+        {
+            return "IS32Promotion end date must be after start date. Start: ["
+                    + startDate + "], End: [" + endDate + "]";
+        }
+        return null;
+    }
+
+    /**
+     * @param maxPerUser the maximum redemptions per user, may be null
+     * @param totalLimit the total redemption limit, may be null
+     * @return the violation, or null if both limits are positive and the per-user limit does not exceed the total
+     */
+    public static String checkRedemptionLimits(final Integer maxPerUser, final Integer totalLimit)
+    {
+        if (maxPerUser != null && maxPerUser <= 0)
+        {
+            return "IS32Promotion maxRedemptionPerUser must be positive, got [" + maxPerUser + "]";
+        }
+
+        if (totalLimit != null && totalLimit <= 0)
+        {
+            return "IS32Promotion totalRedemptionLimit must be positive, got [" + totalLimit + "]";
+        }
+
+        if (maxPerUser != null && totalLimit != null && maxPerUser > totalLimit)
+        {
+            return "IS32Promotion maxRedemptionPerUser [" + maxPerUser
+                    + "] cannot exceed totalRedemptionLimit [" + totalLimit + "]";
+        }
+        return null;
+    }
+
+    /**
+     * @param status    the status
+     * @param startDate the start date, may be null
+     * @param endDate   the end date, may be null
+     * @param tagged    whether a promotionTag is assigned
+     * @return the violation, or null if the promotion is not ACTIVE or has everything it needs to be
+     */
+    public static String checkActivation(final IS32PromotionStatus status, final Date startDate, final Date endDate,
+                                         final boolean tagged)
+    {
+        if (IS32PromotionStatus.ACTIVE.equals(status))
+        {
+            if (startDate == null || endDate == null)
+            {
+                return "IS32Promotion cannot be set to ACTIVE without both startDate and endDate defined";
+            }
+
+            if (!tagged)
+            {
+                return "IS32Promotion cannot be set to ACTIVE without a promotionTag assigned";
+            }
+        }
+        return null;
+    }
+}
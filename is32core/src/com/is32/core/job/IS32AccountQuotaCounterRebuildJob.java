@@ -0,0 +1,148 @@
+package com.is32.core.job;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32AccountQuotaCounterDao;
+import com.is32.core.quota.IS32AccountQuota;
+import com.is32.core.service.IS32AccountQuotaCounterService;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
+import de.hybris.platform.cronjob.model.CronJobModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.apache.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * CronJob that backfills the IS32AccountQuotaCounter table from coupon redemptions of the
+ * promotions running at the start of the job. Redemption totals are read page by page, ordered by
+ * customer and accountId, and the counters of each customer are replaced in one transaction. Run it after enabling {@code is32core.accountquota.counter.enabled}
+ * or whenever the counters are suspected to have drifted.
+ */
+public class IS32AccountQuotaCounterRebuildJob extends AbstractJobPerformable<CronJobModel>
+{
+    private static final Logger LOG = Logger.getLogger(IS32AccountQuotaCounterRebuildJob.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private IS32AccountQuotaCounterDao is32AccountQuotaCounterDao;
+    private IS32AccountQuotaCounterService is32AccountQuotaCounterService;
+    private ModelService modelService;
+    private ConfigurationService configurationService;
+
+    @Override
+    public PerformResult perform(final CronJobModel cronJob)
+    {
+        LOG.info("Starting IS32 account quota counter rebuild job");
+
+        final int batchSize = configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.ACCOUNT_QUOTA_COUNTER_REBUILD_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+
+        int customerCount = 0;
+        int counterCount = 0;
+
+        try
+        {
+            final Date currentDate = new Date();
+            PK currentCustomerPk = null;
+            String lastAccountId = null;
+            final List<IS32AccountQuota> currentTotals = new ArrayList<>();
+            List<List<Object>> rows;
+
+            do
+            {
+                if (clearAbortRequestedIfNeeded(cronJob))
+                {
+                    LOG.info("Account quota counter rebuild aborted by request after [" + customerCount + "] customers");
+                    return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+                }
+
+                rows = is32AccountQuotaCounterDao.findRedemptionTotals(currentDate, currentCustomerPk, lastAccountId,
+                        batchSize);
+                for (final List<Object> row : rows)
+                {
+                    final PK customerPk = (PK) row.get(0);
+                    if (currentCustomerPk != null && !currentCustomerPk.equals(customerPk))
+                    {
+                        counterCount += replaceCounters(currentCustomerPk, currentTotals);
+                        customerCount++;
+                        currentTotals.clear();
+                    }
+                    currentCustomerPk = customerPk;
+                    lastAccountId = (String) row.get(1);
+                    currentTotals.add(new IS32AccountQuota((String) row.get(1), (String) row.get(2),
+                            intValue(row.get(3)), intValue(row.get(4))));
+                }
+            }
+            while (rows.size() == batchSize);
+
+            if (currentCustomerPk != null)
+            {
+                counterCount += replaceCounters(currentCustomerPk, currentTotals);
+                customerCount++;
+            }
+
+            LOG.info("IS32 account quota counter rebuild completed. Wrote [" + counterCount
+                    + "] counters for [" + customerCount + "] customers");
+
+            return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+        }
+        catch (final Exception e)
+        {
+            LOG.error("Error during IS32 account quota counter rebuild job", e);
+            return new PerformResult(CronJobResult.ERROR, CronJobStatus.FINISHED);
+        }
+    }
+
+    protected int replaceCounters(final PK customerPk, final List<IS32AccountQuota> totals)
+    {
+        final Object user = modelService.get(customerPk);
+        if (!(user instanceof CustomerModel))
+        {
+            LOG.warn("Skipping redemptions of non-customer user [" + customerPk + "]");
+            return 0;
+        }
+
+        final int written = is32AccountQuotaCounterService.replaceCounters((CustomerModel) user, totals);
+        modelService.detachAll();
+        return written;
+    }
+
+    private static int intValue(final Object value)
+    {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    @Override
+    public boolean isAbortable()
+    {
+        return true;
+    }
+
+    public void setIs32AccountQuotaCounterDao(final IS32AccountQuotaCounterDao is32AccountQuotaCounterDao)
+    {
+        this.is32AccountQuotaCounterDao = is32AccountQuotaCounterDao;
+    }
+
+    public void setIs32AccountQuotaCounterService(final IS32AccountQuotaCounterService is32AccountQuotaCounterService)
+    {
+        this.is32AccountQuotaCounterService = is32AccountQuotaCounterService;
+    }
+
+    @Override
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+}
@@ -0,0 +1,93 @@
+package com.is32.core.job;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.service.IS32PromotionCatalogVersionService;
+import de.hybris.platform.catalog.CatalogVersionService;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
+import de.hybris.platform.cronjob.model.CronJobModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+import org.apache.log4j.Logger;
+
+/**
+ * CronJob that rebuilds the IS32PromotionCatalogVersion table from the bucket items of all
+ * promotions. Each catalog version is refreshed on its own, writing only the mappings that differ,
+ * and mappings left behind by removed promotions are deleted afterwards. Run it after the initial
+ * deployment of the table and whenever products were imported without a catalog synchronization.
+ */
+public class IS32PromotionCatalogVersionRebuildJob extends AbstractJobPerformable<CronJobModel>
+{
+    private static final Logger LOG = Logger.getLogger(IS32PromotionCatalogVersionRebuildJob.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private IS32PromotionCatalogVersionService is32PromotionCatalogVersionService;
+    private CatalogVersionService catalogVersionService;
+    private ConfigurationService configurationService;
+
+    @Override
+    public PerformResult perform(final CronJobModel cronJob)
+    {
+        LOG.info("Starting IS32 promotion catalog version rebuild job");
+
+        final int batchSize = configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.PROMOTION_CATALOG_VERSION_REBUILD_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+
+        int catalogVersionCount = 0;
+        int changedCount = 0;
+
+        try
+        {
+            for (final CatalogVersionModel catalogVersion : catalogVersionService.getAllCatalogVersions())
+            {
+                if (clearAbortRequestedIfNeeded(cronJob))
+                {
+                    LOG.info("Promotion catalog version rebuild aborted by request after ["
+                            + catalogVersionCount + "] catalog versions");
+                    return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+                }
+
+                changedCount += is32PromotionCatalogVersionService.refreshCatalogVersion(catalogVersion);
+                catalogVersionCount++;
+            }
+
+            final int orphanCount = is32PromotionCatalogVersionService.removeOrphanedMappings(batchSize);
+
+            LOG.info("IS32 promotion catalog version rebuild completed. Changed [" + changedCount
+                    + "] mappings in [" + catalogVersionCount + "] catalog versions, removed [" + orphanCount
+                    + "] orphaned mappings");
+
+            return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+        }
+        catch (final Exception e)
+        {
+            LOG.error("Error during IS32 promotion catalog version rebuild job", e);
+            return new PerformResult(CronJobResult.ERROR, CronJobStatus.FINISHED);
+        }
+    }
+
+    @Override
+    public boolean isAbortable()
+    {
+        return true;
+    }
+
+    public void setIs32PromotionCatalogVersionService(
+            final IS32PromotionCatalogVersionService is32PromotionCatalogVersionService)
+    {
+        this.is32PromotionCatalogVersionService = is32PromotionCatalogVersionService;
+    }
+
+    public void setCatalogVersionService(final CatalogVersionService catalogVersionService)
+    {
+        this.catalogVersionService = catalogVersionService;
+    }
+
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+}
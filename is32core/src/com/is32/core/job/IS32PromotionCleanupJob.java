@@ -1,25 +1,23 @@
 package com.is32.core.job;
 
-import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.expiry.IS32ExpiryResult;
 import com.is32.core.model.IS32PromotionCleanupCronJobModel;
-import com.is32.core.enums.IS32PromotionStatus;
-import com.is32.core.service.IS32PromotionService;
+import com.is32.core.service.IS32PromotionExpiryService;
 import de.hybris.platform.cronjob.enums.CronJobResult;
 import de.hybris.platform.cronjob.enums.CronJobStatus;
 import de.hybris.platform.servicelayer.config.ConfigurationService;
 import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
 import de.hybris.platform.servicelayer.cronjob.PerformResult;
-import de.hybris.platform.servicelayer.model.ModelService;
 import org.apache.log4j.Logger;
 
 import java.util.Calendar;
 import java.util.Date;
-import java.util.List;
 
 /**
  * CronJob that finds expired IS32 promotions and marks them with EXPIRED status.
  * Optionally removes promotions that have been expired for longer than the configured
- * retention period.
+ * retention period. Both phases run in chunks of the cleanup batch size and can be aborted
+ * between chunks.
  */
 public class IS32PromotionCleanupJob extends AbstractJobPerformable<IS32PromotionCleanupCronJobModel>
 {
@@ -30,8 +28,7 @@ public class IS32PromotionCleanupJob extends AbstractJobPerformable<IS32Promotio
     private static final int DEFAULT_CLEANUP_DAYS = 30;
     private static final int DEFAULT_BATCH_SIZE = 100;
 
-    private IS32PromotionService is32PromotionService;
-    private ModelService modelService;
+    private IS32PromotionExpiryService is32PromotionExpiryService;
     private ConfigurationService configurationService;
 
     @Override
@@ -47,28 +44,14 @@ public class IS32PromotionCleanupJob extends AbstractJobPerformable<IS32Promotio
                 ? cronJob.getCleanupBatchSize()
                 : configurationService.getConfiguration().getInt(CONFIG_BATCH_SIZE, DEFAULT_BATCH_SIZE);
 
-        int markedCount = 0;
-        int removedCount = 0;
-
         try
         {
-            // Mark expired promotions
-            final List<IS32PromotionModel> expiredPromotions =
-                    is32PromotionService.getExpiredPromotions(batchSize);
-
-            for (final IS32PromotionModel promotion : expiredPromotions)
+            final IS32ExpiryResult marked = is32PromotionExpiryService.expirePromotions(new Date(), batchSize,
+                    () -> clearAbortRequestedIfNeeded(cronJob));
+            if (marked.isAborted())
             {
-                if (clearAbortRequestedIfNeeded(cronJob))
-                {
-                    LOG.info("Cleanup job aborted by request");
-                    return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
-                }
-
-                if (!IS32PromotionStatus.EXPIRED.equals(promotion.getStatus()))
-                {
-                    is32PromotionService.updatePromotionStatus(promotion, IS32PromotionStatus.EXPIRED);
-                    markedCount++;
-                }
+                LOG.info("Cleanup job aborted by request");
+                return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
             }
 
             // Remove promotions expired beyond the retention period
@@ -76,32 +59,16 @@ public class IS32PromotionCleanupJob extends AbstractJobPerformable<IS32Promotio
             calendar.add(Calendar.DAY_OF_MONTH, -daysBeforeExpiry);
             final Date retentionCutoff = calendar.getTime();
 
-            final List<IS32PromotionModel> promotionsToRemove =
-                    is32PromotionService.getPromotionsByStatus(IS32PromotionStatus.EXPIRED);
-
-            for (final IS32PromotionModel promotion : promotionsToRemove)
+            final IS32ExpiryResult removed = is32PromotionExpiryService.removeExpiredPromotions(retentionCutoff,
+                    batchSize, () -> clearAbortRequestedIfNeeded(cronJob));
+            if (removed.isAborted())
             {
-                if (clearAbortRequestedIfNeeded(cronJob))
-                {
-                    LOG.info("Cleanup job aborted by request during removal phase");
-                    return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
-                }
-
-                if (promotion.getEndDate() != null && promotion.getEndDate().before(retentionCutoff))
-                {
-                    modelService.remove(promotion);
-                    removedCount++;
-
-                    if (removedCount >= batchSize)
-                    {
-                        LOG.info("Reached batch size limit of [" + batchSize + "] for removals");
-                        break;
-                    }
-                }
+                LOG.info("Cleanup job aborted by request during removal phase");
+                return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
             }
 
-            LOG.info("IS32 Promotion cleanup completed. Marked [" + markedCount
-                    + "] as expired, removed [" + removedCount + "] past retention period");
+            LOG.info("IS32 Promotion cleanup completed. Marked [" + marked.getPromotionCount()
+                    + "] as expired, removed [" + removed.getPromotionCount() + "] past retention period");
 
             return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
         }
@@ -118,15 +85,9 @@ public class IS32PromotionCleanupJob extends AbstractJobPerformable<IS32Promotio
         return true;
     }
 
-    public void setIs32PromotionService(final IS32PromotionService is32PromotionService)
-    {
-        this.is32PromotionService = is32PromotionService;
-    }
-
-    @Override
-    public void setModelService(final ModelService modelService)
+    public void setIs32PromotionExpiryService(final IS32PromotionExpiryService is32PromotionExpiryService)
     {
-        this.modelService = modelService;
+        this.is32PromotionExpiryService = is32PromotionExpiryService;
     }
 
     public void setConfigurationService(final ConfigurationService configurationService)
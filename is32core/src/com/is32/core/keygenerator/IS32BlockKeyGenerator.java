@@ -0,0 +1,149 @@
+package com.is32.core.keygenerator;
+
+import com.is32.core.constants.IS32CoreConstants;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.keygenerator.KeyGenerator;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Key generator that reserves keys in blocks. Each block costs one call to the underlying
+ * persistent number series; the keys of the block are then handed out from memory without
+ * locking, so bulk inserts no longer serialise on the number series row.
+ *
+ * A key consists of the prefix, the block number padded to {@link #setBlockDigits(int)} digits and
+ * the offset within the block padded to {@value #OFFSET_DIGITS} digits. Keys stay unique when the
+ * block size is changed between restarts, as every block number is issued once. Keys left in the
+ * current block are lost on restart, leaving gaps.
+ */
+public class IS32BlockKeyGenerator implements KeyGenerator
+{
+    private static final Logger LOG = Logger.getLogger(IS32BlockKeyGenerator.class);
+
+    static final int OFFSET_DIGITS = 4;
+    static final int MAX_BLOCK_SIZE = 10000;
+
+    private static final int DEFAULT_BLOCK_SIZE = 100;
+
+    private final AtomicReference<Block> currentBlock = new AtomicReference<>(Block.EXHAUSTED);
+    private final Object reserveLock = new Object();
+
+    private KeyGenerator blockNumberGenerator;
+    private ConfigurationService configurationService;
+    private String prefix = "";
+    private int blockDigits = 6;
+
+    @Override
+    public Object generate()
+    {
+        while (true)
+        {
+            final Block block = currentBlock.get();
+            final String key = block.next();
+            if (key != null)
+            {
+                return key;
+            }
+
+            synchronized (reserveLock)
+            {
+                if (currentBlock.get() == block)
+                {
+                    currentBlock.set(reserveBlock());
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object generateFor(final Object object)
+    {
+        return generate();
+    }
+
+    /**
+     * Drops the remainder of the current block. The number series itself is not reset, as that
+     * would issue keys again.
+     */
+    @Override
+    public void reset()
+    {
+        currentBlock.set(Block.EXHAUSTED);
+    }
+
+    protected Block reserveBlock()
+    {
+        final String blockNumber = StringUtils.leftPad(blockNumberGenerator.generate().toString(), blockDigits, '0');
+        final int blockSize = getBlockSize();
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Reserved key block [" + blockNumber + "] of [" + blockSize + "] keys");
+        }
+        return new Block(prefix + blockNumber, blockSize);
+    }
+
+    protected int getBlockSize()
+    {
+        final int blockSize = configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.PROMOTION_UID_BLOCK_SIZE, DEFAULT_BLOCK_SIZE);
+        return Math.max(1, Math.min(blockSize, MAX_BLOCK_SIZE));
+    }
+
+    /**
+     * @param blockNumberGenerator the persistent number series issuing the block numbers
+     */
+    @Required
+    public void setBlockNumberGenerator(final KeyGenerator blockNumberGenerator)
+    {
+        this.blockNumberGenerator = blockNumberGenerator;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    public void setPrefix(final String prefix)
+    {
+        this.prefix = prefix;
+    }
+
+    public void setBlockDigits(final int blockDigits)
+    {
+        this.blockDigits = blockDigits;
+    }
+
+    protected static final class Block
+    {
+        private static final Block EXHAUSTED = new Block("", 0);
+
+        private final String keyPrefix;
+        private final int size;
+        private final AtomicLong nextOffset = new AtomicLong();
+
+        private Block(final String keyPrefix, final int size)
+        {
+            this.keyPrefix = keyPrefix;
+            this.size = size;
+        }
+
+        /**
+         * @return the next key of the block, or null if the block is used up
+         */
+        private String next()
+        {
+            final long offset = nextOffset.getAndIncrement();
+            if (offset >= size)
+            {
+                return null;
+            }
+            return keyPrefix + StringUtils.leftPad(Long.toString(offset), OFFSET_DIGITS, '0');
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.is32.core.quota;
+
+/**
+ * Immutable account quota of one customer: the e-stamp tier threshold of an account and the number
+ * of coupon redemptions the customer has made against it.
+ */
+public final class IS32AccountQuota
+{
+    private final String accountId;
+    private final String siebelAcctId;
+    private final int threshold;
+    private final int orderedAmt;
+
+    public IS32AccountQuota(final String accountId, final String siebelAcctId, final int threshold,
+                            final int orderedAmt)
+    {
+        this.accountId = accountId;
+        this.siebelAcctId = siebelAcctId;
+        this.threshold = threshold;
+        this.orderedAmt = orderedAmt;
+    }
+
+    public String getAccountId()
+    {
+        return accountId;
+    }
+
+    public String getSiebelAcctId()
+    {
+        return siebelAcctId;
+    }
+
+    public int getThreshold()
+    {
+        return threshold;
+    }
+
+    public int getOrderedAmt()
+    {
+        return orderedAmt;
+    }
+
+    /**
+     * @return the number of redemptions left before the threshold is reached, never negative
+     */
+    public int getRemainingQuota()
+    {
+        return Math.max(threshold - orderedAmt, 0);
+    }
+
+    public boolean hasRemainingQuota()
+    {
+        return orderedAmt < threshold;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "IS32AccountQuota[" + accountId + ", " + siebelAcctId + ", " + orderedAmt + "/" + threshold + "]";
+    }
+}
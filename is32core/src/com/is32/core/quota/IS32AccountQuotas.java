@@ -0,0 +1,86 @@
+package com.is32.core.quota;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable account quotas of one customer, in query order and indexed by account id. Whether an
+ * account still has quota left is resolved once on construction, so reward-to-quota matching is a
+ * single hash lookup.
+ */
+public final class IS32AccountQuotas implements Iterable<IS32AccountQuota>
+{
+    private static final IS32AccountQuotas EMPTY = new IS32AccountQuotas(Collections.emptyList());
+
+    private final List<IS32AccountQuota> quotas;
+    private final Map<String, IS32AccountQuota> quotasByAccountId;
+    private final Set<String> accountIdsWithRemainingQuota;
+
+    public IS32AccountQuotas(final Collection<IS32AccountQuota> accountQuotas)
+    {
+        this.quotas = Collections.unmodifiableList(new ArrayList<>(accountQuotas));
+        this.quotasByAccountId = new HashMap<>(quotas.size() * 2);
+        this.accountIdsWithRemainingQuota = new HashSet<>(quotas.size() * 2);
+
+        for (final IS32AccountQuota quota : quotas)
+        {
+            quotasByAccountId.putIfAbsent(quota.getAccountId(), quota);
+            if (quota.hasRemainingQuota())
+            {
+                accountIdsWithRemainingQuota.add(quota.getAccountId());
+            }
+        }
+    }
+
+    public static IS32AccountQuotas empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * @return the first quota of the account, or null if the customer has none for it
+     */
+    public IS32AccountQuota get(final String accountId)
+    {
+        return quotasByAccountId.get(accountId);
+    }
+
+    /**
+     * @return true if any quota of the account is still below its threshold
+     */
+    public boolean hasRemainingQuota(final String accountId)
+    {
+        return accountIdsWithRemainingQuota.contains(accountId);
+    }
+
+    /**
+     * @return all quotas in query order
+     */
+    public List<IS32AccountQuota> getQuotas()
+    {
+        return quotas;
+    }
+
+    public int size()
+    {
+        return quotas.size();
+    }
+
+    public boolean isEmpty()
+    {
+        return quotas.isEmpty();
+    }
+
+    @Override
+    public Iterator<IS32AccountQuota> iterator()
+    {
+        return quotas.iterator();
+    }
+}
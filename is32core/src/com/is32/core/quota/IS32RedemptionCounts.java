@@ -0,0 +1,90 @@
+package com.is32.core.quota;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Immutable map of promotion UID to the number of coupon redemptions of one customer, backed by a
+ * sorted {@code String[]} of UIDs and a parallel {@code int[]} of counts. Promotions without any
+ * redemption are not stored; {@link #getCount(String)} reports zero for them.
+ */
+public final class IS32RedemptionCounts
+{
+    private static final IS32RedemptionCounts EMPTY = new IS32RedemptionCounts(new String[0], new int[0]);
+
+    private final String[] promotionUids;
+    private final int[] counts;
+
+    private IS32RedemptionCounts(final String[] promotionUids, final int[] counts)
+    {
+        this.promotionUids = promotionUids;
+        this.counts = counts;
+    }
+
+    public static IS32RedemptionCounts empty()
+    {
+        return EMPTY;
+    }
+
+    /**
+     * Creates the counts from a promotion UID to count map. Null keys and non-positive counts are ignored.
+     */
+    public static IS32RedemptionCounts of(final Map<String, Integer> countsByUid)
+    {
+        if (countsByUid == null || countsByUid.isEmpty())
+        {
+            return EMPTY;
+        }
+
+        final String[] uids = new String[countsByUid.size()];
+        int size = 0;
+        for (final Map.Entry<String, Integer> entry : countsByUid.entrySet())
+        {
+            if (entry.getKey() != null && entry.getValue() != null && entry.getValue().intValue() > 0)
+            {
+                uids[size++] = entry.getKey();
+            }
+        }
+
+        if (size == 0)
+        {
+            return EMPTY;
+        }
+
+        final String[] sortedUids = Arrays.copyOf(uids, size);
+        Arrays.sort(sortedUids);
+
+        final int[] sortedCounts = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            sortedCounts[i] = countsByUid.get(sortedUids[i]).intValue();
+        }
+        return new IS32RedemptionCounts(sortedUids, sortedCounts);
+    }
+
+    /**
+     * @return the number of redemptions for the promotion, or zero if there are none
+     */
+    public int getCount(final String promotionUid)
+    {
+        if (promotionUid == null)
+        {
+            return 0;
+        }
+        final int index = Arrays.binarySearch(promotionUids, promotionUid);
+        return index >= 0 ? counts[index] : 0;
+    }
+
+    /**
+     * @return the number of promotions with at least one redemption
+     */
+    public int size()
+    {
+        return promotionUids.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return promotionUids.length == 0;
+    }
+}
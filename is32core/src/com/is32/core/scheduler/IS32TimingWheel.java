@@ -0,0 +1,126 @@
+package com.is32.core.scheduler;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel holding one deadline per key. A deadline lands in the slot of its tick
+ * modulo the wheel size; deadlines further away than one rotation simply stay in their slot until
+ * a later pass reaches them. Scheduling, rescheduling and cancelling are O(1), advancing costs one
+ * slot per elapsed tick.
+ * <p>
+ * The wheel does not own a thread: the caller advances it with the current time and runs whatever
+ * is returned. All methods are synchronized.
+ */
+public class IS32TimingWheel
+{
+    private final long tickMillis;
+    private final List<Map<String, Long>> slots;
+    private final Map<String, Integer> slotByKey = new HashMap<>();
+
+    private long currentTick;
+
+    /**
+     * @param tickMillis  the duration of one tick in milliseconds
+     * @param wheelSize   the number of slots
+     * @param startMillis the time the wheel starts at
+     */
+    public IS32TimingWheel(final long tickMillis, final int wheelSize, final long startMillis)
+    {
+        if (tickMillis <= 0 || wheelSize <= 0)
+        {
+            throw new IllegalArgumentException("tickMillis and wheelSize must be positive");
+        }
+        this.tickMillis = tickMillis;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++)
+        {
+            slots.add(new LinkedHashMap<>());
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Schedules the key at the deadline, replacing an earlier deadline of the same key. A deadline
+     * that has already passed fires on the next {@link #advance(long)}.
+     */
+    public synchronized void schedule(final String key, final long deadlineMillis)
+    {
+        cancel(key);
+        final long tick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        final int slot = (int) (tick % slots.size());
+        slots.get(slot).put(key, Long.valueOf(deadlineMillis));
+        slotByKey.put(key, Integer.valueOf(slot));
+    }
+
+    /**
+     * @return true if the key was scheduled
+     */
+    public synchronized boolean cancel(final String key)
+    {
+        final Integer slot = slotByKey.remove(key);
+        return slot != null && slots.get(slot.intValue()).remove(key) != null;
+    }
+
+    /**
+     * Moves the wheel to the given time and removes every key whose deadline has been reached.
+     *
+     * @param nowMillis the current time
+     * @return the due keys, ordered by deadline
+     */
+    public synchronized List<String> advance(final long nowMillis)
+    {
+        final long targetTick = nowMillis / tickMillis;
+        if (targetTick <= currentTick || slotByKey.isEmpty())
+        {
+            currentTick = Math.max(currentTick, targetTick);
+            return Collections.emptyList();
+        }
+
+        final List<Map.Entry<String, Long>> due = new ArrayList<>();
+        final long ticks = Math.min(targetTick - currentTick, slots.size());
+        for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++)
+        {
+            final Iterator<Map.Entry<String, Long>> it = slots.get((int) (tick % slots.size())).entrySet().iterator();
+            while (it.hasNext())
+            {
+                final Map.Entry<String, Long> entry = it.next();
+                if (entry.getValue().longValue() <= nowMillis)
+                {
+                    due.add(new AbstractMap.SimpleImmutableEntry<>(entry));
+                    slotByKey.remove(entry.getKey());
+                    it.remove();
+                }
+            }
+        }
+        currentTick = targetTick;
+
+        due.sort(Map.Entry.comparingByValue());
+        final List<String> keys = new ArrayList<>(due.size());
+        for (final Map.Entry<String, Long> entry : due)
+        {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+
+    public synchronized int size()
+    {
+        return slotByKey.size();
+    }
+
+    public synchronized void clear()
+    {
+        for (final Map<String, Long> slot : slots)
+        {
+            slot.clear();
+        }
+        slotByKey.clear();
+    }
+}
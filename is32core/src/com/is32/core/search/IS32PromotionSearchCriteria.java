@@ -0,0 +1,330 @@
+package com.is32.core.search;
+
+import com.is32.core.enums.IS32PromotionDisplayType;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.enums.IS32RewardType;
+import com.is32.core.model.IS32PromotionModel;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable filter, sort order and page of a promotion search. Every filter is optional; the
+ * filters that are set are combined with AND. Two criteria with the same filters set and the same
+ * sort order have the same {@link #getShape() shape} and are served by the same query, whatever
+ * their values.
+ */
+public final class IS32PromotionSearchCriteria
+{
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private static final int STATUSES = 1;
+    private static final int SUSPENDED = 1 << 1;
+    private static final int TAG_CODE = 1 << 2;
+    private static final int DISPLAY_TYPE = 1 << 3;
+    private static final int ACTIVE_FROM = 1 << 4;
+    private static final int ACTIVE_TO = 1 << 5;
+    private static final int REWARD_TYPE = 1 << 6;
+    private static final int MIN_PRIORITY = 1 << 7;
+    private static final int MAX_PRIORITY = 1 << 8;
+    private static final int SORT_SHIFT = 9;
+
+    /**
+     * The attributes results can be sorted by. Ties are broken by PK, so pages never overlap.
+     */
+    public enum SortField
+    {
+        PRIORITY(IS32PromotionModel.PRIORITY),
+        START_DATE(IS32PromotionModel.STARTDATE),
+        END_DATE(IS32PromotionModel.ENDDATE),
+        UID(IS32PromotionModel.UID);
+
+        private final String attribute;
+
+        SortField(final String attribute)
+        {
+            this.attribute = attribute;
+        }
+
+        public String getAttribute()
+        {
+            return attribute;
+        }
+    }
+
+    private final Set<IS32PromotionStatus> statuses;
+    private final Boolean suspended;
+    private final String tagCode;
+    private final IS32PromotionDisplayType displayType;
+    private final Date activeFrom;
+    private final Date activeTo;
+    private final IS32RewardType rewardType;
+    private final Integer minPriority;
+    private final Integer maxPriority;
+    private final SortField sortField;
+    private final boolean ascending;
+    private final int page;
+    private final int pageSize;
+    private final boolean totalCountRequested;
+
+    private IS32PromotionSearchCriteria(final Builder builder)
+    {
+        this.statuses = Collections.unmodifiableSet(new LinkedHashSet<>(builder.statuses));
+        this.suspended = builder.suspended;
+        this.tagCode = builder.tagCode;
+        this.displayType = builder.displayType;
+        this.activeFrom = builder.activeFrom;
+        this.activeTo = builder.activeTo;
+        this.rewardType = builder.rewardType;
+        this.minPriority = builder.minPriority;
+        this.maxPriority = builder.maxPriority;
+        this.sortField = builder.sortField;
+        this.ascending = builder.ascending;
+        this.page = builder.page;
+        this.pageSize = builder.pageSize;
+        this.totalCountRequested = builder.totalCountRequested;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @return which filters are set and how results are sorted, as a bit set; the values of the
+     *         filters and the page do not contribute
+     */
+    public int getShape()
+    {
+        int shape = 0;
+        shape |= statuses.isEmpty() ? 0 : STATUSES;
+        shape |= suspended == null ? 0 : SUSPENDED;
+        shape |= tagCode == null ? 0 : TAG_CODE;
+        shape |= displayType == null ? 0 : DISPLAY_TYPE;
+        shape |= activeFrom == null ? 0 : ACTIVE_FROM;
+        shape |= activeTo == null ? 0 : ACTIVE_TO;
+        shape |= rewardType == null ? 0 : REWARD_TYPE;
+        shape |= minPriority == null ? 0 : MIN_PRIORITY;
+        shape |= maxPriority == null ? 0 : MAX_PRIORITY;
+        return shape | (sortField.ordinal() << 1 | (ascending ? 1 : 0)) << SORT_SHIFT;
+    }
+
+    public Set<IS32PromotionStatus> getStatuses()
+    {
+        return statuses;
+    }
+
+    public Boolean getSuspended()
+    {
+        return suspended;
+    }
+
+    public String getTagCode()
+    {
+        return tagCode;
+    }
+
+    public IS32PromotionDisplayType getDisplayType()
+    {
+        return displayType;
+    }
+
+    public Date getActiveFrom()
+    {
+        return activeFrom;
+    }
+
+    public Date getActiveTo()
+    {
+        return activeTo;
+    }
+
+    public IS32RewardType getRewardType()
+    {
+        return rewardType;
+    }
+
+    public Integer getMinPriority()
+    {
+        return minPriority;
+    }
+
+    public Integer getMaxPriority()
+    {
+        return maxPriority;
+    }
+
+    public SortField getSortField()
+    {
+        return sortField;
+    }
+
+    public boolean isAscending()
+    {
+        return ascending;
+    }
+
+    /**
+     * @return the zero based page number
+     */
+    public int getPage()
+    {
+        return page;
+    }
+
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+
+    /**
+     * @return the index of the first result of the page
+     */
+    public int getStart()
+    {
+        return page * pageSize;
+    }
+
+    public boolean isTotalCountRequested()
+    {
+        return totalCountRequested;
+    }
+
+    public static final class Builder
+    {
+        private final Set<IS32PromotionStatus> statuses = new LinkedHashSet<>();
+        private Boolean suspended;
+        private String tagCode;
+        private IS32PromotionDisplayType displayType;
+        private Date activeFrom;
+        private Date activeTo;
+        private IS32RewardType rewardType;
+        private Integer minPriority;
+        private Integer maxPriority;
+        private SortField sortField = SortField.PRIORITY;
+        private boolean ascending;
+        private int page;
+        private int pageSize = DEFAULT_PAGE_SIZE;
+        private boolean totalCountRequested;
+
+        private Builder()
+        {
+        }
+
+        /**
+         * Restricts results to promotions in one of the statuses.
+         */
+        public Builder statuses(final IS32PromotionStatus... statuses)
+        {
+            return statuses(Arrays.asList(statuses));
+        }
+
+        public Builder statuses(final Collection<IS32PromotionStatus> statuses)
+        {
+            this.statuses.clear();
+            this.statuses.addAll(statuses);
+            return this;
+        }
+
+        public Builder suspended(final Boolean suspended)
+        {
+            this.suspended = suspended;
+            return this;
+        }
+
+        public Builder tagCode(final String tagCode)
+        {
+            this.tagCode = tagCode;
+            return this;
+        }
+
+        public Builder displayType(final IS32PromotionDisplayType displayType)
+        {
+            this.displayType = displayType;
+            return this;
+        }
+
+        /**
+         * Restricts results to promotions whose start and end date overlap the period.
+         *
+         * @param from the start of the period, or null for open
+         * @param to   the end of the period, exclusive, or null for open
+         */
+        public Builder activeBetween(final Date from, final Date to)
+        {
+            this.activeFrom = from;
+            this.activeTo = to;
+            return this;
+        }
+
+        /**
+         * Restricts results to promotions with at least one reward of the type.
+         */
+        public Builder rewardType(final IS32RewardType rewardType)
+        {
+            this.rewardType = rewardType;
+            return this;
+        }
+
+        /**
+         * Restricts results to promotions with a priority in the range.
+         *
+         * @param min the lowest priority, inclusive, or null for open
+         * @param max the highest priority, inclusive, or null for open
+         */
+        public Builder priorityBetween(final Integer min, final Integer max)
+        {
+            this.minPriority = min;
+            this.maxPriority = max;
+            return this;
+        }
+
+        /**
+         * Sets the sort order; the default is by descending priority.
+         */
+        public Builder sortBy(final SortField sortField, final boolean ascending)
+        {
+            if (sortField == null)
+            {
+                throw new IllegalArgumentException("sortField must not be null");
+            }
+            this.sortField = sortField;
+            this.ascending = ascending;
+            return this;
+        }
+
+        /**
+         * @param page     the zero based page number; the end of the page must not exceed {@link Integer#MAX_VALUE}
+         * @param pageSize the number of results per page, at most {@link #MAX_PAGE_SIZE}
+         */
+        public Builder page(final int page, final int pageSize)
+        {
+            if (page < 0 || pageSize < 1 || pageSize > MAX_PAGE_SIZE || page > (Integer.MAX_VALUE - pageSize) / pageSize)
+            {
+                throw new IllegalArgumentException("Invalid page [" + page + "] of size [" + pageSize + "]");
+            }
+            this.page = page;
+            this.pageSize = pageSize;
+            return this;
+        }
+
+        /**
+         * Requests the total number of matching promotions, at the cost of a count query.
+         */
+        public Builder withTotalCount()
+        {
+            this.totalCountRequested = true;
+            return this;
+        }
+
+        public IS32PromotionSearchCriteria build()
+        {
+            return new IS32PromotionSearchCriteria(this);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.is32.core.search;
+
+import com.is32.core.model.IS32PromotionModel;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a promotion search.
+ */
+public final class IS32PromotionSearchResult
+{
+    public static final int UNKNOWN_TOTAL = -1;
+
+    private final List<IS32PromotionModel> results;
+    private final int page;
+    private final int pageSize;
+    private final int totalCount;
+
+    public IS32PromotionSearchResult(final List<IS32PromotionModel> results, final int page, final int pageSize,
+                                     final int totalCount)
+    {
+        this.results = Collections.unmodifiableList(results);
+        this.page = page;
+        this.pageSize = pageSize;
+        this.totalCount = totalCount;
+    }
+
+    public List<IS32PromotionModel> getResults()
+    {
+        return results;
+    }
+
+    public int getPage()
+    {
+        return page;
+    }
+
+    public int getPageSize()
+    {
+        return pageSize;
+    }
+
+    /**
+     * @return the number of matching promotions over all pages, or {@link #UNKNOWN_TOTAL} if it was not requested
+     */
+    public int getTotalCount()
+    {
+        return totalCount;
+    }
+
+    /**
+     * @return true if there may be a page after this one; exact only when the total count was requested
+     */
+    public boolean hasNextPage()
+    {
+        return totalCount == UNKNOWN_TOTAL
+                ? results.size() == pageSize
+                : (page + 1L) * pageSize < totalCount;
+    }
+}
@@ -1,11 +1,18 @@
 package com.is32.core.service;
 
+import com.is32.core.estamp.IS32StampCountBuffer;
 import com.is32.core.model.EStampTierModel;
 
 import java.util.List;
 
 public interface EStampTierService
 {
+    /** Returned by {@link #incrementStampCount(String, int)} if there is no tier for the account. */
+    int NO_TIER = -1;
+
+    /** Returned by {@link #incrementStampCount(String, int)} if the increment is written behind. */
+    int COUNT_DEFERRED = -2;
+
     EStampTierModel getTierByAccountId(String accountId);
 
     List<EStampTierModel> getTiersBySiebelAcctId(String siebelAcctId);
@@ -14,7 +21,21 @@ public interface EStampTierService
 
     List<EStampTierModel> getActiveTiers();
 
-    void incrementStampCount(String accountId, int count);
+    /**
+     * Atomically adds stamps to the account's tier, clamped to its maxStampCount. Concurrent
+     * increments from any cluster node are never lost.
+     *
+     * @param accountId the e-stamp account id
+     * @param count     the number of stamps to add; a count below 1 changes nothing and returns the stored count
+     * @return the stamp count after the increment, {@link #NO_TIER} if there is no tier for the account,
+     * or {@link #COUNT_DEFERRED} if write-behind is enabled and the increment is not written yet
+     */
+    int incrementStampCount(String accountId, int count);
+
+    /**
+     * @return the metrics of the write-behind buffer, or null if stamp counts are written synchronously
+     */
+    IS32StampCountBuffer.Statistics getWriteBehindStatistics();
 
     void resetStampCount(String accountId);
 
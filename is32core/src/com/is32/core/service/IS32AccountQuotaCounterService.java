@@ -0,0 +1,44 @@
+package com.is32.core.service;
+
+import com.is32.core.quota.IS32AccountQuota;
+import com.is32.core.quota.IS32AccountQuotas;
+import de.hybris.platform.core.model.user.CustomerModel;
+
+import java.util.Collection;
+
+public interface IS32AccountQuotaCounterService
+{
+    /**
+     * @return true if account quotas are maintained in and read from the counter table
+     */
+    boolean isEnabled();
+
+    /**
+     * Increments the ordered amount of the customer for each given e-stamp account by one, creating
+     * missing counters in transactions of their own.
+     *
+     * @param customer   the redeeming customer
+     * @param accountIds the e-stamp accounts of the redeemed promotion's INCREASE_MEMBER_ACCOUNT rewards
+     */
+    void recordRedemption(CustomerModel customer, Collection<String> accountIds);
+
+    /**
+     * Reads the customer's account quotas for the given e-stamp accounts from the counter table.
+     * Accounts the customer has never redeemed against are returned with an ordered amount of zero.
+     *
+     * @param customer   the customer
+     * @param accountIds the e-stamp accounts to report
+     * @return account quotas indexed by account id
+     */
+    IS32AccountQuotas getAccountQuotas(CustomerModel customer, Collection<String> accountIds);
+
+    /**
+     * Replaces all counters of a customer with the given totals in a single transaction. Counters of
+     * accounts that are not part of the totals are reset to zero.
+     *
+     * @param customer the customer
+     * @param totals   the recomputed quota per account
+     * @return the number of counters written
+     */
+    int replaceCounters(CustomerModel customer, Collection<IS32AccountQuota> totals);
+}
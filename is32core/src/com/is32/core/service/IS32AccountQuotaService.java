@@ -1,35 +1,43 @@
 package com.is32.core.service;
 
+import com.is32.core.quota.IS32AccountQuotas;
+import com.is32.core.quota.IS32RedemptionCounts;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.core.model.user.CustomerModel;
 
-import java.util.List;
+import java.util.Collection;
 import java.util.Map;
 
 public interface IS32AccountQuotaService
 {
     /**
-     * Retrieves aggregated account quota data for the given customer. Each entry in the returned
-     * list represents one account with its quota information.
-     *
-     * The returned map entries contain:
-     *   - "accountId" (String)
-     *   - "siebelAcctId" (String)
-     *   - "threshold" (Integer)
-     *   - "orderedAmt" (Integer) - the total count of coupon redemptions for this account
+     * Retrieves aggregated account quota data for the given customer, one quota per account with
+     * its threshold and the total count of coupon redemptions made against it ("orderedAmt").
      *
      * @param customer       the customer whose redemption status to evaluate
      * @param catalogVersion the catalog version for product filtering
-     * @return list of account quota entries
+     * @return account quotas indexed by account id
      */
-    List<Map<String, Object>> getAccountQuotas(CustomerModel customer, CatalogVersionModel catalogVersion);
+    IS32AccountQuotas getAccountQuotas(CustomerModel customer, CatalogVersionModel catalogVersion);
+
+    /**
+     * Retrieves the account quotas of several customers at once. Quotas that are not cached are
+     * loaded with set-based queries over chunks of customers instead of one query per customer.
+     *
+     * @param customers      the customers whose redemption status to evaluate
+     * @param catalogVersion the catalog version for product filtering
+     * @return account quotas by customer PK, with an entry for every given customer
+     */
+    Map<PK, IS32AccountQuotas> getAccountQuotasForCustomers(Collection<CustomerModel> customers,
+                                                            CatalogVersionModel catalogVersion);
 
     /**
      * Retrieves account quotas for the current session user using the active catalog version.
      *
-     * @return list of account quota entries
+     * @return account quotas indexed by account id
      */
-    List<Map<String, Object>> getAccountQuotasForCurrentUser();
+    IS32AccountQuotas getAccountQuotasForCurrentUser();
 
     /**
      * Gets the redemption count for a specific promotion and customer.
@@ -39,4 +47,23 @@ public interface IS32AccountQuotaService
      * @return redemption count
      */
     int getRedemptionCount(String promotionUid, CustomerModel customer);
+
+    /**
+     * Gets the redemption counts of a customer for several promotions at once.
+     *
+     * @param promotionUids the promotion UIDs
+     * @param customer      the customer
+     * @return redemption counts by promotion UID
+     */
+    IS32RedemptionCounts getRedemptionCounts(Collection<String> promotionUids, CustomerModel customer);
+
+    /**
+     * Gets the redemption counts of several customers for several promotions at once.
+     *
+     * @param promotionUids the promotion UIDs
+     * @param customers     the customers
+     * @return redemption counts by customer PK, with an entry for every given customer
+     */
+    Map<PK, IS32RedemptionCounts> getRedemptionCountsForCustomers(Collection<String> promotionUids,
+                                                                  Collection<CustomerModel> customers);
 }
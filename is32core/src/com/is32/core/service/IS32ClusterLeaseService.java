@@ -0,0 +1,30 @@
+package com.is32.core.service;
+
+/**
+ * Cluster-wide leader election on top of the database. Each lease code has one IS32ClusterLease
+ * row naming its owner; the owner renews it by bumping the row's version, and another node takes
+ * it over only after it has seen the version stand still for a whole lease duration.
+ * <p>
+ * Durations are measured on each node's own monotonic clock, between the node's own reads and
+ * writes of the row, so that neither the wall clocks of the nodes nor the clock of the database
+ * have to agree.
+ */
+public interface IS32ClusterLeaseService
+{
+    /**
+     * Renews the lease if this node holds it, creates it if no node does, or takes it over if its
+     * owner has not renewed it for the lease duration. A node that gets true holds the lease for
+     * the lease duration counted from the start of this call, and must call again before then to
+     * keep it.
+     *
+     * @param code        the lease code
+     * @param leaseMillis the lease duration in milliseconds
+     * @return true if this node holds the lease
+     */
+    boolean claim(String code, long leaseMillis);
+
+    /**
+     * @return the identifier this node claims leases with
+     */
+    String getNodeId();
+}
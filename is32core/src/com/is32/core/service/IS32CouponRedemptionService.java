@@ -0,0 +1,25 @@
+package com.is32.core.service;
+
+import com.is32.core.event.IS32CouponRedemptionEvent;
+
+/**
+ * E-stamp bookkeeping of coupon redemptions: increments the e-stamp tiers of the redeemed
+ * promotion's INCREASE_MEMBER_ACCOUNT rewards, records the redemption in the account quota
+ * counters and evicts the customer's cached account quotas.
+ */
+public interface IS32CouponRedemptionService
+{
+    /**
+     * Hands a redemption over for processing. When asynchronous processing is enabled this only
+     * queues the event and returns; otherwise, or when the queue is full, the event is processed on
+     * the calling thread.
+     *
+     * @param event the redemption
+     */
+    void submit(IS32CouponRedemptionEvent event);
+
+    /**
+     * @return the number of redemptions and stamp increments queued and not yet written
+     */
+    int getPendingCount();
+}
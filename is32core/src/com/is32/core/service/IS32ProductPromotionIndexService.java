@@ -0,0 +1,46 @@
+package com.is32.core.service;
+
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.snapshot.IS32ProductPromotionIndex;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.model.product.ProductModel;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Answers which live promotions apply to a product or a set of products without querying the
+ * database, using a node-local {@link IS32ProductPromotionIndex} per catalog version.
+ */
+public interface IS32ProductPromotionIndexService
+{
+    /**
+     * Returns the live promotions whose buckets include the product and do not exclude it.
+     *
+     * @param product the product
+     * @return the promotions, highest priority first
+     */
+    List<IS32PromotionModel> getActivePromotionsForProduct(ProductModel product);
+
+    /**
+     * Returns the live promotions that apply to at least one of the products, e.g. the entries of a
+     * cart. The products may belong to different catalog versions.
+     *
+     * @param products the products
+     * @return the promotions, each once, highest priority first
+     */
+    List<IS32PromotionModel> getActivePromotionsForProducts(Collection<ProductModel> products);
+
+    /**
+     * Returns the index of a catalog version, building it if it is not held or too old.
+     *
+     * @param catalogVersion the catalog version
+     * @return the index
+     */
+    IS32ProductPromotionIndex getIndex(CatalogVersionModel catalogVersion);
+
+    /**
+     * Drops the indexes of all catalog versions on this node; they are rebuilt on next access.
+     */
+    void invalidate();
+}
@@ -0,0 +1,79 @@
+package com.is32.core.service;
+
+import com.is32.core.model.IS32PromotionCatalogVersionModel;
+import com.is32.core.model.IS32PromotionModel;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Maintains the {@link IS32PromotionCatalogVersionModel} mapping: a promotion is mapped to every
+ * catalog version holding a product that matches an item of one of its buckets. The mapping turns
+ * the lookup of the promotions of a catalog version into a single indexed query.
+ */
+public interface IS32PromotionCatalogVersionService
+{
+    /**
+     * Recomputes the catalog versions of a promotion and adds or removes mappings to match.
+     *
+     * @param promotion the promotion
+     * @return the number of mappings created or removed
+     */
+    int refreshPromotion(IS32PromotionModel promotion);
+
+    /**
+     * Refreshes the promotions with the given UIDs; unknown UIDs are ignored.
+     *
+     * @param promotionUids the promotion UIDs
+     * @return the number of mappings created or removed
+     */
+    int refreshPromotions(Collection<String> promotionUids);
+
+    /**
+     * Recomputes the promotions of a catalog version, e.g. after a catalog synchronization, and
+     * adds or removes mappings to match.
+     *
+     * @param catalogVersion the catalog version
+     * @return the number of mappings created or removed
+     */
+    int refreshCatalogVersion(CatalogVersionModel catalogVersion);
+
+    /**
+     * Removes mappings whose promotion no longer exists.
+     *
+     * @param batchSize the number of mappings removed per transaction
+     * @return the number of mappings removed
+     */
+    int removeOrphanedMappings(int batchSize);
+
+    /**
+     * Marks the promotion of a bucket or promo item that is about to be removed, to be refreshed
+     * once the removal of that item is committed. Removed items can no longer be traced back to
+     * their promotion after the commit.
+     *
+     * @param removedItemPk the PK of the item being removed
+     * @param promotionUid  the UID of the item's promotion
+     */
+    void markForRefresh(PK removedItemPk, String promotionUid);
+
+    /**
+     * Takes the promotions marked with {@link #markForRefresh(PK, String)} for the given items,
+     * whose removal has been committed. Marks of other items, e.g. of removals still running in
+     * another transaction, are kept.
+     *
+     * @param removedItemPks the PKs of the removed items
+     * @return the UIDs of the marked promotions
+     */
+    Set<String> takeMarkedPromotionUids(Collection<PK> removedItemPks);
+
+    /**
+     * Refreshes the promotions in the background after a short delay, refreshing promotions that
+     * are scheduled repeatedly within the delay only once. Without a delay the promotions are
+     * refreshed at once.
+     *
+     * @param promotionUids the promotion UIDs
+     */
+    void scheduleRefresh(Collection<String> promotionUids);
+}
@@ -0,0 +1,43 @@
+package com.is32.core.service;
+
+import com.is32.core.expiry.IS32ExpiryResult;
+
+import java.util.Date;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bulk expiry and removal of promotions in bounded chunks. Every chunk is written in its own
+ * transaction, so a run can be aborted between chunks and resumed by the next one.
+ */
+public interface IS32PromotionExpiryService
+{
+    /**
+     * Marks every promotion that ended before the reference date as EXPIRED, using the configured
+     * cleanup batch size as chunk size.
+     *
+     * @param referenceDate the reference date
+     * @return the outcome of the run
+     */
+    IS32ExpiryResult expirePromotions(Date referenceDate);
+
+    /**
+     * Marks every promotion that ended before the reference date as EXPIRED.
+     *
+     * @param referenceDate  the reference date
+     * @param batchSize      the number of promotions per chunk
+     * @param abortRequested checked before each chunk; the run stops when it returns true
+     * @return the outcome of the run
+     */
+    IS32ExpiryResult expirePromotions(Date referenceDate, int batchSize, BooleanSupplier abortRequested);
+
+    /**
+     * Removes every EXPIRED promotion that ended before the cutoff date, together with its buckets,
+     * promo items, exclude items, rewards, activities and catalog version mappings.
+     *
+     * @param cutoffDate     the retention cutoff date
+     * @param batchSize      the number of promotions, and of dependent items, per chunk
+     * @param abortRequested checked before each chunk; the run stops when it returns true
+     * @return the outcome of the run
+     */
+    IS32ExpiryResult removeExpiredPromotions(Date cutoffDate, int batchSize, BooleanSupplier abortRequested);
+}
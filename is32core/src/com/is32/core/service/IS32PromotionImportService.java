@@ -0,0 +1,35 @@
+package com.is32.core.service;
+
+import com.is32.core.importer.IS32PromotionImportReader;
+import com.is32.core.importer.IS32PromotionImportResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Bulk import of promotions together with their tags, rewards, buckets, promo items and
+ * activities. The file is streamed, validated chunk by chunk with the rules of the promotion
+ * validate interceptor and written by parallel workers, one transaction per chunk. Invalid
+ * records are rejected and reported without stopping the import.
+ */
+public interface IS32PromotionImportService
+{
+    /**
+     * Imports a UTF-8 encoded file in the format described by {@link IS32PromotionImportReader}.
+     *
+     * @param input the file contents; closed when the import ends
+     * @return the outcome of the import
+     * @throws IOException if the file cannot be read; chunks written before the failure stay committed
+     */
+    IS32PromotionImportResult importPromotions(InputStream input) throws IOException;
+
+    /**
+     * Imports a file in the format described by {@link IS32PromotionImportReader}.
+     *
+     * @param input the file contents; closed when the import ends
+     * @return the outcome of the import
+     * @throws IOException if the file cannot be read; chunks written before the failure stay committed
+     */
+    IS32PromotionImportResult importPromotions(Reader input) throws IOException;
+}
@@ -0,0 +1,25 @@
+package com.is32.core.service;
+
+/**
+ * Fires promotion status transitions at the exact start and end boundaries of the promotions
+ * instead of waiting for the nightly cleanup job. Only the node holding the scheduler lease loads
+ * boundaries and writes; the other nodes stay idle until they take the lease over.
+ */
+public interface IS32PromotionSchedulerService
+{
+    /**
+     * Renews the lease if due and fires every boundary that has been reached. Called periodically
+     * by the scheduler thread.
+     */
+    void tick();
+
+    /**
+     * @return true if this node held the scheduler lease at the last tick
+     */
+    boolean isLeader();
+
+    /**
+     * @return the number of boundaries waiting to fire on this node
+     */
+    int getScheduledCount();
+}
@@ -1,7 +1,10 @@
 package com.is32.core.service;
 
 import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.enums.IS32PromotionDisplayType;
 import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.search.IS32PromotionSearchCriteria;
+import com.is32.core.search.IS32PromotionSearchResult;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
 
 import java.util.Date;
@@ -19,12 +22,31 @@ public interface IS32PromotionService
 
     List<IS32PromotionModel> getPromotionsByTagCode(String tagCode);
 
+    /**
+     * Returns the live, non-suspended promotions of a tag from the promotion snapshot, without
+     * querying the database unless the snapshot has to be rebuilt.
+     *
+     * @param tagCode     the tag code
+     * @param displayType the display type of the tag, or null for any
+     * @return the promotions in descending priority order
+     */
+    List<IS32PromotionModel> getActivePromotionsByTagCode(String tagCode, IS32PromotionDisplayType displayType);
+
     List<IS32PromotionModel> getExpiredPromotions(int maxResults);
 
     List<IS32PromotionModel> getPromotionsByDateRange(Date startDate, Date endDate);
 
     List<IS32PromotionModel> getPromotionsForCatalogVersion(CatalogVersionModel catalogVersion);
 
+    /**
+     * Searches promotions by any combination of status, suspension, tag, display type, active
+     * period, reward type and priority range, returning one sorted page in a single query.
+     *
+     * @param criteria the filters, sort order and page
+     * @return the page of promotions
+     */
+    IS32PromotionSearchResult searchPromotions(IS32PromotionSearchCriteria criteria);
+
     void updatePromotionStatus(IS32PromotionModel promotion, IS32PromotionStatus newStatus);
 
     void suspendPromotion(IS32PromotionModel promotion);
@@ -0,0 +1,59 @@
+package com.is32.core.service;
+
+import com.is32.core.snapshot.IS32PromotionSnapshot;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
+
+import java.util.Date;
+import java.util.List;
+
+public interface IS32PromotionSnapshotService
+{
+    /**
+     * Returns the current snapshot of ACTIVE promotions, building it first if it has been
+     * invalidated since the last call.
+     *
+     * @return the current snapshot, never null
+     */
+    IS32PromotionSnapshot getSnapshot();
+
+    /**
+     * Returns the non-suspended promotions that are live at the given date without querying the
+     * database, unless the snapshot has to be rebuilt.
+     *
+     * @param currentDate the evaluation instant
+     * @return an unmodifiable list of live snapshot entries
+     */
+    List<IS32PromotionSnapshotEntry> getActiveEntries(Date currentDate);
+
+    /**
+     * Returns the promotions of {@link #getActiveEntries(Date)} in descending priority order.
+     *
+     * @param currentDate the evaluation instant
+     * @return an unmodifiable list of live snapshot entries, highest priority first
+     */
+    List<IS32PromotionSnapshotEntry> getActiveEntriesByPriority(Date currentDate);
+
+    /**
+     * Returns the promotions of {@link #getActiveEntriesByPriority(Date)} that are also inside one of
+     * their activity windows at the given date.
+     *
+     * @param currentDate the evaluation instant
+     * @return an unmodifiable list of live snapshot entries, highest priority first
+     */
+    List<IS32PromotionSnapshotEntry> getLiveEntriesByPriority(Date currentDate);
+
+    /**
+     * Returns the promotions of {@link #getActiveEntriesByPriority(Date)} carrying the given tag.
+     *
+     * @param tagCode         the tag code
+     * @param displayTypeCode the display type code of the tag, or null for any
+     * @param currentDate     the evaluation instant
+     * @return an unmodifiable list of live snapshot entries of the tag, highest priority first
+     */
+    List<IS32PromotionSnapshotEntry> getActiveEntriesByTag(String tagCode, String displayTypeCode, Date currentDate);
+
+    /**
+     * Discards the current snapshot on this node. The next read rebuilds it.
+     */
+    void invalidate();
+}
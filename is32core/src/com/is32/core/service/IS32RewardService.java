@@ -2,6 +2,7 @@ package com.is32.core.service;
 
 import com.is32.core.model.IS32RewardModel;
 import com.is32.core.enums.IS32RewardType;
+import com.is32.core.snapshot.IS32RewardRoutingTable;
 
 import java.util.List;
 
@@ -18,4 +19,13 @@ public interface IS32RewardService
     void saveReward(IS32RewardModel reward);
 
     void removeReward(IS32RewardModel reward);
+
+    /**
+     * Looks up the e-stamp accounts a promotion's INCREASE_MEMBER_ACCOUNT rewards increment in the
+     * node-local routing table, which is only read from the database after a reward changed.
+     *
+     * @param promotionUid the promotion UID
+     * @return the accounts and increments, empty if the promotion has no such rewards
+     */
+    IS32RewardRoutingTable.Route getMemberAccountRoute(String promotionUid);
 }
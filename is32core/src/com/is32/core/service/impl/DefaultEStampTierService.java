@@ -1,20 +1,107 @@
 package com.is32.core.service.impl;
 
+import com.is32.core.constants.IS32CoreConstants;
 import com.is32.core.dao.EStampTierDao;
+import com.is32.core.estamp.IS32StampCountBuffer;
+import com.is32.core.estamp.IS32StampCountJournal;
+import com.is32.core.event.IS32CacheInvalidationEvent;
 import com.is32.core.model.EStampTierModel;
 import com.is32.core.service.EStampTierService;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.TenantAwareThreadFactory;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.event.EventService;
 import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.tx.Transaction;
+import de.hybris.platform.util.Utilities;
+import org.apache.commons.configuration.Configuration;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Required;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 
-public class DefaultEStampTierService implements EStampTierService
+/**
+ * Stamp counts are incremented by a conditional, clamped UPDATE in the database rather than a
+ * read-modify-save of the tier model, so increments from several cluster nodes are not lost and the
+ * row lock is only held for the single statement. Increments of the same account on this node
+ * additionally queue on one of a fixed set of striped locks, so a hot account occupies one database
+ * connection at a time instead of one per waiting thread.
+ * <p>
+ * In the opt-in write-behind mode increments are collected in an {@link IS32StampCountBuffer}
+ * instead, journaled locally and written in periodic batches of one update per account. Stamp
+ * counts read from the tiers then lag behind by up to one flush interval.
+ */
+public class DefaultEStampTierService implements EStampTierService, InitializingBean, DisposableBean
 {
     private static final Logger LOG = Logger.getLogger(DefaultEStampTierService.class);
 
+    private static final int LOCK_STRIPES = 64;
+    private static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 1000L;
+    private static final int DEFAULT_BATCH_SIZE = 200;
+
+    private final Lock[] stampCountLocks = createLocks(LOCK_STRIPES);
+
     private EStampTierDao eStampTierDao;
     private ModelService modelService;
+    private EventService eventService;
+    private ConfigurationService configurationService;
+
+    private volatile IS32StampCountBuffer stampCountBuffer;
+
+    @Override
+    public void afterPropertiesSet() throws IOException
+    {
+        final Configuration configuration = configurationService.getConfiguration();
+        if (!configuration.getBoolean(IS32CoreConstants.Config.ESTAMP_WRITE_BEHIND_ENABLED, false))
+        {
+            return;
+        }
+
+        final String journalDirectory = configuration.getString(IS32CoreConstants.Config.ESTAMP_WRITE_BEHIND_JOURNAL_DIR);
+        if (StringUtils.isBlank(journalDirectory))
+        {
+            LOG.error("No e-stamp count journal directory configured, writing stamp counts synchronously");
+            return;
+        }
+
+        final long flushIntervalMillis = Math.max(1L, configuration.getLong(
+                IS32CoreConstants.Config.ESTAMP_WRITE_BEHIND_FLUSH_INTERVAL, DEFAULT_FLUSH_INTERVAL_MILLIS));
+        final int batchSize = configuration.getInt(IS32CoreConstants.Config.ESTAMP_WRITE_BEHIND_BATCH_SIZE,
+                DEFAULT_BATCH_SIZE);
+
+        final IS32StampCountBuffer buffer = new IS32StampCountBuffer(
+                new IS32StampCountJournal(Paths.get(journalDirectory)), this::writeStampCounts, batchSize);
+        buffer.start(createThreadFactory(), flushIntervalMillis);
+        stampCountBuffer = buffer;
+        LOG.info("Writing e-stamp counts behind every [" + flushIntervalMillis + "] ms in batches of ["
+                + batchSize + "] accounts, journaled in [" + journalDirectory + "]");
+    }
+
+    @Override
+    public void destroy() throws IOException, InterruptedException
+    {
+        final IS32StampCountBuffer buffer = stampCountBuffer;
+        if (buffer != null)
+        {
+            stampCountBuffer = null;
+            buffer.stop();
+        }
+    }
 
     @Override
     public EStampTierModel getTierByAccountId(final String accountId)
@@ -46,31 +133,63 @@ public class DefaultEStampTierService implements EStampTierService
     }
 
     @Override
-    public void incrementStampCount(final String accountId, final int count)
+    public int incrementStampCount(final String accountId, final int count)
     {
-        final EStampTierModel tier = eStampTierDao.findByAccountId(accountId);
-        if (tier == null)
+        if (count < 1)
         {
-            LOG.error("Cannot increment stamp count: no tier found for account [" + accountId + "]");
-            return;
+            final List<Object> row = eStampTierDao.findStampCount(accountId);
+            return row == null ? NO_TIER : row.get(1) != null ? ((Integer) row.get(1)).intValue() : 0;
         }
 
-        final int newCount = (tier.getCurrentStampCount() != null ? tier.getCurrentStampCount() : 0) + count;
-        final int maxCount = tier.getMaxStampCount() != null ? tier.getMaxStampCount() : Integer.MAX_VALUE;
-
-        tier.setCurrentStampCount(Math.min(newCount, maxCount));
-        modelService.save(tier);
+        final IS32StampCountBuffer buffer = stampCountBuffer;
+        if (buffer != null)
+        {
+            buffer.add(accountId, count);
+            return COUNT_DEFERRED;
+        }
 
-        if (LOG.isDebugEnabled())
+        final boolean[] updated = new boolean[1];
+        final List<Object> row;
+        final Lock lock = stampCountLocks[Math.floorMod(accountId.hashCode(), stampCountLocks.length)];
+        lock.lock();
+        try
         {
-            LOG.debug("Incremented stamp count for account [" + accountId
-                    + "] by [" + count + "] to [" + tier.getCurrentStampCount() + "]");
+            row = executeInTransaction(() -> {
+                updated[0] = eStampTierDao.incrementStampCount(accountId, count);
+                return eStampTierDao.findStampCount(accountId);
+            });
         }
+        finally
+        {
+            lock.unlock();
+        }
+
+        return afterIncrement(accountId, count, row, updated[0]);
+    }
+
+    @Override
+    public IS32StampCountBuffer.Statistics getWriteBehindStatistics()
+    {
+        final IS32StampCountBuffer buffer = stampCountBuffer;
+        return buffer != null ? buffer.getStatistics() : null;
     }
 
     @Override
     public void resetStampCount(final String accountId)
     {
+        final IS32StampCountBuffer buffer = stampCountBuffer;
+        if (buffer != null)
+        {
+            try
+            {
+                buffer.flush();
+            }
+            catch (final IOException e)
+            {
+                LOG.error("Could not flush buffered e-stamp counts before resetting account [" + accountId + "]", e);
+            }
+        }
+
         final EStampTierModel tier = eStampTierDao.findByAccountId(accountId);
         if (tier != null)
         {
@@ -86,6 +205,121 @@ public class DefaultEStampTierService implements EStampTierService
         modelService.save(tier);
     }
 
+    /**
+     * Writes the summed increments of a write-behind flush in one transaction.
+     */
+    protected void writeStampCounts(final Map<String, Integer> deltas)
+    {
+        final Map<String, List<Object>> rows = new LinkedHashMap<>();
+        final Set<String> updatedAccounts = new HashSet<>();
+        executeInTransaction(() -> {
+            for (final Map.Entry<String, Integer> delta : deltas.entrySet())
+            {
+                if (eStampTierDao.incrementStampCount(delta.getKey(), delta.getValue().intValue()))
+                {
+                    updatedAccounts.add(delta.getKey());
+                }
+                rows.put(delta.getKey(), eStampTierDao.findStampCount(delta.getKey()));
+            }
+            return null;
+        });
+
+        for (final Map.Entry<String, List<Object>> row : rows.entrySet())
+        {
+            afterIncrement(row.getKey(), deltas.get(row.getKey()).intValue(), row.getValue(),
+                    updatedAccounts.contains(row.getKey()));
+        }
+    }
+
+    protected ThreadFactory createThreadFactory()
+    {
+        return new TenantAwareThreadFactory(Registry.getCurrentTenantNoFallback());
+    }
+
+    protected <T> T executeInTransaction(final Supplier<T> body)
+    {
+        final Transaction tx = Transaction.current();
+        boolean success = false;
+        tx.begin();
+        try
+        {
+            final T result = body.get();
+            success = true;
+            return result;
+        }
+        finally
+        {
+            if (success)
+            {
+                tx.commit();
+            }
+            else
+            {
+                tx.rollback();
+            }
+        }
+    }
+
+    /**
+     * Evicts the tier from the entity cache and refreshes it in the tier table of every cluster node,
+     * as the increment bypassed the model layer.
+     */
+    protected void invalidateCachedTier(final PK tierPk)
+    {
+        Utilities.invalidateCache(tierPk);
+        eventService.publishEvent(new IS32CacheInvalidationEvent(IS32CoreConstants.CacheRegion.ESTAMP_TIER,
+                Collections.singletonList(tierPk.getLongValueAsString())));
+    }
+
+    /**
+     * Invalidates the caches affected by a committed increment.
+     *
+     * @return the stamp count after the increment
+     */
+    private int afterIncrement(final String accountId, final int count, final List<Object> row, final boolean updated)
+    {
+        if (row == null)
+        {
+            LOG.error("Cannot increment stamp count: no tier found for account [" + accountId + "]");
+            return NO_TIER;
+        }
+
+        final PK tierPk = (PK) row.get(0);
+        final int newCount = row.get(1) != null ? ((Integer) row.get(1)).intValue() : 0;
+        if (!updated)
+        {
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Stamp count of account [" + accountId + "] is already at its maximum [" + newCount + "]");
+            }
+            return newCount;
+        }
+
+        invalidateCachedTier(tierPk);
+        if (row.get(2) != null && newCount >= ((Integer) row.get(2)).intValue())
+        {
+            // the tier is full now and no longer among the active tiers
+            eventService.publishEvent(new IS32CacheInvalidationEvent(IS32CoreConstants.CacheRegion.QUERY_RESULT,
+                    Collections.singletonList(tierPk.getLongValueAsString())));
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Incremented stamp count for account [" + accountId + "] by [" + count + "] to [" + newCount + "]");
+        }
+        return newCount;
+    }
+
+    private static Lock[] createLocks(final int stripes)
+    {
+        final Lock[] locks = new Lock[stripes];
+        for (int i = 0; i < stripes; i++)
+        {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+
     @Required
     public void setEStampTierDao(final EStampTierDao eStampTierDao)
     {
@@ -97,4 +331,16 @@ public class DefaultEStampTierService implements EStampTierService
     {
         this.modelService = modelService;
     }
+
+    @Required
+    public void setEventService(final EventService eventService)
+    {
+        this.eventService = eventService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
 }
@@ -0,0 +1,314 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.EStampTierDao;
+import com.is32.core.dao.IS32AccountQuotaCounterDao;
+import com.is32.core.model.EStampTierModel;
+import com.is32.core.model.IS32AccountQuotaCounterModel;
+import com.is32.core.quota.IS32AccountQuota;
+import com.is32.core.quota.IS32AccountQuotas;
+import com.is32.core.service.IS32AccountQuotaCounterService;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.TenantAwareThreadFactory;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.exceptions.ModelSavingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.tx.Transaction;
+import de.hybris.platform.util.Utilities;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Supplier;
+
+/**
+ * Maintains {@link IS32AccountQuotaCounterModel}s, the per customer and e-stamp account count of
+ * coupon redemptions. Counters are incremented when a redemption is processed and rebuilt from the
+ * coupon redemptions by the counter rebuild job, so quota reads do not have to recompute them.
+ */
+public class DefaultIS32AccountQuotaCounterService implements IS32AccountQuotaCounterService
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32AccountQuotaCounterService.class);
+
+    private IS32AccountQuotaCounterDao is32AccountQuotaCounterDao;
+    private EStampTierDao eStampTierDao;
+    private ModelService modelService;
+    private ConfigurationService configurationService;
+
+    @Override
+    public boolean isEnabled()
+    {
+        return configurationService.getConfiguration()
+                .getBoolean(IS32CoreConstants.Config.ACCOUNT_QUOTA_COUNTER_ENABLED, false);
+    }
+
+    /**
+     * Increments the counters in the database without reading them first. Counters that do not exist
+     * yet are created with an ordered amount of zero, each in a transaction of its own, and then
+     * incremented like the others. A redemption may be recorded inside a running transaction, where a
+     * failed insert would doom the whole transaction; creating the counters apart from it means an
+     * insert that loses the race against a concurrent redemption of the customer on the unique
+     * customer and accountId index only fails its own transaction.
+     */
+    @Override
+    public void recordRedemption(final CustomerModel customer, final Collection<String> accountIds)
+    {
+        if (accountIds == null || accountIds.isEmpty())
+        {
+            return;
+        }
+
+        final List<PK> incremented = new ArrayList<>(accountIds.size());
+        final List<String> missing = incrementCounters(customer, new LinkedHashSet<>(accountIds), incremented);
+        if (!missing.isEmpty())
+        {
+            for (final String accountId : missing)
+            {
+                createCounterIfAbsent(customer, accountId);
+            }
+            for (final String accountId : incrementCounters(customer, missing, incremented))
+            {
+                LOG.warn("Could not record redemption of customer [" + customer.getUid() + "] for account ["
+                        + accountId + "], the counter was removed concurrently");
+            }
+        }
+
+        for (final PK counterPk : incremented)
+        {
+            invalidateCachedCounter(counterPk);
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Recorded redemption of customer [" + customer.getUid() + "] for accounts " + accountIds);
+        }
+    }
+
+    /**
+     * Increments the existing counters of one redemption in one transaction.
+     *
+     * @param incremented receives the PKs of the counters incremented by statement, which bypassed the model layer
+     * @return the accountIds without a counter
+     */
+    protected List<String> incrementCounters(final CustomerModel customer, final Collection<String> accountIds,
+                                             final List<PK> incremented)
+    {
+        return executeInTransaction(() -> {
+            final List<String> missing = new ArrayList<>();
+            for (final String accountId : accountIds)
+            {
+                final PK counterPk = is32AccountQuotaCounterDao.incrementOrderedAmt(customer, accountId);
+                if (counterPk != null)
+                {
+                    incremented.add(counterPk);
+                }
+                else
+                {
+                    missing.add(accountId);
+                }
+            }
+            return missing;
+        });
+    }
+
+    /**
+     * Creates a counter with an ordered amount of zero in a new transaction, unless a concurrent
+     * redemption created it first.
+     */
+    protected void createCounterIfAbsent(final CustomerModel customer, final String accountId)
+    {
+        try
+        {
+            executeInNewTransaction(() -> {
+                modelService.save(createCounter(customer, accountId));
+                return null;
+            });
+        }
+        catch (final ModelSavingException e)
+        {
+            LOG.debug("Counter of customer [" + customer.getUid() + "] for account [" + accountId
+                    + "] was created concurrently", e);
+        }
+    }
+
+    @Override
+    public IS32AccountQuotas getAccountQuotas(final CustomerModel customer, final Collection<String> accountIds)
+    {
+        final List<List<Object>> rows =
+                is32AccountQuotaCounterDao.findCounterBackedAccountQuotaData(customer, accountIds);
+
+        final List<IS32AccountQuota> quotas = new ArrayList<>(rows.size());
+        for (final List<Object> row : rows)
+        {
+            quotas.add(new IS32AccountQuota((String) row.get(0), (String) row.get(1),
+                    intValue(row.get(2)), intValue(row.get(3))));
+        }
+        return new IS32AccountQuotas(quotas);
+    }
+
+    @Override
+    public int replaceCounters(final CustomerModel customer, final Collection<IS32AccountQuota> totals)
+    {
+        final Map<String, IS32AccountQuotaCounterModel> existing = new HashMap<>();
+        for (final IS32AccountQuotaCounterModel counter : is32AccountQuotaCounterDao.findCountersByCustomer(customer))
+        {
+            existing.put(counter.getAccountId(), counter);
+        }
+
+        final List<IS32AccountQuotaCounterModel> toSave = new ArrayList<>(totals.size() + existing.size());
+        for (final IS32AccountQuota total : totals)
+        {
+            IS32AccountQuotaCounterModel counter = existing.remove(total.getAccountId());
+            if (counter == null)
+            {
+                counter = modelService.create(IS32AccountQuotaCounterModel.class);
+                counter.setCustomer(customer);
+                counter.setAccountId(total.getAccountId());
+            }
+            counter.setSiebelAcctId(total.getSiebelAcctId());
+            counter.setThreshold(Integer.valueOf(total.getThreshold()));
+            counter.setOrderedAmt(Integer.valueOf(total.getOrderedAmt()));
+            toSave.add(counter);
+        }
+
+        for (final IS32AccountQuotaCounterModel staleCounter : existing.values())
+        {
+            if (intValue(staleCounter.getOrderedAmt()) != 0)
+            {
+                staleCounter.setOrderedAmt(Integer.valueOf(0));
+                toSave.add(staleCounter);
+            }
+        }
+
+        executeInTransaction(() -> {
+            modelService.saveAll(toSave);
+            return null;
+        });
+        return toSave.size();
+    }
+
+    protected IS32AccountQuotaCounterModel createCounter(final CustomerModel customer, final String accountId)
+    {
+        final IS32AccountQuotaCounterModel counter = modelService.create(IS32AccountQuotaCounterModel.class);
+        counter.setCustomer(customer);
+        counter.setAccountId(accountId);
+        counter.setOrderedAmt(Integer.valueOf(0));
+
+        final EStampTierModel tier = eStampTierDao.findByAccountId(accountId);
+        if (tier != null)
+        {
+            counter.setSiebelAcctId(tier.getSiebelAcctId());
+            counter.setThreshold(tier.getThreshold());
+        }
+        return counter;
+    }
+
+    /**
+     * Evicts a counter incremented by statement from the entity and query caches.
+     */
+    protected void invalidateCachedCounter(final PK counterPk)
+    {
+        Utilities.invalidateCache(counterPk);
+    }
+
+    protected <T> T executeInTransaction(final Supplier<T> body)
+    {
+        final Transaction tx = Transaction.current();
+        boolean success = false;
+        tx.begin();
+        try
+        {
+            final T result = body.get();
+            success = true;
+            return result;
+        }
+        finally
+        {
+            if (success)
+            {
+                tx.commit();
+            }
+            else
+            {
+                tx.rollback();
+            }
+        }
+    }
+
+    /**
+     * Runs the body in a transaction that commits or rolls back independently of the one running on
+     * the calling thread. Transactions are bound to their thread, so while one is running the body
+     * runs on a thread of its own.
+     */
+    protected <T> T executeInNewTransaction(final Supplier<T> body)
+    {
+        if (!Transaction.current().isRunning())
+        {
+            return executeInTransaction(body);
+        }
+
+        final FutureTask<T> task = new FutureTask<>(() -> executeInTransaction(body));
+        createThreadFactory().newThread(task).start();
+        try
+        {
+            return task.get();
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a new transaction", e);
+        }
+        catch (final ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Could not run a new transaction", e.getCause());
+        }
+    }
+
+    protected ThreadFactory createThreadFactory()
+    {
+        return new TenantAwareThreadFactory(Registry.getCurrentTenantNoFallback());
+    }
+
+    private static int intValue(final Object value)
+    {
+        return value != null ? ((Number) value).intValue() : 0;
+    }
+
+    @Required
+    public void setIs32AccountQuotaCounterDao(final IS32AccountQuotaCounterDao is32AccountQuotaCounterDao)
+    {
+        this.is32AccountQuotaCounterDao = is32AccountQuotaCounterDao;
+    }
+
+    @Required
+    public void setEStampTierDao(final EStampTierDao eStampTierDao)
+    {
+        this.eStampTierDao = eStampTierDao;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+}
@@ -1,47 +1,96 @@
 package com.is32.core.service.impl;
 
+import com.is32.core.cache.IS32AccountQuotaCache;
+import com.is32.core.constants.IS32CoreConstants;
 import com.is32.core.dao.IS32AccountQuotaDao;
+import com.is32.core.quota.IS32AccountQuota;
+import com.is32.core.quota.IS32AccountQuotas;
+import com.is32.core.quota.IS32RedemptionCounts;
+import com.is32.core.service.IS32AccountQuotaCounterService;
 import com.is32.core.service.IS32AccountQuotaService;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
 import de.hybris.platform.catalog.CatalogVersionService;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.core.model.user.CustomerModel;
 import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
 import de.hybris.platform.servicelayer.session.SessionService;
 import de.hybris.platform.servicelayer.user.UserService;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
- * Service implementation for computing account quotas by aggregating raw row-level data
- * from the multi-join FlexibleSearch query. Converts the flat result set into grouped
- * account quota entries with summed ordered amounts.
+ * Service implementation for computing account quotas from the multi-join FlexibleSearch query.
+ * By default the grouping and redemption count are done in the database and only one row per
+ * account is read; with {@code is32core.accountquota.aggregation.sql.enabled=false} the flat
+ * row-level result set is grouped in memory instead. With
+ * {@code is32core.accountquota.counter.enabled} the ordered amounts are read from the
+ * IS32AccountQuotaCounter table for the accounts of the currently active promotions.
+ *
+ * Results are cached per customer and catalog version in the {@link IS32AccountQuotaCache} while
+ * {@code is32core.promotion.evaluation.cache.enabled} is set.
  */
 public class DefaultIS32AccountQuotaService implements IS32AccountQuotaService
 {
     private static final Logger LOG = Logger.getLogger(DefaultIS32AccountQuotaService.class);
 
-    private static final String KEY_ACCOUNT_ID = "accountId";
-    private static final String KEY_SIEBEL_ACCT_ID = "siebelAcctId";
-    private static final String KEY_THRESHOLD = "threshold";
-    private static final String KEY_ORDERED_AMT = "orderedAmt";
-
     private IS32AccountQuotaDao is32AccountQuotaDao;
     private UserService userService;
     private CatalogVersionService catalogVersionService;
     private SessionService sessionService;
+    private ConfigurationService configurationService;
+    private IS32AccountQuotaCache is32AccountQuotaCache;
+    private IS32AccountQuotaCounterService is32AccountQuotaCounterService;
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
 
     @Override
-    public List<Map<String, Object>> getAccountQuotas(final CustomerModel customer,
-                                                       final CatalogVersionModel catalogVersion)
+    public IS32AccountQuotas getAccountQuotas(final CustomerModel customer,
+                                              final CatalogVersionModel catalogVersion)
+    {
+        if (!is32AccountQuotaCache.isEnabled())
+        {
+            return loadAccountQuotas(customer, catalogVersion);
+        }
+
+        IS32AccountQuotas quotas = is32AccountQuotaCache.get(customer, catalogVersion);
+        if (quotas == null)
+        {
+            final long loadGeneration = is32AccountQuotaCache.getGeneration(customer);
+            quotas = loadAccountQuotas(customer, catalogVersion);
+            is32AccountQuotaCache.put(customer, catalogVersion, quotas, loadGeneration);
+        }
+        return quotas;
+    }
+
+    protected IS32AccountQuotas loadAccountQuotas(final CustomerModel customer,
+                                                  final CatalogVersionModel catalogVersion)
     {
         final Date currentDate = new Date();
+
+        if (is32AccountQuotaCounterService.isEnabled())
+        {
+            return is32AccountQuotaCounterService.getAccountQuotas(customer, getActiveQuotaAccountIds(currentDate));
+        }
+
+        if (isSqlAggregationEnabled())
+        {
+            return toAccountQuotas(is32AccountQuotaDao.findAggregatedAccountQuotaData(
+                    customer, catalogVersion, currentDate));
+        }
+
         final List<List<Object>> rawData = is32AccountQuotaDao.findAccountQuotaRawData(
                 customer, catalogVersion, currentDate);
 
@@ -49,14 +98,124 @@ public class DefaultIS32AccountQuotaService implements IS32AccountQuotaService
     }
 
     @Override
-    public List<Map<String, Object>> getAccountQuotasForCurrentUser()
+    public Map<PK, IS32AccountQuotas> getAccountQuotasForCustomers(final Collection<CustomerModel> customers,
+                                                                   final CatalogVersionModel catalogVersion)
+    {
+        final boolean cacheEnabled = is32AccountQuotaCache.isEnabled();
+        final Map<PK, IS32AccountQuotas> quotasByCustomer = new HashMap<>(customers.size() * 2);
+        final List<CustomerModel> customersToLoad = new ArrayList<>();
+        final long[] loadGenerations = new long[customers.size()];
+
+        for (final CustomerModel customer : customers)
+        {
+            final IS32AccountQuotas cached = cacheEnabled ? is32AccountQuotaCache.get(customer, catalogVersion) : null;
+            if (cached != null)
+            {
+                quotasByCustomer.put(customer.getPk(), cached);
+            }
+            else
+            {
+                if (cacheEnabled)
+                {
+                    loadGenerations[customersToLoad.size()] = is32AccountQuotaCache.getGeneration(customer);
+                }
+                customersToLoad.add(customer);
+            }
+        }
+
+        if (!customersToLoad.isEmpty())
+        {
+            final Map<PK, IS32AccountQuotas> loaded = loadAccountQuotas(customersToLoad, catalogVersion);
+            for (int i = 0; i < customersToLoad.size(); i++)
+            {
+                final CustomerModel customer = customersToLoad.get(i);
+                final IS32AccountQuotas quotas = loaded.get(customer.getPk());
+                quotasByCustomer.put(customer.getPk(), quotas);
+                if (cacheEnabled)
+                {
+                    is32AccountQuotaCache.put(customer, catalogVersion, quotas, loadGenerations[i]);
+                }
+            }
+        }
+        return quotasByCustomer;
+    }
+
+    /**
+     * Loads the quotas of several customers. With SQL aggregation the grouped query is run once
+     * per chunk of customers; counter-backed quotas and the in-memory aggregation are loaded per
+     * customer, the former being indexed point lookups.
+     */
+    protected Map<PK, IS32AccountQuotas> loadAccountQuotas(final List<CustomerModel> customers,
+                                                           final CatalogVersionModel catalogVersion)
+    {
+        final Map<PK, IS32AccountQuotas> quotasByCustomer = new HashMap<>(customers.size() * 2);
+
+        if (is32AccountQuotaCounterService.isEnabled() || !isSqlAggregationEnabled())
+        {
+            for (final CustomerModel customer : customers)
+            {
+                quotasByCustomer.put(customer.getPk(), loadAccountQuotas(customer, catalogVersion));
+            }
+            return quotasByCustomer;
+        }
+
+        final List<List<Object>> rows = is32AccountQuotaDao.findAggregatedAccountQuotaDataForCustomers(
+                customers, catalogVersion, new Date());
+
+        // Rows are ordered by account; every account appears at least once, possibly without a customer
+        final Map<String, IS32AccountQuota> accounts = new LinkedHashMap<>();
+        final Map<PK, Map<String, Integer>> orderedAmounts = new HashMap<>();
+        for (final List<Object> row : rows)
+        {
+            final String accountId = (String) row.get(1);
+            final String siebelAcctId = (String) row.get(2);
+            final int threshold = intValue(row.get(3));
+            final String groupKey = accountId + "|" + siebelAcctId + "|" + threshold;
+
+            accounts.computeIfAbsent(groupKey, key -> new IS32AccountQuota(accountId, siebelAcctId, threshold, 0));
+
+            final PK customerPk = (PK) row.get(0);
+            final int orderedAmt = intValue(row.get(4));
+            if (customerPk != null && orderedAmt > 0)
+            {
+                orderedAmounts.computeIfAbsent(customerPk, pk -> new HashMap<>())
+                        .merge(groupKey, Integer.valueOf(orderedAmt), Integer::sum);
+            }
+        }
+
+        for (final CustomerModel customer : customers)
+        {
+            final Map<String, Integer> customerAmounts =
+                    orderedAmounts.getOrDefault(customer.getPk(), Collections.emptyMap());
+
+            final List<IS32AccountQuota> quotas = new ArrayList<>(accounts.size());
+            for (final Map.Entry<String, IS32AccountQuota> account : accounts.entrySet())
+            {
+                final IS32AccountQuota definition = account.getValue();
+                final Integer orderedAmt = customerAmounts.get(account.getKey());
+                quotas.add(orderedAmt == null ? definition : new IS32AccountQuota(definition.getAccountId(),
+                        definition.getSiebelAcctId(), definition.getThreshold(), orderedAmt.intValue()));
+            }
+            quotasByCustomer.put(customer.getPk(), new IS32AccountQuotas(quotas));
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Loaded account quotas over [" + accounts.size() + "] accounts for ["
+                    + customers.size() + "] customers from [" + rows.size() + "] rows");
+        }
+        return quotasByCustomer;
+    }
+
+    @Override
+    public IS32AccountQuotas getAccountQuotasForCurrentUser()
     {
         final UserModel currentUser = userService.getCurrentUser();
 
         if (!(currentUser instanceof CustomerModel))
         {
             LOG.warn("Current user [" + currentUser.getUid() + "] is not a customer");
-            return new ArrayList<>();
+            return IS32AccountQuotas.empty();
         }
 
         final CatalogVersionModel catalogVersion = catalogVersionService.getSessionCatalogVersions().stream()
@@ -67,7 +226,7 @@ public class DefaultIS32AccountQuotaService implements IS32AccountQuotaService
         if (catalogVersion == null)
         {
             LOG.error("No Online catalog version found in session");
-            return new ArrayList<>();
+            return IS32AccountQuotas.empty();
         }
 
         return getAccountQuotas((CustomerModel) currentUser, catalogVersion);
@@ -79,40 +238,96 @@ public class DefaultIS32AccountQuotaService implements IS32AccountQuotaService
         return is32AccountQuotaDao.getRedemptionCountForCustomer(promotionUid, customer);
     }
 
+    @Override
+    public IS32RedemptionCounts getRedemptionCounts(final Collection<String> promotionUids,
+                                                    final CustomerModel customer)
+    {
+        return is32AccountQuotaDao.getRedemptionCountsForCustomer(promotionUids, customer);
+    }
+
+    @Override
+    public Map<PK, IS32RedemptionCounts> getRedemptionCountsForCustomers(final Collection<String> promotionUids,
+                                                                         final Collection<CustomerModel> customers)
+    {
+        final Map<PK, IS32RedemptionCounts> countsByCustomer =
+                new HashMap<>(is32AccountQuotaDao.getRedemptionCountsForCustomers(promotionUids, customers));
+        for (final CustomerModel customer : customers)
+        {
+            countsByCustomer.putIfAbsent(customer.getPk(), IS32RedemptionCounts.empty());
+        }
+        return countsByCustomer;
+    }
+
     /**
-     * Aggregates raw row data into grouped account quota entries. Each raw row contains
+     * @return the e-stamp accounts of the INCREASE_MEMBER_ACCOUNT rewards of all promotions live at the given date
+     */
+    protected Set<String> getActiveQuotaAccountIds(final Date currentDate)
+    {
+        final List<IS32PromotionSnapshotEntry> activeEntries = is32PromotionSnapshotService.getActiveEntries(currentDate);
+        if (activeEntries.isEmpty())
+        {
+            return Collections.emptySet();
+        }
+
+        final Set<String> accountIds = new LinkedHashSet<>();
+        for (final IS32PromotionSnapshotEntry entry : activeEntries)
+        {
+            Collections.addAll(accountIds, entry.getIncreaseMemberAccountIds());
+        }
+        return accountIds;
+    }
+
+    protected boolean isSqlAggregationEnabled()
+    {
+        return configurationService.getConfiguration()
+                .getBoolean(IS32CoreConstants.Config.ACCOUNT_QUOTA_SQL_AGGREGATION_ENABLED, true);
+    }
+
+    /**
+     * Converts rows of [accountId, siebelAcctId, threshold, orderedAmt] that were already grouped
+     * by the database into account quotas.
+     */
+    protected IS32AccountQuotas toAccountQuotas(final List<List<Object>> aggregatedData)
+    {
+        final List<IS32AccountQuota> quotas = new ArrayList<>(aggregatedData.size());
+
+        for (final List<Object> row : aggregatedData)
+        {
+            quotas.add(new IS32AccountQuota((String) row.get(0), (String) row.get(1),
+                    intValue(row.get(2)), intValue(row.get(3))));
+        }
+
+        return new IS32AccountQuotas(quotas);
+    }
+
+    /**
+     * Aggregates raw row data into grouped account quotas. Each raw row contains
      * [accountId, siebelAcctId, threshold, userPk]. Rows are grouped by (accountId,
      * siebelAcctId, threshold) and the ordered amount is computed as the count of rows
      * where userPk is non-null (indicating the coupon was redeemed by the target customer).
      */
-    protected List<Map<String, Object>> aggregateQuotaData(final List<List<Object>> rawData)
+    protected IS32AccountQuotas aggregateQuotaData(final List<List<Object>> rawData)
     {
-        final Map<String, Map<String, Object>> aggregatedMap = new LinkedHashMap<>();
+        final Map<String, QuotaGroup> aggregatedMap = new LinkedHashMap<>();
 
         for (final List<Object> row : rawData)
         {
             final String accountId = (String) row.get(0);
             final String siebelAcctId = (String) row.get(1);
-            final Integer threshold = (Integer) row.get(2);
+            final int threshold = intValue(row.get(2));
             final Object userPk = row.get(3);
 
             final String groupKey = accountId + "|" + siebelAcctId + "|" + threshold;
-            final int isUsed = (userPk != null) ? 1 : 0;
 
-            final Map<String, Object> existing = aggregatedMap.get(groupKey);
-            if (existing != null)
+            QuotaGroup group = aggregatedMap.get(groupKey);
+            if (group == null)
             {
-                final int currentAmt = (Integer) existing.get(KEY_ORDERED_AMT);
-                existing.put(KEY_ORDERED_AMT, currentAmt + isUsed);
+                group = new QuotaGroup(accountId, siebelAcctId, threshold);
+                aggregatedMap.put(groupKey, group);
             }
-            else
+            if (userPk != null)
             {
-                final Map<String, Object> entry = new HashMap<>();
-                entry.put(KEY_ACCOUNT_ID, accountId);
-                entry.put(KEY_SIEBEL_ACCT_ID, siebelAcctId);
-                entry.put(KEY_THRESHOLD, threshold);
-                entry.put(KEY_ORDERED_AMT, isUsed);
-                aggregatedMap.put(groupKey, entry);
+                group.orderedAmt++;
             }
         }
 
@@ -122,7 +337,17 @@ public class DefaultIS32AccountQuotaService implements IS32AccountQuotaService
                     + aggregatedMap.size() + "] account quota entries");
         }
 
-        return new ArrayList<>(aggregatedMap.values());
+        final List<IS32AccountQuota> quotas = new ArrayList<>(aggregatedMap.size());
+        for (final QuotaGroup group : aggregatedMap.values())
+        {
+            quotas.add(new IS32AccountQuota(group.accountId, group.siebelAcctId, group.threshold, group.orderedAmt));
+        }
+        return new IS32AccountQuotas(quotas);
+    }
+
+    private static int intValue(final Object value)
+    {
+        return value != null ? ((Number) value).intValue() : 0;
     }
 
     @Required
@@ -148,4 +373,43 @@ public class DefaultIS32AccountQuotaService implements IS32AccountQuotaService
     {
         this.sessionService = sessionService;
     }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    @Required
+    public void setIs32AccountQuotaCache(final IS32AccountQuotaCache is32AccountQuotaCache)
+    {
+        this.is32AccountQuotaCache = is32AccountQuotaCache;
+    }
+
+    @Required
+    public void setIs32AccountQuotaCounterService(final IS32AccountQuotaCounterService is32AccountQuotaCounterService)
+    {
+        this.is32AccountQuotaCounterService = is32AccountQuotaCounterService;
+    }
+
+    @Required
+    public void setIs32PromotionSnapshotService(final IS32PromotionSnapshotService is32PromotionSnapshotService)
+    {
+        this.is32PromotionSnapshotService = is32PromotionSnapshotService;
+    }
+
+    private static final class QuotaGroup
+    {
+        private final String accountId;
+        private final String siebelAcctId;
+        private final int threshold;
+        private int orderedAmt;
+
+        private QuotaGroup(final String accountId, final String siebelAcctId, final int threshold)
+        {
+            this.accountId = accountId;
+            this.siebelAcctId = siebelAcctId;
+            this.threshold = threshold;
+        }
+    }
 }
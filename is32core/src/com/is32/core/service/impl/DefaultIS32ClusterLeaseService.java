@@ -0,0 +1,158 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.dao.IS32ClusterLeaseDao;
+import com.is32.core.model.IS32ClusterLeaseModel;
+import com.is32.core.service.IS32ClusterLeaseService;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.exceptions.ModelSavingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds leases through their single IS32ClusterLease row. The first node creates the row, racing
+ * nodes are rejected by the unique index on the code. The owner renews the lease with a
+ * conditional UPDATE on the row's version; a follower remembers the version it last read and when
+ * it read it, and takes the lease over with a conditional UPDATE once that version has stood still
+ * for a whole lease duration on its own monotonic clock.
+ * <p>
+ * The owner's renewal started before the follower first read the version it produced, so by the
+ * time the follower takes over the owner's lease, counted from the start of that renewal, has
+ * ended. Only the rates of the node clocks matter, never their offsets.
+ */
+public class DefaultIS32ClusterLeaseService implements IS32ClusterLeaseService, InitializingBean
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32ClusterLeaseService.class);
+
+    private static final String CLUSTER_ID = "cluster.id";
+
+    private final Map<String, Observation> observations = new ConcurrentHashMap<>();
+
+    private IS32ClusterLeaseDao is32ClusterLeaseDao;
+    private ModelService modelService;
+    private ConfigurationService configurationService;
+
+    private String nodeId;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        nodeId = configurationService.getConfiguration().getString(CLUSTER_ID, "0") + "/"
+                + ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    @Override
+    public boolean claim(final String code, final long leaseMillis)
+    {
+        final long started = nanoTime();
+        final List<Object> lease = is32ClusterLeaseDao.findLease(code);
+        if (lease == null)
+        {
+            return create(code);
+        }
+
+        final String owner = (String) lease.get(0);
+        final long version = ((Long) lease.get(1)).longValue();
+        if (nodeId.equals(owner))
+        {
+            observations.remove(code);
+            return is32ClusterLeaseDao.renew(code, nodeId, version);
+        }
+
+        final Observation seen = observations.get(code);
+        if (seen == null || seen.version != version || !seen.owner.equals(owner))
+        {
+            observations.put(code, new Observation(owner, version, started));
+            return false;
+        }
+        if (started - seen.since < TimeUnit.MILLISECONDS.toNanos(leaseMillis))
+        {
+            return false;
+        }
+
+        observations.remove(code);
+        final boolean taken = is32ClusterLeaseDao.takeOver(code, nodeId, version);
+        if (taken)
+        {
+            LOG.info("Node [" + nodeId + "] took lease [" + code + "] over from [" + owner
+                    + "], which did not renew it for [" + leaseMillis + "] ms");
+        }
+        return taken;
+    }
+
+    /**
+     * @return the current value of the monotonic clock in nanoseconds
+     */
+    protected long nanoTime()
+    {
+        return System.nanoTime();
+    }
+
+    private boolean create(final String code)
+    {
+        final IS32ClusterLeaseModel lease = modelService.create(IS32ClusterLeaseModel.class);
+        lease.setCode(code);
+        lease.setOwner(nodeId);
+        try
+        {
+            modelService.save(lease);
+            modelService.detach(lease);
+            LOG.info("Node [" + nodeId + "] created lease [" + code + "]");
+            return true;
+        }
+        catch (final ModelSavingException e)
+        {
+            modelService.detach(lease);
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Lease [" + code + "] was created by another node");
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public String getNodeId()
+    {
+        return nodeId;
+    }
+
+    @Required
+    public void setIs32ClusterLeaseDao(final IS32ClusterLeaseDao is32ClusterLeaseDao)
+    {
+        this.is32ClusterLeaseDao = is32ClusterLeaseDao;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    private static final class Observation
+    {
+        private final String owner;
+        private final long version;
+        private final long since;
+
+        private Observation(final String owner, final long version, final long since)
+        {
+            this.owner = owner;
+            this.version = version;
+            this.since = since;
+        }
+    }
+}
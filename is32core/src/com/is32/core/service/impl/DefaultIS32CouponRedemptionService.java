@@ -0,0 +1,520 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.event.IS32CacheInvalidationEvent;
+import com.is32.core.event.IS32CouponRedemptionEvent;
+import com.is32.core.service.EStampTierService;
+import com.is32.core.service.IS32AccountQuotaCounterService;
+import com.is32.core.service.IS32CouponRedemptionService;
+import com.is32.core.service.IS32RewardService;
+import com.is32.core.snapshot.IS32RewardRoutingTable;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.TenantAwareThreadFactory;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.event.EventService;
+import de.hybris.platform.servicelayer.user.UserService;
+import org.apache.commons.configuration.Configuration;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes coupon redemptions, by default synchronously on the redeeming thread. With
+ * {@code is32core.event.couponredemption.async} enabled they go through a bounded asynchronous
+ * pipeline instead, so the redeeming thread only queues the event.
+ * <p>
+ * A dispatcher thread takes the events in arrival order, looks up the e-stamp accounts of the
+ * promotion's INCREASE_MEMBER_ACCOUNT rewards in the reward routing table, without touching the
+ * database, and routes one stamp increment per account to a partition chosen by the account id.
+ * Each partition is drained by one worker thread, so the increments of an account are applied in
+ * order. A worker collects the increments arriving within the coalescing window after the first
+ * one and writes them as one update per account, so a burst of redemptions against the same
+ * account costs a single tier update. The quota counters are then updated and the cached account
+ * quotas of the redeeming customers evicted cluster-wide.
+ * <p>
+ * When the intake queue is full the redeeming thread routes the increments to their partitions
+ * itself, waiting a bounded time for room, and only applies an increment whose partition stays
+ * full. On shutdown the queued work is drained for up to 30 seconds.
+ * <p>
+ * The queues live in memory only: redemptions that are queued but not yet applied, up to the
+ * queue capacity plus one coalescing window per partition, are lost if the node dies or its
+ * shutdown times out. Only enable the asynchronous mode where that loss is acceptable.
+ */
+public class DefaultIS32CouponRedemptionService implements IS32CouponRedemptionService, InitializingBean,
+        DisposableBean
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32CouponRedemptionService.class);
+
+    private static final int DEFAULT_THREADS = 4;
+    private static final long DEFAULT_WINDOW_MILLIS = 100L;
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final long POLL_MILLIS = 500L;
+    private static final long PARTITION_OFFER_MILLIS = 1000L;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+
+    private IS32RewardService is32RewardService;
+    private EStampTierService eStampTierService;
+    private IS32AccountQuotaCounterService is32AccountQuotaCounterService;
+    private UserService userService;
+    private EventService eventService;
+    private ConfigurationService configurationService;
+
+    private BlockingQueue<IS32CouponRedemptionEvent> intake;
+    private List<BlockingQueue<StampIncrement>> partitions;
+    private CountDownLatch dispatcherDone;
+    private ExecutorService executor;
+    private long windowMillis;
+    private volatile boolean running;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        final Configuration configuration = configurationService.getConfiguration();
+        if (!configuration.getBoolean(IS32CoreConstants.Config.COUPON_REDEMPTION_ASYNC, false))
+        {
+            LOG.info("Coupon redemptions are processed synchronously");
+            return;
+        }
+
+        final int threads = Math.max(1, configuration.getInt(IS32CoreConstants.Config.EVENT_PROCESSING_THREADS,
+                DEFAULT_THREADS));
+        final int capacity = Math.max(threads, configuration.getInt(
+                IS32CoreConstants.Config.COUPON_REDEMPTION_QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY));
+        windowMillis = Math.max(0L, configuration.getLong(IS32CoreConstants.Config.COUPON_REDEMPTION_WINDOW,
+                DEFAULT_WINDOW_MILLIS));
+
+        intake = new ArrayBlockingQueue<>(capacity);
+        partitions = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++)
+        {
+            partitions.add(new ArrayBlockingQueue<>(Math.max(1, capacity / threads)));
+        }
+        dispatcherDone = new CountDownLatch(1);
+        running = true;
+
+        executor = Executors.newFixedThreadPool(threads + 1, createThreadFactory());
+        executor.execute(this::dispatch);
+        for (final BlockingQueue<StampIncrement> partition : partitions)
+        {
+            executor.execute(() -> drain(partition));
+        }
+        LOG.info("Started coupon redemption processing with [" + threads + "] partitions and a coalescing window of ["
+                + windowMillis + "] ms");
+    }
+
+    @Override
+    public void destroy() throws InterruptedException
+    {
+        if (executor == null)
+        {
+            return;
+        }
+
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        {
+            LOG.warn("Abandoning [" + getPendingCount() + "] queued coupon redemptions on shutdown");
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void submit(final IS32CouponRedemptionEvent event)
+    {
+        if (!configurationService.getConfiguration().getBoolean(
+                IS32CoreConstants.Config.COUPON_REDEMPTION_ENABLED, true))
+        {
+            return;
+        }
+
+        if (!running)
+        {
+            process(event);
+        }
+        else if (!intake.offer(event))
+        {
+            LOG.warn("Coupon redemption queue is full, routing redemption of promotion ["
+                    + event.getPromotionUid() + "] on the redeeming thread");
+            routeOnCallerThread(event);
+        }
+    }
+
+    @Override
+    public int getPendingCount()
+    {
+        if (intake == null)
+        {
+            return 0;
+        }
+
+        int pending = intake.size();
+        for (final BlockingQueue<StampIncrement> partition : partitions)
+        {
+            pending += partition.size();
+        }
+        return pending;
+    }
+
+    /**
+     * Processes one redemption on the calling thread.
+     */
+    protected void process(final IS32CouponRedemptionEvent event)
+    {
+        final List<StampIncrement> increments = resolve(event);
+        if (increments.isEmpty())
+        {
+            evictAccountQuotas(resolveUser(event.getCustomerUid()));
+        }
+        else
+        {
+            apply(increments);
+        }
+    }
+
+    protected ThreadFactory createThreadFactory()
+    {
+        return new TenantAwareThreadFactory(Registry.getCurrentTenantNoFallback());
+    }
+
+    /**
+     * Dispatcher loop: routes the increments of each queued event to the partitions of their accounts.
+     */
+    private void dispatch()
+    {
+        try
+        {
+            while (running || !intake.isEmpty())
+            {
+                final IS32CouponRedemptionEvent event = intake.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null)
+                {
+                    continue;
+                }
+
+                final List<StampIncrement> increments = resolve(event);
+                if (increments.isEmpty())
+                {
+                    evictAccountQuotas(resolveUser(event.getCustomerUid()));
+                }
+                for (final StampIncrement increment : increments)
+                {
+                    partitionOf(increment).put(increment);
+                }
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            dispatcherDone.countDown();
+        }
+    }
+
+    /**
+     * Routes the increments of a redemption that did not fit into the intake queue to their
+     * partitions, so that they are still coalesced and applied in order with the other increments
+     * of their accounts. An increment whose partition stays full is applied on the calling thread.
+     */
+    private void routeOnCallerThread(final IS32CouponRedemptionEvent event)
+    {
+        final List<StampIncrement> increments = resolve(event);
+        if (increments.isEmpty())
+        {
+            evictAccountQuotas(resolveUser(event.getCustomerUid()));
+            return;
+        }
+
+        final List<StampIncrement> unrouted = new ArrayList<>();
+        for (final StampIncrement increment : increments)
+        {
+            if (!offer(increment))
+            {
+                unrouted.add(increment);
+            }
+        }
+        if (!unrouted.isEmpty())
+        {
+            LOG.warn("Coupon redemption partitions are full, applying [" + unrouted.size()
+                    + "] stamp increments of promotion [" + event.getPromotionUid() + "] on the redeeming thread");
+            apply(unrouted);
+        }
+    }
+
+    private boolean offer(final StampIncrement increment)
+    {
+        try
+        {
+            return partitionOf(increment).offer(increment, PARTITION_OFFER_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private BlockingQueue<StampIncrement> partitionOf(final StampIncrement increment)
+    {
+        return partitions.get(Math.floorMod(increment.accountId.hashCode(), partitions.size()));
+    }
+
+    /**
+     * Partition loop: applies the increments arriving within one coalescing window as one batch.
+     */
+    private void drain(final BlockingQueue<StampIncrement> partition)
+    {
+        try
+        {
+            while (dispatcherDone.getCount() > 0 || !partition.isEmpty())
+            {
+                final StampIncrement first = partition.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null)
+                {
+                    continue;
+                }
+
+                final List<StampIncrement> batch = new ArrayList<>();
+                batch.add(first);
+                final long deadline = System.currentTimeMillis() + windowMillis;
+                long remaining;
+                while (batch.size() < MAX_BATCH_SIZE && (remaining = deadline - System.currentTimeMillis()) > 0)
+                {
+                    final StampIncrement next = partition.poll(remaining, TimeUnit.MILLISECONDS);
+                    if (next == null)
+                    {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                partition.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+                apply(batch);
+            }
+        }
+        catch (final InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Resolves the stamp increments of a redemption from the reward routing table, one per e-stamp
+     * account of the promotion's INCREASE_MEMBER_ACCOUNT rewards.
+     */
+    private List<StampIncrement> resolve(final IS32CouponRedemptionEvent event)
+    {
+        final String promotionUid = event.getPromotionUid();
+        try
+        {
+            final IS32RewardRoutingTable.Route route = is32RewardService.getMemberAccountRoute(promotionUid);
+            final List<StampIncrement> increments = new ArrayList<>(route.size());
+            for (int i = 0; i < route.size(); i++)
+            {
+                increments.add(new StampIncrement(event.getCustomerUid(), route.getAccountId(i), route.getIncrement(i)));
+            }
+            return increments;
+        }
+        catch (final Exception e)
+        {
+            LOG.error("Error processing coupon redemption event for promotion [" + promotionUid + "]", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Writes a batch of increments: one tier update per account, then the quota counters and the
+     * quota eviction of every redeeming customer.
+     */
+    private void apply(final List<StampIncrement> batch)
+    {
+        final Map<String, Integer> stampCounts = new LinkedHashMap<>();
+        final Map<String, List<Set<String>>> redemptionsByCustomer = new LinkedHashMap<>();
+        for (final StampIncrement increment : batch)
+        {
+            stampCounts.merge(increment.accountId, Integer.valueOf(increment.count), Integer::sum);
+            if (increment.customerUid != null)
+            {
+                addRedemption(redemptionsByCustomer.computeIfAbsent(increment.customerUid, uid -> new ArrayList<>()),
+                        increment.accountId);
+            }
+        }
+
+        for (final Map.Entry<String, Integer> stampCount : stampCounts.entrySet())
+        {
+            if (stampCount.getValue().intValue() < 1)
+            {
+                continue;
+            }
+            try
+            {
+                final int newCount = eStampTierService.incrementStampCount(stampCount.getKey(),
+                        stampCount.getValue().intValue());
+                if (LOG.isDebugEnabled())
+                {
+                    LOG.debug("Incremented e-stamp count by [" + stampCount.getValue() + "]"
+                            + (newCount == EStampTierService.COUNT_DEFERRED ? "" : " to [" + newCount + "]")
+                            + " for account [" + stampCount.getKey() + "] via [" + batch.size() + "] redemptions");
+                }
+            }
+            catch (final Exception e)
+            {
+                LOG.error("Error incrementing e-stamp count of account [" + stampCount.getKey() + "] by ["
+                        + stampCount.getValue() + "]", e);
+            }
+        }
+
+        for (final Map.Entry<String, List<Set<String>>> redemptions : redemptionsByCustomer.entrySet())
+        {
+            final UserModel user = resolveUser(redemptions.getKey());
+            try
+            {
+                if (user instanceof CustomerModel && is32AccountQuotaCounterService.isEnabled())
+                {
+                    for (final Set<String> accountIds : redemptions.getValue())
+                    {
+                        is32AccountQuotaCounterService.recordRedemption((CustomerModel) user, accountIds);
+                    }
+                }
+            }
+            catch (final Exception e)
+            {
+                LOG.error("Error recording redemptions of customer [" + redemptions.getKey() + "]", e);
+            }
+            finally
+            {
+                evictAccountQuotas(user);
+            }
+        }
+    }
+
+    /**
+     * Adds one redemption of the account to the customer's counter updates. Each update counts an
+     * account at most once, so repeated redemptions of the same account go to the next update.
+     */
+    private static void addRedemption(final List<Set<String>> updates, final String accountId)
+    {
+        for (final Set<String> update : updates)
+        {
+            if (update.add(accountId))
+            {
+                return;
+            }
+        }
+        final Set<String> update = new HashSet<>();
+        update.add(accountId);
+        updates.add(update);
+    }
+
+    protected UserModel resolveUser(final String customerUid)
+    {
+        if (customerUid == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return userService.getUserForUID(customerUid);
+        }
+        catch (final Exception e)
+        {
+            LOG.warn("No user found for uid [" + customerUid + "]");
+            return null;
+        }
+    }
+
+    /**
+     * Publishes a cluster-wide invalidation of the customer's cached account quotas.
+     */
+    protected void evictAccountQuotas(final UserModel user)
+    {
+        if (user == null)
+        {
+            return;
+        }
+
+        try
+        {
+            eventService.publishEvent(new IS32CacheInvalidationEvent(IS32CoreConstants.CacheRegion.ACCOUNT_QUOTA,
+                    Collections.singletonList(user.getPk().getLongValueAsString())));
+        }
+        catch (final Exception e)
+        {
+            LOG.error("Could not evict cached account quotas of customer [" + user.getUid() + "]", e);
+        }
+    }
+
+    @Required
+    public void setIs32RewardService(final IS32RewardService is32RewardService)
+    {
+        this.is32RewardService = is32RewardService;
+    }
+
+    @Required
+    public void setEStampTierService(final EStampTierService eStampTierService)
+    {
+        this.eStampTierService = eStampTierService;
+    }
+
+    @Required
+    public void setIs32AccountQuotaCounterService(final IS32AccountQuotaCounterService is32AccountQuotaCounterService)
+    {
+        this.is32AccountQuotaCounterService = is32AccountQuotaCounterService;
+    }
+
+    @Required
+    public void setUserService(final UserService userService)
+    {
+        this.userService = userService;
+    }
+
+    @Required
+    public void setEventService(final EventService eventService)
+    {
+        this.eventService = eventService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    /**
+     * A stamp increment of one e-stamp account caused by one redemption.
+     */
+    private static final class StampIncrement
+    {
+        private final String customerUid;
+        private final String accountId;
+        private final int count;
+
+        private StampIncrement(final String customerUid, final String accountId, final int count)
+        {
+            this.customerUid = customerUid;
+            this.accountId = accountId;
+            this.count = count;
+        }
+    }
+}
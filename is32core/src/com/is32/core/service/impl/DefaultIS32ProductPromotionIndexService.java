@@ -0,0 +1,343 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.cache.IS32CacheRegion;
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32PromotionBucketDao;
+import com.is32.core.enums.IS32BucketType;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.service.IS32ProductPromotionIndexService;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32ProductPromotionIndex;
+import com.is32.core.snapshot.IS32PromotionSnapshot;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
+import com.is32.core.strategies.IS32BucketPromotionResolver;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds one {@link IS32ProductPromotionIndex} per catalog version, built lazily from the bucket
+ * items that match a product of the catalog version. A product is excluded from a promotion by an
+ * IS32PromoExcludeItem of one of its buckets, by a promo item flagged as exclusion or by a promo
+ * item of an EXCLUDE bucket.
+ *
+ * When a bucket, promo item or exclude item is saved, only the owning promotions are re-indexed in
+ * every held index; removed items cannot be traced back to their promotion and drop all indexes.
+ * Products added to a catalog version are picked up when the index reaches
+ * {@code is32core.promotion.productindex.maxage}. An index whose build raced with an invalidation is
+ * returned to its caller but not installed. The index only answers which promotions cover a
+ * product; whether a promotion is live is decided by the promotion snapshot at the current time of
+ * the {@link TimeService}.
+ */
+public class DefaultIS32ProductPromotionIndexService
+        implements IS32ProductPromotionIndexService, IS32CacheRegion, InitializingBean
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32ProductPromotionIndexService.class);
+
+    private static final int DEFAULT_MAX_AGE_SECONDS = 3600;
+    private static final int MAX_PATCHED_PROMOTIONS = 100;
+
+    private final Object buildLock = new Object();
+    private final Map<PK, IS32ProductPromotionIndex> indexes = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    private long maxAgeMillis;
+
+    private IS32PromotionBucketDao is32PromotionBucketDao;
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
+    private IS32BucketPromotionResolver is32BucketPromotionResolver;
+    private ModelService modelService;
+    private ConfigurationService configurationService;
+    private TimeService timeService;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        maxAgeMillis = configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.PRODUCT_INDEX_MAX_AGE, DEFAULT_MAX_AGE_SECONDS) * 1000L;
+    }
+
+    @Override
+    public List<IS32PromotionModel> getActivePromotionsForProduct(final ProductModel product)
+    {
+        return getActivePromotionsForProducts(Collections.singletonList(product));
+    }
+
+    @Override
+    public List<IS32PromotionModel> getActivePromotionsForProducts(final Collection<ProductModel> products)
+    {
+        final Map<CatalogVersionModel, List<String>> codesByCatalogVersion = new LinkedHashMap<>();
+        for (final ProductModel product : products)
+        {
+            codesByCatalogVersion.computeIfAbsent(product.getCatalogVersion(), k -> new ArrayList<>())
+                    .add(product.getCode());
+        }
+
+        final Set<String> promotionUids = new HashSet<>();
+        for (final Map.Entry<CatalogVersionModel, List<String>> entry : codesByCatalogVersion.entrySet())
+        {
+            promotionUids.addAll(getIndex(entry.getKey()).getPromotionUids(entry.getValue()));
+        }
+        return toActivePromotions(promotionUids);
+    }
+
+    @Override
+    public IS32ProductPromotionIndex getIndex(final CatalogVersionModel catalogVersion)
+    {
+        final IS32ProductPromotionIndex current = indexes.get(catalogVersion.getPk());
+        if (current != null && !isExpired(current))
+        {
+            return current;
+        }
+
+        synchronized (buildLock)
+        {
+            final IS32ProductPromotionIndex held = indexes.get(catalogVersion.getPk());
+            if (held != null && !isExpired(held))
+            {
+                return held;
+            }
+
+            final long buildGeneration = generation.get();
+            final IS32ProductPromotionIndex built = buildIndex(catalogVersion);
+            if (generation.get() == buildGeneration)
+            {
+                indexes.put(catalogVersion.getPk(), built);
+            }
+            return built;
+        }
+    }
+
+    @Override
+    public void invalidate()
+    {
+        generation.incrementAndGet();
+        synchronized (buildLock)
+        {
+            indexes.clear();
+        }
+    }
+
+    @Override
+    public String getRegionName()
+    {
+        return IS32CoreConstants.CacheRegion.PRODUCT_PROMOTION_INDEX;
+    }
+
+    @Override
+    public boolean isInvalidatedBy(final int typeCode)
+    {
+        return typeCode == IS32CoreConstants.TypeCode.IS32_BUCKET
+                || typeCode == IS32CoreConstants.TypeCode.IS32_PROMO_ITEM
+                || typeCode == IS32CoreConstants.TypeCode.IS32_PROMO_EXCLUDE_ITEM;
+    }
+
+    @Override
+    public void invalidate(final Collection<String> keys)
+    {
+        generation.incrementAndGet();
+        if (indexes.isEmpty())
+        {
+            return;
+        }
+
+        final List<PK> pks = new ArrayList<>(keys.size());
+        for (final String key : keys)
+        {
+            pks.add(PK.parse(key));
+        }
+
+        final Set<String> promotionUids = is32BucketPromotionResolver.resolvePromotionUids(pks);
+        if (promotionUids == null || promotionUids.size() > MAX_PATCHED_PROMOTIONS)
+        {
+            invalidate();
+            return;
+        }
+
+        synchronized (buildLock)
+        {
+            for (final String promotionUid : promotionUids)
+            {
+                patchPromotion(promotionUid);
+            }
+        }
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Re-indexed promotions " + promotionUids + " in [" + indexes.size() + "] product indexes");
+        }
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        invalidate();
+    }
+
+    protected IS32ProductPromotionIndex buildIndex(final CatalogVersionModel catalogVersion)
+    {
+        final long start = System.currentTimeMillis();
+        final Map<String, List<String>> includedByPromotion = new HashMap<>();
+        final Map<String, List<String>> excludedByPromotion = new HashMap<>();
+
+        collectProductItems(is32PromotionBucketDao.findProductItems(catalogVersion),
+                includedByPromotion, excludedByPromotion);
+        collectExcludeItems(is32PromotionBucketDao.findExcludeItems(), excludedByPromotion);
+
+        final IS32ProductPromotionIndex index = new IS32ProductPromotionIndex(start);
+        for (final Map.Entry<String, List<String>> entry : includedByPromotion.entrySet())
+        {
+            index.putPromotion(entry.getKey(), entry.getValue(),
+                    excludedByPromotion.getOrDefault(entry.getKey(), Collections.emptyList()));
+        }
+
+        LOG.info("Built IS32 product promotion index for catalog version [" + catalogVersion.getPk() + "] with ["
+                + includedByPromotion.size() + "] promotions over [" + index.getProductCount() + "] products in ["
+                + (System.currentTimeMillis() - start) + "] ms");
+        return index;
+    }
+
+    protected void patchPromotion(final String promotionUid)
+    {
+        final Map<String, List<String>> excludeItems = new HashMap<>();
+        collectExcludeItems(is32PromotionBucketDao.findExcludeItems(promotionUid), excludeItems);
+
+        for (final Map.Entry<PK, IS32ProductPromotionIndex> entry : indexes.entrySet())
+        {
+            final CatalogVersionModel catalogVersion = modelService.get(entry.getKey());
+            final Map<String, List<String>> includedByPromotion = new HashMap<>();
+            final Map<String, List<String>> excludedByPromotion = new HashMap<>();
+            excludedByPromotion.put(promotionUid,
+                    new ArrayList<>(excludeItems.getOrDefault(promotionUid, Collections.emptyList())));
+            collectProductItems(is32PromotionBucketDao.findProductItems(catalogVersion, promotionUid),
+                    includedByPromotion, excludedByPromotion);
+
+            final List<String> included = includedByPromotion.get(promotionUid);
+            if (included == null)
+            {
+                entry.getValue().removePromotion(promotionUid);
+            }
+            else
+            {
+                entry.getValue().putPromotion(promotionUid, included, excludedByPromotion.get(promotionUid));
+            }
+        }
+    }
+
+    private List<IS32PromotionModel> toActivePromotions(final Set<String> promotionUids)
+    {
+        if (promotionUids.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+
+        final IS32PromotionSnapshot snapshot = is32PromotionSnapshotService.getSnapshot();
+        final long now = timeService.getCurrentTime().getTime();
+        final List<IS32PromotionSnapshotEntry> active = new ArrayList<>(promotionUids.size());
+        for (final String uid : promotionUids)
+        {
+            final IS32PromotionSnapshotEntry entry = snapshot.getEntry(uid);
+            if (entry != null && entry.isActiveAt(now))
+            {
+                active.add(entry);
+            }
+        }
+        active.sort(IS32PromotionSnapshot.PRIORITY_ORDER);
+
+        final List<IS32PromotionModel> promotions = new ArrayList<>(active.size());
+        for (final IS32PromotionSnapshotEntry entry : active)
+        {
+            try
+            {
+                promotions.add(modelService.<IS32PromotionModel>get(entry.getPromotionPk()));
+            }
+            catch (final ModelLoadingException e)
+            {
+                LOG.debug("Skipping promotion [" + entry.getUid() + "] removed since the snapshot was built");
+            }
+        }
+        return promotions;
+    }
+
+    private boolean isExpired(final IS32ProductPromotionIndex index)
+    {
+        return System.currentTimeMillis() - index.getBuildTime() > maxAgeMillis;
+    }
+
+    private static void collectProductItems(final List<List<Object>> rows,
+                                            final Map<String, List<String>> includedByPromotion,
+                                            final Map<String, List<String>> excludedByPromotion)
+    {
+        for (final List<Object> row : rows)
+        {
+            final String promotionUid = (String) row.get(0);
+            final boolean excluded = IS32BucketType.EXCLUDE.equals(row.get(2)) || Boolean.TRUE.equals(row.get(3));
+            (excluded ? excludedByPromotion : includedByPromotion)
+                    .computeIfAbsent(promotionUid, k -> new ArrayList<>()).add((String) row.get(1));
+        }
+    }
+
+    private static void collectExcludeItems(final List<List<Object>> rows,
+                                            final Map<String, List<String>> excludedByPromotion)
+    {
+        for (final List<Object> row : rows)
+        {
+            excludedByPromotion.computeIfAbsent((String) row.get(0), k -> new ArrayList<>()).add((String) row.get(1));
+        }
+    }
+
+    @Required
+    public void setIs32PromotionBucketDao(final IS32PromotionBucketDao is32PromotionBucketDao)
+    {
+        this.is32PromotionBucketDao = is32PromotionBucketDao;
+    }
+
+    @Required
+    public void setIs32PromotionSnapshotService(final IS32PromotionSnapshotService is32PromotionSnapshotService)
+    {
+        this.is32PromotionSnapshotService = is32PromotionSnapshotService;
+    }
+
+    @Required
+    public void setIs32BucketPromotionResolver(final IS32BucketPromotionResolver is32BucketPromotionResolver)
+    {
+        this.is32BucketPromotionResolver = is32BucketPromotionResolver;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    @Required
+    public void setTimeService(final TimeService timeService)
+    {
+        this.timeService = timeService;
+    }
+}
@@ -0,0 +1,354 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32PromotionBucketDao;
+import com.is32.core.dao.IS32PromotionCatalogVersionDao;
+import com.is32.core.dao.IS32PromotionDao;
+import com.is32.core.model.IS32PromotionCatalogVersionModel;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.service.IS32PromotionCatalogVersionService;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.TenantAwareThreadFactory;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.tx.Transaction;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps {@link IS32PromotionCatalogVersionModel}s in line with the bucket items of the promotions.
+ * Each refresh compares the mappings held in the database with the ones derived from the bucket,
+ * promo item and product tables and only writes the difference, so refreshes are cheap when
+ * nothing changed and can be repeated safely.
+ * <p>
+ * Refreshes after a commit are handed to a single background worker, which runs them
+ * {@code is32core.promotion.catalogversion.refresh.delay.millis} after the first request. Promotions
+ * requested again in the meantime, e.g. by the saves of a bulk import, are refreshed only once.
+ */
+public class DefaultIS32PromotionCatalogVersionService
+        implements IS32PromotionCatalogVersionService, InitializingBean, DisposableBean
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32PromotionCatalogVersionService.class);
+
+    private static final long DEFAULT_REFRESH_DELAY_MILLIS = 1000L;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30L;
+
+    /**
+     * Marks of removals that are never committed are dropped after this time.
+     */
+    private static final long MARK_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1L);
+
+    private final Map<PK, MarkedRemoval> markedRemovals = new ConcurrentHashMap<>();
+    private final Set<String> pendingPromotionUids = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    private IS32PromotionCatalogVersionDao is32PromotionCatalogVersionDao;
+    private IS32PromotionBucketDao is32PromotionBucketDao;
+    private IS32PromotionDao is32PromotionDao;
+    private ModelService modelService;
+    private ConfigurationService configurationService;
+
+    private ScheduledExecutorService refreshExecutor;
+    private long refreshDelayMillis;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        refreshDelayMillis = configurationService.getConfiguration().getLong(
+                IS32CoreConstants.Config.PROMOTION_CATALOG_VERSION_REFRESH_DELAY, DEFAULT_REFRESH_DELAY_MILLIS);
+        if (refreshDelayMillis > 0)
+        {
+            refreshExecutor = Executors.newSingleThreadScheduledExecutor(createThreadFactory());
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException
+    {
+        if (refreshExecutor == null)
+        {
+            return;
+        }
+
+        refreshExecutor.shutdown();
+        if (!refreshExecutor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        {
+            LOG.warn("Abandoning the catalog version refresh of [" + pendingPromotionUids.size()
+                    + "] promotions on shutdown; they are fixed by the next rebuild");
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public int refreshPromotion(final IS32PromotionModel promotion)
+    {
+        final Set<CatalogVersionModel> targets =
+                new HashSet<>(is32PromotionBucketDao.findCatalogVersionsForPromotion(promotion.getUid()));
+
+        final List<IS32PromotionCatalogVersionModel> toRemove = new ArrayList<>();
+        for (final IS32PromotionCatalogVersionModel mapping : is32PromotionCatalogVersionDao.findByPromotion(promotion))
+        {
+            if (!targets.remove(mapping.getCatalogVersion()))
+            {
+                toRemove.add(mapping);
+            }
+        }
+
+        final List<IS32PromotionCatalogVersionModel> toCreate = new ArrayList<>(targets.size());
+        for (final CatalogVersionModel catalogVersion : targets)
+        {
+            toCreate.add(createMapping(promotion, catalogVersion));
+        }
+
+        final int changed = apply(toCreate, toRemove);
+        if (changed > 0 && LOG.isDebugEnabled())
+        {
+            LOG.debug("Refreshed catalog versions of promotion [" + promotion.getUid() + "]: [" + toCreate.size()
+                    + "] added, [" + toRemove.size() + "] removed");
+        }
+        return changed;
+    }
+
+    @Override
+    public int refreshPromotions(final Collection<String> promotionUids)
+    {
+        int changed = 0;
+        for (final String promotionUid : new LinkedHashSet<>(promotionUids))
+        {
+            final IS32PromotionModel promotion = is32PromotionDao.findByUid(promotionUid);
+            if (promotion != null)
+            {
+                changed += refreshPromotion(promotion);
+            }
+        }
+        return changed;
+    }
+
+    @Override
+    public int refreshCatalogVersion(final CatalogVersionModel catalogVersion)
+    {
+        final Set<String> targetUids =
+                new HashSet<>(is32PromotionBucketDao.findPromotionUidsForCatalogVersion(catalogVersion));
+
+        final List<IS32PromotionCatalogVersionModel> toRemove = new ArrayList<>();
+        for (final IS32PromotionCatalogVersionModel mapping
+                : is32PromotionCatalogVersionDao.findByCatalogVersion(catalogVersion))
+        {
+            final IS32PromotionModel promotion = mapping.getPromotion();
+            if (promotion == null || !targetUids.remove(promotion.getUid()))
+            {
+                toRemove.add(mapping);
+            }
+        }
+
+        final List<IS32PromotionCatalogVersionModel> toCreate = new ArrayList<>(targetUids.size());
+        for (final String promotionUid : targetUids)
+        {
+            final IS32PromotionModel promotion = is32PromotionDao.findByUid(promotionUid);
+            if (promotion != null)
+            {
+                toCreate.add(createMapping(promotion, catalogVersion));
+            }
+        }
+
+        final int changed = apply(toCreate, toRemove);
+        LOG.info("Refreshed promotions of catalog version [" + catalogVersion.getPk() + "]: [" + toCreate.size()
+                + "] added, [" + toRemove.size() + "] removed");
+        return changed;
+    }
+
+    @Override
+    public int removeOrphanedMappings(final int batchSize)
+    {
+        int removed = 0;
+        List<IS32PromotionCatalogVersionModel> orphans;
+        do
+        {
+            orphans = is32PromotionCatalogVersionDao.findOrphaned(batchSize);
+            removed += apply(new ArrayList<>(), orphans);
+        }
+        while (orphans.size() == batchSize);
+        return removed;
+    }
+
+    @Override
+    public void markForRefresh(final PK removedItemPk, final String promotionUid)
+    {
+        if (removedItemPk != null && promotionUid != null)
+        {
+            markedRemovals.computeIfAbsent(removedItemPk, pk -> new MarkedRemoval()).promotionUids.add(promotionUid);
+        }
+    }
+
+    @Override
+    public Set<String> takeMarkedPromotionUids(final Collection<PK> removedItemPks)
+    {
+        final Set<String> promotionUids = new LinkedHashSet<>();
+        for (final PK removedItemPk : removedItemPks)
+        {
+            final MarkedRemoval removal = markedRemovals.remove(removedItemPk);
+            if (removal != null)
+            {
+                promotionUids.addAll(removal.promotionUids);
+            }
+        }
+
+        final long expired = System.currentTimeMillis() - MARK_RETENTION_MILLIS;
+        markedRemovals.values().removeIf(removal -> removal.markedAt < expired);
+        return promotionUids;
+    }
+
+    @Override
+    public void scheduleRefresh(final Collection<String> promotionUids)
+    {
+        if (promotionUids.isEmpty())
+        {
+            return;
+        }
+
+        final ScheduledExecutorService executor = refreshExecutor;
+        if (executor == null)
+        {
+            refreshPromotions(promotionUids);
+            return;
+        }
+
+        pendingPromotionUids.addAll(promotionUids);
+        if (refreshScheduled.compareAndSet(false, true))
+        {
+            try
+            {
+                executor.schedule(this::refreshPendingPromotions, refreshDelayMillis, TimeUnit.MILLISECONDS);
+            }
+            catch (final RejectedExecutionException e)
+            {
+                refreshPendingPromotions();
+            }
+        }
+    }
+
+    protected ThreadFactory createThreadFactory()
+    {
+        return new TenantAwareThreadFactory(Registry.getCurrentTenantNoFallback());
+    }
+
+    /**
+     * Refreshes the promotions requested since the last run. Requests arriving while it runs schedule the next run.
+     */
+    private void refreshPendingPromotions()
+    {
+        refreshScheduled.set(false);
+        final List<String> promotionUids = new ArrayList<>(pendingPromotionUids);
+        pendingPromotionUids.removeAll(promotionUids);
+        try
+        {
+            refreshPromotions(promotionUids);
+        }
+        catch (final RuntimeException e)
+        {
+            LOG.error("Error refreshing the catalog versions of [" + promotionUids.size()
+                    + "] promotions; they are fixed by the next rebuild", e);
+        }
+    }
+
+    protected IS32PromotionCatalogVersionModel createMapping(final IS32PromotionModel promotion,
+                                                             final CatalogVersionModel catalogVersion)
+    {
+        final IS32PromotionCatalogVersionModel mapping = modelService.create(IS32PromotionCatalogVersionModel.class);
+        mapping.setPromotion(promotion);
+        mapping.setCatalogVersion(catalogVersion);
+        return mapping;
+    }
+
+    private int apply(final List<IS32PromotionCatalogVersionModel> toCreate,
+                      final List<IS32PromotionCatalogVersionModel> toRemove)
+    {
+        if (toCreate.isEmpty() && toRemove.isEmpty())
+        {
+            return 0;
+        }
+
+        final Transaction tx = Transaction.current();
+        boolean success = false;
+        tx.begin();
+        try
+        {
+            if (!toRemove.isEmpty())
+            {
+                modelService.removeAll(toRemove);
+            }
+            if (!toCreate.isEmpty())
+            {
+                modelService.saveAll(toCreate);
+            }
+            success = true;
+        }
+        finally
+        {
+            if (success)
+            {
+                tx.commit();
+            }
+            else
+            {
+                tx.rollback();
+            }
+        }
+        return toCreate.size() + toRemove.size();
+    }
+
+    @Required
+    public void setIs32PromotionCatalogVersionDao(final IS32PromotionCatalogVersionDao is32PromotionCatalogVersionDao)
+    {
+        this.is32PromotionCatalogVersionDao = is32PromotionCatalogVersionDao;
+    }
+
+    @Required
+    public void setIs32PromotionBucketDao(final IS32PromotionBucketDao is32PromotionBucketDao)
+    {
+        this.is32PromotionBucketDao = is32PromotionBucketDao;
+    }
+
+    @Required
+    public void setIs32PromotionDao(final IS32PromotionDao is32PromotionDao)
+    {
+        this.is32PromotionDao = is32PromotionDao;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    private static final class MarkedRemoval
+    {
+        private final Set<String> promotionUids = ConcurrentHashMap.newKeySet();
+        private final long markedAt = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,268 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32PromotionExpiryDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.expiry.IS32ExpiryResult;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.service.IS32PromotionExpiryService;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.interceptor.impl.InterceptorExecutionPolicy;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.tx.Transaction;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Expires and removes promotions chunk by chunk. Promotions are paged by (endDate, pk) so every
+ * chunk is an index range scan, and each chunk is committed on its own and detached afterwards,
+ * which keeps both the transaction and the session footprint bounded however large the history is.
+ * <p>
+ * Removal deletes the dependent items of a chunk in batches of the same size before the
+ * promotions themselves. The catalog version remove interceptor is switched off meanwhile, as the
+ * mappings of removed promotions are deleted here directly.
+ */
+public class DefaultIS32PromotionExpiryService implements IS32PromotionExpiryService
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32PromotionExpiryService.class);
+
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+    private static final String CATALOG_VERSION_REMOVE_INTERCEPTOR = "is32PromotionCatalogVersionRemoveInterceptor";
+
+    private IS32PromotionExpiryDao is32PromotionExpiryDao;
+    private ModelService modelService;
+    private SessionService sessionService;
+    private ConfigurationService configurationService;
+
+    @Override
+    public IS32ExpiryResult expirePromotions(final Date referenceDate)
+    {
+        final int batchSize = configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.CLEANUP_BATCH_SIZE, DEFAULT_BATCH_SIZE);
+        return expirePromotions(referenceDate, batchSize, () -> false);
+    }
+
+    @Override
+    public IS32ExpiryResult expirePromotions(final Date referenceDate, final int batchSize,
+                                             final BooleanSupplier abortRequested)
+    {
+        final int chunkSize = chunkSize(batchSize);
+        final long start = System.currentTimeMillis();
+        int promotionCount = 0;
+        int chunkCount = 0;
+        Date lastEndDate = null;
+        PK lastPk = null;
+        List<IS32PromotionModel> page;
+
+        do
+        {
+            if (abortRequested.getAsBoolean())
+            {
+                return new IS32ExpiryResult(promotionCount, 0, chunkCount, System.currentTimeMillis() - start, true);
+            }
+
+            page = is32PromotionExpiryDao.findPromotionsToExpire(referenceDate, lastEndDate, lastPk, chunkSize);
+            if (page.isEmpty())
+            {
+                break;
+            }
+
+            final List<IS32PromotionModel> chunk = page;
+            for (final IS32PromotionModel promotion : chunk)
+            {
+                promotion.setStatus(IS32PromotionStatus.EXPIRED);
+            }
+            runInTransaction(() -> modelService.saveAll(chunk));
+
+            final IS32PromotionModel last = chunk.get(chunk.size() - 1);
+            lastEndDate = last.getEndDate();
+            lastPk = last.getPk();
+            promotionCount += chunk.size();
+            chunkCount++;
+            detach(chunk);
+        }
+        while (page.size() == chunkSize);
+
+        final IS32ExpiryResult result =
+                new IS32ExpiryResult(promotionCount, 0, chunkCount, System.currentTimeMillis() - start, false);
+        LOG.info("Marked " + result + " as expired");
+        return result;
+    }
+
+    @Override
+    public IS32ExpiryResult removeExpiredPromotions(final Date cutoffDate, final int batchSize,
+                                                    final BooleanSupplier abortRequested)
+    {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(InterceptorExecutionPolicy.DISABLED_INTERCEPTOR_BEANS,
+                Collections.singleton(CATALOG_VERSION_REMOVE_INTERCEPTOR));
+
+        return sessionService.executeInLocalViewWithParams(params, new SessionExecutionBody()
+        {
+            @Override
+            public Object execute()
+            {
+                return doRemoveExpiredPromotions(cutoffDate, chunkSize(batchSize), abortRequested);
+            }
+        });
+    }
+
+    protected IS32ExpiryResult doRemoveExpiredPromotions(final Date cutoffDate, final int chunkSize,
+                                                         final BooleanSupplier abortRequested)
+    {
+        final long start = System.currentTimeMillis();
+        int promotionCount = 0;
+        int dependentCount = 0;
+        int chunkCount = 0;
+        Date lastEndDate = null;
+        PK lastPk = null;
+        List<IS32PromotionModel> page;
+
+        do
+        {
+            if (abortRequested.getAsBoolean())
+            {
+                return new IS32ExpiryResult(promotionCount, dependentCount, chunkCount,
+                        System.currentTimeMillis() - start, true);
+            }
+
+            page = is32PromotionExpiryDao.findPromotionsToRemove(cutoffDate, lastEndDate, lastPk, chunkSize);
+            if (page.isEmpty())
+            {
+                break;
+            }
+
+            final IS32PromotionModel last = page.get(page.size() - 1);
+            lastEndDate = last.getEndDate();
+            lastPk = last.getPk();
+
+            dependentCount += removeDependents(page, chunkSize);
+            final List<IS32PromotionModel> chunk = page;
+            runInTransaction(() -> modelService.removeAll(chunk));
+            promotionCount += chunk.size();
+            chunkCount++;
+        }
+        while (page.size() == chunkSize);
+
+        final IS32ExpiryResult result = new IS32ExpiryResult(promotionCount, dependentCount, chunkCount,
+                System.currentTimeMillis() - start, false);
+        LOG.info("Removed " + result);
+        return result;
+    }
+
+    private int removeDependents(final List<IS32PromotionModel> promotions, final int chunkSize)
+    {
+        final List<String> promotionUids = new ArrayList<>(promotions.size());
+        for (final IS32PromotionModel promotion : promotions)
+        {
+            promotionUids.add(promotion.getUid());
+        }
+
+        int removed = 0;
+        final List<String> bucketUids = is32PromotionExpiryDao.findBucketUids(promotionUids);
+        for (int from = 0; from < bucketUids.size(); from += MAX_IN_CLAUSE_SIZE)
+        {
+            final List<String> part = bucketUids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, bucketUids.size()));
+            removed += removeInBatches(() -> is32PromotionExpiryDao.findBucketItems(part, chunkSize), chunkSize);
+        }
+        removed += removeInBatches(() -> is32PromotionExpiryDao.findPromotionItems(promotionUids, chunkSize), chunkSize);
+        removed += removeInBatches(
+                () -> is32PromotionExpiryDao.findCatalogVersionMappings(promotions, chunkSize), chunkSize);
+        return removed;
+    }
+
+    private int removeInBatches(final Supplier<List<ItemModel>> batchFinder, final int chunkSize)
+    {
+        int removed = 0;
+        List<ItemModel> batch;
+        do
+        {
+            batch = batchFinder.get();
+            if (!batch.isEmpty())
+            {
+                final List<ItemModel> items = batch;
+                runInTransaction(() -> modelService.removeAll(items));
+                removed += items.size();
+            }
+        }
+        while (batch.size() == chunkSize);
+        return removed;
+    }
+
+    /**
+     * Runs the body in a transaction of its own, rolling back if it throws.
+     */
+    protected void runInTransaction(final Runnable body)
+    {
+        final Transaction tx = Transaction.current();
+        boolean success = false;
+        tx.begin();
+        try
+        {
+            body.run();
+            success = true;
+        }
+        finally
+        {
+            if (success)
+            {
+                tx.commit();
+            }
+            else
+            {
+                tx.rollback();
+            }
+        }
+    }
+
+    private void detach(final List<? extends ItemModel> items)
+    {
+        for (final ItemModel item : items)
+        {
+            modelService.detach(item);
+        }
+    }
+
+    private static int chunkSize(final int batchSize)
+    {
+        return Math.max(1, Math.min(batchSize, MAX_IN_CLAUSE_SIZE));
+    }
+
+    @Required
+    public void setIs32PromotionExpiryDao(final IS32PromotionExpiryDao is32PromotionExpiryDao)
+    {
+        this.is32PromotionExpiryDao = is32PromotionExpiryDao;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    @Required
+    public void setSessionService(final SessionService sessionService)
+    {
+        this.sessionService = sessionService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+}
@@ -0,0 +1,643 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32PromotionImportDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.importer.IS32PromotionImportReader;
+import com.is32.core.importer.IS32PromotionImportRecord;
+import com.is32.core.importer.IS32PromotionImportResult;
+import com.is32.core.interceptors.IS32PromotionValidationRules;
+import com.is32.core.model.IS32BucketModel;
+import com.is32.core.model.IS32PromoItemModel;
+import com.is32.core.model.IS32PromotionActivityModel;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.model.IS32PromotionTagModel;
+import com.is32.core.model.IS32RewardModel;
+import com.is32.core.service.IS32PromotionImportService;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.TenantAwareThreadFactory;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.interceptor.impl.InterceptorExecutionPolicy;
+import de.hybris.platform.servicelayer.keygenerator.KeyGenerator;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.tx.Transaction;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports promotion files in three stages. The calling thread streams the file and collects
+ * promotion records into chunks; each chunk is validated as a whole, checking date ranges and
+ * redemption limits with {@link IS32PromotionValidationRules} and UIDs, bucket ids and tags with
+ * one query each, and then handed to a pool of workers that write it in a transaction of its own.
+ * At most two chunks per worker are in flight, so a large file never piles up in memory.
+ * <p>
+ * As every chunk is validated before it is written, the promotion prepare and validate
+ * interceptors are switched off on the workers and their defaults are applied here instead. A
+ * chunk that fails to save is retried one record per transaction, so only the offending records
+ * are rejected. TAG rows are written by the calling thread as they are read; existing tags are
+ * left unchanged.
+ */
+public class DefaultIS32PromotionImportService implements IS32PromotionImportService
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32PromotionImportService.class);
+
+    private static final int DEFAULT_CHUNK_SIZE = 200;
+    private static final int DEFAULT_WORKERS = 4;
+    private static final int MAX_CHUNK_SIZE = 1000;
+    private static final int MAX_REPORTED_REJECTIONS = 1000;
+    private static final Set<String> DISABLED_INTERCEPTORS = new HashSet<>(Arrays.asList(
+            "is32PromotionPrepareInterceptor", "is32PromotionValidateInterceptor"));
+
+    private IS32PromotionImportDao is32PromotionImportDao;
+    private KeyGenerator keyGenerator;
+    private ModelService modelService;
+    private SessionService sessionService;
+    private ConfigurationService configurationService;
+
+    @Override
+    public IS32PromotionImportResult importPromotions(final InputStream input) throws IOException
+    {
+        return importPromotions(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public IS32PromotionImportResult importPromotions(final Reader input) throws IOException
+    {
+        final int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.PROMOTION_IMPORT_CHUNK_SIZE, DEFAULT_CHUNK_SIZE)));
+        final int workers = Math.max(1, configurationService.getConfiguration()
+                .getInt(IS32CoreConstants.Config.PROMOTION_IMPORT_WORKERS, DEFAULT_WORKERS));
+
+        final ImportRun run = new ImportRun(chunkSize, workers);
+        try (IS32PromotionImportReader reader = new IS32PromotionImportReader(input, getTimeZone()))
+        {
+            try
+            {
+                run.read(reader);
+            }
+            finally
+            {
+                run.awaitWorkers();
+            }
+
+            final IS32PromotionImportResult result = run.toResult(reader.getRowCount());
+            LOG.info("Imported " + result);
+            return result;
+        }
+    }
+
+    /**
+     * Applies the import rules to a chunk of promotion records: date ranges and redemption limits
+     * first, then UIDs and bucket ids unique in the file and in the database, then the tag. Records
+     * without a UID get one from the key generator.
+     *
+     * @param records     the records of the chunk; invalid ones are rejected
+     * @param seenUids    the promotion UIDs of the file so far
+     * @param seenBuckets the bucket ids of the file so far
+     * @param tagPks      the PKs of the tags known so far, completed from the database
+     */
+    protected void validate(final List<IS32PromotionImportRecord> records, final Set<String> seenUids,
+                            final Set<String> seenBuckets, final Map<String, PK> tagPks)
+    {
+        final Set<String> uids = new HashSet<>();
+        final Set<String> bucketUids = new HashSet<>();
+        final Set<String> tagCodes = new HashSet<>();
+
+        for (final IS32PromotionImportRecord record : records)
+        {
+            if (StringUtils.isBlank(record.getUid()))
+            {
+                record.setUid(keyGenerator.generate().toString());
+            }
+            checkRules(record);
+            if (!record.isRejected() && !seenUids.add(record.getUid()))
+            {
+                record.reject("Duplicate promotion uid [" + record.getUid() + "] in the file");
+            }
+            for (final IS32PromotionImportRecord.BucketRow bucket : record.getBuckets())
+            {
+                if (!record.isRejected() && !seenBuckets.add(bucket.getUniqueId()))
+                {
+                    record.reject("Duplicate bucket uniqueId [" + bucket.getUniqueId() + "] in the file");
+                }
+            }
+
+            if (!record.isRejected())
+            {
+                uids.add(record.getUid());
+                for (final IS32PromotionImportRecord.BucketRow bucket : record.getBuckets())
+                {
+                    bucketUids.add(bucket.getUniqueId());
+                }
+                if (!tagPks.containsKey(record.getTagCode()))
+                {
+                    tagCodes.add(record.getTagCode());
+                }
+            }
+        }
+
+        final Set<String> existingUids = is32PromotionImportDao.findExistingPromotionUids(uids);
+        final Set<String> existingBuckets = is32PromotionImportDao.findExistingBucketUids(bucketUids);
+        tagPks.putAll(is32PromotionImportDao.findTagPksByCode(tagCodes));
+
+        for (final IS32PromotionImportRecord record : records)
+        {
+            if (existingUids.contains(record.getUid()))
+            {
+                record.reject("Promotion uid [" + record.getUid() + "] already exists");
+            }
+            for (final IS32PromotionImportRecord.BucketRow bucket : record.getBuckets())
+            {
+                if (existingBuckets.contains(bucket.getUniqueId()))
+                {
+                    record.reject("Bucket uniqueId [" + bucket.getUniqueId() + "] already exists");
+                }
+            }
+            if (!tagPks.containsKey(record.getTagCode()))
+            {
+                record.reject("Unknown promotion tag [" + record.getTagCode() + "]");
+            }
+        }
+    }
+
+    private static void checkRules(final IS32PromotionImportRecord record)
+    {
+        final String dateRangeViolation =
+                IS32PromotionValidationRules.checkDateRange(record.getStartDate(), record.getEndDate());
+        if (dateRangeViolation != null)
+        {
+            record.reject(dateRangeViolation);
+        }
+
+        final String limitViolation = IS32PromotionValidationRules.checkRedemptionLimits(
+                record.getMaxRedemptionPerUser(), record.getTotalRedemptionLimit());
+        if (limitViolation != null)
+        {
+            record.reject(limitViolation);
+        }
+    }
+
+    /**
+     * Creates the models of a promotion record, the promotion first.
+     *
+     * @param record the record
+     * @param tag    the promotion tag
+     * @return the new, unsaved models
+     */
+    protected List<ItemModel> createModels(final IS32PromotionImportRecord record, final IS32PromotionTagModel tag)
+    {
+        final List<ItemModel> models = new ArrayList<>();
+
+        final IS32PromotionModel promotion = modelService.create(IS32PromotionModel.class);
+        promotion.setUid(record.getUid());
+        promotion.setPromotionTag(tag);
+        promotion.setStatus(record.getStatus() != null ? record.getStatus() : IS32PromotionStatus.DRAFT);
+        promotion.setSuspended(Boolean.FALSE);
+        promotion.setStartDate(record.getStartDate());
+        promotion.setEndDate(record.getEndDate());
+        promotion.setPriority(record.getPriority() != null ? record.getPriority() : Integer.valueOf(0));
+        promotion.setMaxRedemptionPerUser(record.getMaxRedemptionPerUser());
+        promotion.setTotalRedemptionLimit(record.getTotalRedemptionLimit());
+        promotion.setTitle(record.getTitle());
+        models.add(promotion);
+
+        for (final IS32PromotionImportRecord.RewardRow row : record.getRewards())
+        {
+            final IS32RewardModel reward = modelService.create(IS32RewardModel.class);
+            reward.setPromotion(promotion);
+            reward.setPromotionUid(record.getUid());
+            reward.setRewardType(row.getRewardType());
+            reward.setRewardValue(row.getRewardValue());
+            reward.setMinSpend(row.getMinSpend());
+            reward.setMaxRewardCap(row.getMaxRewardCap());
+            reward.setIncreaseMemberAccountId(row.getIncreaseMemberAccountId());
+            models.add(reward);
+        }
+
+        for (final IS32PromotionImportRecord.BucketRow row : record.getBuckets())
+        {
+            final IS32BucketModel bucket = modelService.create(IS32BucketModel.class);
+            bucket.setPromotion(promotion);
+            bucket.setPromotionUid(record.getUid());
+            bucket.setUniqueId(row.getUniqueId());
+            bucket.setBucketType(row.getBucketType());
+            bucket.setBucketName(row.getBucketName());
+            bucket.setMinQuantity(row.getMinQuantity());
+            bucket.setMaxQuantity(row.getMaxQuantity());
+            models.add(bucket);
+
+            for (final IS32PromotionImportRecord.ItemRow itemRow : row.getItems())
+            {
+                final IS32PromoItemModel item = modelService.create(IS32PromoItemModel.class);
+                item.setBucket(bucket);
+                item.setBucketUid(row.getUniqueId());
+                item.setItemCode(itemRow.getItemCode());
+                item.setItemType(itemRow.getItemType());
+                item.setExcludeFlag(itemRow.getExcludeFlag());
+                models.add(item);
+            }
+        }
+
+        for (final IS32PromotionImportRecord.ActivityRow row : record.getActivities())
+        {
+            final IS32PromotionActivityModel activity = modelService.create(IS32PromotionActivityModel.class);
+            activity.setPromotion(promotion);
+            activity.setPromotionUid(record.getUid());
+            activity.setDayOfWeek(row.getDayOfWeek());
+            activity.setStartTime(row.getStartTime());
+            activity.setEndTime(row.getEndTime());
+            activity.setActive(Boolean.TRUE);
+            models.add(activity);
+        }
+        return models;
+    }
+
+    /**
+     * Runs the body in a transaction of its own, rolling back if it throws.
+     */
+    protected void runInTransaction(final Runnable body)
+    {
+        final Transaction tx = Transaction.current();
+        boolean success = false;
+        tx.begin();
+        try
+        {
+            body.run();
+            success = true;
+        }
+        finally
+        {
+            if (success)
+            {
+                tx.commit();
+            }
+            else
+            {
+                tx.rollback();
+            }
+        }
+    }
+
+    protected ExecutorService createExecutor(final int workers)
+    {
+        return Executors.newFixedThreadPool(workers, new TenantAwareThreadFactory(Registry.getCurrentTenantNoFallback()));
+    }
+
+    protected TimeZone getTimeZone()
+    {
+        return TimeZone.getDefault();
+    }
+
+    @Required
+    public void setIs32PromotionImportDao(final IS32PromotionImportDao is32PromotionImportDao)
+    {
+        this.is32PromotionImportDao = is32PromotionImportDao;
+    }
+
+    @Required
+    public void setKeyGenerator(final KeyGenerator keyGenerator)
+    {
+        this.keyGenerator = keyGenerator;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    @Required
+    public void setSessionService(final SessionService sessionService)
+    {
+        this.sessionService = sessionService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    /**
+     * State of one import: the reading side is confined to the calling thread, the counters and
+     * rejections are shared with the workers.
+     */
+    private final class ImportRun
+    {
+        private final int chunkSize;
+        private final ExecutorService executor;
+        private final Semaphore inFlight;
+        private final List<Future<?>> futures = new ArrayList<>();
+
+        private final Set<String> seenUids = new HashSet<>();
+        private final Set<String> seenBuckets = new HashSet<>();
+        private final Map<String, PK> tagPks = new HashMap<>();
+
+        private final AtomicInteger importedRowCount = new AtomicInteger();
+        private final AtomicInteger promotionCount = new AtomicInteger();
+        private final AtomicInteger rejectedRowCount = new AtomicInteger();
+        private final AtomicInteger chunkCount = new AtomicInteger();
+        private final List<IS32PromotionImportResult.Rejection> rejections = new ArrayList<>();
+        private final long start = System.currentTimeMillis();
+        private int tagCount;
+
+        private ImportRun(final int chunkSize, final int workers)
+        {
+            this.chunkSize = chunkSize;
+            this.executor = createExecutor(workers);
+            this.inFlight = new Semaphore(2 * workers);
+        }
+
+        private void read(final IS32PromotionImportReader reader) throws IOException
+        {
+            List<IS32PromotionImportRecord> chunk = new ArrayList<>(chunkSize);
+            IS32PromotionImportRecord record;
+            while ((record = reader.next()) != null)
+            {
+                if (record.isRejected())
+                {
+                    reject(record, record.getRejectReason());
+                }
+                else if (record.isTag())
+                {
+                    importTag(record);
+                }
+                else
+                {
+                    chunk.add(record);
+                    if (chunk.size() == chunkSize)
+                    {
+                        submit(chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+            }
+            submit(chunk);
+        }
+
+        private void importTag(final IS32PromotionImportRecord record)
+        {
+            final IS32PromotionImportRecord.TagRow row = record.getTag();
+            if (!tagPks.containsKey(row.getCode()))
+            {
+                tagPks.putAll(is32PromotionImportDao.findTagPksByCode(Collections.singleton(row.getCode())));
+            }
+            if (tagPks.containsKey(row.getCode()))
+            {
+                importedRowCount.incrementAndGet();
+                return;
+            }
+            if (row.getDisplayType() == null)
+            {
+                reject(record, "Missing displayType for new tag [" + row.getCode() + "]");
+                return;
+            }
+
+            final IS32PromotionTagModel tag = modelService.create(IS32PromotionTagModel.class);
+            tag.setCode(row.getCode());
+            tag.setElabPromotionDisplayType(row.getDisplayType());
+            tag.setName(row.getName());
+            try
+            {
+                modelService.save(tag);
+            }
+            catch (final RuntimeException e)
+            {
+                modelService.detach(tag);
+                reject(record, "Tag [" + row.getCode() + "] could not be saved: " + e.getMessage());
+                return;
+            }
+            tagPks.put(row.getCode(), tag.getPk());
+            modelService.detach(tag);
+            importedRowCount.incrementAndGet();
+            tagCount++;
+        }
+
+        private void submit(final List<IS32PromotionImportRecord> chunk)
+        {
+            if (chunk.isEmpty())
+            {
+                return;
+            }
+
+            validate(chunk, seenUids, seenBuckets, tagPks);
+            final List<IS32PromotionImportRecord> valid = new ArrayList<>(chunk.size());
+            final Map<String, PK> chunkTagPks = new HashMap<>();
+            for (final IS32PromotionImportRecord record : chunk)
+            {
+                if (record.isRejected())
+                {
+                    reject(record, record.getRejectReason());
+                }
+                else
+                {
+                    valid.add(record);
+                    chunkTagPks.put(record.getTagCode(), tagPks.get(record.getTagCode()));
+                }
+            }
+            if (valid.isEmpty())
+            {
+                return;
+            }
+
+            inFlight.acquireUninterruptibly();
+            try
+            {
+                futures.add(executor.submit(() -> {
+                    try
+                    {
+                        write(valid, chunkTagPks);
+                    }
+                    catch (final RuntimeException e)
+                    {
+                        LOG.error("Chunk starting at line [" + valid.get(0).getLine() + "] failed", e);
+                        for (final IS32PromotionImportRecord record : valid)
+                        {
+                            reject(record, "Chunk failed: " + e.getMessage());
+                        }
+                    }
+                    finally
+                    {
+                        inFlight.release();
+                    }
+                }));
+            }
+            catch (final RuntimeException e)
+            {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        /**
+         * Writes a chunk on a worker thread, with the promotion interceptors switched off.
+         */
+        private void write(final List<IS32PromotionImportRecord> records, final Map<String, PK> chunkTagPks)
+        {
+            final Map<String, Object> params = new HashMap<>();
+            params.put(InterceptorExecutionPolicy.DISABLED_INTERCEPTOR_BEANS, DISABLED_INTERCEPTORS);
+
+            sessionService.executeInLocalViewWithParams(params, new SessionExecutionBody()
+            {
+                @Override
+                public Object execute()
+                {
+                    writeChunk(records, chunkTagPks);
+                    return null;
+                }
+            });
+        }
+
+        private void writeChunk(final List<IS32PromotionImportRecord> records, final Map<String, PK> chunkTagPks)
+        {
+            final Map<PK, IS32PromotionTagModel> tags = new HashMap<>();
+            for (final Map.Entry<String, PK> tagPk : chunkTagPks.entrySet())
+            {
+                tags.put(tagPk.getValue(), modelService.get(tagPk.getValue()));
+            }
+
+            final List<ItemModel> models = new ArrayList<>();
+            for (final IS32PromotionImportRecord record : records)
+            {
+                models.addAll(createModels(record, tags.get(chunkTagPks.get(record.getTagCode()))));
+            }
+
+            try
+            {
+                runInTransaction(() -> modelService.saveAll(models));
+                for (final IS32PromotionImportRecord record : records)
+                {
+                    imported(record);
+                }
+            }
+            catch (final RuntimeException e)
+            {
+                LOG.warn("Chunk starting at line [" + records.get(0).getLine()
+                        + "] could not be saved, retrying record by record: " + e.getMessage());
+                detach(models);
+                writeOneByOne(records, chunkTagPks, tags);
+                return;
+            }
+            finally
+            {
+                chunkCount.incrementAndGet();
+            }
+            detach(models);
+        }
+
+        private void writeOneByOne(final List<IS32PromotionImportRecord> records, final Map<String, PK> chunkTagPks,
+                                   final Map<PK, IS32PromotionTagModel> tags)
+        {
+            for (final IS32PromotionImportRecord record : records)
+            {
+                final List<ItemModel> models =
+                        createModels(record, tags.get(chunkTagPks.get(record.getTagCode())));
+                try
+                {
+                    runInTransaction(() -> modelService.saveAll(models));
+                    imported(record);
+                }
+                catch (final RuntimeException e)
+                {
+                    reject(record, "Could not be saved: " + e.getMessage());
+                }
+                finally
+                {
+                    detach(models);
+                }
+            }
+        }
+
+        private void imported(final IS32PromotionImportRecord record)
+        {
+            importedRowCount.addAndGet(record.getRowCount());
+            promotionCount.incrementAndGet();
+        }
+
+        private void reject(final IS32PromotionImportRecord record, final String reason)
+        {
+            rejectedRowCount.addAndGet(record.getRowCount());
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Rejected line [" + record.getLine() + "]: " + reason);
+            }
+            synchronized (rejections)
+            {
+                if (rejections.size() < MAX_REPORTED_REJECTIONS)
+                {
+                    rejections.add(new IS32PromotionImportResult.Rejection(record.getLine(),
+                            record.isPromotion() ? record.getUid() : null, record.getRowCount(), reason));
+                }
+            }
+        }
+
+        private void detach(final List<ItemModel> models)
+        {
+            for (final ItemModel model : models)
+            {
+                modelService.detach(model);
+            }
+        }
+
+        private void awaitWorkers()
+        {
+            executor.shutdown();
+            for (final Future<?> future : futures)
+            {
+                try
+                {
+                    future.get();
+                }
+                catch (final InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    executor.shutdownNow();
+                    return;
+                }
+                catch (final ExecutionException e)
+                {
+                    LOG.error("Promotion import worker failed", e.getCause());
+                }
+            }
+        }
+
+        private IS32PromotionImportResult toResult(final int rowCount)
+        {
+            final List<IS32PromotionImportResult.Rejection> sorted;
+            synchronized (rejections)
+            {
+                sorted = new ArrayList<>(rejections);
+            }
+            sorted.sort(Comparator.comparingInt(IS32PromotionImportResult.Rejection::getLine));
+            return new IS32PromotionImportResult(rowCount, importedRowCount.get(), promotionCount.get(), tagCount,
+                    rejectedRowCount.get(), sorted, chunkCount.get(), System.currentTimeMillis() - start);
+        }
+    }
+}
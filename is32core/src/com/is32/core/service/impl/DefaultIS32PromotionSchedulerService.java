@@ -0,0 +1,485 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.cache.IS32CacheRegion;
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32PromotionSchedulerDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.event.IS32CacheInvalidationEvent;
+import com.is32.core.expiry.IS32ExpiryResult;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.scheduler.IS32TimingWheel;
+import com.is32.core.service.IS32ClusterLeaseService;
+import com.is32.core.service.IS32PromotionExpiryService;
+import com.is32.core.service.IS32PromotionSchedulerService;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.Tenant;
+import de.hybris.platform.core.TenantAwareThreadFactory;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.event.EventService;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import org.apache.commons.configuration.Configuration;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Schedules the start and end boundaries of the promotions on an {@link IS32TimingWheel}. The
+ * leader loads the boundaries of the next lookahead window from the database, extends the window
+ * as time passes and fires each boundary on the first tick after it:
+ * <ul>
+ * <li>at its end date a promotion is set to EXPIRED, whose save invalidates the promotion caches
+ * cluster-wide;</li>
+ * <li>at every start or end the configured boundary regions are invalidated cluster-wide, since
+ * they hold data derived from the set of live promotions.</li>
+ * </ul>
+ * Transitions re-read the promotion first and do nothing if it no longer qualifies, so firing a
+ * boundary twice is harmless. Saves of promotions reach the leader through the cache invalidation
+ * events and reschedule the changed promotions. A node that becomes leader, e.g. after a restart
+ * or a failover, expires the promotions whose end passed while no node was leading and reloads
+ * the window.
+ * <p>
+ * The scheduler thread starts once the application context is refreshed, so that no tick runs
+ * against a half-initialised tenant, and never on the junit tenant, where tests call
+ * {@link #tick()} themselves.
+ */
+public class DefaultIS32PromotionSchedulerService
+        implements IS32PromotionSchedulerService, IS32CacheRegion, ApplicationListener<ContextRefreshedEvent>,
+        InitializingBean, DisposableBean
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32PromotionSchedulerService.class);
+
+    private static final String LEASE_CODE = "is32PromotionScheduler";
+    private static final String START_KEY = "S:";
+    private static final String END_KEY = "E:";
+    private static final int WHEEL_SIZE = 4096;
+    private static final long DEFAULT_TICK_MILLIS = 1000L;
+    private static final long DEFAULT_LOOKAHEAD_SECONDS = 3600L;
+    private static final long DEFAULT_LEASE_SECONDS = 30L;
+    private static final String JUNIT_TENANT = "junit";
+
+    private final Set<PK> changedPromotionPks = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean reloadRequested = new AtomicBoolean();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private IS32PromotionSchedulerDao is32PromotionSchedulerDao;
+    private IS32ClusterLeaseService is32ClusterLeaseService;
+    private IS32PromotionExpiryService is32PromotionExpiryService;
+    private ModelService modelService;
+    private EventService eventService;
+    private TimeService timeService;
+    private ConfigurationService configurationService;
+    private List<String> boundaryRegions = Collections.emptyList();
+
+    private IS32TimingWheel wheel;
+    private ScheduledExecutorService executor;
+    private long tickMillis;
+    private long lookaheadMillis;
+    private long leaseMillis;
+
+    private volatile boolean leader;
+    private boolean leaseChecked;
+    private long leaseCheckedAt;
+    private long loadedUntil;
+
+    @Override
+    public void afterPropertiesSet()
+    {
+        final Configuration configuration = configurationService.getConfiguration();
+        tickMillis = Math.max(1L, configuration.getLong(IS32CoreConstants.Config.SCHEDULER_TICK_MILLIS,
+                DEFAULT_TICK_MILLIS));
+        lookaheadMillis = TimeUnit.SECONDS.toMillis(configuration.getLong(
+                IS32CoreConstants.Config.SCHEDULER_LOOKAHEAD, DEFAULT_LOOKAHEAD_SECONDS));
+        leaseMillis = TimeUnit.SECONDS.toMillis(Math.max(1L, configuration.getLong(
+                IS32CoreConstants.Config.SCHEDULER_LEASE, DEFAULT_LEASE_SECONDS)));
+        wheel = new IS32TimingWheel(tickMillis, WHEEL_SIZE, timeService.getCurrentTime().getTime());
+    }
+
+    /**
+     * Starts the scheduler thread on the first refresh of the application context, unless the
+     * scheduler is disabled or this is the junit tenant.
+     */
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event)
+    {
+        if (isJunitTenant() || !configurationService.getConfiguration()
+                .getBoolean(IS32CoreConstants.Config.SCHEDULER_ENABLED, true) || !started.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(createThreadFactory());
+        executor.scheduleWithFixedDelay(this::safeTick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        LOG.info("Started IS32 promotion scheduler with a tick of [" + tickMillis + "] ms");
+    }
+
+    @Override
+    public void destroy()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public synchronized void tick()
+    {
+        final long now = timeService.getCurrentTime().getTime();
+        if (!holdLease())
+        {
+            return;
+        }
+
+        if (reloadRequested.getAndSet(false))
+        {
+            reload(now);
+        }
+        else
+        {
+            if (loadedUntil - now <= lookaheadMillis / 2)
+            {
+                loadWindow(now + lookaheadMillis);
+            }
+            rescheduleChangedPromotions(now);
+        }
+
+        final List<String> dueKeys = wheel.advance(now);
+        if (!dueKeys.isEmpty())
+        {
+            fire(dueKeys, now);
+        }
+    }
+
+    @Override
+    public boolean isLeader()
+    {
+        return leader;
+    }
+
+    /**
+     * @return true if the scheduler thread has been started
+     */
+    public boolean isStarted()
+    {
+        return started.get();
+    }
+
+    @Override
+    public int getScheduledCount()
+    {
+        return wheel.size();
+    }
+
+    @Override
+    public String getRegionName()
+    {
+        return IS32CoreConstants.CacheRegion.PROMOTION_SCHEDULER;
+    }
+
+    @Override
+    public boolean isInvalidatedBy(final int typeCode)
+    {
+        return typeCode == IS32CoreConstants.TypeCode.IS32_PROMOTION;
+    }
+
+    @Override
+    public void invalidate(final Collection<String> keys)
+    {
+        if (leader)
+        {
+            for (final String key : keys)
+            {
+                changedPromotionPks.add(PK.parse(key));
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        if (leader)
+        {
+            reloadRequested.set(true);
+        }
+    }
+
+    private void safeTick()
+    {
+        try
+        {
+            tick();
+        }
+        catch (final Exception e)
+        {
+            LOG.error("Error during IS32 promotion scheduler tick", e);
+        }
+    }
+
+    protected boolean isJunitTenant()
+    {
+        final Tenant tenant = Registry.getCurrentTenantNoFallback();
+        return tenant != null && JUNIT_TENANT.equals(tenant.getTenantID());
+    }
+
+    protected ThreadFactory createThreadFactory()
+    {
+        return new TenantAwareThreadFactory(Registry.getCurrentTenantNoFallback());
+    }
+
+    /**
+     * @return the current value of the monotonic clock in nanoseconds
+     */
+    protected long nanoTime()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Claims the lease every third of its duration. A claim holds the lease for a whole duration
+     * from its start, so this node leads until its next claim fails, and a failed or broken claim
+     * ends leadership at once, well before a follower may take the lease over.
+     */
+    private boolean holdLease()
+    {
+        final long nanos = nanoTime();
+        if (leaseChecked && nanos - leaseCheckedAt < TimeUnit.MILLISECONDS.toNanos(leaseMillis) / 3)
+        {
+            return leader;
+        }
+        leaseChecked = true;
+        leaseCheckedAt = nanos;
+
+        final boolean wasLeader = leader;
+        try
+        {
+            leader = is32ClusterLeaseService.claim(LEASE_CODE, leaseMillis);
+        }
+        catch (final RuntimeException e)
+        {
+            leader = false;
+            LOG.warn("Could not claim the IS32 promotion scheduler lease", e);
+        }
+
+        if (leader && !wasLeader)
+        {
+            LOG.info("Node [" + is32ClusterLeaseService.getNodeId() + "] now leads the IS32 promotion scheduler");
+            reloadRequested.set(true);
+        }
+        else if (!leader && wasLeader)
+        {
+            LOG.info("Node [" + is32ClusterLeaseService.getNodeId() + "] lost the IS32 promotion scheduler lease");
+            wheel.clear();
+            changedPromotionPks.clear();
+        }
+        return leader;
+    }
+
+    private void reload(final long now)
+    {
+        wheel.clear();
+        changedPromotionPks.clear();
+
+        final IS32ExpiryResult caughtUp = is32PromotionExpiryService.expirePromotions(new Date(now));
+        loadedUntil = now;
+        loadWindow(now + lookaheadMillis);
+
+        LOG.info("Loaded [" + wheel.size() + "] promotion boundaries up to [" + new Date(loadedUntil)
+                + "] after expiring [" + caughtUp.getPromotionCount() + "] overdue promotions");
+    }
+
+    private void loadWindow(final long until)
+    {
+        final Date from = new Date(loadedUntil);
+        final Date to = new Date(until);
+
+        for (final List<Object> row : is32PromotionSchedulerDao.findStartingPromotions(from, to))
+        {
+            wheel.schedule(START_KEY + row.get(0), ((Date) row.get(1)).getTime());
+        }
+        for (final List<Object> row : is32PromotionSchedulerDao.findEndingPromotions(from, to))
+        {
+            wheel.schedule(END_KEY + row.get(0), ((Date) row.get(1)).getTime());
+        }
+        loadedUntil = until;
+    }
+
+    private void rescheduleChangedPromotions(final long now)
+    {
+        if (changedPromotionPks.isEmpty())
+        {
+            return;
+        }
+
+        final List<PK> pks = new ArrayList<>(changedPromotionPks);
+        changedPromotionPks.removeAll(pks);
+
+        for (final PK pk : pks)
+        {
+            wheel.cancel(START_KEY + pk);
+            wheel.cancel(END_KEY + pk);
+
+            final IS32PromotionModel promotion = loadPromotion(pk);
+            if (promotion == null)
+            {
+                continue;
+            }
+
+            final Date startDate = promotion.getStartDate();
+            final Date endDate = promotion.getEndDate();
+            if (IS32PromotionStatus.ACTIVE.equals(promotion.getStatus()) && startDate != null
+                    && startDate.getTime() > now && startDate.getTime() <= loadedUntil)
+            {
+                wheel.schedule(START_KEY + pk, startDate.getTime());
+            }
+            if (!IS32PromotionStatus.EXPIRED.equals(promotion.getStatus()) && endDate != null
+                    && endDate.getTime() <= loadedUntil)
+            {
+                wheel.schedule(END_KEY + pk, endDate.getTime());
+            }
+            modelService.detach(promotion);
+        }
+    }
+
+    private void fire(final List<String> dueKeys, final long now)
+    {
+        int transitions = 0;
+        for (final String key : dueKeys)
+        {
+            final boolean end = key.startsWith(END_KEY);
+            final PK pk = PK.parse(key.substring(end ? END_KEY.length() : START_KEY.length()));
+            try
+            {
+                if (end ? expire(pk, now) : isStarted(pk, now))
+                {
+                    transitions++;
+                }
+            }
+            catch (final RuntimeException e)
+            {
+                LOG.error("Error firing promotion boundary [" + key + "]; the cleanup job will retry", e);
+            }
+        }
+
+        if (transitions > 0)
+        {
+            for (final String regionName : boundaryRegions)
+            {
+                eventService.publishEvent(new IS32CacheInvalidationEvent(regionName));
+            }
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Fired [" + transitions + "] promotion boundaries at [" + new Date(now) + "]");
+            }
+        }
+    }
+
+    private boolean expire(final PK pk, final long now)
+    {
+        final IS32PromotionModel promotion = loadPromotion(pk);
+        if (promotion == null || IS32PromotionStatus.EXPIRED.equals(promotion.getStatus())
+                || promotion.getEndDate() == null || promotion.getEndDate().getTime() > now)
+        {
+            return false;
+        }
+
+        promotion.setStatus(IS32PromotionStatus.EXPIRED);
+        modelService.save(promotion);
+        modelService.detach(promotion);
+        LOG.info("Promotion [" + promotion.getUid() + "] expired at [" + promotion.getEndDate() + "]");
+        return true;
+    }
+
+    private boolean isStarted(final PK pk, final long now)
+    {
+        final IS32PromotionModel promotion = loadPromotion(pk);
+        if (promotion == null)
+        {
+            return false;
+        }
+
+        final boolean started = IS32PromotionStatus.ACTIVE.equals(promotion.getStatus())
+                && promotion.getStartDate() != null && promotion.getStartDate().getTime() <= now
+                && promotion.getEndDate() != null && promotion.getEndDate().getTime() > now;
+        modelService.detach(promotion);
+        return started;
+    }
+
+    private IS32PromotionModel loadPromotion(final PK pk)
+    {
+        try
+        {
+            final Object item = modelService.get(pk);
+            return item instanceof IS32PromotionModel ? (IS32PromotionModel) item : null;
+        }
+        catch (final ModelLoadingException e)
+        {
+            return null;
+        }
+    }
+
+    @Required
+    public void setIs32PromotionSchedulerDao(final IS32PromotionSchedulerDao is32PromotionSchedulerDao)
+    {
+        this.is32PromotionSchedulerDao = is32PromotionSchedulerDao;
+    }
+
+    @Required
+    public void setIs32ClusterLeaseService(final IS32ClusterLeaseService is32ClusterLeaseService)
+    {
+        this.is32ClusterLeaseService = is32ClusterLeaseService;
+    }
+
+    @Required
+    public void setIs32PromotionExpiryService(final IS32PromotionExpiryService is32PromotionExpiryService)
+    {
+        this.is32PromotionExpiryService = is32PromotionExpiryService;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+
+    @Required
+    public void setEventService(final EventService eventService)
+    {
+        this.eventService = eventService;
+    }
+
+    @Required
+    public void setTimeService(final TimeService timeService)
+    {
+        this.timeService = timeService;
+    }
+
+    @Required
+    public void setConfigurationService(final ConfigurationService configurationService)
+    {
+        this.configurationService = configurationService;
+    }
+
+    public void setBoundaryRegions(final List<String> boundaryRegions)
+    {
+        this.boundaryRegions = boundaryRegions;
+    }
+}
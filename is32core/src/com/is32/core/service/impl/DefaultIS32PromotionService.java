@@ -3,16 +3,24 @@ package com.is32.core.service.impl;
 import com.is32.core.dao.IS32AccountQuotaDao;
 import com.is32.core.dao.IS32PromotionDao;
 import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.enums.IS32PromotionDisplayType;
 import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.search.IS32PromotionSearchCriteria;
+import com.is32.core.search.IS32PromotionSearchResult;
+import com.is32.core.service.IS32PromotionExpiryService;
 import com.is32.core.service.IS32PromotionService;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
 import de.hybris.platform.catalog.CatalogVersionService;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
 import de.hybris.platform.servicelayer.model.ModelService;
 import de.hybris.platform.servicelayer.session.SessionService;
 import de.hybris.platform.servicelayer.time.TimeService;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -25,6 +33,9 @@ public class DefaultIS32PromotionService implements IS32PromotionService
     private ModelService modelService;
     private SessionService sessionService;
     private CatalogVersionService catalogVersionService;
+    private IS32PromotionExpiryService is32PromotionExpiryService;
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
+    private TimeService timeService;
 
     @Override
     public IS32PromotionModel getPromotionByUid(final String uid)
@@ -61,6 +72,28 @@ public class DefaultIS32PromotionService implements IS32PromotionService
         return is32PromotionDao.findByPromotionTagCode(tagCode);
     }
 
+    @Override
+    public List<IS32PromotionModel> getActivePromotionsByTagCode(final String tagCode,
+                                                                 final IS32PromotionDisplayType displayType)
+    {
+        final List<IS32PromotionSnapshotEntry> entries = is32PromotionSnapshotService.getActiveEntriesByTag(
+                tagCode, displayType != null ? displayType.getCode() : null, timeService.getCurrentTime());
+
+        final List<IS32PromotionModel> promotions = new ArrayList<>(entries.size());
+        for (final IS32PromotionSnapshotEntry entry : entries)
+        {
+            try
+            {
+                promotions.add(modelService.<IS32PromotionModel>get(entry.getPromotionPk()));
+            }
+            catch (final ModelLoadingException e)
+            {
+                LOG.debug("Skipping promotion [" + entry.getUid() + "] removed since the snapshot was built");
+            }
+        }
+        return promotions;
+    }
+
     @Override
     public List<IS32PromotionModel> getExpiredPromotions(final int maxResults)
     {
@@ -79,6 +112,12 @@ public class DefaultIS32PromotionService implements IS32PromotionService
         return is32PromotionDao.findPromotionsForCatalogVersion(catalogVersion, new Date());
     }
 
+    @Override
+    public IS32PromotionSearchResult searchPromotions(final IS32PromotionSearchCriteria criteria)
+    {
+        return is32PromotionDao.search(criteria);
+    }
+
     @Override
     public void updatePromotionStatus(final IS32PromotionModel promotion, final IS32PromotionStatus newStatus)
     {
@@ -110,20 +149,7 @@ public class DefaultIS32PromotionService implements IS32PromotionService
     @Override
     public void markExpiredPromotions()
     {
-        final List<IS32PromotionModel> expiredPromotions = is32PromotionDao.findExpiredPromotions(new Date(), Integer.MAX_VALUE);
-
-        int count = 0;
-        for (final IS32PromotionModel promotion : expiredPromotions)
-        {
-            if (!IS32PromotionStatus.EXPIRED.equals(promotion.getStatus()))
-            {
-                promotion.setStatus(IS32PromotionStatus.EXPIRED);
-                modelService.save(promotion);
-                count++;
-            }
-        }
-
-        LOG.info("Marked [" + count + "] promotions as expired");
+        is32PromotionExpiryService.expirePromotions(new Date());
     }
 
     @Required
@@ -155,4 +181,22 @@ public class DefaultIS32PromotionService implements IS32PromotionService
     {
         this.catalogVersionService = catalogVersionService;
     }
+
+    @Required
+    public void setIs32PromotionExpiryService(final IS32PromotionExpiryService is32PromotionExpiryService)
+    {
+        this.is32PromotionExpiryService = is32PromotionExpiryService;
+    }
+
+    @Required
+    public void setIs32PromotionSnapshotService(final IS32PromotionSnapshotService is32PromotionSnapshotService)
+    {
+        this.is32PromotionSnapshotService = is32PromotionSnapshotService;
+    }
+
+    @Required
+    public void setTimeService(final TimeService timeService)
+    {
+        this.timeService = timeService;
+    }
 }
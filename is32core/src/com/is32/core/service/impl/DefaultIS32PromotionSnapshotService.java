@@ -0,0 +1,295 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.cache.IS32CacheRegion;
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32PromotionActivityDao;
+import com.is32.core.dao.IS32PromotionDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.enums.IS32RewardType;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.model.IS32PromotionTagModel;
+import com.is32.core.model.IS32RewardModel;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32ActivityBitmap;
+import com.is32.core.snapshot.IS32PromotionSnapshot;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
+import de.hybris.platform.core.PK;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the node-local {@link IS32PromotionSnapshot}. The snapshot is built lazily from all
+ * ACTIVE promotions with their rewards and tags, and dropped whenever an IS32Promotion,
+ * IS32Reward or IS32PromotionTag is saved or removed anywhere in the cluster. A rebuild that races
+ * with an invalidation is served to its caller but not published, so a stale snapshot is never
+ * retained.
+ *
+ * The active IS32PromotionActivity windows are compiled into one {@link IS32ActivityBitmap} per
+ * promotion, in the server time zone. The compiled bitmaps are kept across snapshot rebuilds and
+ * only recompiled when an activity is saved or removed. Promotions without an active activity are
+ * not restricted to any window.
+ */
+public class DefaultIS32PromotionSnapshotService implements IS32PromotionSnapshotService, IS32CacheRegion
+{
+    private static final Logger LOG = Logger.getLogger(DefaultIS32PromotionSnapshotService.class);
+
+    private final Object buildLock = new Object();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong activityGeneration = new AtomicLong();
+
+    private volatile IS32PromotionSnapshot snapshot;
+    private volatile Map<String, IS32ActivityBitmap> activityBitmaps;
+
+    private IS32PromotionDao is32PromotionDao;
+    private IS32PromotionActivityDao is32PromotionActivityDao;
+
+    @Override
+    public IS32PromotionSnapshot getSnapshot()
+    {
+        final IS32PromotionSnapshot current = snapshot;
+        if (current != null)
+        {
+            return current;
+        }
+
+        synchronized (buildLock)
+        {
+            if (snapshot != null)
+            {
+                return snapshot;
+            }
+
+            final long buildGeneration = generation.get();
+            final IS32PromotionSnapshot built = buildSnapshot();
+            if (generation.get() == buildGeneration)
+            {
+                snapshot = built;
+            }
+            return built;
+        }
+    }
+
+    @Override
+    public List<IS32PromotionSnapshotEntry> getActiveEntries(final Date currentDate)
+    {
+        return getSnapshot().getActiveEntries(currentDate.getTime());
+    }
+
+    @Override
+    public List<IS32PromotionSnapshotEntry> getActiveEntriesByPriority(final Date currentDate)
+    {
+        return getSnapshot().getActiveEntriesByPriority(currentDate.getTime());
+    }
+
+    @Override
+    public List<IS32PromotionSnapshotEntry> getLiveEntriesByPriority(final Date currentDate)
+    {
+        return getSnapshot().getLiveEntriesByPriority(currentDate.getTime());
+    }
+
+    @Override
+    public List<IS32PromotionSnapshotEntry> getActiveEntriesByTag(final String tagCode, final String displayTypeCode,
+                                                                  final Date currentDate)
+    {
+        return getSnapshot().getActiveEntriesByTag(tagCode, displayTypeCode, currentDate.getTime());
+    }
+
+    @Override
+    public void invalidate()
+    {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    @Override
+    public String getRegionName()
+    {
+        return IS32CoreConstants.CacheRegion.PROMOTION_SNAPSHOT;
+    }
+
+    @Override
+    public boolean isInvalidatedBy(final int typeCode)
+    {
+        return typeCode == IS32CoreConstants.TypeCode.IS32_PROMOTION
+                || typeCode == IS32CoreConstants.TypeCode.IS32_REWARD
+                || typeCode == IS32CoreConstants.TypeCode.IS32_PROMOTION_ACTIVITY
+                || typeCode == IS32CoreConstants.TypeCode.IS32_PROMOTION_TAG;
+    }
+
+    @Override
+    public void invalidate(final Collection<String> keys)
+    {
+        for (final String key : keys)
+        {
+            if (PK.parse(key).getTypeCode() == IS32CoreConstants.TypeCode.IS32_PROMOTION_ACTIVITY)
+            {
+                invalidateActivityBitmaps();
+                break;
+            }
+        }
+        invalidate();
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        invalidateActivityBitmaps();
+        invalidate();
+    }
+
+    protected void invalidateActivityBitmaps()
+    {
+        activityGeneration.incrementAndGet();
+        activityBitmaps = null;
+    }
+
+    protected IS32PromotionSnapshot buildSnapshot()
+    {
+        final long start = System.currentTimeMillis();
+        final List<IS32PromotionModel> promotions = is32PromotionDao.findByStatus(IS32PromotionStatus.ACTIVE);
+        final Map<String, IS32ActivityBitmap> bitmaps = getActivityBitmaps();
+
+        final List<IS32PromotionSnapshotEntry> entries = new ArrayList<>(promotions.size());
+        for (final IS32PromotionModel promotion : promotions)
+        {
+            if (promotion.getStartDate() == null || promotion.getEndDate() == null)
+            {
+                LOG.warn("Skipping ACTIVE promotion [" + promotion.getUid() + "] without a complete date range");
+                continue;
+            }
+            entries.add(createEntry(promotion, bitmaps.get(promotion.getUid())));
+        }
+
+        final IS32PromotionSnapshot built = new IS32PromotionSnapshot(entries, start);
+        LOG.info("Built IS32 promotion snapshot with [" + built.size() + "] promotions in ["
+                + (System.currentTimeMillis() - start) + "] ms");
+        return built;
+    }
+
+    /**
+     * Returns the compiled activity bitmaps, compiling them from the active activity windows first
+     * if an activity changed since they were last compiled.
+     *
+     * @return the bitmap per promotion UID; promotions without active activities are absent
+     */
+    protected Map<String, IS32ActivityBitmap> getActivityBitmaps()
+    {
+        final Map<String, IS32ActivityBitmap> current = activityBitmaps;
+        if (current != null)
+        {
+            return current;
+        }
+
+        final long compileGeneration = activityGeneration.get();
+        final Map<String, IS32ActivityBitmap> compiled = compileActivityBitmaps();
+        if (activityGeneration.get() == compileGeneration)
+        {
+            activityBitmaps = compiled;
+        }
+        return compiled;
+    }
+
+    protected Map<String, IS32ActivityBitmap> compileActivityBitmaps()
+    {
+        final TimeZone timeZone = getTimeZone();
+        final Map<String, IS32ActivityBitmap.Builder> builders = new HashMap<>();
+
+        for (final List<Object> row : is32PromotionActivityDao.findActiveWindows())
+        {
+            final String promotionUid = (String) row.get(0);
+            final Date startTime = (Date) row.get(2);
+            final Date endTime = (Date) row.get(3);
+            if (startTime == null || endTime == null)
+            {
+                continue;
+            }
+
+            try
+            {
+                builders.computeIfAbsent(promotionUid, uid -> IS32ActivityBitmap.builder(timeZone))
+                        .addWindow((Integer) row.get(1), startTime, endTime);
+            }
+            catch (final IllegalArgumentException e)
+            {
+                LOG.warn("Skipping activity window of promotion [" + promotionUid + "]: " + e.getMessage());
+            }
+        }
+
+        final Map<String, IS32ActivityBitmap> bitmaps = new HashMap<>(builders.size() * 2);
+        for (final Map.Entry<String, IS32ActivityBitmap.Builder> entry : builders.entrySet())
+        {
+            bitmaps.put(entry.getKey(), entry.getValue().build());
+        }
+        LOG.info("Compiled activity windows of [" + bitmaps.size() + "] promotions");
+        return bitmaps;
+    }
+
+    /**
+     * @return the time zone the activity windows are defined in
+     */
+    protected TimeZone getTimeZone()
+    {
+        return TimeZone.getDefault();
+    }
+
+    protected IS32PromotionSnapshotEntry createEntry(final IS32PromotionModel promotion,
+                                                     final IS32ActivityBitmap activityBitmap)
+    {
+        final Collection<IS32RewardModel> rewards = promotion.getRewards();
+        final List<String> accountIds = new ArrayList<>();
+        int rewardCount = 0;
+
+        if (rewards != null)
+        {
+            for (final IS32RewardModel reward : rewards)
+            {
+                rewardCount++;
+                if (IS32RewardType.INCREASE_MEMBER_ACCOUNT.equals(reward.getRewardType())
+                        && reward.getIncreaseMemberAccountId() != null)
+                {
+                    accountIds.add(reward.getIncreaseMemberAccountId());
+                }
+            }
+        }
+
+        final IS32PromotionTagModel tag = promotion.getPromotionTag();
+
+        return new IS32PromotionSnapshotEntry(
+                promotion.getPk(),
+                promotion.getUid(),
+                promotion.getPriority() != null ? promotion.getPriority().intValue() : 0,
+                promotion.getStartDate().getTime(),
+                promotion.getEndDate().getTime(),
+                Boolean.TRUE.equals(promotion.getSuspended()),
+                promotion.getMaxRedemptionPerUser() != null
+                        ? promotion.getMaxRedemptionPerUser().intValue()
+                        : IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT,
+                rewardCount,
+                accountIds.toArray(new String[accountIds.size()]),
+                activityBitmap,
+                tag != null ? tag.getCode() : null,
+                tag != null && tag.getElabPromotionDisplayType() != null
+                        ? tag.getElabPromotionDisplayType().getCode() : null);
+    }
+
+    @Required
+    public void setIs32PromotionDao(final IS32PromotionDao is32PromotionDao)
+    {
+        this.is32PromotionDao = is32PromotionDao;
+    }
+
+    @Required
+    public void setIs32PromotionActivityDao(final IS32PromotionActivityDao is32PromotionActivityDao)
+    {
+        this.is32PromotionActivityDao = is32PromotionActivityDao;
+    }
+}
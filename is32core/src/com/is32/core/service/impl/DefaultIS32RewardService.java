@@ -1,22 +1,38 @@
 package com.is32.core.service.impl;
 
+import com.is32.core.cache.IS32CacheRegion;
+import com.is32.core.constants.IS32CoreConstants;
 import com.is32.core.dao.IS32RewardDao;
 import com.is32.core.model.IS32RewardModel;
 import com.is32.core.enums.IS32RewardType;
 import com.is32.core.service.IS32RewardService;
+import com.is32.core.snapshot.IS32RewardRoutingTable;
 import de.hybris.platform.servicelayer.model.ModelService;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class DefaultIS32RewardService implements IS32RewardService
+/**
+ * Besides the reward lookups, holds the {@link IS32RewardRoutingTable} of INCREASE_MEMBER_ACCOUNT
+ * rewards as a cache region: the table is built on first use and dropped on every node when a
+ * reward is saved or removed anywhere in the cluster. A build that races with an invalidation is
+ * used by its caller but not kept.
+ */
+public class DefaultIS32RewardService implements IS32RewardService, IS32CacheRegion
 {
     private static final Logger LOG = Logger.getLogger(DefaultIS32RewardService.class);
 
+    private final Object buildLock = new Object();
+    private final AtomicLong generation = new AtomicLong();
+
     private IS32RewardDao is32RewardDao;
     private ModelService modelService;
 
+    private volatile IS32RewardRoutingTable routingTable;
+
     @Override
     public List<IS32RewardModel> getRewardsForPromotion(final String promotionUid)
     {
@@ -59,6 +75,82 @@ public class DefaultIS32RewardService implements IS32RewardService
         modelService.remove(reward);
     }
 
+    @Override
+    public IS32RewardRoutingTable.Route getMemberAccountRoute(final String promotionUid)
+    {
+        return getRoutingTable().getRoute(promotionUid);
+    }
+
+    protected IS32RewardRoutingTable getRoutingTable()
+    {
+        final IS32RewardRoutingTable current = routingTable;
+        if (current != null)
+        {
+            return current;
+        }
+
+        synchronized (buildLock)
+        {
+            final IS32RewardRoutingTable held = routingTable;
+            if (held != null)
+            {
+                return held;
+            }
+
+            final long buildGeneration = generation.get();
+            final IS32RewardRoutingTable built = buildRoutingTable();
+            if (generation.get() == buildGeneration)
+            {
+                routingTable = built;
+            }
+            return built;
+        }
+    }
+
+    protected IS32RewardRoutingTable buildRoutingTable()
+    {
+        final long start = System.currentTimeMillis();
+        final IS32RewardRoutingTable.Builder builder = IS32RewardRoutingTable.builder().buildTime(start);
+        for (final IS32RewardModel reward : is32RewardDao.findByRewardType(IS32RewardType.INCREASE_MEMBER_ACCOUNT))
+        {
+            if (reward.getPromotionUid() != null && reward.getIncreaseMemberAccountId() != null)
+            {
+                builder.add(reward.getPromotionUid(), reward.getIncreaseMemberAccountId(),
+                        reward.getRewardValue() != null ? reward.getRewardValue().intValue() : 1);
+            }
+        }
+
+        final IS32RewardRoutingTable table = builder.build();
+        LOG.info("Built IS32 reward routing table with [" + table.size() + "] promotions in ["
+                + (System.currentTimeMillis() - start) + "] ms");
+        return table;
+    }
+
+    @Override
+    public String getRegionName()
+    {
+        return IS32CoreConstants.CacheRegion.REWARD_ROUTING;
+    }
+
+    @Override
+    public boolean isInvalidatedBy(final int typeCode)
+    {
+        return typeCode == IS32CoreConstants.TypeCode.IS32_REWARD;
+    }
+
+    @Override
+    public void invalidate(final Collection<String> keys)
+    {
+        invalidateAll();
+    }
+
+    @Override
+    public void invalidateAll()
+    {
+        generation.incrementAndGet();
+        routingTable = null;
+    }
+
     @Required
     public void setIs32RewardDao(final IS32RewardDao is32RewardDao)
     {
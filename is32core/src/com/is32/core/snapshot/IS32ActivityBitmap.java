@@ -0,0 +1,146 @@
+package com.is32.core.snapshot;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Compiled form of the IS32PromotionActivity windows of one promotion: one bit per minute of the
+ * week, set when at least one active window covers that minute. Testing whether the promotion is
+ * inside its activity windows at an instant is a single bit test, the instant being converted to
+ * the minute of the week in the time zone the windows were compiled in.
+ *
+ * The week starts on Sunday 00:00. Activity windows follow {@link Calendar}: dayOfWeek is
+ * {@link Calendar#SUNDAY} (1) to {@link Calendar#SATURDAY} (7), or null for every day, and only the
+ * time of day of startTime and endTime is used. A window whose end is not after its start runs past
+ * midnight into the next day, so 22:00 - 02:00 on Saturday also covers the first two hours of Sunday.
+ */
+public final class IS32ActivityBitmap
+{
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+    private static final long MILLIS_PER_DAY = MINUTES_PER_DAY * MILLIS_PER_MINUTE;
+    /** 1 January 1970 was a Thursday, the fifth day of a week starting on Sunday. */
+    private static final int EPOCH_DAY_OF_WEEK = 4;
+
+    private final long[] words;
+    private final TimeZone timeZone;
+
+    private IS32ActivityBitmap(final long[] words, final TimeZone timeZone)
+    {
+        this.words = words;
+        this.timeZone = timeZone;
+    }
+
+    public static Builder builder(final TimeZone timeZone)
+    {
+        return new Builder(timeZone);
+    }
+
+    /**
+     * @param time the instant in epoch milliseconds
+     * @return true if an activity window covers the minute of the week the instant falls in
+     */
+    public boolean isActiveAt(final long time)
+    {
+        final int minute = minuteOfWeek(time);
+        return (words[minute >>> 6] & (1L << minute)) != 0;
+    }
+
+    /**
+     * @return true if no window covers any minute, i.e. the promotion is never inside its activity windows
+     */
+    public boolean isEmpty()
+    {
+        for (final long word : words)
+        {
+            if (word != 0L)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    int minuteOfWeek(final long time)
+    {
+        final long localTime = time + timeZone.getOffset(time);
+        final long day = Math.floorDiv(localTime, MILLIS_PER_DAY);
+        final int minuteOfDay = (int) (Math.floorMod(localTime, MILLIS_PER_DAY) / MILLIS_PER_MINUTE);
+        return (int) Math.floorMod(day + EPOCH_DAY_OF_WEEK, 7L) * MINUTES_PER_DAY + minuteOfDay;
+    }
+
+    public static final class Builder
+    {
+        private final long[] words = new long[(MINUTES_PER_WEEK + 63) >>> 6];
+        private final TimeZone timeZone;
+
+        private Builder(final TimeZone timeZone)
+        {
+            this.timeZone = (TimeZone) timeZone.clone();
+        }
+
+        /**
+         * Adds one activity window.
+         *
+         * @param dayOfWeek the {@link Calendar} day of the week the window starts on, or null for every day
+         * @param startTime the start of the window; only the time of day is used
+         * @param endTime   the end of the window, exclusive; only the time of day is used
+         * @return this builder
+         */
+        public Builder addWindow(final Integer dayOfWeek, final Date startTime, final Date endTime)
+        {
+            final int startMinute = minuteOfDay(startTime);
+            int endMinute = minuteOfDay(endTime);
+            if (endMinute <= startMinute)
+            {
+                endMinute += MINUTES_PER_DAY;
+            }
+
+            if (dayOfWeek == null)
+            {
+                for (int day = 0; day < 7; day++)
+                {
+                    setRange(day * MINUTES_PER_DAY + startMinute, day * MINUTES_PER_DAY + endMinute);
+                }
+            }
+            else
+            {
+                if (dayOfWeek.intValue() < Calendar.SUNDAY || dayOfWeek.intValue() > Calendar.SATURDAY)
+                {
+                    throw new IllegalArgumentException("dayOfWeek must be between " + Calendar.SUNDAY + " and "
+                            + Calendar.SATURDAY + ", was [" + dayOfWeek + "]");
+                }
+                final int dayStart = (dayOfWeek.intValue() - Calendar.SUNDAY) * MINUTES_PER_DAY;
+                setRange(dayStart + startMinute, dayStart + endMinute);
+            }
+            return this;
+        }
+
+        public IS32ActivityBitmap build()
+        {
+            return new IS32ActivityBitmap(words.clone(), timeZone);
+        }
+
+        private int minuteOfDay(final Date time)
+        {
+            final Calendar calendar = Calendar.getInstance(timeZone);
+            calendar.setTime(time);
+            return calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
+        }
+
+        /**
+         * Sets the minutes [from, to) of the week, wrapping from Saturday into Sunday.
+         */
+        private void setRange(final int from, final int to)
+        {
+            for (int minute = from; minute < to; minute++)
+            {
+                final int bit = minute % MINUTES_PER_WEEK;
+                words[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.is32.core.snapshot;
+
+import de.hybris.platform.core.PK;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory table of all EStampTiers, with a unique index on accountId and a multi-valued index on
+ * siebelAcctId. Rows are ordered by accountId, tiers without one first, so scans return tiers in
+ * the order the tier level query sorts them. Tiers without an accountId or siebelAcctId are not
+ * indexed under it, as the database lookups cannot find them either. Lookups return tier PKs.
+ * <p>
+ * The numeric fields (threshold, tierLevel, currentStampCount and maxStampCount) are kept in one
+ * int column store, either on the heap or, for large tables, in a direct buffer outside of it;
+ * null is stored as {@link Integer#MIN_VALUE}. They can be updated in place when a tier changes,
+ * guarded by a read-write lock. A change of a tier's accountId or siebelAcctId, or a new or
+ * removed tier, requires a new table.
+ */
+public final class IS32EStampTierTable
+{
+    private static final int THRESHOLD = 0;
+    private static final int TIER_LEVEL = 1;
+    private static final int CURRENT_STAMP_COUNT = 2;
+    private static final int MAX_STAMP_COUNT = 3;
+    private static final int COLUMNS = 4;
+    private static final int NULL = Integer.MIN_VALUE;
+
+    private final PK[] pks;
+    private final String[] accountIds;
+    private final String[] siebelAcctIds;
+    private final Map<PK, Integer> rowsByPk;
+    private final Map<String, Integer> rowsByAccountId;
+    private final Map<String, int[]> rowsBySiebelAcctId;
+    private final ColumnStore numbers;
+    private final long buildTime;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private IS32EStampTierTable(final List<Row> rows, final boolean offHeap, final long buildTime)
+    {
+        final int size = rows.size();
+        this.pks = new PK[size];
+        this.accountIds = new String[size];
+        this.siebelAcctIds = new String[size];
+        this.rowsByPk = new HashMap<>(size * 2);
+        this.rowsByAccountId = new HashMap<>(size * 2);
+        this.numbers = offHeap ? new DirectColumnStore(size * COLUMNS) : new HeapColumnStore(size * COLUMNS);
+        this.buildTime = buildTime;
+
+        final Map<String, List<Integer>> siebelRows = new HashMap<>();
+        for (int row = 0; row < size; row++)
+        {
+            final Row source = rows.get(row);
+            pks[row] = source.pk;
+            accountIds[row] = source.accountId;
+            siebelAcctIds[row] = source.siebelAcctId;
+            rowsByPk.put(source.pk, Integer.valueOf(row));
+            if (source.accountId != null)
+            {
+                rowsByAccountId.put(source.accountId, Integer.valueOf(row));
+            }
+            if (source.siebelAcctId != null)
+            {
+                siebelRows.computeIfAbsent(source.siebelAcctId, id -> new ArrayList<>()).add(Integer.valueOf(row));
+            }
+            setNumbers(row, source.threshold, source.tierLevel, source.currentStampCount, source.maxStampCount);
+        }
+
+        this.rowsBySiebelAcctId = new HashMap<>(siebelRows.size() * 2);
+        for (final Map.Entry<String, List<Integer>> entry : siebelRows.entrySet())
+        {
+            rowsBySiebelAcctId.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @return the PK of the tier of the account, or null if there is none
+     */
+    public PK findByAccountId(final String accountId)
+    {
+        final Integer row = rowsByAccountId.get(accountId);
+        return row != null ? pks[row.intValue()] : null;
+    }
+
+    /**
+     * @return the PKs of the tiers of the Siebel account, ordered by accountId
+     */
+    public List<PK> findBySiebelAcctId(final String siebelAcctId)
+    {
+        final int[] rows = rowsBySiebelAcctId.get(siebelAcctId);
+        if (rows == null)
+        {
+            return Collections.emptyList();
+        }
+
+        final List<PK> result = new ArrayList<>(rows.length);
+        for (final int row : rows)
+        {
+            result.add(pks[row]);
+        }
+        return result;
+    }
+
+    /**
+     * @return the PKs of the tiers of the level, ordered by accountId
+     */
+    public List<PK> findByTierLevel(final int tierLevel)
+    {
+        final List<PK> result = new ArrayList<>();
+        lock.readLock().lock();
+        try
+        {
+            for (int row = 0; row < pks.length; row++)
+            {
+                if (numbers.get(row * COLUMNS + TIER_LEVEL) == tierLevel && tierLevel != NULL)
+                {
+                    result.add(pks[row]);
+                }
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Finds the tiers whose currentStampCount is below their maxStampCount; tiers where either is
+     * null are not active.
+     *
+     * @return the PKs of the active tiers, ordered by tierLevel, tiers without a level last
+     */
+    public List<PK> findActive()
+    {
+        final List<int[]> active = new ArrayList<>();
+        lock.readLock().lock();
+        try
+        {
+            for (int row = 0; row < pks.length; row++)
+            {
+                final int current = numbers.get(row * COLUMNS + CURRENT_STAMP_COUNT);
+                final int max = numbers.get(row * COLUMNS + MAX_STAMP_COUNT);
+                if (current != NULL && max != NULL && current < max)
+                {
+                    final int tierLevel = numbers.get(row * COLUMNS + TIER_LEVEL);
+                    active.add(new int[] {tierLevel == NULL ? Integer.MAX_VALUE : tierLevel, row});
+                }
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+        active.sort(Comparator.<int[]>comparingInt(entry -> entry[0]).thenComparingInt(entry -> entry[1]));
+        final List<PK> result = new ArrayList<>(active.size());
+        for (final int[] entry : active)
+        {
+            result.add(pks[entry[1]]);
+        }
+        return result;
+    }
+
+    /**
+     * Updates the numeric fields of a tier in place.
+     *
+     * @return false if the table does not hold the tier under these ids, in which case it must be rebuilt
+     */
+    public boolean update(final PK pk, final String accountId, final String siebelAcctId, final Integer threshold,
+                          final Integer tierLevel, final Integer currentStampCount, final Integer maxStampCount)
+    {
+        final Integer row = rowsByPk.get(pk);
+        if (row == null || !Objects.equals(accountIds[row.intValue()], accountId)
+                || !Objects.equals(siebelAcctIds[row.intValue()], siebelAcctId))
+        {
+            return false;
+        }
+
+        lock.writeLock().lock();
+        try
+        {
+            setNumbers(row.intValue(), threshold, tierLevel, currentStampCount, maxStampCount);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    public boolean contains(final PK pk)
+    {
+        return rowsByPk.containsKey(pk);
+    }
+
+    public int size()
+    {
+        return pks.length;
+    }
+
+    /**
+     * @return true if the numeric fields are held outside of the heap
+     */
+    public boolean isOffHeap()
+    {
+        return numbers instanceof DirectColumnStore;
+    }
+
+    /**
+     * @return the time in epoch milliseconds the tiers of this table were read
+     */
+    public long getBuildTime()
+    {
+        return buildTime;
+    }
+
+    private void setNumbers(final int row, final Integer threshold, final Integer tierLevel,
+                            final Integer currentStampCount, final Integer maxStampCount)
+    {
+        numbers.set(row * COLUMNS + THRESHOLD, encode(threshold));
+        numbers.set(row * COLUMNS + TIER_LEVEL, encode(tierLevel));
+        numbers.set(row * COLUMNS + CURRENT_STAMP_COUNT, encode(currentStampCount));
+        numbers.set(row * COLUMNS + MAX_STAMP_COUNT, encode(maxStampCount));
+    }
+
+    private static int encode(final Integer value)
+    {
+        return value != null ? value.intValue() : NULL;
+    }
+
+    private interface ColumnStore
+    {
+        int get(int index);
+
+        void set(int index, int value);
+    }
+
+    private static final class HeapColumnStore implements ColumnStore
+    {
+        private final int[] values;
+
+        private HeapColumnStore(final int size)
+        {
+            values = new int[size];
+        }
+
+        @Override
+        public int get(final int index)
+        {
+            return values[index];
+        }
+
+        @Override
+        public void set(final int index, final int value)
+        {
+            values[index] = value;
+        }
+    }
+
+    private static final class DirectColumnStore implements ColumnStore
+    {
+        private final ByteBuffer values;
+
+        private DirectColumnStore(final int size)
+        {
+            values = ByteBuffer.allocateDirect(Math.max(1, size) * Integer.BYTES);
+        }
+
+        @Override
+        public int get(final int index)
+        {
+            return values.getInt(index * Integer.BYTES);
+        }
+
+        @Override
+        public void set(final int index, final int value)
+        {
+            values.putInt(index * Integer.BYTES, value);
+        }
+    }
+
+    private static final class Row
+    {
+        private final PK pk;
+        private final String accountId;
+        private final String siebelAcctId;
+        private final Integer threshold;
+        private final Integer tierLevel;
+        private final Integer currentStampCount;
+        private final Integer maxStampCount;
+
+        private Row(final PK pk, final String accountId, final String siebelAcctId, final Integer threshold,
+                    final Integer tierLevel, final Integer currentStampCount, final Integer maxStampCount)
+        {
+            this.pk = pk;
+            this.accountId = accountId;
+            this.siebelAcctId = siebelAcctId;
+            this.threshold = threshold;
+            this.tierLevel = tierLevel;
+            this.currentStampCount = currentStampCount;
+            this.maxStampCount = maxStampCount;
+        }
+    }
+
+    public static final class Builder
+    {
+        private final List<Row> rows = new ArrayList<>();
+        private boolean offHeap;
+        private long buildTime = System.currentTimeMillis();
+
+        private Builder()
+        {
+        }
+
+        /**
+         * @param offHeap true to keep the numeric fields in a direct buffer
+         * @return this builder
+         */
+        public Builder offHeap(final boolean offHeap)
+        {
+            this.offHeap = offHeap;
+            return this;
+        }
+
+        /**
+         * @param buildTime the time in epoch milliseconds the tiers were read
+         * @return this builder
+         */
+        public Builder buildTime(final long buildTime)
+        {
+            this.buildTime = buildTime;
+            return this;
+        }
+
+        public Builder add(final PK pk, final String accountId, final String siebelAcctId, final Integer threshold,
+                           final Integer tierLevel, final Integer currentStampCount, final Integer maxStampCount)
+        {
+            rows.add(new Row(pk, accountId, siebelAcctId, threshold, tierLevel, currentStampCount, maxStampCount));
+            return this;
+        }
+
+        public IS32EStampTierTable build()
+        {
+            final Row[] sorted = rows.toArray(new Row[0]);
+            Arrays.sort(sorted, Comparator.comparing(row -> row.accountId,
+                    Comparator.nullsFirst(Comparator.<String>naturalOrder())));
+            return new IS32EStampTierTable(Arrays.asList(sorted), offHeap, buildTime);
+        }
+    }
+}
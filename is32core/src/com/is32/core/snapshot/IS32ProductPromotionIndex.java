@@ -0,0 +1,179 @@
+package com.is32.core.snapshot;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from product code to the promotions whose buckets include the product, for one
+ * catalog version. Promotions are numbered by UID on first sight and each product maps to a
+ * {@link BitSet} of those numbers, so a product or cart lookup is a hash lookup and a bitwise OR
+ * per product. Exclusions are applied when a promotion is indexed: a product excluded by a
+ * promotion never carries that promotion's bit.
+ *
+ * The index is patched one promotion at a time when its buckets change; re-indexing a known
+ * promotion first clears its bit from every product. Lookups and patches are guarded by a
+ * read-write lock, so lookups run concurrently and only wait for a patch in progress.
+ */
+public final class IS32ProductPromotionIndex
+{
+    private final long buildTime;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ordinalsByUid = new HashMap<>();
+    private final List<String> uidsByOrdinal = new ArrayList<>();
+    private final Map<String, BitSet> promotionsByProduct = new HashMap<>();
+
+    /**
+     * @param buildTime the time in epoch milliseconds the index data was read
+     */
+    public IS32ProductPromotionIndex(final long buildTime)
+    {
+        this.buildTime = buildTime;
+    }
+
+    /**
+     * Indexes a promotion, replacing whatever was indexed for it before.
+     *
+     * @param promotionUid  the promotion UID
+     * @param includedCodes the codes of the products included by the promotion's buckets
+     * @param excludedCodes the codes of the products excluded by the promotion; they win over inclusions
+     */
+    public void putPromotion(final String promotionUid, final Collection<String> includedCodes,
+                             final Collection<String> excludedCodes)
+    {
+        final Set<String> excluded = excludedCodes.isEmpty()
+                ? Collections.emptySet() : new HashSet<>(excludedCodes);
+
+        lock.writeLock().lock();
+        try
+        {
+            Integer ordinal = ordinalsByUid.get(promotionUid);
+            if (ordinal == null)
+            {
+                ordinal = Integer.valueOf(uidsByOrdinal.size());
+                ordinalsByUid.put(promotionUid, ordinal);
+                uidsByOrdinal.add(promotionUid);
+            }
+            else
+            {
+                clearOrdinal(ordinal.intValue());
+            }
+
+            for (final String code : includedCodes)
+            {
+                if (!excluded.contains(code))
+                {
+                    promotionsByProduct.computeIfAbsent(code, k -> new BitSet()).set(ordinal.intValue());
+                }
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a promotion from every product. Its number stays reserved for the UID.
+     */
+    public void removePromotion(final String promotionUid)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            final Integer ordinal = ordinalsByUid.get(promotionUid);
+            if (ordinal != null)
+            {
+                clearOrdinal(ordinal.intValue());
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the UIDs of the promotions that apply to the product, in no particular order
+     */
+    public List<String> getPromotionUids(final String productCode)
+    {
+        return getPromotionUids(Collections.singleton(productCode));
+    }
+
+    /**
+     * @return the UIDs of the promotions that apply to at least one of the products, each UID once
+     */
+    public List<String> getPromotionUids(final Collection<String> productCodes)
+    {
+        lock.readLock().lock();
+        try
+        {
+            final BitSet promotions = new BitSet(uidsByOrdinal.size());
+            for (final String code : productCodes)
+            {
+                final BitSet bits = promotionsByProduct.get(code);
+                if (bits != null)
+                {
+                    promotions.or(bits);
+                }
+            }
+
+            final List<String> uids = new ArrayList<>(promotions.cardinality());
+            for (int ordinal = promotions.nextSetBit(0); ordinal >= 0; ordinal = promotions.nextSetBit(ordinal + 1))
+            {
+                uids.add(uidsByOrdinal.get(ordinal));
+            }
+            return uids;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of products that carry at least one promotion
+     */
+    public int getProductCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return promotionsByProduct.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getBuildTime()
+    {
+        return buildTime;
+    }
+
+    private void clearOrdinal(final int ordinal)
+    {
+        final Iterator<BitSet> iterator = promotionsByProduct.values().iterator();
+        while (iterator.hasNext())
+        {
+            final BitSet bits = iterator.next();
+            bits.clear(ordinal);
+            if (bits.isEmpty())
+            {
+                iterator.remove();
+            }
+        }
+    }
+}
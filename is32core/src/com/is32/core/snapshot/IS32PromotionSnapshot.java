@@ -0,0 +1,259 @@
+package com.is32.core.snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable, node-local snapshot of all ACTIVE IS32 promotions. Entries are indexed by start
+ * date, and every start and end date is kept as a sorted boundary. The set of live promotions can
+ * only change at a boundary, so the result of {@link #getActiveEntries(long)} is memoised for the
+ * interval between the two boundaries surrounding the requested instant; repeated lookups within
+ * that interval are a pair of comparisons. Each memoised view is kept both in start date order and
+ * in descending priority order, the latter for evaluations that stop at the best K promotions.
+ * Activity windows change every minute rather than at a boundary, so they are not part of the
+ * memoised view; {@link #getLiveEntriesByPriority(long)} applies them on top of it. The view also
+ * groups the live promotions by tag code for tag landing pages.
+ */
+public final class IS32PromotionSnapshot
+{
+    /**
+     * Descending priority; ties are broken by the earlier start date and then by UID so that the
+     * order is stable across snapshot rebuilds.
+     */
+    public static final Comparator<IS32PromotionSnapshotEntry> PRIORITY_ORDER =
+            Comparator.comparingInt(IS32PromotionSnapshotEntry::getPriority).reversed()
+                    .thenComparingLong(IS32PromotionSnapshotEntry::getStartTime)
+                    .thenComparing(IS32PromotionSnapshotEntry::getUid);
+
+    private final List<IS32PromotionSnapshotEntry> entries;
+    private final long[] startTimes;
+    private final long[] boundaries;
+    private final Map<String, IS32PromotionSnapshotEntry> entriesByUid;
+    private final long buildTime;
+
+    private volatile ActiveView activeView;
+
+    public IS32PromotionSnapshot(final Collection<IS32PromotionSnapshotEntry> snapshotEntries, final long buildTime)
+    {
+        final List<IS32PromotionSnapshotEntry> sorted = new ArrayList<>(snapshotEntries);
+        sorted.sort(Comparator.comparingLong(IS32PromotionSnapshotEntry::getStartTime));
+
+        this.entries = Collections.unmodifiableList(sorted);
+        this.startTimes = new long[sorted.size()];
+        this.entriesByUid = new HashMap<>(sorted.size() * 2);
+
+        final TreeSet<Long> boundarySet = new TreeSet<>();
+        for (int i = 0; i < sorted.size(); i++)
+        {
+            final IS32PromotionSnapshotEntry entry = sorted.get(i);
+            startTimes[i] = entry.getStartTime();
+            entriesByUid.put(entry.getUid(), entry);
+            boundarySet.add(Long.valueOf(entry.getStartTime()));
+            boundarySet.add(Long.valueOf(entry.getEndTime()));
+        }
+
+        this.boundaries = new long[boundarySet.size()];
+        int i = 0;
+        for (final Long boundary : boundarySet)
+        {
+            boundaries[i++] = boundary.longValue();
+        }
+        this.buildTime = buildTime;
+    }
+
+    /**
+     * Returns the non-suspended promotions whose date window contains the given instant, ordered
+     * by start date.
+     *
+     * @param time the instant in epoch milliseconds
+     * @return an unmodifiable list of live entries
+     */
+    public List<IS32PromotionSnapshotEntry> getActiveEntries(final long time)
+    {
+        return getActiveView(time).entries;
+    }
+
+    /**
+     * Returns the same entries as {@link #getActiveEntries(long)} ordered by {@link #PRIORITY_ORDER}.
+     *
+     * @param time the instant in epoch milliseconds
+     * @return an unmodifiable list of live entries, highest priority first
+     */
+    public List<IS32PromotionSnapshotEntry> getActiveEntriesByPriority(final long time)
+    {
+        return getActiveView(time).entriesByPriority;
+    }
+
+    /**
+     * Returns the entries of {@link #getActiveEntriesByPriority(long)} that are also inside one of their
+     * activity windows at the given instant. When no active promotion has activity windows this is
+     * the memoised view itself.
+     *
+     * @param time the instant in epoch milliseconds
+     * @return an unmodifiable list of live entries, highest priority first
+     */
+    public List<IS32PromotionSnapshotEntry> getLiveEntriesByPriority(final long time)
+    {
+        final ActiveView view = getActiveView(time);
+        return view.windowed ? inActivityWindowAt(view.entriesByPriority, time) : view.entriesByPriority;
+    }
+
+    /**
+     * Returns the entries of {@link #getLiveEntriesByPriority(long)} carrying the given tag,
+     * optionally restricted to the tag's display type.
+     *
+     * @param tagCode         the tag code
+     * @param displayTypeCode the display type code of the tag, or null for any
+     * @param time            the instant in epoch milliseconds
+     * @return an unmodifiable list of live entries of the tag, highest priority first
+     */
+    public List<IS32PromotionSnapshotEntry> getActiveEntriesByTag(final String tagCode, final String displayTypeCode,
+                                                                  final long time)
+    {
+        final ActiveView view = getActiveView(time);
+        final List<IS32PromotionSnapshotEntry> tagEntries = view.entriesByTag.get(tagCode);
+        if (tagEntries == null
+                || displayTypeCode != null && !displayTypeCode.equals(tagEntries.get(0).getDisplayTypeCode()))
+        {
+            return Collections.emptyList();
+        }
+        return view.windowed ? inActivityWindowAt(tagEntries, time) : tagEntries;
+    }
+
+    public IS32PromotionSnapshotEntry getEntry(final String uid)
+    {
+        return entriesByUid.get(uid);
+    }
+
+    /**
+     * @return every ACTIVE-status promotion in the snapshot regardless of its date window
+     */
+    public List<IS32PromotionSnapshotEntry> getEntries()
+    {
+        return entries;
+    }
+
+    public int size()
+    {
+        return entries.size();
+    }
+
+    public long getBuildTime()
+    {
+        return buildTime;
+    }
+
+    private static List<IS32PromotionSnapshotEntry> inActivityWindowAt(final List<IS32PromotionSnapshotEntry> candidates,
+                                                                       final long time)
+    {
+        final List<IS32PromotionSnapshotEntry> live = new ArrayList<>(candidates.size());
+        for (final IS32PromotionSnapshotEntry entry : candidates)
+        {
+            if (entry.isInActivityWindowAt(time))
+            {
+                live.add(entry);
+            }
+        }
+        return Collections.unmodifiableList(live);
+    }
+
+    private ActiveView getActiveView(final long time)
+    {
+        ActiveView view = activeView;
+        if (view == null || !view.covers(time))
+        {
+            view = computeActiveView(time);
+            activeView = view;
+        }
+        return view;
+    }
+
+    private ActiveView computeActiveView(final long time)
+    {
+        final int startedCount = upperBound(startTimes, time);
+        final List<IS32PromotionSnapshotEntry> active = new ArrayList<>();
+        boolean windowed = false;
+        for (int i = 0; i < startedCount; i++)
+        {
+            final IS32PromotionSnapshotEntry entry = entries.get(i);
+            if (entry.isActiveAt(time))
+            {
+                active.add(entry);
+                windowed |= entry.hasActivityWindows();
+            }
+        }
+
+        final int passedBoundaries = upperBound(boundaries, time);
+        final long validFrom = passedBoundaries > 0 ? boundaries[passedBoundaries - 1] : Long.MIN_VALUE;
+        final long validUntil = passedBoundaries < boundaries.length ? boundaries[passedBoundaries] : Long.MAX_VALUE;
+
+        final List<IS32PromotionSnapshotEntry> byPriority = new ArrayList<>(active);
+        byPriority.sort(PRIORITY_ORDER);
+
+        final Map<String, List<IS32PromotionSnapshotEntry>> byTag = new HashMap<>();
+        for (final IS32PromotionSnapshotEntry entry : byPriority)
+        {
+            if (entry.getTagCode() != null)
+            {
+                byTag.computeIfAbsent(entry.getTagCode(), code -> new ArrayList<>()).add(entry);
+            }
+        }
+        byTag.replaceAll((code, tagEntries) -> Collections.unmodifiableList(tagEntries));
+
+        return new ActiveView(validFrom, validUntil, Collections.unmodifiableList(active),
+                Collections.unmodifiableList(byPriority), byTag, windowed);
+    }
+
+    /**
+     * @return the number of elements in the sorted array that are less than or equal to the value
+     */
+    private static int upperBound(final long[] sorted, final long value)
+    {
+        final int index = Arrays.binarySearch(sorted, value);
+        if (index < 0)
+        {
+            return -index - 1;
+        }
+
+        int last = index;
+        while (last + 1 < sorted.length && sorted[last + 1] == value)
+        {
+            last++;
+        }
+        return last + 1;
+    }
+
+    private static final class ActiveView
+    {
+        private final long validFrom;
+        private final long validUntil;
+        private final List<IS32PromotionSnapshotEntry> entries;
+        private final List<IS32PromotionSnapshotEntry> entriesByPriority;
+        private final Map<String, List<IS32PromotionSnapshotEntry>> entriesByTag;
+        private final boolean windowed;
+
+        private ActiveView(final long validFrom, final long validUntil, final List<IS32PromotionSnapshotEntry> entries,
+                           final List<IS32PromotionSnapshotEntry> entriesByPriority,
+                           final Map<String, List<IS32PromotionSnapshotEntry>> entriesByTag, final boolean windowed)
+        {
+            this.validFrom = validFrom;
+            this.validUntil = validUntil;
+            this.entries = entries;
+            this.entriesByPriority = entriesByPriority;
+            this.entriesByTag = entriesByTag;
+            this.windowed = windowed;
+        }
+
+        private boolean covers(final long time)
+        {
+            return validFrom <= time && time < validUntil;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.is32.core.snapshot;
+
+import de.hybris.platform.core.PK;
+
+/**
+ * Immutable, pre-resolved view of one ACTIVE IS32 promotion and its rewards as held by the
+ * {@link IS32PromotionSnapshot}. All fields needed for eligibility evaluation are copied out of
+ * the model when the snapshot is built so evaluation never triggers lazy loading. The promotion's
+ * activity windows, if it has any, are held as a compiled {@link IS32ActivityBitmap}.
+ * <p>
+ * The promotion itself is held by its PK only: models are bound to the session that loaded them,
+ * so readers resolve the promotion through the ModelService of their own session.
+ */
+public final class IS32PromotionSnapshotEntry
+{
+    public static final int NO_REDEMPTION_LIMIT = -1;
+
+    private static final String[] NO_ACCOUNT_IDS = new String[0];
+
+    private final PK promotionPk;
+    private final String uid;
+    private final int priority;
+    private final long startTime;
+    private final long endTime;
+    private final boolean suspended;
+    private final int maxRedemptionPerUser;
+    private final int rewardCount;
+    private final String[] increaseMemberAccountIds;
+    private final IS32ActivityBitmap activityBitmap;
+    private final String tagCode;
+    private final String displayTypeCode;
+
+    public IS32PromotionSnapshotEntry(final PK promotionPk, final String uid, final int priority,
+                                      final long startTime, final long endTime, final boolean suspended,
+                                      final int maxRedemptionPerUser, final int rewardCount,
+                                      final String[] increaseMemberAccountIds)
+    {
+        this(promotionPk, uid, priority, startTime, endTime, suspended, maxRedemptionPerUser, rewardCount,
+                increaseMemberAccountIds, null);
+    }
+
+    /**
+     * @param activityBitmap the compiled activity windows, or null if the promotion is not restricted to any
+     */
+    public IS32PromotionSnapshotEntry(final PK promotionPk, final String uid, final int priority,
+                                      final long startTime, final long endTime, final boolean suspended,
+                                      final int maxRedemptionPerUser, final int rewardCount,
+                                      final String[] increaseMemberAccountIds, final IS32ActivityBitmap activityBitmap)
+    {
+        this(promotionPk, uid, priority, startTime, endTime, suspended, maxRedemptionPerUser, rewardCount,
+                increaseMemberAccountIds, activityBitmap, null, null);
+    }
+
+    /**
+     * @param tagCode         the code of the promotion's tag, or null if it has none
+     * @param displayTypeCode the code of the tag's display type, or null if the promotion has no tag
+     */
+    public IS32PromotionSnapshotEntry(final PK promotionPk, final String uid, final int priority,
+                                      final long startTime, final long endTime, final boolean suspended,
+                                      final int maxRedemptionPerUser, final int rewardCount,
+                                      final String[] increaseMemberAccountIds, final IS32ActivityBitmap activityBitmap,
+                                      final String tagCode, final String displayTypeCode)
+    {
+        this.promotionPk = promotionPk;
+        this.uid = uid;
+        this.priority = priority;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.suspended = suspended;
+        this.maxRedemptionPerUser = maxRedemptionPerUser;
+        this.rewardCount = rewardCount;
+        this.increaseMemberAccountIds = increaseMemberAccountIds != null
+                ? increaseMemberAccountIds.clone() : NO_ACCOUNT_IDS;
+        this.activityBitmap = activityBitmap;
+        this.tagCode = tagCode;
+        this.displayTypeCode = displayTypeCode;
+    }
+
+    /**
+     * @return true if the promotion is live (not suspended and inside its date window) at the given instant
+     */
+    public boolean isActiveAt(final long time)
+    {
+        return !suspended && startTime <= time && time < endTime;
+    }
+
+    /**
+     * @return true if the promotion is active at the given instant and inside one of its activity windows
+     */
+    public boolean isLiveAt(final long time)
+    {
+        return isActiveAt(time) && isInActivityWindowAt(time);
+    }
+
+    /**
+     * @return true if the promotion has no activity windows or one of them covers the given instant
+     */
+    public boolean isInActivityWindowAt(final long time)
+    {
+        return activityBitmap == null || activityBitmap.isActiveAt(time);
+    }
+
+    public boolean hasActivityWindows()
+    {
+        return activityBitmap != null;
+    }
+
+    public IS32ActivityBitmap getActivityBitmap()
+    {
+        return activityBitmap;
+    }
+
+    public String getTagCode()
+    {
+        return tagCode;
+    }
+
+    public String getDisplayTypeCode()
+    {
+        return displayTypeCode;
+    }
+
+    public PK getPromotionPk()
+    {
+        return promotionPk;
+    }
+
+    public String getUid()
+    {
+        return uid;
+    }
+
+    public int getPriority()
+    {
+        return priority;
+    }
+
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    public long getEndTime()
+    {
+        return endTime;
+    }
+
+    public boolean isSuspended()
+    {
+        return suspended;
+    }
+
+    public boolean hasRedemptionLimit()
+    {
+        return maxRedemptionPerUser != NO_REDEMPTION_LIMIT;
+    }
+
+    public int getMaxRedemptionPerUser()
+    {
+        return maxRedemptionPerUser;
+    }
+
+    public boolean hasRewards()
+    {
+        return rewardCount > 0;
+    }
+
+    public int getRewardCount()
+    {
+        return rewardCount;
+    }
+
+    /**
+     * @return the account ids of the promotion's INCREASE_MEMBER_ACCOUNT rewards, in reward order.
+     * The returned array is shared and must not be modified.
+     */
+    public String[] getIncreaseMemberAccountIds()
+    {
+        return increaseMemberAccountIds;
+    }
+}
@@ -0,0 +1,142 @@
+package com.is32.core.snapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable table from promotion UID to the e-stamp accounts its INCREASE_MEMBER_ACCOUNT rewards
+ * increment, so a coupon redemption can be routed without loading the promotion and its rewards.
+ * Each promotion maps to a {@link Route} of parallel account id and increment arrays, with the
+ * increments of several rewards on the same account summed.
+ */
+public final class IS32RewardRoutingTable
+{
+    private final Map<String, Route> routes;
+    private final long buildTime;
+
+    private IS32RewardRoutingTable(final Map<String, Route> routes, final long buildTime)
+    {
+        this.routes = routes;
+        this.buildTime = buildTime;
+    }
+
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @param promotionUid the promotion UID
+     * @return the accounts the promotion increments, empty if it has no INCREASE_MEMBER_ACCOUNT rewards
+     */
+    public Route getRoute(final String promotionUid)
+    {
+        final Route route = routes.get(promotionUid);
+        return route != null ? route : Route.EMPTY;
+    }
+
+    /**
+     * @return the number of promotions with at least one INCREASE_MEMBER_ACCOUNT reward
+     */
+    public int size()
+    {
+        return routes.size();
+    }
+
+    /**
+     * @return the time in epoch milliseconds the rewards of this table were read
+     */
+    public long getBuildTime()
+    {
+        return buildTime;
+    }
+
+    /**
+     * The e-stamp account increments of one promotion.
+     */
+    public static final class Route
+    {
+        static final Route EMPTY = new Route(new String[0], new int[0]);
+
+        private final String[] accountIds;
+        private final int[] increments;
+
+        private Route(final String[] accountIds, final int[] increments)
+        {
+            this.accountIds = accountIds;
+            this.increments = increments;
+        }
+
+        public int size()
+        {
+            return accountIds.length;
+        }
+
+        public boolean isEmpty()
+        {
+            return accountIds.length == 0;
+        }
+
+        public String getAccountId(final int index)
+        {
+            return accountIds[index];
+        }
+
+        public int getIncrement(final int index)
+        {
+            return increments[index];
+        }
+    }
+
+    public static final class Builder
+    {
+        private final Map<String, Map<String, Integer>> incrementsByPromotion = new HashMap<>();
+        private long buildTime = System.currentTimeMillis();
+
+        private Builder()
+        {
+        }
+
+        /**
+         * @param buildTime the time in epoch milliseconds the rewards were read
+         * @return this builder
+         */
+        public Builder buildTime(final long buildTime)
+        {
+            this.buildTime = buildTime;
+            return this;
+        }
+
+        /**
+         * Adds one INCREASE_MEMBER_ACCOUNT reward.
+         *
+         * @return this builder
+         */
+        public Builder add(final String promotionUid, final String accountId, final int increment)
+        {
+            incrementsByPromotion.computeIfAbsent(promotionUid, uid -> new LinkedHashMap<>())
+                    .merge(accountId, Integer.valueOf(increment), Integer::sum);
+            return this;
+        }
+
+        public IS32RewardRoutingTable build()
+        {
+            final Map<String, Route> routes = new HashMap<>(incrementsByPromotion.size() * 2);
+            for (final Map.Entry<String, Map<String, Integer>> promotion : incrementsByPromotion.entrySet())
+            {
+                final List<String> accountIds = new ArrayList<>(promotion.getValue().keySet());
+                final int[] increments = new int[accountIds.size()];
+                for (int i = 0; i < increments.length; i++)
+                {
+                    increments[i] = promotion.getValue().get(accountIds.get(i)).intValue();
+                }
+                routes.put(promotion.getKey(), new Route(accountIds.toArray(new String[0]), increments));
+            }
+            return new IS32RewardRoutingTable(Collections.unmodifiableMap(routes), buildTime);
+        }
+    }
+}
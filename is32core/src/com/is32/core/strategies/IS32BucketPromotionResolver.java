@@ -0,0 +1,96 @@
+package com.is32.core.strategies;
+
+import com.is32.core.dao.IS32PromotionBucketDao;
+import com.is32.core.model.IS32BucketModel;
+import com.is32.core.model.IS32PromoExcludeItemModel;
+import com.is32.core.model.IS32PromoItemModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.springframework.beans.factory.annotation.Required;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Maps changed IS32Buckets, IS32PromoItems and IS32PromoExcludeItems to the UIDs of the promotions
+ * owning them. Buckets carry the promotion UID, items are resolved through their bucket UID.
+ */
+public class IS32BucketPromotionResolver
+{
+    private IS32PromotionBucketDao is32PromotionBucketDao;
+    private ModelService modelService;
+
+    /**
+     * Resolves the promotions of the changed items with the given PKs. Items of other types are ignored.
+     *
+     * @param pks the PKs of the changed items
+     * @return the promotion UIDs, or null if one of the items no longer exists
+     */
+    public Set<String> resolvePromotionUids(final Collection<PK> pks)
+    {
+        final Set<Object> items = new LinkedHashSet<>(pks.size() * 2);
+        for (final PK pk : pks)
+        {
+            try
+            {
+                items.add(modelService.get(pk));
+            }
+            catch (final ModelLoadingException e)
+            {
+                return null;
+            }
+        }
+        return resolvePromotionUidsOfItems(items);
+    }
+
+    /**
+     * Resolves the promotions of loaded buckets and items, e.g. of items about to be removed.
+     *
+     * @param items the buckets and items
+     * @return the promotion UIDs
+     */
+    public Set<String> resolvePromotionUidsOfItems(final Collection<?> items)
+    {
+        final Set<String> promotionUids = new LinkedHashSet<>();
+        final Set<String> bucketUids = new HashSet<>();
+
+        for (final Object item : items)
+        {
+            if (item instanceof IS32BucketModel)
+            {
+                promotionUids.add(((IS32BucketModel) item).getPromotionUid());
+            }
+            else if (item instanceof IS32PromoItemModel)
+            {
+                bucketUids.add(((IS32PromoItemModel) item).getBucketUid());
+            }
+            else if (item instanceof IS32PromoExcludeItemModel)
+            {
+                bucketUids.add(((IS32PromoExcludeItemModel) item).getBucketUid());
+            }
+        }
+
+        if (!bucketUids.isEmpty())
+        {
+            promotionUids.addAll(is32PromotionBucketDao.findPromotionUidsByBucketUid(bucketUids).values());
+        }
+        promotionUids.remove(null);
+        return promotionUids.isEmpty() ? Collections.emptySet() : promotionUids;
+    }
+
+    @Required
+    public void setIs32PromotionBucketDao(final IS32PromotionBucketDao is32PromotionBucketDao)
+    {
+        this.is32PromotionBucketDao = is32PromotionBucketDao;
+    }
+
+    @Required
+    public void setModelService(final ModelService modelService)
+    {
+        this.modelService = modelService;
+    }
+}
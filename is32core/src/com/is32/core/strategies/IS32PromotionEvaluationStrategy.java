@@ -1,40 +1,108 @@
 package com.is32.core.strategies;
 
+import com.is32.core.constants.IS32CoreConstants;
 import com.is32.core.model.IS32PromotionModel;
-import com.is32.core.model.IS32RewardModel;
-import com.is32.core.model.EStampTierModel;
-import com.is32.core.enums.IS32RewardType;
+import com.is32.core.quota.IS32AccountQuotas;
+import com.is32.core.quota.IS32RedemptionCounts;
 import com.is32.core.service.IS32AccountQuotaService;
-import com.is32.core.service.IS32PromotionService;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.TenantAwareThreadFactory;
 import de.hybris.platform.core.model.user.CustomerModel;
 import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
 import de.hybris.platform.servicelayer.model.ModelService;
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Required;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * Strategy for evaluating IS32 promotion eligibility. Determines whether a customer
  * qualifies for a promotion based on their account quota, e-stamp tier, and
  * promotion activity constraints.
+ *
+ * Active promotions and their rewards are read from the node-local promotion snapshot, so the
+ * only database access on this path is the customer-specific quota and redemption data. Redemption
+ * counts for all redemption-limited promotions are loaded in one bulk lookup per evaluation.
+ *
+ * Promotions are visited in descending priority order, so the evaluation can stop as soon as
+ * {@code is32core.promotion.evaluation.max.results} promotions are found and still return the
+ * best ones. Suspended and out-of-date promotions, and promotions outside their activity windows,
+ * are already excluded by the snapshot view. The eligible promotions are resolved from their PKs
+ * on the calling thread, in the caller's session.
  */
-public class IS32PromotionEvaluationStrategy
+public class IS32PromotionEvaluationStrategy implements InitializingBean, DisposableBean
 {
     private static final Logger LOG = Logger.getLogger(IS32PromotionEvaluationStrategy.class);
 
-    private static final String CONFIG_MAX_EVALUATION_RESULTS = "is32core.promotion.evaluation.max.results";
     private static final int DEFAULT_MAX_RESULTS = 100;
+    private static final int DEFAULT_BATCH_CHUNK_SIZE = 500;
+    private static final long IDLE_THREAD_SECONDS = 60L;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10L;
 
-    private IS32PromotionService is32PromotionService;
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
     private IS32AccountQuotaService is32AccountQuotaService;
     private ModelService modelService;
     private ConfigurationService configurationService;
 
+    private ExecutorService executor;
+    private int threads;
+
+    /**
+     * Starts the pool that evaluates the customers of a batch chunk in parallel, with
+     * {@code is32core.promotion.evaluation.batch.threads} threads that are released when idle.
+     * With a single thread no pool is started and chunks are evaluated on the calling thread.
+     */
+    @Override
+    public void afterPropertiesSet()
+    {
+        threads = Math.max(1, configurationService.getConfiguration().getInt(
+                IS32CoreConstants.Config.EVALUATION_BATCH_THREADS, Runtime.getRuntime().availableProcessors()));
+        if (threads > 1)
+        {
+            final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, IDLE_THREAD_SECONDS,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<>(), createThreadFactory());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException
+    {
+        if (executor == null)
+        {
+            return;
+        }
+
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+        {
+            executor.shutdownNow();
+        }
+    }
+
     /**
      * Evaluates which active promotions a customer is eligible for based on their
      * account quotas and redemption history.
@@ -51,99 +119,366 @@ public class IS32PromotionEvaluationStrategy
             LOG.debug("Evaluating eligible promotions for customer [" + customer.getUid() + "]");
         }
 
-        final List<IS32PromotionModel> eligiblePromotions = new ArrayList<>();
-
-        final List<Map<String, Object>> accountQuotas =
+        final IS32AccountQuotas accountQuotas =
                 is32AccountQuotaService.getAccountQuotas(customer, catalogVersion);
 
-        final List<IS32PromotionModel> activePromotions =
-                is32PromotionService.getActiveNonSuspendedPromotions();
+        final List<IS32PromotionSnapshotEntry> activePromotions =
+                is32PromotionSnapshotService.getLiveEntriesByPriority(new Date());
+
+        final IS32RedemptionCounts redemptionCounts = loadRedemptionCounts(activePromotions, customer);
+
+        final int maxResults = getMaxResults();
+        final List<IS32PromotionSnapshotEntry> eligibleEntries =
+                evaluate(activePromotions, accountQuotas, redemptionCounts, maxResults);
+
+        if (eligibleEntries.size() >= maxResults)
+        {
+            LOG.info("Reached maximum evaluation results limit of [" + maxResults + "]");
+        }
+
+        final List<IS32PromotionModel> eligiblePromotions = resolvePromotions(eligibleEntries);
+
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Found [" + eligiblePromotions.size() + "] eligible promotions for customer ["
+                    + customer.getUid() + "]");
+        }
+
+        return eligiblePromotions;
+    }
+
+    /**
+     * Evaluates the eligible promotions of many customers, e.g. for campaign targeting. The active
+     * promotions are read once for the whole call. Customers are processed in chunks of
+     * {@code is32core.promotion.evaluation.batch.chunksize}: the quotas and redemption counts of a
+     * chunk are loaded with set-based queries on the calling thread, after which the customers of
+     * the chunk are evaluated in parallel on the strategy's pool, as evaluation no longer touches
+     * the database.
+     *
+     * @param customers      the customers to evaluate
+     * @param catalogVersion the catalog version context
+     * @return the eligible promotions per customer, in the order of the given customers
+     */
+    public Map<CustomerModel, List<IS32PromotionModel>> evaluateEligiblePromotions(
+            final Collection<CustomerModel> customers, final CatalogVersionModel catalogVersion)
+    {
+        final Map<CustomerModel, List<IS32PromotionModel>> results = new LinkedHashMap<>(customers.size() * 2);
+        final BatchEvaluation batch = new BatchEvaluation(catalogVersion);
+
+        List<CustomerModel> chunk = new ArrayList<>(batch.chunkSize);
+        for (final CustomerModel customer : customers)
+        {
+            chunk.add(customer);
+            if (chunk.size() == batch.chunkSize)
+            {
+                batch.evaluate(chunk, results::put);
+                chunk = new ArrayList<>(batch.chunkSize);
+            }
+        }
+        batch.evaluate(chunk, results::put);
+
+        return results;
+    }
 
-        for (final IS32PromotionModel promotion : activePromotions)
+    /**
+     * Streaming variant of {@link #evaluateEligiblePromotions(Collection, CatalogVersionModel)} for
+     * customer sets that should not be held in memory at once. Customers are resolved from the
+     * cursor one chunk at a time and detached from the session once their result has been passed
+     * to the consumer. PKs that do not denote a customer, or no longer denote any item, are skipped.
+     *
+     * @param customerPks    cursor over the PKs of the customers to evaluate
+     * @param catalogVersion the catalog version context
+     * @param consumer       receives each customer with its eligible promotions, on the calling thread
+     */
+    public void evaluateEligiblePromotions(final Iterator<PK> customerPks, final CatalogVersionModel catalogVersion,
+                                           final BiConsumer<CustomerModel, List<IS32PromotionModel>> consumer)
+    {
+        final BatchEvaluation batch = new BatchEvaluation(catalogVersion);
+        List<CustomerModel> chunk = new ArrayList<>(batch.chunkSize);
+
+        while (customerPks.hasNext())
         {
-            if (isPromotionEligible(promotion, accountQuotas, customer))
+            final PK customerPk = customerPks.next();
+            try
             {
-                eligiblePromotions.add(promotion);
+                final Object user = modelService.get(customerPk);
+                if (user instanceof CustomerModel)
+                {
+                    chunk.add((CustomerModel) user);
+                }
+                else
+                {
+                    LOG.warn("Skipping non-customer user [" + customerPk + "] in batch promotion evaluation");
+                }
+            }
+            catch (final ModelLoadingException e)
+            {
+                LOG.warn("Skipping removed user [" + customerPk + "] in batch promotion evaluation");
+            }
 
-                final int maxResults = configurationService.getConfiguration()
-                        .getInt(CONFIG_MAX_EVALUATION_RESULTS, DEFAULT_MAX_RESULTS);
+            if (chunk.size() == batch.chunkSize || !customerPks.hasNext())
+            {
+                batch.evaluate(chunk, consumer);
+                for (final CustomerModel customer : chunk)
+                {
+                    modelService.detach(customer);
+                }
+                chunk = new ArrayList<>(batch.chunkSize);
+            }
+        }
+    }
+
+    /**
+     * Selects the eligible promotions of one customer from the active promotions, stopping at
+     * maxResults. The active promotions are expected in priority order, making the result the top
+     * maxResults eligible promotions. Reads only the given, fully loaded data and is therefore safe
+     * to run on any thread.
+     */
+    protected List<IS32PromotionSnapshotEntry> evaluate(final List<IS32PromotionSnapshotEntry> activePromotions,
+                                                final IS32AccountQuotas accountQuotas,
+                                                final IS32RedemptionCounts redemptionCounts,
+                                                final int maxResults)
+    {
+        final List<IS32PromotionSnapshotEntry> eligiblePromotions =
+                new ArrayList<>(Math.min(maxResults, activePromotions.size()));
+        if (maxResults <= 0)
+        {
+            return eligiblePromotions;
+        }
+
+        for (final IS32PromotionSnapshotEntry promotion : activePromotions)
+        {
+            if (isPromotionEligible(promotion, accountQuotas, redemptionCounts))
+            {
+                eligiblePromotions.add(promotion);
 
                 if (eligiblePromotions.size() >= maxResults)
                 {
-                    LOG.info("Reached maximum evaluation results limit of [" + maxResults + "]");
                     break;
                 }
             }
         }
+        return eligiblePromotions;
+    }
+
+    /**
+     * Resolves the promotions of snapshot entries in the current session. Promotions removed since
+     * the snapshot was built are skipped.
+     */
+    protected List<IS32PromotionModel> resolvePromotions(final List<IS32PromotionSnapshotEntry> entries)
+    {
+        final List<IS32PromotionModel> promotions = new ArrayList<>(entries.size());
+        for (final IS32PromotionSnapshotEntry entry : entries)
+        {
+            try
+            {
+                promotions.add(modelService.<IS32PromotionModel>get(entry.getPromotionPk()));
+            }
+            catch (final ModelLoadingException e)
+            {
+                LOG.debug("Skipping promotion [" + entry.getUid() + "] removed since the snapshot was built");
+            }
+        }
+        return promotions;
+    }
 
-        if (LOG.isDebugEnabled())
+    protected ThreadFactory createThreadFactory()
+    {
+        return new TenantAwareThreadFactory(Registry.getCurrentTenantNoFallback());
+    }
+
+    protected int getMaxResults()
+    {
+        return configurationService.getConfiguration().getInt(IS32CoreConstants.Config.EVALUATION_MAX_RESULTS, DEFAULT_MAX_RESULTS);
+    }
+
+    /**
+     * @return the UIDs of the promotions whose redemptions per user are limited
+     */
+    protected List<String> getRedemptionLimitedPromotionUids(final List<IS32PromotionSnapshotEntry> activePromotions)
+    {
+        final List<String> limitedPromotionUids = new ArrayList<>();
+        for (final IS32PromotionSnapshotEntry promotion : activePromotions)
         {
-            LOG.debug("Found [" + eligiblePromotions.size() + "] eligible promotions for customer ["
-                    + customer.getUid() + "]");
+            if (promotion.hasRewards() && promotion.hasRedemptionLimit())
+            {
+                limitedPromotionUids.add(promotion.getUid());
+            }
         }
+        return limitedPromotionUids;
+    }
 
-        return eligiblePromotions;
+    /**
+     * Loads the customer's redemption counts for every redemption-limited promotion in one call.
+     */
+    protected IS32RedemptionCounts loadRedemptionCounts(final List<IS32PromotionSnapshotEntry> activePromotions,
+                                                        final CustomerModel customer)
+    {
+        final List<String> limitedPromotionUids = getRedemptionLimitedPromotionUids(activePromotions);
+        if (limitedPromotionUids.isEmpty())
+        {
+            return IS32RedemptionCounts.empty();
+        }
+        return is32AccountQuotaService.getRedemptionCounts(limitedPromotionUids, customer);
     }
 
     /**
      * Checks whether a specific promotion is eligible for the customer based on
-     * reward configuration and account quota thresholds.
+     * reward configuration and account quota thresholds. The checks run cheapest first: the reward
+     * flag, the redemption limit and one redemption count lookup, and only then the account quotas
+     * of the promotion's rewards.
      */
-    protected boolean isPromotionEligible(final IS32PromotionModel promotion,
-                                          final List<Map<String, Object>> accountQuotas,
-                                          final CustomerModel customer)
+    protected boolean isPromotionEligible(final IS32PromotionSnapshotEntry promotion,
+                                          final IS32AccountQuotas accountQuotas,
+                                          final IS32RedemptionCounts redemptionCounts)
     {
-        final Collection<IS32RewardModel> rewards = promotion.getRewards();
-        if (rewards == null || rewards.isEmpty())
+        if (!promotion.hasRewards())
         {
             return false;
         }
 
-        for (final IS32RewardModel reward : rewards)
+        if (!promotion.hasRedemptionLimit()
+                || redemptionCounts.getCount(promotion.getUid()) < promotion.getMaxRedemptionPerUser())
+        {
+            return true;
+        }
+
+        // Redemption limit reached, unless remaining account quota still allows the promotion
+        for (final String accountId : promotion.getIncreaseMemberAccountIds())
+        {
+            if (accountQuotas.hasRemainingQuota(accountId))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * State shared by the chunks of one batch evaluation: the active promotions and the settings,
+     * all resolved once when the batch starts.
+     */
+    private final class BatchEvaluation
+    {
+        private final CatalogVersionModel catalogVersion;
+        private final List<IS32PromotionSnapshotEntry> activePromotions;
+        private final List<String> limitedPromotionUids;
+        private final int maxResults;
+        private final int chunkSize;
+        private final boolean parallel;
+
+        private BatchEvaluation(final CatalogVersionModel catalogVersion)
+        {
+            this.catalogVersion = catalogVersion;
+            this.activePromotions = is32PromotionSnapshotService.getLiveEntriesByPriority(new Date());
+            this.limitedPromotionUids = getRedemptionLimitedPromotionUids(activePromotions);
+            this.maxResults = getMaxResults();
+            this.chunkSize = Math.max(1, configurationService.getConfiguration()
+                    .getInt(IS32CoreConstants.Config.EVALUATION_BATCH_CHUNK_SIZE, DEFAULT_BATCH_CHUNK_SIZE));
+            this.parallel = configurationService.getConfiguration()
+                    .getBoolean(IS32CoreConstants.Config.EVALUATION_BATCH_PARALLEL, true);
+        }
+
+        private void evaluate(final List<CustomerModel> customers,
+                              final BiConsumer<CustomerModel, List<IS32PromotionModel>> consumer)
+        {
+            if (customers.isEmpty())
+            {
+                return;
+            }
+
+            final Map<PK, IS32AccountQuotas> quotasByCustomer =
+                    is32AccountQuotaService.getAccountQuotasForCustomers(customers, catalogVersion);
+            final Map<PK, IS32RedemptionCounts> countsByCustomer = limitedPromotionUids.isEmpty()
+                    ? Collections.emptyMap()
+                    : is32AccountQuotaService.getRedemptionCountsForCustomers(limitedPromotionUids, customers);
+
+            final List<List<IS32PromotionSnapshotEntry>> results =
+                    new ArrayList<>(Collections.nCopies(customers.size(), null));
+            final ExecutorService pool = executor;
+            if (parallel && pool != null && customers.size() > 1)
+            {
+                evaluateInParallel(pool, customers, quotasByCustomer, countsByCustomer, results);
+            }
+            else
+            {
+                evaluateSlice(customers, 0, customers.size(), quotasByCustomer, countsByCustomer, results);
+            }
+
+            for (int i = 0; i < customers.size(); i++)
+            {
+                consumer.accept(customers.get(i), resolvePromotions(results.get(i)));
+            }
+
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Evaluated eligible promotions of [" + customers.size() + "] customers against ["
+                        + activePromotions.size() + "] active promotions");
+            }
+        }
+
+        /**
+         * Splits the customers into one slice per pool thread and waits for all slices.
+         */
+        private void evaluateInParallel(final ExecutorService pool, final List<CustomerModel> customers,
+                                        final Map<PK, IS32AccountQuotas> quotasByCustomer,
+                                        final Map<PK, IS32RedemptionCounts> countsByCustomer,
+                                        final List<List<IS32PromotionSnapshotEntry>> results)
         {
-            if (IS32RewardType.INCREASE_MEMBER_ACCOUNT.equals(reward.getRewardType()))
+            final int sliceSize = (customers.size() + threads - 1) / threads;
+            final List<Future<?>> slices = new ArrayList<>(threads);
+            for (int from = 0; from < customers.size(); from += sliceSize)
             {
-                final String accountId = reward.getIncreaseMemberAccountId();
-                if (accountId == null)
+                final int start = from;
+                final int end = Math.min(from + sliceSize, customers.size());
+                slices.add(pool.submit(() -> evaluateSlice(customers, start, end, quotasByCustomer, countsByCustomer,
+                        results)));
+            }
+
+            try
+            {
+                for (final Future<?> slice : slices)
                 {
-                    continue;
+                    slice.get();
                 }
-
-                for (final Map<String, Object> quota : accountQuotas)
+            }
+            catch (final InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                slices.forEach(slice -> slice.cancel(true));
+                throw new IllegalStateException("Interrupted while evaluating eligible promotions", e);
+            }
+            catch (final ExecutionException e)
+            {
+                slices.forEach(slice -> slice.cancel(true));
+                if (e.getCause() instanceof RuntimeException)
                 {
-                    if (accountId.equals(quota.get("accountId")))
-                    {
-                        final int threshold = (Integer) quota.get("threshold");
-                        final int orderedAmt = (Integer) quota.get("orderedAmt");
-
-                        if (orderedAmt < threshold)
-                        {
-                            return true;
-                        }
-                    }
+                    throw (RuntimeException) e.getCause();
                 }
+                throw new IllegalStateException("Could not evaluate eligible promotions", e.getCause());
             }
         }
 
-        // Check redemption limits
-        if (promotion.getMaxRedemptionPerUser() != null)
+        private void evaluateSlice(final List<CustomerModel> customers, final int from, final int to,
+                                   final Map<PK, IS32AccountQuotas> quotasByCustomer,
+                                   final Map<PK, IS32RedemptionCounts> countsByCustomer,
+                                   final List<List<IS32PromotionSnapshotEntry>> results)
         {
-            final int redemptionCount =
-                    is32AccountQuotaService.getRedemptionCount(promotion.getUid(), customer);
-
-            if (redemptionCount >= promotion.getMaxRedemptionPerUser())
+            for (int i = from; i < to; i++)
             {
-                return false;
+                final PK customerPk = customers.get(i).getPk();
+                results.set(i, IS32PromotionEvaluationStrategy.this.evaluate(activePromotions,
+                        quotasByCustomer.getOrDefault(customerPk, IS32AccountQuotas.empty()),
+                        countsByCustomer.getOrDefault(customerPk, IS32RedemptionCounts.empty()),
+                        maxResults));
             }
         }
-
-        return !rewards.isEmpty();
     }
 
     @Required
-    public void setIs32PromotionService(final IS32PromotionService is32PromotionService)
+    public void setIs32PromotionSnapshotService(final IS32PromotionSnapshotService is32PromotionSnapshotService)
     {
-        this.is32PromotionService = is32PromotionService;
+        this.is32PromotionSnapshotService = is32PromotionSnapshotService;
     }
 
     @Required
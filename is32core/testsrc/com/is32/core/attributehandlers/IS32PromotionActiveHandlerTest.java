@@ -0,0 +1,86 @@
+package com.is32.core.attributehandlers;
+
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshot;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.servicelayer.time.TimeService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class IS32PromotionActiveHandlerTest
+{
+    private static final long NOW = 1_000_000L;
+
+    @InjectMocks
+    private IS32PromotionActiveHandler handler;
+
+    @Mock
+    private TimeService timeService;
+
+    @Mock
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
+
+    @Before
+    public void setUp()
+    {
+        when(timeService.getCurrentTime()).thenReturn(new Date(NOW));
+    }
+
+    @Test
+    public void testListIsEvaluatedAgainstOneClockReadAndOneSnapshot()
+    {
+        when(is32PromotionSnapshotService.getSnapshot())
+                .thenReturn(new IS32PromotionSnapshot(Collections.emptyList(), 0L));
+
+        assertEquals(Arrays.asList(Boolean.TRUE, Boolean.FALSE, Boolean.FALSE, Boolean.FALSE, Boolean.TRUE),
+                handler.getAll(Arrays.asList(
+                        promotion(IS32PromotionStatus.ACTIVE, false, NOW, NOW + 1),
+                        promotion(IS32PromotionStatus.DRAFT, false, 0L, NOW + 1),
+                        promotion(IS32PromotionStatus.ACTIVE, true, 0L, NOW + 1),
+                        promotion(IS32PromotionStatus.ACTIVE, false, 0L, NOW),
+                        promotion(IS32PromotionStatus.ACTIVE, false, 0L, NOW + 1))));
+
+        verify(timeService, times(1)).getCurrentTime();
+        verify(is32PromotionSnapshotService, times(1)).getSnapshot();
+    }
+
+    @Test
+    public void testInactivePromotionsDoNotLoadTheSnapshot()
+    {
+        assertEquals(Boolean.FALSE, handler.get(promotion(IS32PromotionStatus.EXPIRED, false, 0L, NOW + 1)));
+        assertTrue(handler.getAll(Collections.emptyList()).isEmpty());
+
+        verify(is32PromotionSnapshotService, never()).getSnapshot();
+    }
+
+    private static IS32PromotionModel promotion(final IS32PromotionStatus status, final boolean suspended,
+                                                final long start, final long end)
+    {
+        final IS32PromotionModel promotion = mock(IS32PromotionModel.class);
+        when(promotion.getStatus()).thenReturn(status);
+        when(promotion.getSuspended()).thenReturn(Boolean.valueOf(suspended));
+        when(promotion.getStartDate()).thenReturn(new Date(start));
+        when(promotion.getEndDate()).thenReturn(new Date(end));
+        return promotion;
+    }
+}
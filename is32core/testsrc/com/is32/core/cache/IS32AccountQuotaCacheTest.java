@@ -0,0 +1,82 @@
+package com.is32.core.cache;
+
+import com.is32.core.quota.IS32AccountQuotas;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class IS32AccountQuotaCacheTest
+{
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    @Mock
+    private CustomerModel customer;
+
+    @Mock
+    private CustomerModel otherCustomer;
+
+    @Mock
+    private CatalogVersionModel catalogVersion;
+
+    private IS32AccountQuotaCache accountQuotaCache;
+    private final IS32AccountQuotas quotas = IS32AccountQuotas.empty();
+
+    @Before
+    public void setUp()
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getInt(anyString(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(customer.getPk()).thenReturn(PK.fromLong(1L));
+        when(catalogVersion.getPk()).thenReturn(PK.fromLong(100L));
+
+        accountQuotaCache = new IS32AccountQuotaCache();
+        accountQuotaCache.setConfigurationService(configurationService);
+        accountQuotaCache.afterPropertiesSet();
+    }
+
+    @Test
+    public void testLoadRacingAnInvalidationIsNotCached()
+    {
+        final long loadGeneration = accountQuotaCache.getGeneration(customer);
+        accountQuotaCache.invalidate(Collections.singletonList("1"));
+        accountQuotaCache.put(customer, catalogVersion, quotas, loadGeneration);
+
+        assertNull(accountQuotaCache.get(customer, catalogVersion));
+
+        accountQuotaCache.put(customer, catalogVersion, quotas, accountQuotaCache.getGeneration(customer));
+        assertSame(quotas, accountQuotaCache.get(customer, catalogVersion));
+    }
+
+    @Test
+    public void testInvalidationOfAnotherCustomerDoesNotDropTheLoad()
+    {
+        when(otherCustomer.getPk()).thenReturn(PK.fromLong(2L));
+        final long loadGeneration = accountQuotaCache.getGeneration(customer);
+        accountQuotaCache.invalidate(Collections.singletonList(otherCustomer.getPk().getLongValueAsString()));
+        accountQuotaCache.put(customer, catalogVersion, quotas, loadGeneration);
+
+        assertSame(quotas, accountQuotaCache.get(customer, catalogVersion));
+    }
+}
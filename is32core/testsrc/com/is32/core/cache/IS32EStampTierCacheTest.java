@@ -0,0 +1,216 @@
+package com.is32.core.cache;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.model.EStampTierModel;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class IS32EStampTierCacheTest
+{
+    private static final PK TIER_A = tierPk(1L);
+    private static final PK TIER_B = tierPk(2L);
+    private static final PK TIER_C = tierPk(3L);
+    private static final PK TIER_D = tierPk(4L);
+
+    @Mock
+    private FlexibleSearchService flexibleSearchService;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    private IS32EStampTierCache tierCache;
+    private final Map<PK, EStampTierModel> tiers = new HashMap<>();
+
+    @Before
+    public void setUp()
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getBoolean(anyString(), anyBoolean())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(modelService.get(any(PK.class))).thenAnswer(invocation -> tiers.get(invocation.<PK>getArgument(0)));
+        for (final PK pk : Arrays.asList(TIER_A, TIER_B, TIER_C, TIER_D))
+        {
+            tiers.put(pk, mock(EStampTierModel.class));
+        }
+
+        tierCache = new IS32EStampTierCache()
+        {
+            @Override
+            protected boolean isInTransaction()
+            {
+                return false;
+            }
+        };
+        tierCache.setFlexibleSearchService(flexibleSearchService);
+        tierCache.setModelService(modelService);
+        tierCache.setConfigurationService(configurationService);
+    }
+
+    @Test
+    public void testLookupsAreServedFromTheTable()
+    {
+        final SearchResult<Object> all = result(
+                row(TIER_C, "C", "S1", 10, null, 1, 5),
+                row(TIER_A, "A", "S1", 10, 2, 3, 5),
+                row(TIER_B, "B", "S2", 10, 1, 5, 5),
+                row(TIER_D, "D", null, 10, 1, 0, null));
+        when(flexibleSearchService.search(any(FlexibleSearchQuery.class))).thenReturn(all);
+
+        assertTrue(tierCache.isUsable());
+        assertSame(tier(TIER_B), tierCache.findByAccountId("B"));
+        assertNull(tierCache.findByAccountId("UNKNOWN"));
+        assertEquals(models(TIER_A, TIER_C), tierCache.findBySiebelAcctId("S1"));
+        assertTrue(tierCache.findBySiebelAcctId("UNKNOWN").isEmpty());
+        assertEquals("Tiers of a level are ordered by accountId", models(TIER_B, TIER_D), tierCache.findByTierLevel(1));
+        assertEquals("Full tiers and tiers without a maximum are not active, tiers without a level come last",
+                models(TIER_A, TIER_C), tierCache.findAllActiveTiers());
+
+        verify(flexibleSearchService, times(1)).search(any(FlexibleSearchQuery.class));
+    }
+
+    @Test
+    public void testSavedTierIsUpdatedInPlace()
+    {
+        final SearchResult<Object> all = result(
+                row(TIER_A, "A", "S1", 10, 1, 3, 5),
+                row(TIER_B, "B", "S1", 10, 1, 4, 5));
+        final SearchResult<Object> saved = result(row(TIER_B, "B", "S1", 10, 2, 5, 5));
+        when(flexibleSearchService.search(any(FlexibleSearchQuery.class))).thenReturn(all).thenReturn(saved);
+        assertEquals(models(TIER_A, TIER_B), tierCache.findAllActiveTiers());
+
+        assertTrue(tierCache.isInvalidatedBy(IS32CoreConstants.TypeCode.ESTAMP_TIER));
+        assertFalse(tierCache.isInvalidatedBy(IS32CoreConstants.TypeCode.IS32_REWARD));
+        tierCache.invalidate(Collections.singletonList(TIER_B.getLongValueAsString()));
+        tierCache.invalidate(Collections.singletonList(TIER_B.getLongValueAsString()));
+        verify(flexibleSearchService, times(1)).search(any(FlexibleSearchQuery.class));
+
+        assertEquals(models(TIER_A), tierCache.findAllActiveTiers());
+        assertEquals(models(TIER_A), tierCache.findByTierLevel(1));
+        assertEquals(models(TIER_B), tierCache.findByTierLevel(2));
+        verify(flexibleSearchService, times(2)).search(any(FlexibleSearchQuery.class));
+    }
+
+    @Test
+    public void testTiersWithoutIdsAreNotIndexed()
+    {
+        final SearchResult<Object> all = result(
+                row(TIER_A, "A", "S1", 10, 1, 3, 5),
+                row(TIER_B, null, null, 10, 1, 4, 5));
+        final SearchResult<Object> saved = result(row(TIER_B, null, null, 10, 1, 5, 5));
+        when(flexibleSearchService.search(any(FlexibleSearchQuery.class))).thenReturn(all).thenReturn(saved);
+
+        assertEquals("Tiers without an accountId come first", models(TIER_B, TIER_A), tierCache.findByTierLevel(1));
+        assertNull(tierCache.findByAccountId(null));
+        assertTrue(tierCache.findBySiebelAcctId(null).isEmpty());
+
+        tierCache.invalidate(Collections.singletonList(TIER_B.getLongValueAsString()));
+        assertEquals(models(TIER_A), tierCache.findAllActiveTiers());
+        verify(flexibleSearchService, times(2)).search(any(FlexibleSearchQuery.class));
+    }
+
+    @Test
+    public void testNewTierRebuildsTheTable()
+    {
+        final SearchResult<Object> before = result(row(TIER_A, "A", "S1", 10, 1, 3, 5));
+        final SearchResult<Object> created = result(row(TIER_B, "B", "S1", 10, 1, 0, 5));
+        final SearchResult<Object> after = result(
+                row(TIER_A, "A", "S1", 10, 1, 3, 5),
+                row(TIER_B, "B", "S1", 10, 1, 0, 5));
+        when(flexibleSearchService.search(any(FlexibleSearchQuery.class)))
+                .thenReturn(before).thenReturn(created).thenReturn(after);
+        assertNull(tierCache.findByAccountId("B"));
+
+        tierCache.invalidate(Collections.singletonList(TIER_B.getLongValueAsString()));
+
+        assertSame(tier(TIER_B), tierCache.findByAccountId("B"));
+        assertEquals(models(TIER_A, TIER_B), tierCache.findBySiebelAcctId("S1"));
+        verify(flexibleSearchService, times(3)).search(any(FlexibleSearchQuery.class));
+    }
+
+    @Test
+    public void testNumericFieldsCanBeHeldOffHeap()
+    {
+        when(configuration.getBoolean(IS32CoreConstants.Config.ESTAMP_TIER_TABLE_OFF_HEAP, false)).thenReturn(true);
+        final SearchResult<Object> all = result(
+                row(TIER_A, "A", "S1", 10, 3, 3, 5),
+                row(TIER_B, "B", "S1", 10, 1, null, 5),
+                row(TIER_C, "C", "S2", null, 1, 1, 5));
+        when(flexibleSearchService.search(any(FlexibleSearchQuery.class))).thenReturn(all);
+
+        assertTrue(tierCache.getTable().isOffHeap());
+        assertEquals(models(TIER_B, TIER_C), tierCache.findByTierLevel(1));
+        assertEquals(models(TIER_C, TIER_A), tierCache.findAllActiveTiers());
+    }
+
+    private EStampTierModel tier(final PK pk)
+    {
+        return tiers.get(pk);
+    }
+
+    private List<EStampTierModel> models(final PK... pks)
+    {
+        final EStampTierModel[] models = new EStampTierModel[pks.length];
+        for (int i = 0; i < pks.length; i++)
+        {
+            models[i] = tiers.get(pks[i]);
+        }
+        return Arrays.asList(models);
+    }
+
+    @SafeVarargs
+    private static SearchResult<Object> result(final List<Object>... rows)
+    {
+        final SearchResult<Object> result = mock(SearchResult.class);
+        when(result.getResult()).thenReturn(Arrays.<Object>asList((Object[]) rows));
+        return result;
+    }
+
+    private static List<Object> row(final PK pk, final String accountId, final String siebelAcctId,
+                                    final Integer threshold, final Integer tierLevel, final Integer current,
+                                    final Integer max)
+    {
+        return Arrays.asList(pk, accountId, siebelAcctId, threshold, tierLevel, current, max);
+    }
+
+    private static PK tierPk(final long counter)
+    {
+        return PK.createFixedCounterPK(IS32CoreConstants.TypeCode.ESTAMP_TIER, counter);
+    }
+}
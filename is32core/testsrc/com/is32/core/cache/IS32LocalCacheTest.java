@@ -0,0 +1,90 @@
+package com.is32.core.cache;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@UnitTest
+public class IS32LocalCacheTest
+{
+    private final AtomicLong now = new AtomicLong(1000L);
+
+    private IS32LocalCache<String, String> cache;
+
+    @Before
+    public void setUp()
+    {
+        cache = new IS32LocalCache<>(2, 100L, now::get);
+    }
+
+    @Test
+    public void testHitAndMiss()
+    {
+        cache.put("a", "A");
+
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+
+        final IS32LocalCache.Statistics statistics = cache.getStatistics();
+        assertEquals(1, statistics.getHits());
+        assertEquals(1, statistics.getMisses());
+        assertEquals(0.5d, statistics.getHitRatio(), 0.0001d);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted()
+    {
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.put("c", "C");
+
+        assertEquals("A", cache.get("a"));
+        assertNull("Least recently used entry should be evicted", cache.get("b"));
+        assertEquals("C", cache.get("c"));
+        assertEquals(1, cache.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void testExpiredEntryIsEvicted()
+    {
+        cache.put("a", "A");
+        now.addAndGet(99L);
+        assertEquals("A", cache.get("a"));
+
+        now.addAndGet(1L);
+        assertNull("Entry should expire after its TTL", cache.get("a"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getStatistics().getEvictions());
+    }
+
+    @Test
+    public void testInvalidateIf()
+    {
+        cache.put("a1", "A");
+        cache.put("b1", "B");
+
+        assertEquals(1, cache.invalidateIf(key -> key.startsWith("a")));
+        assertNull(cache.get("a1"));
+        assertEquals("B", cache.get("b1"));
+    }
+
+    @Test
+    public void testSegmentedCacheStaysWithinMaxSize()
+    {
+        final IS32LocalCache<Integer, Integer> segmented = new IS32LocalCache<>(1000, 0L, now::get);
+        for (int i = 0; i < 5000; i++)
+        {
+            segmented.put(Integer.valueOf(i), Integer.valueOf(i));
+        }
+
+        assertEquals(1000, segmented.size());
+        assertEquals(5000 - segmented.size(), segmented.getStatistics().getEvictions());
+        assertEquals(Integer.valueOf(4999), segmented.get(Integer.valueOf(4999)));
+    }
+}
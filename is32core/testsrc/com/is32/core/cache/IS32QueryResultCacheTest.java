@@ -0,0 +1,112 @@
+package com.is32.core.cache;
+
+import com.is32.core.constants.IS32CoreConstants;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class IS32QueryResultCacheTest
+{
+    private static final String QUERY = "SELECT {pk} FROM {IS32Reward} WHERE {promotionUid} = ?promotionUid";
+    private static final PK REWARD_PK = PK.createFixedCounterPK(IS32CoreConstants.TypeCode.IS32_REWARD, 1L);
+    private static final PK PROMOTION_PK = PK.createFixedCounterPK(IS32CoreConstants.TypeCode.IS32_PROMOTION, 1L);
+
+    @Mock
+    private FlexibleSearchService flexibleSearchService;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    private IS32QueryResultCache queryResultCache;
+    private final Object reward = new Object();
+
+    @Before
+    public void setUp()
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getInt(anyString(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(configuration.getBoolean(anyString(), anyBoolean())).thenReturn(Boolean.TRUE);
+
+        final SearchResult<Object> result = mock(SearchResult.class);
+        when(result.getResult()).thenReturn(Collections.singletonList(REWARD_PK));
+        when(flexibleSearchService.search(any(FlexibleSearchQuery.class))).thenReturn(result);
+        when(modelService.get(REWARD_PK)).thenReturn(reward);
+
+        queryResultCache = new IS32QueryResultCache()
+        {
+            @Override
+            protected boolean isInTransaction()
+            {
+                return false;
+            }
+        };
+        queryResultCache.setFlexibleSearchService(flexibleSearchService);
+        queryResultCache.setModelService(modelService);
+        queryResultCache.setConfigurationService(configurationService);
+        queryResultCache.afterPropertiesSet();
+    }
+
+    @Test
+    public void testRepeatedQueryIsServedFromTheCache()
+    {
+        assertEquals(Collections.singletonList(reward), search("PROMO_A"));
+        assertEquals(Collections.singletonList(reward), search("PROMO_A"));
+        search("PROMO_B");
+
+        verify(flexibleSearchService, times(2)).search(any(FlexibleSearchQuery.class));
+        assertEquals(1, queryResultCache.getStatistics().getHits());
+        assertEquals(2, queryResultCache.getStatistics().getMisses());
+    }
+
+    @Test
+    public void testQueryIsEvictedOnlyByTheTypesItReads()
+    {
+        search("PROMO_A");
+
+        queryResultCache.invalidate(Collections.singletonList(PROMOTION_PK.getLongValueAsString()));
+        search("PROMO_A");
+        verify(flexibleSearchService, times(1)).search(any(FlexibleSearchQuery.class));
+
+        queryResultCache.invalidate(Collections.singletonList(REWARD_PK.getLongValueAsString()));
+        search("PROMO_A");
+        verify(flexibleSearchService, times(2)).search(any(FlexibleSearchQuery.class));
+    }
+
+    private List<Object> search(final String promotionUid)
+    {
+        final Map<String, Object> params = Collections.singletonMap("promotionUid", promotionUid);
+        return queryResultCache.search(QUERY, params, IS32CoreConstants.TypeCode.IS32_REWARD);
+    }
+}
@@ -0,0 +1,84 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.dao.EStampTierDao;
+import com.is32.core.model.EStampTierModel;
+import de.hybris.bootstrap.annotations.IntegrationTest;
+import de.hybris.platform.servicelayer.ServicelayerTransactionalTest;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.junit.Test;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the stamp count statements of {@link DefaultEStampTierDao} against the database of the
+ * junit tenant.
+ */
+@IntegrationTest
+public class DefaultEStampTierDaoTest extends ServicelayerTransactionalTest
+{
+    @Resource
+    private EStampTierDao eStampTierDao;
+
+    @Resource
+    private ModelService modelService;
+
+    @Test
+    public void testIncrementAddsToTheStoredCount()
+    {
+        final EStampTierModel tier = createTier("IS32-TEST-1", Integer.valueOf(3), Integer.valueOf(10));
+
+        assertTrue(eStampTierDao.incrementStampCount("IS32-TEST-1", 4));
+
+        final List<Object> row = eStampTierDao.findStampCount("IS32-TEST-1");
+        assertEquals(tier.getPk(), row.get(0));
+        assertEquals(Integer.valueOf(7), row.get(1));
+        assertEquals(Integer.valueOf(10), row.get(2));
+    }
+
+    @Test
+    public void testIncrementIsClampedAndFullTierIsNotUpdated()
+    {
+        createTier("IS32-TEST-2", Integer.valueOf(8), Integer.valueOf(10));
+
+        assertTrue(eStampTierDao.incrementStampCount("IS32-TEST-2", 5));
+        assertEquals(Integer.valueOf(10), eStampTierDao.findStampCount("IS32-TEST-2").get(1));
+        assertFalse("A full tier is not updated", eStampTierDao.incrementStampCount("IS32-TEST-2", 1));
+        assertEquals(Integer.valueOf(10), eStampTierDao.findStampCount("IS32-TEST-2").get(1));
+    }
+
+    @Test
+    public void testIncrementTreatsMissingCountAsZeroAndMissingMaximumAsUnbounded()
+    {
+        createTier("IS32-TEST-3", null, null);
+
+        assertTrue(eStampTierDao.incrementStampCount("IS32-TEST-3", 2));
+        assertTrue(eStampTierDao.incrementStampCount("IS32-TEST-3", 1000));
+        assertEquals(Integer.valueOf(1002), eStampTierDao.findStampCount("IS32-TEST-3").get(1));
+    }
+
+    @Test
+    public void testIncrementOfUnknownAccount()
+    {
+        assertFalse(eStampTierDao.incrementStampCount("IS32-TEST-UNKNOWN", 1));
+        assertNull(eStampTierDao.findStampCount("IS32-TEST-UNKNOWN"));
+    }
+
+    private EStampTierModel createTier(final String accountId, final Integer currentStampCount,
+                                       final Integer maxStampCount)
+    {
+        final EStampTierModel tier = modelService.create(EStampTierModel.class);
+        tier.setAccountId(accountId);
+        tier.setSiebelAcctId("IS32-TEST-SIEBEL");
+        tier.setThreshold(Integer.valueOf(1));
+        tier.setCurrentStampCount(currentStampCount);
+        tier.setMaxStampCount(maxStampCount);
+        modelService.save(tier);
+        return tier;
+    }
+}
@@ -3,9 +3,11 @@ package com.is32.core.dao.impl;
 import com.is32.core.enums.IS32PromotionDisplayType;
 import com.is32.core.enums.IS32PromotionStatus;
 import com.is32.core.enums.IS32RewardType;
+import com.is32.core.quota.IS32RedemptionCounts;
 import de.hybris.bootstrap.annotations.IntegrationTest;
 import de.hybris.platform.catalog.CatalogVersionService;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.core.model.user.CustomerModel;
 import de.hybris.platform.impex.jalo.ImpExException;
 import de.hybris.platform.servicelayer.ServicelayerTransactionalTest;
@@ -14,11 +16,16 @@ import org.junit.Before;
 import org.junit.Test;
 
 import javax.annotation.Resource;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 @IntegrationTest
@@ -76,6 +83,95 @@ public class DefaultIS32AccountQuotaDaoTest extends ServicelayerTransactionalTes
         }
     }
 
+    @Test
+    public void testAggregatedAccountQuotaDataMatchesRawDataAggregation()
+    {
+        final CustomerModel customer = (CustomerModel) userService.getUserForUID(TEST_CUSTOMER_UID);
+        final CatalogVersionModel catalogVersion =
+                catalogVersionService.getCatalogVersion(TEST_CATALOG_ID, TEST_CATALOG_VERSION);
+        final Date currentDate = new Date();
+
+        final List<List<Object>> rawRows =
+                defaultIS32AccountQuotaDao.findAccountQuotaRawData(customer, catalogVersion, currentDate);
+        final List<List<Object>> aggregatedRows =
+                defaultIS32AccountQuotaDao.findAggregatedAccountQuotaData(customer, catalogVersion, currentDate);
+
+        final Map<String, Integer> expected = new HashMap<>();
+        for (final List<Object> row : rawRows)
+        {
+            expected.merge(groupKey(row), row.get(3) != null ? 1 : 0, Integer::sum);
+        }
+
+        final Map<String, Integer> actual = new HashMap<>();
+        for (final List<Object> row : aggregatedRows)
+        {
+            assertEquals("Each aggregated row should contain 4 fields", 4, row.size());
+            assertNull("Each group should be returned once", actual.put(groupKey(row), (Integer) row.get(3)));
+        }
+
+        assertEquals("SQL aggregation should match aggregating the raw rows", expected, actual);
+    }
+
+    @Test
+    public void testBulkAggregatedAccountQuotaDataMatchesSingleCustomerQuery()
+    {
+        final CustomerModel customer = (CustomerModel) userService.getUserForUID(TEST_CUSTOMER_UID);
+        final CustomerModel anonymous = userService.getAnonymousUser();
+        final CatalogVersionModel catalogVersion =
+                catalogVersionService.getCatalogVersion(TEST_CATALOG_ID, TEST_CATALOG_VERSION);
+        final Date currentDate = new Date();
+
+        final List<List<Object>> bulkRows = defaultIS32AccountQuotaDao.findAggregatedAccountQuotaDataForCustomers(
+                Arrays.asList(customer, anonymous), catalogVersion, currentDate);
+
+        for (final CustomerModel expectedCustomer : Arrays.asList(customer, anonymous))
+        {
+            final Map<String, Integer> expected = new HashMap<>();
+            for (final List<Object> row : defaultIS32AccountQuotaDao.findAggregatedAccountQuotaData(
+                    expectedCustomer, catalogVersion, currentDate))
+            {
+                expected.put(groupKey(row), (Integer) row.get(3));
+            }
+
+            final Map<String, Integer> actual = new HashMap<>();
+            for (final List<Object> row : bulkRows)
+            {
+                assertEquals("Each bulk row should contain 5 fields", 5, row.size());
+                final List<Object> group = row.subList(1, 4);
+                actual.putIfAbsent(groupKey(group), 0);
+                if (expectedCustomer.getPk().equals(row.get(0)))
+                {
+                    actual.merge(groupKey(group), (Integer) row.get(4), Integer::sum);
+                }
+            }
+
+            assertEquals("Bulk query should match the query of [" + expectedCustomer.getUid() + "]", expected, actual);
+        }
+    }
+
+    @Test
+    public void testGetRedemptionCountsForCustomersMatchesSingleCustomerCounts()
+    {
+        final CustomerModel customer = (CustomerModel) userService.getUserForUID(TEST_CUSTOMER_UID);
+        final CustomerModel anonymous = userService.getAnonymousUser();
+        final List<String> promotionUids = Arrays.asList("PROMO_TEST_001", "PROMO_TEST_002", "PROMO_UNKNOWN");
+
+        final Map<PK, IS32RedemptionCounts> counts = defaultIS32AccountQuotaDao.getRedemptionCountsForCustomers(
+                promotionUids, Arrays.asList(customer, anonymous));
+
+        for (final CustomerModel expectedCustomer : Arrays.asList(customer, anonymous))
+        {
+            final IS32RedemptionCounts customerCounts =
+                    counts.getOrDefault(expectedCustomer.getPk(), IS32RedemptionCounts.empty());
+            for (final String promotionUid : promotionUids)
+            {
+                assertEquals("Bulk count should match single count for [" + promotionUid + "]",
+                        defaultIS32AccountQuotaDao.getRedemptionCountForCustomer(promotionUid, expectedCustomer),
+                        customerCounts.getCount(promotionUid));
+            }
+        }
+    }
+
     @Test
     public void testGetRedemptionCountForCustomer()
     {
@@ -84,6 +180,35 @@ public class DefaultIS32AccountQuotaDaoTest extends ServicelayerTransactionalTes
         assertTrue("Redemption count should be >= 0", count >= 0);
     }
 
+    @Test
+    public void testGetRedemptionCountsForCustomerMatchesSingleCounts()
+    {
+        final CustomerModel customer = (CustomerModel) userService.getUserForUID(TEST_CUSTOMER_UID);
+        final List<String> promotionUids = Arrays.asList("PROMO_TEST_001", "PROMO_TEST_002", "PROMO_UNKNOWN");
+
+        final IS32RedemptionCounts counts =
+                defaultIS32AccountQuotaDao.getRedemptionCountsForCustomer(promotionUids, customer);
+
+        assertNotNull("Counts should not be null", counts);
+        for (final String promotionUid : promotionUids)
+        {
+            assertEquals("Bulk count should match single count for [" + promotionUid + "]",
+                    defaultIS32AccountQuotaDao.getRedemptionCountForCustomer(promotionUid, customer),
+                    counts.getCount(promotionUid));
+        }
+    }
+
+    @Test
+    public void testGetRedemptionCountsForCustomerWithNoPromotions()
+    {
+        final CustomerModel customer = (CustomerModel) userService.getUserForUID(TEST_CUSTOMER_UID);
+
+        final IS32RedemptionCounts counts =
+                defaultIS32AccountQuotaDao.getRedemptionCountsForCustomer(Collections.emptyList(), customer);
+
+        assertTrue("Should be empty when no promotion UIDs are given", counts.isEmpty());
+    }
+
     @Test
     public void testFindAccountQuotaRawDataWithNoMatchingPromotions()
     {
@@ -99,4 +224,9 @@ public class DefaultIS32AccountQuotaDaoTest extends ServicelayerTransactionalTes
         assertNotNull("Result should not be null even with no matches", results);
         assertTrue("Should return empty list for past date", results.isEmpty());
     }
+
+    private static String groupKey(final List<Object> row)
+    {
+        return row.get(0) + "|" + row.get(1) + "|" + row.get(2);
+    }
 }
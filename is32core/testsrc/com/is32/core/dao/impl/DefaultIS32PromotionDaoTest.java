@@ -0,0 +1,113 @@
+package com.is32.core.dao.impl;
+
+import com.is32.core.enums.IS32PromotionDisplayType;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.enums.IS32RewardType;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.search.IS32PromotionSearchCriteria;
+import com.is32.core.search.IS32PromotionSearchResult;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32PromotionDaoTest
+{
+    @InjectMocks
+    private DefaultIS32PromotionDao promotionDao;
+
+    @Mock
+    private FlexibleSearchService flexibleSearchService;
+
+    @Test
+    public void testCriteriaOfTheSameShapeShareOneQuery()
+    {
+        final IS32PromotionSearchCriteria summer = IS32PromotionSearchCriteria.builder()
+                .statuses(IS32PromotionStatus.ACTIVE).tagCode("SUMMER").priorityBetween(1, null).build();
+        final IS32PromotionSearchCriteria winter = IS32PromotionSearchCriteria.builder()
+                .statuses(IS32PromotionStatus.ACTIVE, IS32PromotionStatus.DRAFT).tagCode("WINTER")
+                .priorityBetween(5, null).page(3, 50).build();
+        final IS32PromotionSearchCriteria ascending = IS32PromotionSearchCriteria.builder()
+                .statuses(IS32PromotionStatus.ACTIVE).tagCode("SUMMER").priorityBetween(1, null)
+                .sortBy(IS32PromotionSearchCriteria.SortField.PRIORITY, true).build();
+
+        assertEquals(summer.getShape(), winter.getShape());
+        assertNotEquals(summer.getShape(), ascending.getShape());
+        assertSame(promotionDao.getSearchQuery(summer), promotionDao.getSearchQuery(winter));
+        assertEquals("SELECT {p.pk} FROM {IS32Promotion AS p JOIN IS32PromotionTag AS pt "
+                + "ON {p.promotionTag} = {pt.pk}} "
+                + "WHERE {p.status} IN (?statuses) AND {pt.code} = ?tagCode AND {p.priority} >= ?minPriority "
+                + "ORDER BY {p.priority} DESC, {p.pk} DESC", promotionDao.getSearchQuery(summer));
+        assertTrue(promotionDao.getSearchQuery(ascending).endsWith("ORDER BY {p.priority} ASC, {p.pk} ASC"));
+    }
+
+    @Test
+    public void testQueryJoinsOnlyWhatTheCriteriaFilterOn()
+    {
+        final String unfiltered = promotionDao.getSearchQuery(IS32PromotionSearchCriteria.builder()
+                .sortBy(IS32PromotionSearchCriteria.SortField.START_DATE, true).build());
+        assertEquals("SELECT {p.pk} FROM {IS32Promotion AS p} ORDER BY {p.startDate} ASC, {p.pk} ASC", unfiltered);
+
+        final String overlapping = promotionDao.getSearchQuery(IS32PromotionSearchCriteria.builder()
+                .suspended(Boolean.FALSE).activeBetween(new Date(0L), new Date(1000L))
+                .displayType(IS32PromotionDisplayType.COUPON).rewardType(IS32RewardType.DISCOUNT).build());
+        assertTrue(overlapping.contains("{p.startDate} < ?activeTo AND {p.endDate} > ?activeFrom"));
+        assertTrue(overlapping.contains("{pt.elabPromotionDisplayType} = ?displayType"));
+        assertTrue(overlapping.contains("EXISTS ({{SELECT {r.pk} FROM {IS32Reward AS r} "
+                + "WHERE {r.rewardType} = ?rewardType AND {r.promotionUid} = {p.uid}}})"));
+        assertFalse(overlapping.contains("?tagCode"));
+    }
+
+    @Test
+    public void testSearchReturnsOnePageWithTotalCount()
+    {
+        final List<IS32PromotionModel> page = Arrays.asList(mock(IS32PromotionModel.class),
+                mock(IS32PromotionModel.class));
+        final SearchResult<Object> result = mock(SearchResult.class);
+        when(result.getResult()).thenReturn((List) page);
+        when(result.getTotalCount()).thenReturn(5);
+        when(flexibleSearchService.search(any(FlexibleSearchQuery.class))).thenReturn(result);
+
+        final IS32PromotionSearchResult searchResult = promotionDao.search(IS32PromotionSearchCriteria.builder()
+                .statuses(IS32PromotionStatus.ACTIVE).page(1, 2).withTotalCount().build());
+
+        assertEquals(page, searchResult.getResults());
+        assertEquals(5, searchResult.getTotalCount());
+        assertTrue("Page 2 of 3 should have a next page", searchResult.hasNextPage());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPageBeyondTheIntRangeIsRejected()
+    {
+        IS32PromotionSearchCriteria.builder().page(Integer.MAX_VALUE / 50, 50);
+    }
+
+    @Test
+    public void testLastPageWithinTheIntRangeIsAccepted()
+    {
+        final IS32PromotionSearchCriteria criteria = IS32PromotionSearchCriteria.builder()
+                .page(Integer.MAX_VALUE / 50 - 1, 50).build();
+
+        assertTrue(criteria.getStart() > 0);
+    }
+}
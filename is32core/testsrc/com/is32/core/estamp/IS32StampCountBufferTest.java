@@ -0,0 +1,174 @@
+package com.is32.core.estamp;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class IS32StampCountBufferTest
+{
+    private static final long NO_PERIODIC_FLUSH = 3_600_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Map<String, Integer>> writtenBatches = new ArrayList<>();
+
+    @Test
+    public void testFlushWritesSummedDeltasInBatches() throws Exception
+    {
+        final Path directory = folder.getRoot().toPath();
+        final IS32StampCountBuffer buffer = new IS32StampCountBuffer(new IS32StampCountJournal(directory),
+                writtenBatches::add, 2);
+        buffer.add("A", 1);
+        buffer.add("A", 1);
+        buffer.add("B", 2);
+        buffer.add("A", 1);
+        buffer.add("C", 5);
+
+        IS32StampCountBuffer.Statistics statistics = buffer.getStatistics();
+        assertEquals(3, statistics.getPendingAccounts());
+        assertEquals(10L, statistics.getPendingDelta());
+        assertTrue(statistics.getFlushLagMillis() >= 0L);
+
+        buffer.flush();
+
+        assertEquals(2, writtenBatches.size());
+        assertEquals(2, writtenBatches.get(0).size());
+        assertEquals(totals("A", 3, "B", 2, "C", 5), merged());
+        statistics = buffer.getStatistics();
+        assertEquals(0, statistics.getPendingAccounts());
+        assertEquals(0L, statistics.getPendingDelta());
+        assertEquals(0L, statistics.getFlushLagMillis());
+        assertEquals(1L, statistics.getFlushCount());
+        assertEquals("Only the current, empty generation is left", 1, journalFiles().length);
+    }
+
+    @Test
+    public void testFailedBatchIsRetriedWithNextFlush() throws Exception
+    {
+        final boolean[] failing = {true};
+        final IS32StampCountBuffer buffer = new IS32StampCountBuffer(
+                new IS32StampCountJournal(folder.getRoot().toPath()), deltas -> {
+                    if (failing[0])
+                    {
+                        throw new IllegalStateException("database unavailable");
+                    }
+                    writtenBatches.add(deltas);
+                }, 10);
+        buffer.add("A", 2);
+
+        buffer.flush();
+
+        assertEquals(1L, buffer.getStatistics().getFailedBatchCount());
+        assertEquals(2L, buffer.getStatistics().getPendingDelta());
+        assertEquals(1, buffer.getStatistics().getPendingAccounts());
+
+        failing[0] = false;
+        buffer.add("A", 1);
+        buffer.flush();
+
+        assertEquals(Collections.singletonList(totals("A", 3)), writtenBatches);
+        assertEquals(0L, buffer.getStatistics().getPendingDelta());
+    }
+
+    @Test
+    public void testJournalIsReplayedAfterCrash() throws Exception
+    {
+        final Path directory = folder.getRoot().toPath();
+        final IS32StampCountBuffer crashed = new IS32StampCountBuffer(new IS32StampCountJournal(directory),
+                writtenBatches::add, 10);
+        for (int i = 0; i < 1000; i++)
+        {
+            crashed.add("ACCOUNT-" + (i % 7), 1);
+        }
+        crashed.add("A", 4);
+
+        final IS32StampCountBuffer restarted = new IS32StampCountBuffer(new IS32StampCountJournal(directory),
+                writtenBatches::add, 10);
+        restarted.start(Executors.defaultThreadFactory(), NO_PERIODIC_FLUSH);
+        assertEquals(1004L, restarted.getStatistics().getPendingDelta());
+        restarted.stop();
+
+        final Map<String, Integer> merged = merged();
+        assertEquals(Integer.valueOf(4), merged.get("A"));
+        assertEquals(Integer.valueOf(143), merged.get("ACCOUNT-0"));
+        assertEquals(Integer.valueOf(142), merged.get("ACCOUNT-6"));
+        assertEquals("A clean stop leaves no journal behind", 0, journalFiles().length);
+    }
+
+    @Test
+    public void testCommittedAccountsAreNotReplayed() throws Exception
+    {
+        final Path directory = folder.getRoot().toPath();
+        final IS32StampCountBuffer crashed = new IS32StampCountBuffer(new IS32StampCountJournal(directory),
+                deltas -> {
+                    if (deltas.containsKey("B"))
+                    {
+                        throw new IllegalStateException("database unavailable");
+                    }
+                    writtenBatches.add(deltas);
+                }, 1);
+        crashed.add("A", 2);
+        crashed.add("B", 3);
+        crashed.flush();
+        crashed.add("C", 1);
+        assertEquals(Collections.singletonList(totals("A", 2)), writtenBatches);
+
+        final IS32StampCountBuffer restarted = new IS32StampCountBuffer(new IS32StampCountJournal(directory),
+                writtenBatches::add, 10);
+        restarted.start(Executors.defaultThreadFactory(), NO_PERIODIC_FLUSH);
+        assertEquals(4L, restarted.getStatistics().getPendingDelta());
+        assertEquals(2, restarted.getStatistics().getPendingAccounts());
+        restarted.stop();
+
+        assertEquals(totals("A", 2, "B", 3, "C", 1), merged());
+        assertEquals(0, folder.getRoot().listFiles().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyAccountIdIsRejected() throws Exception
+    {
+        new IS32StampCountBuffer(new IS32StampCountJournal(folder.getRoot().toPath()), writtenBatches::add, 10)
+                .add("", 1);
+    }
+
+    private File[] journalFiles()
+    {
+        return folder.getRoot().listFiles((dir, name) -> name.endsWith(".journal"));
+    }
+
+    private Map<String, Integer> merged()
+    {
+        final Map<String, Integer> merged = new HashMap<>();
+        for (final Map<String, Integer> batch : writtenBatches)
+        {
+            batch.forEach((accountId, delta) -> merged.merge(accountId, delta, Integer::sum));
+        }
+        return merged;
+    }
+
+    private static Map<String, Integer> totals(final Object... accountsAndDeltas)
+    {
+        final Map<String, Integer> totals = new LinkedHashMap<>();
+        for (int i = 0; i < accountsAndDeltas.length; i += 2)
+        {
+            totals.put((String) accountsAndDeltas[i], (Integer) accountsAndDeltas[i + 1]);
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,86 @@
+package com.is32.core.event;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.service.IS32PromotionCatalogVersionService;
+import com.is32.core.strategies.IS32BucketPromotionResolver;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.tx.AfterSaveEvent;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class IS32PromotionCatalogVersionAfterSaveListenerTest
+{
+    private static final PK BUCKET_PK = PK.createFixedCounterPK(IS32CoreConstants.TypeCode.IS32_BUCKET, 1L);
+    private static final PK PROMO_ITEM_PK = PK.createFixedCounterPK(IS32CoreConstants.TypeCode.IS32_PROMO_ITEM, 2L);
+    private static final PK REWARD_PK = PK.createFixedCounterPK(IS32CoreConstants.TypeCode.IS32_REWARD, 3L);
+
+    @InjectMocks
+    private IS32PromotionCatalogVersionAfterSaveListener listener;
+
+    @Mock
+    private IS32PromotionCatalogVersionService is32PromotionCatalogVersionService;
+
+    @Mock
+    private IS32BucketPromotionResolver is32BucketPromotionResolver;
+
+    @Test
+    public void testSavedBucketItemsRefreshTheirPromotions()
+    {
+        when(is32BucketPromotionResolver.resolvePromotionUids(Arrays.asList(BUCKET_PK, PROMO_ITEM_PK)))
+                .thenReturn(Collections.singleton("PROMO_A"));
+
+        listener.afterSave(Arrays.asList(event(BUCKET_PK, AfterSaveEvent.CREATE),
+                event(PROMO_ITEM_PK, AfterSaveEvent.UPDATE), event(REWARD_PK, AfterSaveEvent.UPDATE)));
+
+        verify(is32PromotionCatalogVersionService).scheduleRefresh(Collections.singleton("PROMO_A"));
+        verify(is32PromotionCatalogVersionService, never()).takeMarkedPromotionUids(any());
+    }
+
+    @Test
+    public void testRemovedBucketItemsRefreshThePromotionsMarkedForThem()
+    {
+        when(is32PromotionCatalogVersionService.takeMarkedPromotionUids(Collections.singletonList(PROMO_ITEM_PK)))
+                .thenReturn(Collections.singleton("PROMO_B"));
+        when(is32BucketPromotionResolver.resolvePromotionUids(Collections.singletonList(BUCKET_PK)))
+                .thenReturn(Collections.singleton("PROMO_A"));
+
+        listener.afterSave(Arrays.asList(event(PROMO_ITEM_PK, AfterSaveEvent.REMOVE),
+                event(BUCKET_PK, AfterSaveEvent.UPDATE)));
+
+        verify(is32PromotionCatalogVersionService).scheduleRefresh(new LinkedHashSet<>(Arrays.asList("PROMO_A", "PROMO_B")));
+        verify(is32PromotionCatalogVersionService, never()).refreshPromotions(any());
+    }
+
+    @Test
+    public void testUnrelatedItemsAreIgnored()
+    {
+        listener.afterSave(Collections.singletonList(event(REWARD_PK, AfterSaveEvent.CREATE)));
+
+        verifyNoInteractions(is32PromotionCatalogVersionService, is32BucketPromotionResolver);
+    }
+
+    private static AfterSaveEvent event(final PK pk, final int type)
+    {
+        final AfterSaveEvent event = mock(AfterSaveEvent.class);
+        when(event.getPk()).thenReturn(pk);
+        when(event.getType()).thenReturn(type);
+        return event;
+    }
+}
@@ -0,0 +1,121 @@
+package com.is32.core.keygenerator;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.keygenerator.KeyGenerator;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class IS32BlockKeyGeneratorTest
+{
+    @Mock
+    private KeyGenerator blockNumberGenerator;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    private final AtomicLong blockNumbers = new AtomicLong();
+    private IS32BlockKeyGenerator keyGenerator;
+
+    @Before
+    public void setUp()
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(blockNumberGenerator.generate()).thenAnswer(invocation -> Long.toString(blockNumbers.incrementAndGet()));
+
+        keyGenerator = new IS32BlockKeyGenerator();
+        keyGenerator.setBlockNumberGenerator(blockNumberGenerator);
+        keyGenerator.setConfigurationService(configurationService);
+        keyGenerator.setPrefix("IS32-B");
+        keyGenerator.setBlockDigits(3);
+    }
+
+    @Test
+    public void testKeysAreHandedOutFromReservedBlocks()
+    {
+        when(configuration.getInt(anyString(), anyInt())).thenReturn(Integer.valueOf(2));
+
+        final List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+        {
+            keys.add(keyGenerator.generate());
+        }
+
+        assertEquals(Arrays.asList("IS32-B0010000", "IS32-B0010001", "IS32-B0020000", "IS32-B0020001",
+                "IS32-B0030000"), keys);
+        verify(blockNumberGenerator, times(3)).generate();
+    }
+
+    @Test
+    public void testResetSkipsTheRestOfTheBlock()
+    {
+        when(configuration.getInt(anyString(), anyInt())).thenReturn(Integer.valueOf(100));
+
+        keyGenerator.generate();
+        keyGenerator.reset();
+
+        assertEquals("IS32-B0020000", keyGenerator.generate());
+    }
+
+    @Test
+    public void testConcurrentCallersNeverReceiveTheSameKey() throws Exception
+    {
+        when(configuration.getInt(anyString(), anyInt())).thenReturn(Integer.valueOf(7));
+
+        final int threads = 8;
+        final int keysPerThread = 2000;
+        final Set<Object> keys = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
+        {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+            {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < keysPerThread; i++)
+                    {
+                        keys.add(keyGenerator.generate());
+                    }
+                }));
+            }
+            for (final Future<?> future : futures)
+            {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * keysPerThread, keys.size());
+        assertEquals((threads * keysPerThread + 6) / 7, blockNumbers.get());
+    }
+}
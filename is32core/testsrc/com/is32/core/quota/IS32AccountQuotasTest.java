@@ -0,0 +1,49 @@
+package com.is32.core.quota;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class IS32AccountQuotasTest
+{
+    private final IS32AccountQuota openQuota = new IS32AccountQuota("ACCT_001", "SBL_001", 10, 4);
+    private final IS32AccountQuota usedUpQuota = new IS32AccountQuota("ACCT_002", "SBL_002", 5, 7);
+
+    @Test
+    public void testLookupByAccountId()
+    {
+        final IS32AccountQuotas quotas = new IS32AccountQuotas(Arrays.asList(openQuota, usedUpQuota));
+
+        assertSame(openQuota, quotas.get("ACCT_001"));
+        assertSame(usedUpQuota, quotas.get("ACCT_002"));
+        assertNull(quotas.get("ACCT_003"));
+        assertEquals(Arrays.asList(openQuota, usedUpQuota), quotas.getQuotas());
+    }
+
+    @Test
+    public void testRemainingQuota()
+    {
+        final IS32AccountQuotas quotas = new IS32AccountQuotas(Arrays.asList(openQuota, usedUpQuota));
+
+        assertTrue(quotas.hasRemainingQuota("ACCT_001"));
+        assertFalse(quotas.hasRemainingQuota("ACCT_002"));
+        assertFalse(quotas.hasRemainingQuota("ACCT_003"));
+        assertEquals(6, openQuota.getRemainingQuota());
+        assertEquals("Remaining quota should never be negative", 0, usedUpQuota.getRemainingQuota());
+    }
+
+    @Test
+    public void testEmpty()
+    {
+        assertTrue(IS32AccountQuotas.empty().isEmpty());
+        assertFalse(IS32AccountQuotas.empty().hasRemainingQuota("ACCT_001"));
+    }
+}
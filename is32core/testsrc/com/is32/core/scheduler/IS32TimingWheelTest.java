@@ -0,0 +1,65 @@
+package com.is32.core.scheduler;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class IS32TimingWheelTest
+{
+    private IS32TimingWheel wheel;
+
+    @Before
+    public void setUp()
+    {
+        wheel = new IS32TimingWheel(100L, 8, 0L);
+    }
+
+    @Test
+    public void testKeysFireOnceTheirDeadlineIsReachedInDeadlineOrder()
+    {
+        wheel.schedule("B", 350L);
+        wheel.schedule("A", 320L);
+        wheel.schedule("C", 900L);
+
+        assertTrue(wheel.advance(299L).isEmpty());
+        assertEquals(Arrays.asList("A", "B"), wheel.advance(360L));
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    public void testDeadlinesBeyondOneRotationWaitForTheirRound()
+    {
+        wheel.schedule("LATE", 1_250L);
+
+        assertTrue("Same slot, but one rotation too early", wheel.advance(450L).isEmpty());
+        assertEquals(Collections.singletonList("LATE"), wheel.advance(1_260L));
+    }
+
+    @Test
+    public void testReschedulingReplacesTheDeadlineAndCancelRemovesIt()
+    {
+        wheel.schedule("A", 200L);
+        wheel.schedule("A", 600L);
+        wheel.schedule("B", 300L);
+        assertTrue(wheel.cancel("B"));
+
+        assertTrue(wheel.advance(500L).isEmpty());
+        assertEquals(Collections.singletonList("A"), wheel.advance(600L));
+    }
+
+    @Test
+    public void testPassedDeadlineFiresOnTheNextAdvance()
+    {
+        wheel.advance(1_000L);
+        wheel.schedule("OVERDUE", 10L);
+
+        assertEquals(Collections.singletonList("OVERDUE"), wheel.advance(1_100L));
+    }
+}
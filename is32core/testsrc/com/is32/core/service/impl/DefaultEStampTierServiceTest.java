@@ -0,0 +1,217 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.EStampTierDao;
+import com.is32.core.event.IS32CacheInvalidationEvent;
+import com.is32.core.model.EStampTierModel;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.event.EventService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultEStampTierServiceTest
+{
+    private static final String HOT_ACCOUNT = "HOT";
+    private static final PK TIER_PK = PK.fromLong(25007L);
+    private static final int THREADS = 16;
+
+    @Mock
+    private EventService eventService;
+
+    private InMemoryEStampTierDao eStampTierDao;
+    private AtomicInteger cacheInvalidations;
+    private DefaultEStampTierService eStampTierService;
+
+    @Before
+    public void setUp()
+    {
+        eStampTierDao = new InMemoryEStampTierDao();
+        cacheInvalidations = new AtomicInteger();
+        eStampTierService = new DefaultEStampTierService()
+        {
+            @Override
+            protected <T> T executeInTransaction(final Supplier<T> body)
+            {
+                return body.get();
+            }
+
+            @Override
+            protected void invalidateCachedTier(final PK tierPk)
+            {
+                cacheInvalidations.incrementAndGet();
+            }
+        };
+        eStampTierService.setEStampTierDao(eStampTierDao);
+        eStampTierService.setEventService(eventService);
+    }
+
+    @Test
+    public void testConcurrentIncrementsOfHotAccountAreNotLost() throws Exception
+    {
+        final int incrementsPerThread = 2500;
+        eStampTierDao.maxStampCount = null;
+
+        final Set<Integer> seenCounts = ConcurrentHashMap.newKeySet();
+        runConcurrently(incrementsPerThread,
+                () -> seenCounts.add(Integer.valueOf(eStampTierService.incrementStampCount(HOT_ACCOUNT, 1))));
+
+        final int total = THREADS * incrementsPerThread;
+        assertEquals(total, eStampTierDao.currentStampCount.intValue());
+        assertEquals("Every increment observes its own count", total, seenCounts.size());
+        assertEquals(total, cacheInvalidations.get());
+        verify(eventService, never()).publishEvent(any());
+    }
+
+    @Test
+    public void testConcurrentIncrementsAreClampedToMaxStampCount() throws Exception
+    {
+        eStampTierDao.maxStampCount = Integer.valueOf(100);
+
+        final Set<Integer> seenCounts = ConcurrentHashMap.newKeySet();
+        runConcurrently(50, () -> seenCounts.add(Integer.valueOf(eStampTierService.incrementStampCount(HOT_ACCOUNT, 3))));
+
+        assertEquals(100, eStampTierDao.currentStampCount.intValue());
+        assertEquals(Integer.valueOf(100), Collections.max(seenCounts));
+        assertEquals("Only increments below the maximum update the tier", 34, cacheInvalidations.get());
+        final ArgumentCaptor<IS32CacheInvalidationEvent> event = ArgumentCaptor.forClass(IS32CacheInvalidationEvent.class);
+        verify(eventService).publishEvent(event.capture());
+        assertEquals(IS32CoreConstants.CacheRegion.QUERY_RESULT, event.getValue().getRegionName());
+        assertEquals(Collections.singletonList(TIER_PK.getLongValueAsString()), event.getValue().getKeys());
+    }
+
+    @Test
+    public void testIncrementOfUnknownAccount()
+    {
+        assertEquals(-1, eStampTierService.incrementStampCount("UNKNOWN", 1));
+        assertEquals(0, cacheInvalidations.get());
+    }
+
+    @Test
+    public void testIncrementBelowOneChangesNothing()
+    {
+        eStampTierDao.currentStampCount = Integer.valueOf(7);
+
+        assertEquals(7, eStampTierService.incrementStampCount(HOT_ACCOUNT, 0));
+        assertEquals(7, eStampTierService.incrementStampCount(HOT_ACCOUNT, -3));
+        assertEquals(-1, eStampTierService.incrementStampCount("UNKNOWN", 0));
+        assertEquals(7, eStampTierDao.currentStampCount.intValue());
+        assertEquals(0, cacheInvalidations.get());
+    }
+
+    private static void runConcurrently(final int iterations, final Runnable increment) throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> futures = new ArrayList<>();
+        try
+        {
+            for (int thread = 0; thread < THREADS; thread++)
+            {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < iterations; i++)
+                    {
+                        increment.run();
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (final Future<?> future : futures)
+            {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tier table of one account whose increment is a plain read-modify-write, so increments are
+     * only correct if the service serializes them. It holds no tier models, so the model finders
+     * find nothing.
+     */
+    private static final class InMemoryEStampTierDao implements EStampTierDao
+    {
+        private volatile Integer currentStampCount = Integer.valueOf(0);
+        private volatile Integer maxStampCount;
+
+        @Override
+        public boolean incrementStampCount(final String accountId, final int count)
+        {
+            if (!HOT_ACCOUNT.equals(accountId))
+            {
+                return false;
+            }
+            final int current = currentStampCount.intValue();
+            if (maxStampCount != null && current >= maxStampCount.intValue())
+            {
+                return false;
+            }
+            Thread.yield();
+            final int incremented = current + count;
+            currentStampCount = Integer.valueOf(maxStampCount != null ? Math.min(incremented, maxStampCount.intValue())
+                    : incremented);
+            return true;
+        }
+
+        @Override
+        public List<Object> findStampCount(final String accountId)
+        {
+            return HOT_ACCOUNT.equals(accountId) ? Arrays.asList(TIER_PK, currentStampCount, maxStampCount) : null;
+        }
+
+        @Override
+        public EStampTierModel findByAccountId(final String accountId)
+        {
+            return null;
+        }
+
+        @Override
+        public List<EStampTierModel> findBySiebelAcctId(final String siebelAcctId)
+        {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<EStampTierModel> findByTierLevel(final int tierLevel)
+        {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<EStampTierModel> findAllActiveTiers()
+        {
+            return Collections.emptyList();
+        }
+    }
+}
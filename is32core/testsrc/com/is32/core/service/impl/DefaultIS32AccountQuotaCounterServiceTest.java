@@ -0,0 +1,128 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.dao.EStampTierDao;
+import com.is32.core.dao.IS32AccountQuotaCounterDao;
+import com.is32.core.model.IS32AccountQuotaCounterModel;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.servicelayer.exceptions.ModelSavingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32AccountQuotaCounterServiceTest
+{
+    private static final PK COUNTER_A = PK.fromLong(1L);
+    private static final PK COUNTER_B = PK.fromLong(2L);
+
+    @Mock
+    private IS32AccountQuotaCounterDao is32AccountQuotaCounterDao;
+
+    @Mock
+    private EStampTierDao eStampTierDao;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private CustomerModel customer;
+
+    @Mock
+    private IS32AccountQuotaCounterModel newCounter;
+
+    private final List<PK> invalidated = new ArrayList<>();
+    private int newTransactions;
+    private DefaultIS32AccountQuotaCounterService counterService;
+
+    @Before
+    public void setUp()
+    {
+        counterService = new DefaultIS32AccountQuotaCounterService()
+        {
+            @Override
+            protected <T> T executeInTransaction(final Supplier<T> body)
+            {
+                return body.get();
+            }
+
+            @Override
+            protected <T> T executeInNewTransaction(final Supplier<T> body)
+            {
+                newTransactions++;
+                return body.get();
+            }
+
+            @Override
+            protected void invalidateCachedCounter(final PK counterPk)
+            {
+                invalidated.add(counterPk);
+            }
+        };
+        counterService.setIs32AccountQuotaCounterDao(is32AccountQuotaCounterDao);
+        counterService.setEStampTierDao(eStampTierDao);
+        counterService.setModelService(modelService);
+    }
+
+    @Test
+    public void testExistingCountersAreIncrementedByStatement()
+    {
+        when(is32AccountQuotaCounterDao.incrementOrderedAmt(customer, "A")).thenReturn(COUNTER_A);
+        when(is32AccountQuotaCounterDao.incrementOrderedAmt(customer, "B")).thenReturn(COUNTER_B);
+
+        counterService.recordRedemption(customer, Arrays.asList("A", "B", "A"));
+
+        verify(is32AccountQuotaCounterDao, times(1)).incrementOrderedAmt(customer, "A");
+        verify(modelService, never()).create(IS32AccountQuotaCounterModel.class);
+        assertEquals(Arrays.asList(COUNTER_A, COUNTER_B), invalidated);
+    }
+
+    @Test
+    public void testMissingCounterIsCreatedInItsOwnTransactionAndIncremented()
+    {
+        when(is32AccountQuotaCounterDao.incrementOrderedAmt(customer, "A")).thenReturn(null).thenReturn(COUNTER_A);
+        when(is32AccountQuotaCounterDao.incrementOrderedAmt(customer, "B")).thenReturn(COUNTER_B);
+        when(modelService.create(IS32AccountQuotaCounterModel.class)).thenReturn(newCounter);
+
+        counterService.recordRedemption(customer, Arrays.asList("A", "B"));
+
+        verify(newCounter).setCustomer(customer);
+        verify(newCounter).setAccountId("A");
+        verify(newCounter).setOrderedAmt(Integer.valueOf(0));
+        verify(modelService).save(newCounter);
+        assertEquals(1, newTransactions);
+        verify(is32AccountQuotaCounterDao, times(1)).incrementOrderedAmt(customer, "B");
+        assertEquals(Arrays.asList(COUNTER_B, COUNTER_A), invalidated);
+    }
+
+    @Test
+    public void testConcurrentlyCreatedCounterIsIncremented()
+    {
+        when(is32AccountQuotaCounterDao.incrementOrderedAmt(customer, "A")).thenReturn(null).thenReturn(COUNTER_A);
+        when(modelService.create(IS32AccountQuotaCounterModel.class)).thenReturn(newCounter);
+        doThrow(new ModelSavingException("duplicate key")).when(modelService).save(newCounter);
+
+        counterService.recordRedemption(customer, Collections.singleton("A"));
+
+        verify(is32AccountQuotaCounterDao, times(2)).incrementOrderedAmt(customer, "A");
+        assertEquals(Collections.singletonList(COUNTER_A), invalidated);
+    }
+}
@@ -1,11 +1,21 @@
 package com.is32.core.service.impl;
 
+import com.is32.core.cache.IS32AccountQuotaCache;
 import com.is32.core.dao.IS32AccountQuotaDao;
+import com.is32.core.quota.IS32AccountQuota;
+import com.is32.core.quota.IS32AccountQuotas;
+import com.is32.core.quota.IS32RedemptionCounts;
+import com.is32.core.service.IS32AccountQuotaCounterService;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
 import de.hybris.bootstrap.annotations.UnitTest;
 import de.hybris.platform.catalog.CatalogVersionService;
 import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
 import de.hybris.platform.servicelayer.user.UserService;
+import org.apache.commons.configuration.Configuration;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -17,16 +27,22 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @UnitTest
@@ -45,6 +61,21 @@ public class DefaultIS32AccountQuotaServiceTest
     @Mock
     private CatalogVersionService catalogVersionService;
 
+    @Mock
+    private IS32AccountQuotaCache is32AccountQuotaCache;
+
+    @Mock
+    private IS32AccountQuotaCounterService is32AccountQuotaCounterService;
+
+    @Mock
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
     @Mock
     private CustomerModel customer;
 
@@ -60,6 +91,7 @@ public class DefaultIS32AccountQuotaServiceTest
     @Test
     public void testGetAccountQuotasAggregation()
     {
+        givenSqlAggregationEnabled(false);
         final List<List<Object>> rawData = new ArrayList<>();
         // Two rows for same account - one with userPk (redeemed), one without
         rawData.add(Arrays.asList("ACCT_001", "SBL_001", 10, "somePk"));
@@ -69,37 +101,28 @@ public class DefaultIS32AccountQuotaServiceTest
         when(is32AccountQuotaDao.findAccountQuotaRawData(eq(customer), eq(catalogVersion), any(Date.class)))
                 .thenReturn(rawData);
 
-        final List<Map<String, Object>> result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
+        final IS32AccountQuotas result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
 
         assertNotNull(result);
         assertEquals("Should have 2 aggregated accounts", 2, result.size());
 
-        // Find ACCT_001
-        final Map<String, Object> acct1 = result.stream()
-                .filter(m -> "ACCT_001".equals(m.get("accountId")))
-                .findFirst()
-                .orElse(null);
-
+        final IS32AccountQuota acct1 = result.get("ACCT_001");
         assertNotNull("ACCT_001 should exist", acct1);
-        assertEquals("ACCT_001 orderedAmt should be 1 (one redemption)", 1, acct1.get("orderedAmt"));
-
-        // Find ACCT_002
-        final Map<String, Object> acct2 = result.stream()
-                .filter(m -> "ACCT_002".equals(m.get("accountId")))
-                .findFirst()
-                .orElse(null);
+        assertEquals("ACCT_001 orderedAmt should be 1 (one redemption)", 1, acct1.getOrderedAmt());
 
+        final IS32AccountQuota acct2 = result.get("ACCT_002");
         assertNotNull("ACCT_002 should exist", acct2);
-        assertEquals("ACCT_002 orderedAmt should be 0 (no redemption)", 0, acct2.get("orderedAmt"));
+        assertEquals("ACCT_002 orderedAmt should be 0 (no redemption)", 0, acct2.getOrderedAmt());
     }
 
     @Test
     public void testGetAccountQuotasEmptyResult()
     {
+        givenSqlAggregationEnabled(false);
         when(is32AccountQuotaDao.findAccountQuotaRawData(eq(customer), eq(catalogVersion), any(Date.class)))
                 .thenReturn(Collections.emptyList());
 
-        final List<Map<String, Object>> result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
+        final IS32AccountQuotas result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
 
         assertNotNull(result);
         assertTrue("Should be empty when no raw data", result.isEmpty());
@@ -108,6 +131,7 @@ public class DefaultIS32AccountQuotaServiceTest
     @Test
     public void testGetAccountQuotasMultipleRedemptions()
     {
+        givenSqlAggregationEnabled(false);
         final List<List<Object>> rawData = new ArrayList<>();
         rawData.add(Arrays.asList("ACCT_001", "SBL_001", 5, "pk1"));
         rawData.add(Arrays.asList("ACCT_001", "SBL_001", 5, "pk2"));
@@ -116,10 +140,163 @@ public class DefaultIS32AccountQuotaServiceTest
         when(is32AccountQuotaDao.findAccountQuotaRawData(eq(customer), eq(catalogVersion), any(Date.class)))
                 .thenReturn(rawData);
 
-        final List<Map<String, Object>> result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
+        final IS32AccountQuotas result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
 
         assertEquals(1, result.size());
-        assertEquals("Should sum 3 redemptions", 3, result.get(0).get("orderedAmt"));
+        assertEquals("Should sum 3 redemptions", 3, result.getQuotas().get(0).getOrderedAmt());
+    }
+
+    @Test
+    public void testGetAccountQuotasUsesSqlAggregation()
+    {
+        givenSqlAggregationEnabled(true);
+
+        final List<List<Object>> aggregatedData = new ArrayList<>();
+        aggregatedData.add(Arrays.asList("ACCT_001", "SBL_001", 10, 3));
+        aggregatedData.add(Arrays.asList("ACCT_002", "SBL_002", 20, 0));
+
+        when(is32AccountQuotaDao.findAggregatedAccountQuotaData(eq(customer), eq(catalogVersion), any(Date.class)))
+                .thenReturn(aggregatedData);
+
+        final IS32AccountQuotas result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
+
+        assertEquals(2, result.size());
+        final IS32AccountQuota first = result.getQuotas().get(0);
+        assertEquals("ACCT_001", first.getAccountId());
+        assertEquals("SBL_001", first.getSiebelAcctId());
+        assertEquals(10, first.getThreshold());
+        assertEquals(3, first.getOrderedAmt());
+        assertEquals(0, result.getQuotas().get(1).getOrderedAmt());
+        verify(is32AccountQuotaDao, never()).findAccountQuotaRawData(any(), any(), any());
+    }
+
+    @Test
+    public void testGetAccountQuotasServedFromCache()
+    {
+        final IS32AccountQuotas cached = IS32AccountQuotas.empty();
+        when(is32AccountQuotaCache.isEnabled()).thenReturn(true);
+        when(is32AccountQuotaCache.get(customer, catalogVersion)).thenReturn(cached);
+
+        final IS32AccountQuotas result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
+
+        assertSame(cached, result);
+        verify(is32AccountQuotaDao, never()).findAggregatedAccountQuotaData(any(), any(), any());
+        verify(is32AccountQuotaDao, never()).findAccountQuotaRawData(any(), any(), any());
+    }
+
+    @Test
+    public void testGetAccountQuotasCachesLoadedQuotas()
+    {
+        givenSqlAggregationEnabled(true);
+        when(is32AccountQuotaCache.isEnabled()).thenReturn(true);
+        when(is32AccountQuotaCache.getGeneration(customer)).thenReturn(7L);
+        when(is32AccountQuotaDao.findAggregatedAccountQuotaData(eq(customer), eq(catalogVersion), any(Date.class)))
+                .thenReturn(Collections.emptyList());
+
+        final IS32AccountQuotas result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
+
+        verify(is32AccountQuotaCache).put(customer, catalogVersion, result, 7L);
+    }
+
+    @Test
+    public void testGetAccountQuotasFromCounters()
+    {
+        final IS32AccountQuotas counted = IS32AccountQuotas.empty();
+        final IS32PromotionSnapshotEntry entry = new IS32PromotionSnapshotEntry(null, "PROMO_001", 0, 0L,
+                Long.MAX_VALUE, false, IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1,
+                new String[] { "ACCT_001", "ACCT_002" });
+
+        when(is32AccountQuotaCounterService.isEnabled()).thenReturn(true);
+        when(is32PromotionSnapshotService.getActiveEntries(any(Date.class)))
+                .thenReturn(Collections.singletonList(entry));
+        when(is32AccountQuotaCounterService.getAccountQuotas(customer,
+                new LinkedHashSet<>(Arrays.asList("ACCT_001", "ACCT_002")))).thenReturn(counted);
+
+        final IS32AccountQuotas result = accountQuotaService.getAccountQuotas(customer, catalogVersion);
+
+        assertSame(counted, result);
+        verify(is32AccountQuotaDao, never()).findAggregatedAccountQuotaData(any(), any(), any());
+    }
+
+    @Test
+    public void testGetAccountQuotasForCustomersSplitsBulkRowsByCustomer()
+    {
+        givenSqlAggregationEnabled(true);
+        final CustomerModel otherCustomer = mock(CustomerModel.class);
+        when(customer.getPk()).thenReturn(PK.fromLong(1L));
+        when(otherCustomer.getPk()).thenReturn(PK.fromLong(2L));
+
+        final List<List<Object>> bulkData = new ArrayList<>();
+        bulkData.add(Arrays.asList(PK.fromLong(1L), "ACCT_001", "SBL_001", 10, 3));
+        bulkData.add(Arrays.asList(PK.fromLong(2L), "ACCT_001", "SBL_001", 10, 1));
+        bulkData.add(Arrays.asList(null, "ACCT_002", "SBL_002", 20, 0));
+        bulkData.add(Arrays.asList(PK.fromLong(2L), "ACCT_003", "SBL_003", 5, 5));
+
+        final List<CustomerModel> customers = Arrays.asList(customer, otherCustomer);
+        when(is32AccountQuotaDao.findAggregatedAccountQuotaDataForCustomers(eq(customers), eq(catalogVersion),
+                any(Date.class))).thenReturn(bulkData);
+
+        final Map<PK, IS32AccountQuotas> result =
+                accountQuotaService.getAccountQuotasForCustomers(customers, catalogVersion);
+
+        final IS32AccountQuotas first = result.get(PK.fromLong(1L));
+        assertEquals("Every customer should report every account", 3, first.size());
+        assertEquals(3, first.get("ACCT_001").getOrderedAmt());
+        assertEquals(0, first.get("ACCT_002").getOrderedAmt());
+        assertEquals(0, first.get("ACCT_003").getOrderedAmt());
+        assertEquals(5, first.get("ACCT_003").getThreshold());
+
+        final IS32AccountQuotas second = result.get(PK.fromLong(2L));
+        assertEquals(1, second.get("ACCT_001").getOrderedAmt());
+        assertEquals(5, second.get("ACCT_003").getOrderedAmt());
+        assertFalse(second.hasRemainingQuota("ACCT_003"));
+        verify(is32AccountQuotaDao, never()).findAggregatedAccountQuotaData(any(), any(), any());
+    }
+
+    @Test
+    public void testGetAccountQuotasForCustomersLoadsOnlyCacheMisses()
+    {
+        givenSqlAggregationEnabled(true);
+        final CustomerModel otherCustomer = mock(CustomerModel.class);
+        when(customer.getPk()).thenReturn(PK.fromLong(1L));
+        when(otherCustomer.getPk()).thenReturn(PK.fromLong(2L));
+
+        final IS32AccountQuotas cached = IS32AccountQuotas.empty();
+        when(is32AccountQuotaCache.isEnabled()).thenReturn(true);
+        when(is32AccountQuotaCache.get(customer, catalogVersion)).thenReturn(cached);
+        when(is32AccountQuotaCache.getGeneration(otherCustomer)).thenReturn(3L);
+        when(is32AccountQuotaDao.findAggregatedAccountQuotaDataForCustomers(
+                eq(Collections.singletonList(otherCustomer)), eq(catalogVersion), any(Date.class)))
+                .thenReturn(Collections.singletonList(Arrays.asList(PK.fromLong(2L), "ACCT_001", "SBL_001", 10, 2)));
+
+        final Map<PK, IS32AccountQuotas> result = accountQuotaService.getAccountQuotasForCustomers(
+                Arrays.asList(customer, otherCustomer), catalogVersion);
+
+        assertSame(cached, result.get(PK.fromLong(1L)));
+        final IS32AccountQuotas loaded = result.get(PK.fromLong(2L));
+        assertEquals(2, loaded.get("ACCT_001").getOrderedAmt());
+        verify(is32AccountQuotaCache).put(otherCustomer, catalogVersion, loaded, 3L);
+    }
+
+    @Test
+    public void testGetRedemptionCountsForCustomersReportsEveryCustomer()
+    {
+        final CustomerModel otherCustomer = mock(CustomerModel.class);
+        when(customer.getPk()).thenReturn(PK.fromLong(1L));
+        when(otherCustomer.getPk()).thenReturn(PK.fromLong(2L));
+
+        final List<String> promotionUids = Collections.singletonList("PROMO_001");
+        final List<CustomerModel> customers = Arrays.asList(customer, otherCustomer);
+        when(is32AccountQuotaDao.getRedemptionCountsForCustomers(promotionUids, customers)).thenReturn(
+                Collections.singletonMap(PK.fromLong(1L),
+                        IS32RedemptionCounts.of(Collections.singletonMap("PROMO_001", 2))));
+
+        final Map<PK, IS32RedemptionCounts> counts =
+                accountQuotaService.getRedemptionCountsForCustomers(promotionUids, customers);
+
+        assertEquals(2, counts.get(PK.fromLong(1L)).getCount("PROMO_001"));
+        assertTrue("Customers without redemptions should report empty counts",
+                counts.get(PK.fromLong(2L)).isEmpty());
     }
 
     @Test
@@ -132,6 +309,21 @@ public class DefaultIS32AccountQuotaServiceTest
         assertEquals(5, count);
     }
 
+    @Test
+    public void testGetRedemptionCounts()
+    {
+        final List<String> promotionUids = Arrays.asList("PROMO_001", "PROMO_002");
+        final Map<String, Integer> countsByUid = new HashMap<>();
+        countsByUid.put("PROMO_001", 2);
+        when(is32AccountQuotaDao.getRedemptionCountsForCustomer(promotionUids, customer))
+                .thenReturn(IS32RedemptionCounts.of(countsByUid));
+
+        final IS32RedemptionCounts counts = accountQuotaService.getRedemptionCounts(promotionUids, customer);
+
+        assertEquals(2, counts.getCount("PROMO_001"));
+        assertEquals("Promotions without redemptions should count as zero", 0, counts.getCount("PROMO_002"));
+    }
+
     @Test
     public void testGetAccountQuotasForCurrentUserNonCustomer()
     {
@@ -140,9 +332,15 @@ public class DefaultIS32AccountQuotaServiceTest
         when(anonymousUser.getUid()).thenReturn("anonymous");
         when(userService.getCurrentUser()).thenReturn(anonymousUser);
 
-        final List<Map<String, Object>> result = accountQuotaService.getAccountQuotasForCurrentUser();
+        final IS32AccountQuotas result = accountQuotaService.getAccountQuotasForCurrentUser();
 
         assertNotNull(result);
         assertTrue("Should return empty for non-customer user", result.isEmpty());
     }
+
+    private void givenSqlAggregationEnabled(final boolean enabled)
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getBoolean("is32core.accountquota.aggregation.sql.enabled", true)).thenReturn(enabled);
+    }
 }
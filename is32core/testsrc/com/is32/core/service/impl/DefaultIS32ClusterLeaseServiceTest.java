@@ -0,0 +1,119 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.dao.IS32ClusterLeaseDao;
+import com.is32.core.model.IS32ClusterLeaseModel;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.exceptions.ModelSavingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32ClusterLeaseServiceTest
+{
+    private static final String CODE = "is32PromotionScheduler";
+    private static final String OTHER_NODE = "1/4711@other";
+    private static final long LEASE_MILLIS = 30_000L;
+
+    @Mock
+    private IS32ClusterLeaseDao is32ClusterLeaseDao;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    private DefaultIS32ClusterLeaseService leaseService;
+    private long nanos;
+
+    @Before
+    public void setUp()
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getString("cluster.id", "0")).thenReturn("0");
+
+        leaseService = new DefaultIS32ClusterLeaseService()
+        {
+            @Override
+            protected long nanoTime()
+            {
+                return nanos;
+            }
+        };
+        leaseService.setIs32ClusterLeaseDao(is32ClusterLeaseDao);
+        leaseService.setModelService(modelService);
+        leaseService.setConfigurationService(configurationService);
+        leaseService.afterPropertiesSet();
+    }
+
+    @Test
+    public void testFirstNodeCreatesTheLeaseAndLosingRaceIsNoLease()
+    {
+        final IS32ClusterLeaseModel lease = mock(IS32ClusterLeaseModel.class);
+        when(is32ClusterLeaseDao.findLease(CODE)).thenReturn(null);
+        when(modelService.create(IS32ClusterLeaseModel.class)).thenReturn(lease);
+
+        assertTrue(leaseService.claim(CODE, LEASE_MILLIS));
+        verify(lease).setOwner(leaseService.getNodeId());
+
+        doThrow(new ModelSavingException("duplicate code")).when(modelService).save(lease);
+        assertFalse(leaseService.claim(CODE, LEASE_MILLIS));
+    }
+
+    @Test
+    public void testOwnerRenewsAtTheVersionItRead()
+    {
+        when(is32ClusterLeaseDao.findLease(CODE)).thenReturn(lease(leaseService.getNodeId(), 7L));
+        when(is32ClusterLeaseDao.renew(CODE, leaseService.getNodeId(), 7L)).thenReturn(true);
+
+        assertTrue(leaseService.claim(CODE, LEASE_MILLIS));
+        verify(is32ClusterLeaseDao, never()).takeOver(anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    public void testFollowerTakesOverOnlyAfterTheVersionStoodStillForTheLease()
+    {
+        final List<Object> renewed = lease(OTHER_NODE, 4L);
+        when(is32ClusterLeaseDao.findLease(CODE)).thenReturn(lease(OTHER_NODE, 3L), renewed, renewed, renewed);
+        when(is32ClusterLeaseDao.takeOver(CODE, leaseService.getNodeId(), 4L)).thenReturn(true);
+
+        assertFalse(leaseService.claim(CODE, LEASE_MILLIS));
+        nanos += TimeUnit.MILLISECONDS.toNanos(LEASE_MILLIS);
+        assertFalse("The owner renewed, the wait starts again", leaseService.claim(CODE, LEASE_MILLIS));
+        nanos += TimeUnit.MILLISECONDS.toNanos(LEASE_MILLIS) - 1L;
+        assertFalse(leaseService.claim(CODE, LEASE_MILLIS));
+        verify(is32ClusterLeaseDao, never()).takeOver(anyString(), anyString(), anyLong());
+
+        nanos += 1L;
+        assertTrue(leaseService.claim(CODE, LEASE_MILLIS));
+    }
+
+    private static List<Object> lease(final String owner, final long version)
+    {
+        return Arrays.<Object>asList(owner, Long.valueOf(version));
+    }
+}
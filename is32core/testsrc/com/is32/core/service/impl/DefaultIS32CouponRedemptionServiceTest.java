@@ -0,0 +1,182 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.event.IS32CacheInvalidationEvent;
+import com.is32.core.event.IS32CouponRedemptionEvent;
+import com.is32.core.service.EStampTierService;
+import com.is32.core.service.IS32AccountQuotaCounterService;
+import com.is32.core.service.IS32RewardService;
+import com.is32.core.snapshot.IS32RewardRoutingTable;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.event.EventService;
+import de.hybris.platform.servicelayer.user.UserService;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32CouponRedemptionServiceTest
+{
+    @Mock
+    private IS32RewardService is32RewardService;
+
+    @Mock
+    private EStampTierService eStampTierService;
+
+    @Mock
+    private IS32AccountQuotaCounterService is32AccountQuotaCounterService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private EventService eventService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    private DefaultIS32CouponRedemptionService redemptionService;
+
+    @Before
+    public void setUp()
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getBoolean(anyString(), anyBoolean())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(configuration.getInt(anyString(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+
+        redemptionService = new DefaultIS32CouponRedemptionService()
+        {
+            @Override
+            protected ThreadFactory createThreadFactory()
+            {
+                return Executors.defaultThreadFactory();
+            }
+        };
+        redemptionService.setIs32RewardService(is32RewardService);
+        redemptionService.setEStampTierService(eStampTierService);
+        redemptionService.setIs32AccountQuotaCounterService(is32AccountQuotaCounterService);
+        redemptionService.setUserService(userService);
+        redemptionService.setEventService(eventService);
+        redemptionService.setConfigurationService(configurationService);
+    }
+
+    @Test
+    public void testRedemptionsWithinWindowAreCoalescedPerAccount() throws InterruptedException
+    {
+        when(configuration.getBoolean(eq(IS32CoreConstants.Config.COUPON_REDEMPTION_ASYNC), anyBoolean()))
+                .thenReturn(true);
+        when(configuration.getLong(eq(IS32CoreConstants.Config.COUPON_REDEMPTION_WINDOW), anyLong()))
+                .thenReturn(Long.valueOf(1000L));
+        when(is32AccountQuotaCounterService.isEnabled()).thenReturn(true);
+        when(is32RewardService.getMemberAccountRoute("P1"))
+                .thenReturn(IS32RewardRoutingTable.builder().add("P1", "A", 2).build().getRoute("P1"));
+        final CustomerModel first = customer("c1", 1L);
+        final CustomerModel second = customer("c2", 2L);
+
+        redemptionService.afterPropertiesSet();
+        redemptionService.submit(new IS32CouponRedemptionEvent("P1", "c1", "C-1"));
+        redemptionService.submit(new IS32CouponRedemptionEvent("P1", "c1", "C-2"));
+        redemptionService.submit(new IS32CouponRedemptionEvent("P1", "c2", "C-3"));
+        redemptionService.destroy();
+
+        assertEquals(0, redemptionService.getPendingCount());
+        verify(eStampTierService).incrementStampCount("A", 6);
+        verify(is32AccountQuotaCounterService, times(2)).recordRedemption(first, Collections.singleton("A"));
+        verify(is32AccountQuotaCounterService).recordRedemption(second, Collections.singleton("A"));
+        final ArgumentCaptor<IS32CacheInvalidationEvent> evictions = ArgumentCaptor.forClass(IS32CacheInvalidationEvent.class);
+        verify(eventService, times(2)).publishEvent(evictions.capture());
+        assertEquals(IS32CoreConstants.CacheRegion.ACCOUNT_QUOTA, evictions.getValue().getRegionName());
+    }
+
+    @Test
+    public void testSynchronousRedemptionWithoutStampRewardOnlyEvictsQuotas() throws InterruptedException
+    {
+        when(configuration.getBoolean(eq(IS32CoreConstants.Config.COUPON_REDEMPTION_ASYNC), anyBoolean()))
+                .thenReturn(false);
+        when(is32RewardService.getMemberAccountRoute("P1"))
+                .thenReturn(IS32RewardRoutingTable.builder().build().getRoute("P1"));
+        customer("c1", 1L);
+
+        redemptionService.afterPropertiesSet();
+        redemptionService.submit(new IS32CouponRedemptionEvent("P1", "c1", "C-1"));
+
+        verify(eStampTierService, never()).incrementStampCount(anyString(), anyInt());
+        final ArgumentCaptor<IS32CacheInvalidationEvent> eviction = ArgumentCaptor.forClass(IS32CacheInvalidationEvent.class);
+        verify(eventService).publishEvent(eviction.capture());
+        assertEquals(Collections.singletonList("1"), eviction.getValue().getKeys());
+        redemptionService.destroy();
+    }
+
+    @Test
+    public void testRedemptionBeyondFullQueueIsRoutedToItsPartition() throws InterruptedException
+    {
+        when(configuration.getBoolean(eq(IS32CoreConstants.Config.COUPON_REDEMPTION_ASYNC), anyBoolean()))
+                .thenReturn(true);
+        when(configuration.getInt(eq(IS32CoreConstants.Config.EVENT_PROCESSING_THREADS), anyInt())).thenReturn(1);
+        when(configuration.getInt(eq(IS32CoreConstants.Config.COUPON_REDEMPTION_QUEUE_CAPACITY), anyInt()))
+                .thenReturn(1);
+        final CountDownLatch dispatching = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final IS32RewardRoutingTable routes = IS32RewardRoutingTable.builder().add("P1", "A", 1).add("P2", "B", 1).build();
+        when(is32RewardService.getMemberAccountRoute("P1")).thenAnswer(invocation -> {
+            dispatching.countDown();
+            release.await();
+            return routes.getRoute("P1");
+        });
+        when(is32RewardService.getMemberAccountRoute("P2")).thenReturn(routes.getRoute("P2"));
+        final AtomicReference<Thread> appliedOn = new AtomicReference<>();
+        when(eStampTierService.incrementStampCount("B", 1)).thenAnswer(invocation -> {
+            appliedOn.set(Thread.currentThread());
+            return 1;
+        });
+
+        redemptionService.afterPropertiesSet();
+        redemptionService.submit(new IS32CouponRedemptionEvent("P1", null, "C-1"));
+        dispatching.await();
+        redemptionService.submit(new IS32CouponRedemptionEvent("P1", null, "C-2"));
+        redemptionService.submit(new IS32CouponRedemptionEvent("P2", null, "C-3"));
+        release.countDown();
+        redemptionService.destroy();
+
+        verify(eStampTierService).incrementStampCount("B", 1);
+        assertNotSame("The partition worker applies the increment", Thread.currentThread(), appliedOn.get());
+    }
+
+    private CustomerModel customer(final String uid, final long pk)
+    {
+        final CustomerModel customer = mock(CustomerModel.class);
+        when(customer.getPk()).thenReturn(PK.fromLong(pk));
+        when(userService.getUserForUID(uid)).thenReturn(customer);
+        return customer;
+    }
+}
@@ -0,0 +1,234 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.dao.IS32PromotionBucketDao;
+import com.is32.core.enums.IS32BucketType;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshot;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
+import com.is32.core.strategies.IS32BucketPromotionResolver;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32ProductPromotionIndexServiceTest
+{
+    private static final String MAX_AGE = "is32core.promotion.productindex.maxage";
+    private static final PK CATALOG_VERSION_PK = PK.fromLong(100L);
+    private static final PK PROMO_ITEM_PK = PK.fromLong(200L);
+    private static final long NOW = 1_500_000_000_000L;
+
+    @InjectMocks
+    private DefaultIS32ProductPromotionIndexService indexService;
+
+    @Mock
+    private IS32PromotionBucketDao is32PromotionBucketDao;
+
+    @Mock
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
+
+    @Mock
+    private IS32BucketPromotionResolver is32BucketPromotionResolver;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    @Mock
+    private TimeService timeService;
+
+    @Mock
+    private CatalogVersionModel catalogVersion;
+
+    private IS32PromotionModel highPromotion;
+    private IS32PromotionModel lowPromotion;
+    private IS32PromotionModel suspendedPromotion;
+    private IS32PromotionModel endingPromotion;
+    private final Map<PK, IS32PromotionModel> promotions = new HashMap<>();
+
+    @Before
+    public void setUp()
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getInt(MAX_AGE, 3600)).thenReturn(3600);
+        indexService.afterPropertiesSet();
+
+        when(catalogVersion.getPk()).thenReturn(CATALOG_VERSION_PK);
+
+        highPromotion = promotion(101L);
+        lowPromotion = promotion(102L);
+        suspendedPromotion = promotion(103L);
+        endingPromotion = promotion(104L);
+        when(modelService.get(any(PK.class))).thenAnswer(invocation -> promotions.get(invocation.<PK>getArgument(0)));
+        final IS32PromotionSnapshot snapshot = new IS32PromotionSnapshot(Arrays.asList(
+                entry(lowPromotion, "PROMO_LOW", 1, false),
+                entry(highPromotion, "PROMO_HIGH", 9, false),
+                entry(suspendedPromotion, "PROMO_SUSPENDED", 5, true),
+                entry(endingPromotion, "PROMO_ENDING", 3, 0L, NOW + 1000L)), 0L);
+        when(is32PromotionSnapshotService.getSnapshot()).thenReturn(snapshot);
+
+        when(is32PromotionBucketDao.findProductItems(catalogVersion)).thenReturn(Arrays.asList(
+                item("PROMO_LOW", "P1", IS32BucketType.INCLUDE, null),
+                item("PROMO_LOW", "P2", IS32BucketType.INCLUDE, Boolean.FALSE),
+                item("PROMO_HIGH", "P1", IS32BucketType.INCLUDE, null),
+                item("PROMO_HIGH", "P2", IS32BucketType.INCLUDE, null),
+                item("PROMO_HIGH", "P3", IS32BucketType.INCLUDE, null),
+                item("PROMO_HIGH", "P3", IS32BucketType.EXCLUDE, null),
+                item("PROMO_LOW", "P4", IS32BucketType.INCLUDE, Boolean.TRUE),
+                item("PROMO_SUSPENDED", "P1", IS32BucketType.INCLUDE, null),
+                item("PROMO_ENDING", "P5", IS32BucketType.INCLUDE, null)));
+        when(is32PromotionBucketDao.findExcludeItems()).thenReturn(Collections.singletonList(
+                Arrays.asList("PROMO_HIGH", "P2")));
+    }
+
+    @Test
+    public void testLookupAppliesExclusionsAndReturnsLivePromotionsByPriority()
+    {
+        pinClock(NOW);
+        assertEquals(Arrays.asList(highPromotion, lowPromotion),
+                indexService.getActivePromotionsForProduct(product("P1")));
+        assertEquals("Exclude items should remove the promotion",
+                Collections.singletonList(lowPromotion), indexService.getActivePromotionsForProduct(product("P2")));
+        assertTrue("An EXCLUDE bucket should remove the promotion",
+                indexService.getActivePromotionsForProduct(product("P3")).isEmpty());
+        assertTrue("An excluding promo item should remove the promotion",
+                indexService.getActivePromotionsForProduct(product("P4")).isEmpty());
+        assertEquals(Arrays.asList(highPromotion, lowPromotion),
+                indexService.getActivePromotionsForProducts(Arrays.asList(product("P2"), product("P1"))));
+
+        verify(is32PromotionBucketDao, times(1)).findProductItems(catalogVersion);
+    }
+
+    @Test
+    public void testSavedItemReindexesOnlyItsPromotion()
+    {
+        pinClock(NOW);
+        indexService.getIndex(catalogVersion);
+
+        when(is32BucketPromotionResolver.resolvePromotionUids(Collections.singletonList(PROMO_ITEM_PK)))
+                .thenReturn(Collections.singleton("PROMO_LOW"));
+        when(modelService.get(CATALOG_VERSION_PK)).thenReturn(catalogVersion);
+        when(is32PromotionBucketDao.findExcludeItems("PROMO_LOW")).thenReturn(Collections.emptyList());
+        when(is32PromotionBucketDao.findProductItems(catalogVersion, "PROMO_LOW")).thenReturn(
+                Collections.singletonList(item("PROMO_LOW", "P3", IS32BucketType.INCLUDE, null)));
+
+        indexService.invalidate(Collections.singletonList(PROMO_ITEM_PK.getLongValueAsString()));
+
+        assertEquals(Collections.singletonList(highPromotion), indexService.getActivePromotionsForProduct(product("P1")));
+        assertEquals(Collections.singletonList(lowPromotion), indexService.getActivePromotionsForProduct(product("P3")));
+        verify(is32PromotionBucketDao, times(1)).findProductItems(catalogVersion);
+    }
+
+    @Test
+    public void testRemovedItemDropsTheIndex()
+    {
+        indexService.getIndex(catalogVersion);
+        when(is32BucketPromotionResolver.resolvePromotionUids(Collections.singletonList(PROMO_ITEM_PK)))
+                .thenReturn(null);
+
+        indexService.invalidate(Collections.singletonList(PROMO_ITEM_PK.getLongValueAsString()));
+        indexService.getIndex(catalogVersion);
+
+        verify(is32PromotionBucketDao, times(2)).findProductItems(catalogVersion);
+    }
+
+    @Test
+    public void testLivenessIsDecidedAtTheServiceTime()
+    {
+        pinClock(NOW + 999L);
+        assertEquals(Collections.singletonList(endingPromotion), indexService.getActivePromotionsForProduct(product("P5")));
+
+        pinClock(NOW + 1000L);
+        assertTrue(indexService.getActivePromotionsForProduct(product("P5")).isEmpty());
+    }
+
+    @Test
+    public void testIndexBuiltDuringAnInvalidationIsNotInstalled()
+    {
+        when(is32PromotionBucketDao.findProductItems(catalogVersion)).thenAnswer(invocation -> {
+            indexService.invalidate(Collections.singletonList(PROMO_ITEM_PK.getLongValueAsString()));
+            return Collections.singletonList(item("PROMO_LOW", "P1", IS32BucketType.INCLUDE, null));
+        }).thenReturn(Collections.singletonList(item("PROMO_LOW", "P1", IS32BucketType.INCLUDE, null)));
+
+        indexService.getIndex(catalogVersion);
+        indexService.getIndex(catalogVersion);
+        indexService.getIndex(catalogVersion);
+
+        verify(is32PromotionBucketDao, times(2)).findProductItems(catalogVersion);
+    }
+
+    private void pinClock(final long time)
+    {
+        when(timeService.getCurrentTime()).thenReturn(new Date(time));
+    }
+
+    private ProductModel product(final String code)
+    {
+        final ProductModel product = mock(ProductModel.class);
+        when(product.getCode()).thenReturn(code);
+        when(product.getCatalogVersion()).thenReturn(catalogVersion);
+        return product;
+    }
+
+    private static List<Object> item(final String promotionUid, final String code, final IS32BucketType bucketType,
+                                     final Boolean excludeFlag)
+    {
+        return new ArrayList<>(Arrays.asList(promotionUid, code, bucketType, excludeFlag));
+    }
+
+    private IS32PromotionModel promotion(final long pk)
+    {
+        final IS32PromotionModel promotion = mock(IS32PromotionModel.class);
+        when(promotion.getPk()).thenReturn(PK.fromLong(pk));
+        promotions.put(PK.fromLong(pk), promotion);
+        return promotion;
+    }
+
+    private static IS32PromotionSnapshotEntry entry(final IS32PromotionModel promotion, final String uid,
+                                                    final int priority, final boolean suspended)
+    {
+        return new IS32PromotionSnapshotEntry(promotion.getPk(), uid, priority, 0L, Long.MAX_VALUE, suspended,
+                IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0]);
+    }
+
+    private static IS32PromotionSnapshotEntry entry(final IS32PromotionModel promotion, final String uid,
+                                                    final int priority, final long startTime, final long endTime)
+    {
+        return new IS32PromotionSnapshotEntry(promotion.getPk(), uid, priority, startTime, endTime, false,
+                IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0]);
+    }
+}
@@ -0,0 +1,87 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32PromotionDao;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32PromotionCatalogVersionServiceTest
+{
+    private static final PK REMOVED_ITEM = PK.createFixedCounterPK(IS32CoreConstants.TypeCode.IS32_PROMO_ITEM, 1L);
+    private static final PK OTHER_ITEM = PK.createFixedCounterPK(IS32CoreConstants.TypeCode.IS32_PROMO_ITEM, 2L);
+
+    @Mock
+    private IS32PromotionDao is32PromotionDao;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    private DefaultIS32PromotionCatalogVersionService catalogVersionService;
+
+    @Before
+    public void setUp()
+    {
+        catalogVersionService = new DefaultIS32PromotionCatalogVersionService()
+        {
+            @Override
+            protected ThreadFactory createThreadFactory()
+            {
+                return Executors.defaultThreadFactory();
+            }
+        };
+        catalogVersionService.setIs32PromotionDao(is32PromotionDao);
+        catalogVersionService.setConfigurationService(configurationService);
+    }
+
+    @Test
+    public void testMarksAreTakenOnlyForCommittedRemovals()
+    {
+        catalogVersionService.markForRefresh(REMOVED_ITEM, "PROMO_A");
+        catalogVersionService.markForRefresh(OTHER_ITEM, "PROMO_B");
+
+        assertEquals(Collections.singleton("PROMO_A"),
+                catalogVersionService.takeMarkedPromotionUids(Collections.singletonList(REMOVED_ITEM)));
+        assertTrue(catalogVersionService.takeMarkedPromotionUids(Collections.singletonList(REMOVED_ITEM)).isEmpty());
+        assertEquals(Collections.singleton("PROMO_B"),
+                catalogVersionService.takeMarkedPromotionUids(Collections.singletonList(OTHER_ITEM)));
+    }
+
+    @Test
+    public void testRepeatedRefreshesAreCoalescedInTheBackground() throws InterruptedException
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getLong(IS32CoreConstants.Config.PROMOTION_CATALOG_VERSION_REFRESH_DELAY, 1000L))
+                .thenReturn(200L);
+        catalogVersionService.afterPropertiesSet();
+
+        catalogVersionService.scheduleRefresh(Arrays.asList("PROMO_A", "PROMO_B"));
+        catalogVersionService.scheduleRefresh(Collections.singletonList("PROMO_A"));
+        catalogVersionService.destroy();
+
+        verify(is32PromotionDao, times(1)).findByUid("PROMO_A");
+        verify(is32PromotionDao, times(1)).findByUid("PROMO_B");
+    }
+}
@@ -0,0 +1,148 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.dao.IS32PromotionExpiryDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.expiry.IS32ExpiryResult;
+import com.is32.core.model.IS32PromotionModel;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32PromotionExpiryServiceTest
+{
+    private static final Date NOW = new Date(1_000_000L);
+    private static final Date END_1 = new Date(1_000L);
+    private static final Date END_2 = new Date(2_000L);
+
+    @InjectMocks
+    private TransactionlessExpiryService expiryService;
+
+    @Mock
+    private IS32PromotionExpiryDao is32PromotionExpiryDao;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Test
+    public void testExpiryPagesByEndDateAndPk()
+    {
+        final IS32PromotionModel first = promotion("PROMO_1", END_1, 1L);
+        final IS32PromotionModel second = promotion("PROMO_2", END_2, 2L);
+        final IS32PromotionModel third = promotion("PROMO_3", END_2, 3L);
+        when(is32PromotionExpiryDao.findPromotionsToExpire(NOW, null, null, 2)).thenReturn(Arrays.asList(first, second));
+        when(is32PromotionExpiryDao.findPromotionsToExpire(NOW, END_2, PK.fromLong(2L), 2))
+                .thenReturn(Collections.singletonList(third));
+
+        final IS32ExpiryResult result = expiryService.expirePromotions(NOW, 2, () -> false);
+
+        assertEquals(3, result.getPromotionCount());
+        assertEquals(2, result.getChunkCount());
+        assertFalse(result.isAborted());
+        verify(first).setStatus(IS32PromotionStatus.EXPIRED);
+        verify(third).setStatus(IS32PromotionStatus.EXPIRED);
+        verify(modelService).saveAll(Arrays.asList(first, second));
+        verify(modelService).saveAll(Collections.singletonList(third));
+        verify(modelService).detach(third);
+    }
+
+    @Test
+    public void testExpiryStopsBetweenChunksWhenAborted()
+    {
+        final IS32PromotionModel first = promotion("PROMO_1", END_1, 1L);
+        when(is32PromotionExpiryDao.findPromotionsToExpire(NOW, null, null, 1))
+                .thenReturn(Collections.singletonList(first));
+        final boolean[] abort = {false};
+
+        final IS32ExpiryResult result = expiryService.expirePromotions(NOW, 1, () -> {
+            final boolean requested = abort[0];
+            abort[0] = true;
+            return requested;
+        });
+
+        assertTrue(result.isAborted());
+        assertEquals(1, result.getPromotionCount());
+        verify(is32PromotionExpiryDao, never()).findPromotionsToExpire(NOW, END_1, PK.fromLong(1L), 1);
+    }
+
+    @Test
+    public void testRemovalDeletesDependentsInBatchesBeforeThePromotions()
+    {
+        when(sessionService.executeInLocalViewWithParams(anyMap(), any(SessionExecutionBody.class)))
+                .thenAnswer(invocation -> ((SessionExecutionBody) invocation.getArgument(1)).execute());
+
+        final IS32PromotionModel promotion = promotion("PROMO_1", END_1, 1L);
+        final List<IS32PromotionModel> page = Collections.singletonList(promotion);
+        final List<String> promotionUids = Collections.singletonList("PROMO_1");
+        final List<String> bucketUids = Collections.singletonList("BUCKET_1");
+        final List<ItemModel> firstItems = Arrays.asList(mock(ItemModel.class), mock(ItemModel.class));
+        final List<ItemModel> lastItems = Collections.singletonList(mock(ItemModel.class));
+        final List<ItemModel> promotionItems = Collections.singletonList(mock(ItemModel.class));
+
+        when(is32PromotionExpiryDao.findPromotionsToRemove(NOW, null, null, 2)).thenReturn(page);
+        when(is32PromotionExpiryDao.findBucketUids(promotionUids)).thenReturn(bucketUids);
+        when(is32PromotionExpiryDao.findBucketItems(bucketUids, 2)).thenReturn(firstItems, lastItems);
+        when(is32PromotionExpiryDao.findPromotionItems(promotionUids, 2)).thenReturn(promotionItems);
+        when(is32PromotionExpiryDao.findCatalogVersionMappings(page, 2)).thenReturn(Collections.emptyList());
+
+        final IS32ExpiryResult result = expiryService.removeExpiredPromotions(NOW, 2, () -> false);
+
+        assertEquals(1, result.getPromotionCount());
+        assertEquals(4, result.getDependentCount());
+        final InOrder order = inOrder(modelService);
+        order.verify(modelService).removeAll(firstItems);
+        order.verify(modelService).removeAll(lastItems);
+        order.verify(modelService).removeAll(promotionItems);
+        order.verify(modelService).removeAll(page);
+    }
+
+    private static IS32PromotionModel promotion(final String uid, final Date endDate, final long pk)
+    {
+        final IS32PromotionModel promotion = mock(IS32PromotionModel.class);
+        when(promotion.getUid()).thenReturn(uid);
+        when(promotion.getEndDate()).thenReturn(endDate);
+        when(promotion.getPk()).thenReturn(PK.fromLong(pk));
+        return promotion;
+    }
+
+    /**
+     * Runs the chunks without a platform transaction.
+     */
+    public static class TransactionlessExpiryService extends DefaultIS32PromotionExpiryService
+    {
+        @Override
+        protected void runInTransaction(final Runnable body)
+        {
+            body.run();
+        }
+    }
+}
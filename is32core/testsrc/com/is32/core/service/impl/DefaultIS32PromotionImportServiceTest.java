@@ -0,0 +1,220 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32PromotionImportDao;
+import com.is32.core.importer.IS32PromotionImportResult;
+import com.is32.core.model.IS32PromotionTagModel;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.exceptions.ModelSavingException;
+import de.hybris.platform.servicelayer.keygenerator.KeyGenerator;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32PromotionImportServiceTest
+{
+    private static final PK TAG_PK = PK.fromLong(25001L);
+
+    @Mock
+    private IS32PromotionImportDao is32PromotionImportDao;
+
+    @Mock
+    private KeyGenerator keyGenerator;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    private DefaultIS32PromotionImportService importService;
+
+    @Before
+    public void setUp()
+    {
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getInt(anyString(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(configuration.getInt(eq(IS32CoreConstants.Config.PROMOTION_IMPORT_CHUNK_SIZE), anyInt())).thenReturn(2);
+        when(sessionService.executeInLocalViewWithParams(anyMap(), any(SessionExecutionBody.class)))
+                .thenAnswer(invocation -> ((SessionExecutionBody) invocation.getArgument(1)).execute());
+        when(modelService.create(any(Class.class))).thenAnswer(invocation -> mock((Class<?>) invocation.getArgument(0)));
+
+        final IS32PromotionTagModel tag = mock(IS32PromotionTagModel.class);
+        when(tag.getPk()).thenReturn(TAG_PK);
+        when(modelService.create(IS32PromotionTagModel.class)).thenReturn(tag);
+        when(modelService.get(TAG_PK)).thenReturn(tag);
+
+        importService = new DefaultIS32PromotionImportService()
+        {
+            @Override
+            protected void runInTransaction(final Runnable body)
+            {
+                body.run();
+            }
+
+            @Override
+            protected ExecutorService createExecutor(final int workers)
+            {
+                return Executors.newFixedThreadPool(workers);
+            }
+
+            @Override
+            protected TimeZone getTimeZone()
+            {
+                return TimeZone.getTimeZone("UTC");
+            }
+        };
+        importService.setIs32PromotionImportDao(is32PromotionImportDao);
+        importService.setKeyGenerator(keyGenerator);
+        importService.setModelService(modelService);
+        importService.setSessionService(sessionService);
+        importService.setConfigurationService(configurationService);
+    }
+
+    @Test
+    public void testImportWritesValidGraphsAndReportsRejectedRows() throws IOException
+    {
+        when(is32PromotionImportDao.findExistingPromotionUids(anyCollection())).thenReturn(Collections.singleton("P6"));
+
+        final IS32PromotionImportResult result = importService.importPromotions(new StringReader(String.join("\n",
+                "# summer campaign",
+                "ITEM;SKU-0;PRODUCT;false",
+                "TAG;SUMMER;CASHBACK;Summer",
+                "PROMOTION;P1;SUMMER;ACTIVE;2024-06-01T00:00:00;2024-08-31T23:59:59;5;1;100;Summer sale",
+                "REWARD;CASHBACK_REWARD;10;50",
+                "BUCKET;B1;INCLUDE;Shoes",
+                "ITEM;SKU-1;PRODUCT;false",
+                "ACTIVITY;2;09:00;17:00",
+                "",
+                "PROMOTION;P2;SUMMER;;2024-06-01T00:00:00;2024-05-01T00:00:00",
+                "PROMOTION;P3;SUMMER;;2024-06-01T00:00:00;2024-07-01T00:00:00;;5;2",
+                "REWARD;DISCOUNT;5",
+                "PROMOTION;P4;WINTER;;2024-06-01T00:00:00;2024-07-01T00:00:00",
+                "PROMOTION;P1;SUMMER;;2024-06-01T00:00:00;2024-07-01T00:00:00",
+                "PROMOTION;P5;SUMMER;;2024-06-01T00:00:00;2024-07-01",
+                "BUCKET;B5;INCLUDE",
+                "ITEM;SKU-5;PRODUCT;true",
+                "PROMOTION;P6;SUMMER;;2024-06-01T00:00:00;2024-07-01T00:00:00")));
+
+        assertEquals(16, result.getRowCount());
+        assertEquals(6, result.getImportedRowCount());
+        assertEquals(1, result.getPromotionCount());
+        assertEquals(1, result.getTagCount());
+        assertEquals(10, result.getRejectedRowCount());
+        assertEquals(Arrays.asList(
+                "Line 2: ITEM row is not preceded by a PROMOTION row",
+                "Line 10 [P2]: IS32Promotion end date must be after start date. Start: ["
+                        + utc("2024-06-01T00:00:00") + "], End: [" + utc("2024-05-01T00:00:00") + "]",
+                "Line 11 [P3]: IS32Promotion maxRedemptionPerUser [5] cannot exceed totalRedemptionLimit [2]",
+                "Line 13 [P4]: Unknown promotion tag [WINTER]",
+                "Line 14 [P1]: Duplicate promotion uid [P1] in the file",
+                "Line 15 [P5]: Invalid endDate [2024-07-01]",
+                "Line 18 [P6]: Promotion uid [P6] already exists"), toStrings(result.getRejections()));
+
+        final ArgumentCaptor<Collection> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(modelService).saveAll(saved.capture());
+        assertEquals("Promotion, reward, bucket, item and activity are written together", 5, saved.getValue().size());
+        verify(modelService).save(any(IS32PromotionTagModel.class));
+    }
+
+    @Test
+    public void testUndeclaredEnumerationCodesAreRejected() throws IOException
+    {
+        final IS32PromotionImportResult result = importService.importPromotions(new StringReader(String.join("\n",
+                "TAG;AUTUMN;SEASONAL;Autumn",
+                "PROMOTION;P1;SUMMER;ACTIV;2024-06-01T00:00:00;2024-07-01T00:00:00",
+                "PROMOTION;P2;SUMMER;;2024-06-01T00:00:00;2024-07-01T00:00:00",
+                "REWARD;DISCOUNTS;5")));
+
+        assertEquals(0, result.getPromotionCount());
+        assertEquals(0, result.getTagCount());
+        assertEquals(Arrays.asList(
+                "Line 1: Unknown displayType [SEASONAL]",
+                "Line 2 [P1]: Unknown status [ACTIV]",
+                "Line 3 [P2]: REWARD row at line 4: Unknown rewardType [DISCOUNTS]"), toStrings(result.getRejections()));
+    }
+
+    @Test
+    public void testFailedChunkIsRetriedRecordByRecord() throws IOException
+    {
+        when(is32PromotionImportDao.findTagPksByCode(anyCollection()))
+                .thenReturn(Collections.singletonMap("SUMMER", TAG_PK));
+        doAnswer(invocation -> {
+            if (((Collection<?>) invocation.getArgument(0)).size() > 1)
+            {
+                throw new ModelSavingException("unique constraint violated");
+            }
+            return null;
+        }).when(modelService).saveAll(anyCollection());
+
+        final IS32PromotionImportResult result = importService.importPromotions(new StringReader(String.join("\n",
+                "PROMOTION;P1;SUMMER;;2024-06-01T00:00:00;2024-07-01T00:00:00",
+                "PROMOTION;P2;SUMMER;;2024-06-01T00:00:00;2024-07-01T00:00:00",
+                "REWARD;DISCOUNT;5")));
+
+        assertEquals(1, result.getPromotionCount());
+        assertEquals(1, result.getChunkCount());
+        assertEquals(Collections.singletonList("Line 2 [P2]: Could not be saved: unique constraint violated"),
+                toStrings(result.getRejections()));
+        verify(modelService, times(3)).saveAll(anyCollection());
+    }
+
+    private static Date utc(final String dateTime)
+    {
+        return Date.from(LocalDateTime.parse(dateTime).toInstant(ZoneOffset.UTC));
+    }
+
+    private static List<String> toStrings(final List<IS32PromotionImportResult.Rejection> rejections)
+    {
+        final List<String> strings = new ArrayList<>();
+        for (final IS32PromotionImportResult.Rejection rejection : rejections)
+        {
+            strings.add(rejection.toString());
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,228 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32PromotionSchedulerDao;
+import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.event.IS32CacheInvalidationEvent;
+import com.is32.core.expiry.IS32ExpiryResult;
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.service.IS32ClusterLeaseService;
+import com.is32.core.service.IS32PromotionExpiryService;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.event.EventService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32PromotionSchedulerServiceTest
+{
+    private static final String LEASE_CODE = "is32PromotionScheduler";
+    private static final long START = 1_000_000L;
+    private static final long LEASE_MILLIS = 30_000L;
+    private static final PK PROMOTION_PK = PK.fromLong(42L);
+
+    @InjectMocks
+    private DefaultIS32PromotionSchedulerService schedulerService;
+
+    @Mock
+    private IS32PromotionSchedulerDao is32PromotionSchedulerDao;
+
+    @Mock
+    private IS32ClusterLeaseService is32ClusterLeaseService;
+
+    @Mock
+    private IS32PromotionExpiryService is32PromotionExpiryService;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private EventService eventService;
+
+    @Mock
+    private TimeService timeService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    @Mock
+    private IS32PromotionModel promotion;
+
+    @Mock
+    private ApplicationContext applicationContext;
+
+    private long now;
+
+    @Before
+    public void setUp()
+    {
+        now = START;
+        when(timeService.getCurrentTime()).thenAnswer(invocation -> new Date(now));
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getLong(anyString(), anyLong())).thenAnswer(invocation -> invocation.getArgument(1));
+        when(configuration.getBoolean(anyString(), anyBoolean())).thenReturn(Boolean.FALSE);
+        when(is32PromotionExpiryService.expirePromotions(any(Date.class)))
+                .thenReturn(new IS32ExpiryResult(0, 0, 0, 0L, false));
+        schedulerService.setBoundaryRegions(Collections.singletonList("is32AccountQuota"));
+        schedulerService.afterPropertiesSet();
+    }
+
+    @Test
+    public void testLeaderExpiresPromotionAtItsEndDate()
+    {
+        final long endDate = START + 5_000L;
+        when(is32ClusterLeaseService.claim(LEASE_CODE, LEASE_MILLIS)).thenReturn(true);
+        when(is32PromotionSchedulerDao.findEndingPromotions(any(Date.class), any(Date.class)))
+                .thenReturn(Collections.singletonList(row(PROMOTION_PK, endDate)));
+
+        schedulerService.tick();
+        assertTrue(schedulerService.isLeader());
+        assertEquals(1, schedulerService.getScheduledCount());
+        verify(is32PromotionExpiryService).expirePromotions(new Date(START));
+
+        when(modelService.get(PROMOTION_PK)).thenReturn(promotion);
+        when(promotion.getStatus()).thenReturn(IS32PromotionStatus.ACTIVE);
+        when(promotion.getEndDate()).thenReturn(new Date(endDate));
+        now = endDate;
+        schedulerService.tick();
+
+        verify(promotion).setStatus(IS32PromotionStatus.EXPIRED);
+        verify(modelService).save(promotion);
+        verify(eventService).publishEvent(any(IS32CacheInvalidationEvent.class));
+        assertEquals(0, schedulerService.getScheduledCount());
+    }
+
+    @Test
+    public void testChangedPromotionIsRescheduledAndAlreadyExpiredOneIsLeftAlone()
+    {
+        when(is32ClusterLeaseService.claim(LEASE_CODE, LEASE_MILLIS)).thenReturn(true);
+        schedulerService.tick();
+
+        when(modelService.get(PROMOTION_PK)).thenReturn(promotion);
+        when(promotion.getStatus()).thenReturn(IS32PromotionStatus.ACTIVE, IS32PromotionStatus.ACTIVE,
+                IS32PromotionStatus.EXPIRED);
+        when(promotion.getEndDate()).thenReturn(new Date(START + 2_000L));
+        schedulerService.invalidate(Collections.singletonList(PROMOTION_PK.getLongValueAsString()));
+
+        now = START + 2_000L;
+        schedulerService.tick();
+
+        verify(modelService, times(2)).get(PROMOTION_PK);
+        verify(modelService, never()).save(any());
+        verify(eventService, never()).publishEvent(any());
+    }
+
+    @Test
+    public void testFollowerDoesNotLoadOrFire()
+    {
+        when(is32ClusterLeaseService.claim(eq(LEASE_CODE), anyLong())).thenReturn(false);
+
+        schedulerService.tick();
+        schedulerService.invalidate(Collections.singletonList(PROMOTION_PK.getLongValueAsString()));
+        now = START + LEASE_MILLIS;
+        schedulerService.tick();
+
+        assertFalse(schedulerService.isLeader());
+        verify(is32ClusterLeaseService, times(1)).claim(LEASE_CODE, LEASE_MILLIS);
+        verify(is32PromotionSchedulerDao, never()).findEndingPromotions(any(), any());
+        verify(is32PromotionExpiryService, never()).expirePromotions(any(Date.class));
+    }
+
+    @Test
+    public void testLeaderPublishesBoundaryRegionsWhenPromotionStarts()
+    {
+        final long startDate = START + 3_000L;
+        when(is32ClusterLeaseService.claim(LEASE_CODE, LEASE_MILLIS)).thenReturn(true);
+        when(is32PromotionSchedulerDao.findStartingPromotions(any(Date.class), any(Date.class)))
+                .thenReturn(Collections.singletonList(row(PROMOTION_PK, startDate)));
+        schedulerService.tick();
+
+        when(modelService.get(PROMOTION_PK)).thenReturn(promotion);
+        when(promotion.getStatus()).thenReturn(IS32PromotionStatus.ACTIVE);
+        when(promotion.getStartDate()).thenReturn(new Date(startDate));
+        when(promotion.getEndDate()).thenReturn(new Date(startDate + 60_000L));
+        now = startDate;
+        schedulerService.tick();
+
+        verify(modelService).get(PROMOTION_PK);
+        verify(modelService, never()).save(any());
+        verify(eventService).publishEvent(any(IS32CacheInvalidationEvent.class));
+    }
+
+    @Test
+    public void testSchedulerStartsOnceOnContextRefreshOnly()
+    {
+        final DefaultIS32PromotionSchedulerService started = new DefaultIS32PromotionSchedulerService()
+        {
+            @Override
+            protected ThreadFactory createThreadFactory()
+            {
+                return Executors.defaultThreadFactory();
+            }
+        };
+        started.setIs32PromotionSchedulerDao(is32PromotionSchedulerDao);
+        started.setIs32ClusterLeaseService(is32ClusterLeaseService);
+        started.setIs32PromotionExpiryService(is32PromotionExpiryService);
+        started.setModelService(modelService);
+        started.setEventService(eventService);
+        started.setTimeService(timeService);
+        started.setConfigurationService(configurationService);
+        started.afterPropertiesSet();
+        assertFalse(started.isStarted());
+
+        started.onApplicationEvent(new ContextRefreshedEvent(applicationContext));
+        assertFalse("The scheduler is disabled", started.isStarted());
+
+        when(configuration.getBoolean(IS32CoreConstants.Config.SCHEDULER_ENABLED, true)).thenReturn(Boolean.TRUE);
+        try
+        {
+            started.onApplicationEvent(new ContextRefreshedEvent(applicationContext));
+            started.onApplicationEvent(new ContextRefreshedEvent(applicationContext));
+            assertTrue(started.isStarted());
+        }
+        finally
+        {
+            started.destroy();
+        }
+    }
+
+    private static List<Object> row(final PK pk, final long date)
+    {
+        return Arrays.asList(pk, new Date(date));
+    }
+}
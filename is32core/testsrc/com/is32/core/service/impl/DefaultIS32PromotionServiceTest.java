@@ -4,8 +4,13 @@ import com.is32.core.dao.IS32AccountQuotaDao;
 import com.is32.core.dao.IS32PromotionDao;
 import com.is32.core.model.IS32PromotionModel;
 import com.is32.core.enums.IS32PromotionStatus;
+import com.is32.core.service.IS32PromotionExpiryService;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
 import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -46,6 +51,15 @@ public class DefaultIS32PromotionServiceTest
     @Mock
     private ModelService modelService;
 
+    @Mock
+    private IS32PromotionExpiryService is32PromotionExpiryService;
+
+    @Mock
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
+
+    @Mock
+    private TimeService timeService;
+
     @Mock
     private IS32PromotionModel promotionModel;
 
@@ -131,33 +145,12 @@ public class DefaultIS32PromotionServiceTest
     }
 
     @Test
-    public void testMarkExpiredPromotions()
-    {
-        final IS32PromotionModel expiredPromo = org.mockito.Mockito.mock(IS32PromotionModel.class);
-        when(expiredPromo.getStatus()).thenReturn(IS32PromotionStatus.ACTIVE);
-
-        when(is32PromotionDao.findExpiredPromotions(any(Date.class), eq(Integer.MAX_VALUE)))
-                .thenReturn(Collections.singletonList(expiredPromo));
-
-        is32PromotionService.markExpiredPromotions();
-
-        verify(expiredPromo).setStatus(IS32PromotionStatus.EXPIRED);
-        verify(modelService).save(expiredPromo);
-    }
-
-    @Test
-    public void testMarkExpiredPromotionsSkipsAlreadyExpired()
+    public void testMarkExpiredPromotionsDelegatesToBulkExpiry()
     {
-        final IS32PromotionModel alreadyExpired = org.mockito.Mockito.mock(IS32PromotionModel.class);
-        when(alreadyExpired.getStatus()).thenReturn(IS32PromotionStatus.EXPIRED);
-
-        when(is32PromotionDao.findExpiredPromotions(any(Date.class), eq(Integer.MAX_VALUE)))
-                .thenReturn(Collections.singletonList(alreadyExpired));
-
         is32PromotionService.markExpiredPromotions();
 
-        verify(alreadyExpired, never()).setStatus(any());
-        verify(modelService, never()).save(alreadyExpired);
+        verify(is32PromotionExpiryService).expirePromotions(any(Date.class));
+        verify(modelService, never()).save(any());
     }
 
     @Test
@@ -171,4 +164,19 @@ public class DefaultIS32PromotionServiceTest
         assertNotNull(result);
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    public void testActivePromotionsByTagAreEvaluatedAtTheServiceTime()
+    {
+        final Date now = new Date(1_000_000L);
+        final PK promotionPk = PK.fromLong(42L);
+        when(timeService.getCurrentTime()).thenReturn(now);
+        when(is32PromotionSnapshotService.getActiveEntriesByTag("TAG_A", null, now)).thenReturn(Collections.singletonList(
+                new IS32PromotionSnapshotEntry(promotionPk, PROMOTION_UID, 0, 0L, 2_000_000L, false,
+                        IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0])));
+        when(modelService.get(promotionPk)).thenReturn(promotionModel);
+
+        assertEquals(Collections.singletonList(promotionModel),
+                is32PromotionService.getActivePromotionsByTagCode("TAG_A", null));
+    }
 }
@@ -0,0 +1,87 @@
+package com.is32.core.service.impl;
+
+import com.is32.core.constants.IS32CoreConstants;
+import com.is32.core.dao.IS32RewardDao;
+import com.is32.core.enums.IS32RewardType;
+import com.is32.core.model.IS32RewardModel;
+import com.is32.core.snapshot.IS32RewardRoutingTable;
+import de.hybris.bootstrap.annotations.UnitTest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class DefaultIS32RewardServiceTest
+{
+    @InjectMocks
+    private DefaultIS32RewardService rewardService;
+
+    @Mock
+    private IS32RewardDao is32RewardDao;
+
+    @Test
+    public void testRoutesAreServedFromTheRoutingTable()
+    {
+        final List<IS32RewardModel> rewards = Arrays.asList(
+                reward("P1", "A", Double.valueOf(2d)),
+                reward("P1", "B", null),
+                reward("P1", "A", Double.valueOf(3d)),
+                reward("P2", null, Double.valueOf(1d)));
+        when(is32RewardDao.findByRewardType(IS32RewardType.INCREASE_MEMBER_ACCOUNT)).thenReturn(rewards);
+
+        final IS32RewardRoutingTable.Route route = rewardService.getMemberAccountRoute("P1");
+        assertEquals(2, route.size());
+        assertEquals("A", route.getAccountId(0));
+        assertEquals("Increments of rewards on the same account are summed", 5, route.getIncrement(0));
+        assertEquals("B", route.getAccountId(1));
+        assertEquals("A reward without a value increments by one", 1, route.getIncrement(1));
+
+        assertTrue(rewardService.getMemberAccountRoute("P2").isEmpty());
+        assertTrue(rewardService.getMemberAccountRoute("UNKNOWN").isEmpty());
+        verify(is32RewardDao, times(1)).findByRewardType(IS32RewardType.INCREASE_MEMBER_ACCOUNT);
+    }
+
+    @Test
+    public void testRewardChangeRebuildsTheRoutingTable()
+    {
+        final IS32RewardModel reward = reward("P1", "A", Double.valueOf(2d));
+        when(is32RewardDao.findByRewardType(IS32RewardType.INCREASE_MEMBER_ACCOUNT))
+                .thenReturn(Collections.singletonList(reward))
+                .thenReturn(Collections.emptyList());
+        assertEquals(1, rewardService.getMemberAccountRoute("P1").size());
+
+        assertTrue(rewardService.isInvalidatedBy(IS32CoreConstants.TypeCode.IS32_REWARD));
+        assertFalse(rewardService.isInvalidatedBy(IS32CoreConstants.TypeCode.IS32_PROMOTION));
+        rewardService.invalidate(Collections.singletonList("1"));
+
+        assertTrue(rewardService.getMemberAccountRoute("P1").isEmpty());
+        verify(is32RewardDao, times(2)).findByRewardType(IS32RewardType.INCREASE_MEMBER_ACCOUNT);
+    }
+
+    private static IS32RewardModel reward(final String promotionUid, final String accountId, final Double value)
+    {
+        final IS32RewardModel reward = mock(IS32RewardModel.class);
+        when(reward.getPromotionUid()).thenReturn(promotionUid);
+        when(reward.getIncreaseMemberAccountId()).thenReturn(accountId);
+        if (accountId != null)
+        {
+            when(reward.getRewardValue()).thenReturn(value);
+        }
+        return reward;
+    }
+}
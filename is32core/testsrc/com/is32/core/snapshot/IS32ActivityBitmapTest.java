@@ -0,0 +1,92 @@
+package com.is32.core.snapshot;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class IS32ActivityBitmapTest
+{
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    @Test
+    public void testWindowCoversStartAndExcludesEnd()
+    {
+        final IS32ActivityBitmap bitmap = IS32ActivityBitmap.builder(UTC)
+                .addWindow(Integer.valueOf(Calendar.MONDAY), time(UTC, 9, 0), time(UTC, 17, 0))
+                .build();
+
+        assertFalse(bitmap.isActiveAt(at(UTC, Calendar.MONDAY, 8, 59)));
+        assertTrue(bitmap.isActiveAt(at(UTC, Calendar.MONDAY, 9, 0)));
+        assertTrue(bitmap.isActiveAt(at(UTC, Calendar.MONDAY, 16, 59)));
+        assertFalse(bitmap.isActiveAt(at(UTC, Calendar.MONDAY, 17, 0)));
+        assertFalse("Other days should not be covered", bitmap.isActiveAt(at(UTC, Calendar.TUESDAY, 10, 0)));
+    }
+
+    @Test
+    public void testOvernightWindowWrapsIntoTheNextWeek()
+    {
+        final IS32ActivityBitmap bitmap = IS32ActivityBitmap.builder(UTC)
+                .addWindow(Integer.valueOf(Calendar.SATURDAY), time(UTC, 22, 0), time(UTC, 2, 0))
+                .build();
+
+        assertTrue(bitmap.isActiveAt(at(UTC, Calendar.SATURDAY, 23, 30)));
+        assertTrue(bitmap.isActiveAt(at(UTC, Calendar.SUNDAY, 1, 59)));
+        assertFalse(bitmap.isActiveAt(at(UTC, Calendar.SUNDAY, 2, 0)));
+        assertFalse(bitmap.isActiveAt(at(UTC, Calendar.SATURDAY, 1, 0)));
+    }
+
+    @Test
+    public void testWindowWithoutDayOfWeekCoversEveryDay()
+    {
+        final IS32ActivityBitmap bitmap = IS32ActivityBitmap.builder(UTC)
+                .addWindow(null, time(UTC, 12, 0), time(UTC, 13, 0))
+                .build();
+
+        for (int day = Calendar.SUNDAY; day <= Calendar.SATURDAY; day++)
+        {
+            assertTrue(bitmap.isActiveAt(at(UTC, day, 12, 30)));
+            assertFalse(bitmap.isActiveAt(at(UTC, day, 13, 30)));
+        }
+    }
+
+    @Test
+    public void testWindowsAreEvaluatedInTheirTimeZone()
+    {
+        final TimeZone saigon = TimeZone.getTimeZone("Asia/Ho_Chi_Minh");
+        final IS32ActivityBitmap bitmap = IS32ActivityBitmap.builder(saigon)
+                .addWindow(Integer.valueOf(Calendar.MONDAY), time(saigon, 9, 0), time(saigon, 10, 0))
+                .build();
+
+        assertTrue(bitmap.isActiveAt(at(UTC, Calendar.MONDAY, 2, 30)));
+        assertFalse(bitmap.isActiveAt(at(UTC, Calendar.MONDAY, 9, 30)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidDayOfWeekIsRejected()
+    {
+        IS32ActivityBitmap.builder(UTC).addWindow(Integer.valueOf(0), time(UTC, 9, 0), time(UTC, 10, 0));
+    }
+
+    /**
+     * @return the instant of the given day and time in the week starting on Sunday 7 January 2024
+     */
+    private static long at(final TimeZone timeZone, final int dayOfWeek, final int hour, final int minute)
+    {
+        final Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.clear();
+        calendar.set(2024, Calendar.JANUARY, 7 + dayOfWeek - Calendar.SUNDAY, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    private static Date time(final TimeZone timeZone, final int hour, final int minute)
+    {
+        return new Date(at(timeZone, Calendar.SUNDAY, hour, minute));
+    }
+}
@@ -0,0 +1,62 @@
+package com.is32.core.snapshot;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class IS32ProductPromotionIndexTest
+{
+    private IS32ProductPromotionIndex index;
+
+    @Before
+    public void setUp()
+    {
+        index = new IS32ProductPromotionIndex(0L);
+        index.putPromotion("PROMO_A", Arrays.asList("P1", "P2", "P3"), Collections.singletonList("P3"));
+        index.putPromotion("PROMO_B", Arrays.asList("P2", "P4"), Collections.emptyList());
+    }
+
+    @Test
+    public void testExcludedProductsDoNotCarryThePromotion()
+    {
+        assertEquals(Collections.singletonList("PROMO_A"), index.getPromotionUids("P1"));
+        assertTrue(index.getPromotionUids("P3").isEmpty());
+        assertEquals(3, index.getProductCount());
+    }
+
+    @Test
+    public void testLookupOverSeveralProductsReturnsEachPromotionOnce()
+    {
+        assertEquals(new HashSet<>(Arrays.asList("PROMO_A", "PROMO_B")),
+                new HashSet<>(index.getPromotionUids(Arrays.asList("P1", "P2", "P4", "UNKNOWN"))));
+        assertEquals(2, index.getPromotionUids(Arrays.asList("P1", "P2", "P4")).size());
+    }
+
+    @Test
+    public void testPuttingAPromotionAgainReplacesItsProducts()
+    {
+        index.putPromotion("PROMO_A", Collections.singletonList("P4"), Collections.emptyList());
+
+        assertTrue(index.getPromotionUids("P1").isEmpty());
+        assertEquals(Collections.singletonList("PROMO_B"), index.getPromotionUids("P2"));
+        assertEquals(new HashSet<>(Arrays.asList("PROMO_A", "PROMO_B")), new HashSet<>(index.getPromotionUids("P4")));
+    }
+
+    @Test
+    public void testRemovedPromotionIsDroppedFromEveryProduct()
+    {
+        index.removePromotion("PROMO_B");
+
+        assertTrue(index.getPromotionUids("P4").isEmpty());
+        assertEquals(Collections.singletonList("PROMO_A"), index.getPromotionUids("P2"));
+        assertEquals(2, index.getProductCount());
+    }
+}
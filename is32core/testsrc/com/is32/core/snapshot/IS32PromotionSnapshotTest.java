@@ -0,0 +1,185 @@
+package com.is32.core.snapshot;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@UnitTest
+public class IS32PromotionSnapshotTest
+{
+    private IS32PromotionSnapshot snapshot;
+
+    @Before
+    public void setUp()
+    {
+        snapshot = new IS32PromotionSnapshot(Arrays.asList(
+                entry("PROMO_A", 100L, 200L, false),
+                entry("PROMO_B", 150L, 300L, false),
+                entry("PROMO_C", 150L, 250L, true),
+                entry("PROMO_D", 400L, 500L, false)), 0L);
+    }
+
+    @Test
+    public void testActiveEntriesBeforeFirstStart()
+    {
+        assertTrue(snapshot.getActiveEntries(50L).isEmpty());
+    }
+
+    @Test
+    public void testActiveEntriesIncludeStartAndExcludeEnd()
+    {
+        assertUids(snapshot.getActiveEntries(100L), "PROMO_A");
+        assertUids(snapshot.getActiveEntries(150L), "PROMO_A", "PROMO_B");
+        assertUids(snapshot.getActiveEntries(200L), "PROMO_B");
+        assertUids(snapshot.getActiveEntries(300L));
+    }
+
+    @Test
+    public void testSuspendedEntriesAreNeverActive()
+    {
+        assertUids(snapshot.getActiveEntries(175L), "PROMO_A", "PROMO_B");
+    }
+
+    @Test
+    public void testActiveEntriesAreReusedBetweenBoundaries()
+    {
+        final List<IS32PromotionSnapshotEntry> first = snapshot.getActiveEntries(160L);
+        final List<IS32PromotionSnapshotEntry> second = snapshot.getActiveEntries(199L);
+
+        assertSame("Lookups between two boundaries should share the memoised view", first, second);
+    }
+
+    @Test
+    public void testActiveEntriesAfterLastEnd()
+    {
+        assertUids(snapshot.getActiveEntries(450L), "PROMO_D");
+        assertTrue(snapshot.getActiveEntries(Long.MAX_VALUE - 1).isEmpty());
+    }
+
+    @Test
+    public void testLookupByUid()
+    {
+        assertNotNull(snapshot.getEntry("PROMO_C"));
+        assertNull(snapshot.getEntry("UNKNOWN"));
+        assertEquals(4, snapshot.size());
+    }
+
+    @Test
+    public void testActiveEntriesByPriority()
+    {
+        final IS32PromotionSnapshot prioritised = new IS32PromotionSnapshot(Arrays.asList(
+                entry("PROMO_LOW", 0, 100L, 200L, false),
+                entry("PROMO_HIGH", 10, 150L, 300L, false),
+                entry("PROMO_TIE_LATE", 5, 120L, 300L, false),
+                entry("PROMO_TIE_EARLY", 5, 110L, 300L, false),
+                entry("PROMO_SUSPENDED", 20, 100L, 300L, true)), 0L);
+
+        assertUids(prioritised.getActiveEntriesByPriority(160L),
+                "PROMO_HIGH", "PROMO_TIE_EARLY", "PROMO_TIE_LATE", "PROMO_LOW");
+        assertUids(prioritised.getActiveEntries(160L),
+                "PROMO_LOW", "PROMO_TIE_EARLY", "PROMO_TIE_LATE", "PROMO_HIGH");
+    }
+
+    @Test
+    public void testLiveEntriesApplyActivityWindows()
+    {
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+        // 1970-01-01 was a Thursday: a window on Thursdays from 00:00 to 00:01 covers [0, 60000)
+        final IS32ActivityBitmap firstMinute = IS32ActivityBitmap.builder(utc)
+                .addWindow(Integer.valueOf(Calendar.THURSDAY), new Date(0L), new Date(60_000L))
+                .build();
+        final IS32PromotionSnapshot windowed = new IS32PromotionSnapshot(Arrays.asList(
+                entry("PROMO_ALWAYS", 0, 0L, 1_000_000L, false),
+                new IS32PromotionSnapshotEntry(null, "PROMO_WINDOWED", 10, 0L, 1_000_000L, false,
+                        IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0], firstMinute)), 0L);
+
+        assertUids(windowed.getLiveEntriesByPriority(30_000L), "PROMO_WINDOWED", "PROMO_ALWAYS");
+        assertUids(windowed.getLiveEntriesByPriority(90_000L), "PROMO_ALWAYS");
+        assertUids(windowed.getActiveEntriesByPriority(90_000L), "PROMO_WINDOWED", "PROMO_ALWAYS");
+    }
+
+    @Test
+    public void testLiveEntriesWithoutActivityWindowsShareTheMemoisedView()
+    {
+        assertSame(snapshot.getActiveEntriesByPriority(160L), snapshot.getLiveEntriesByPriority(160L));
+    }
+
+    @Test
+    public void testActiveEntriesByTagAreLiveAndByPriority()
+    {
+        final IS32PromotionSnapshot tagged = new IS32PromotionSnapshot(Arrays.asList(
+                tagged("PROMO_LOW", 1, 100L, 300L, false, "TAG_A"),
+                tagged("PROMO_HIGH", 9, 100L, 300L, false, "TAG_A"),
+                tagged("PROMO_SUSPENDED", 5, 100L, 300L, true, "TAG_A"),
+                tagged("PROMO_LATER", 7, 200L, 300L, false, "TAG_A"),
+                tagged("PROMO_OTHER", 3, 100L, 300L, false, "TAG_B")), 0L);
+
+        assertUids(tagged.getActiveEntriesByTag("TAG_A", null, 150L), "PROMO_HIGH", "PROMO_LOW");
+        assertUids(tagged.getActiveEntriesByTag("TAG_A", null, 250L), "PROMO_HIGH", "PROMO_LATER", "PROMO_LOW");
+        assertUids(tagged.getActiveEntriesByTag("TAG_A", "COUPON", 150L), "PROMO_HIGH", "PROMO_LOW");
+        assertTrue(tagged.getActiveEntriesByTag("TAG_A", "ESTAMP", 150L).isEmpty());
+        assertTrue(tagged.getActiveEntriesByTag("UNKNOWN", null, 150L).isEmpty());
+
+        // 1970-01-01 was a Thursday: a window on Thursdays from 00:00 to 00:01 covers [0, 60000)
+        final IS32ActivityBitmap firstMinute = IS32ActivityBitmap.builder(TimeZone.getTimeZone("UTC"))
+                .addWindow(Integer.valueOf(Calendar.THURSDAY), new Date(0L), new Date(60_000L))
+                .build();
+        final IS32PromotionSnapshot windowed = new IS32PromotionSnapshot(Arrays.asList(
+                tagged("PROMO_ALWAYS", 1, 0L, 1_000_000L, false, "TAG_A"),
+                new IS32PromotionSnapshotEntry(null, "PROMO_WINDOWED", 9, 0L, 1_000_000L, false,
+                        IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0], firstMinute,
+                        "TAG_A", "COUPON")), 0L);
+
+        assertUids(windowed.getActiveEntriesByTag("TAG_A", null, 30_000L), "PROMO_WINDOWED", "PROMO_ALWAYS");
+        assertUids(windowed.getActiveEntriesByTag("TAG_A", "COUPON", 90_000L), "PROMO_ALWAYS");
+    }
+
+    @Test
+    public void testEmptySnapshot()
+    {
+        final IS32PromotionSnapshot empty = new IS32PromotionSnapshot(Collections.emptyList(), 0L);
+        assertTrue(empty.getActiveEntries(100L).isEmpty());
+    }
+
+    private static IS32PromotionSnapshotEntry entry(final String uid, final long start, final long end,
+                                                    final boolean suspended)
+    {
+        return entry(uid, 0, start, end, suspended);
+    }
+
+    private static IS32PromotionSnapshotEntry entry(final String uid, final int priority, final long start,
+                                                    final long end, final boolean suspended)
+    {
+        return new IS32PromotionSnapshotEntry(null, uid, priority, start, end, suspended,
+                IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0]);
+    }
+
+    private static IS32PromotionSnapshotEntry tagged(final String uid, final int priority, final long start,
+                                                     final long end, final boolean suspended, final String tagCode)
+    {
+        return new IS32PromotionSnapshotEntry(null, uid, priority, start, end, suspended,
+                IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0], null, tagCode, "COUPON");
+    }
+
+    private static void assertUids(final List<IS32PromotionSnapshotEntry> entries, final String... uids)
+    {
+        assertEquals(uids.length, entries.size());
+        for (int i = 0; i < uids.length; i++)
+        {
+            assertEquals(uids[i], entries.get(i).getUid());
+        }
+    }
+}
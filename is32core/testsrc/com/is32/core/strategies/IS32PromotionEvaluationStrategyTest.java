@@ -0,0 +1,330 @@
+package com.is32.core.strategies;
+
+import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.quota.IS32AccountQuota;
+import com.is32.core.quota.IS32AccountQuotas;
+import com.is32.core.quota.IS32RedemptionCounts;
+import com.is32.core.service.IS32AccountQuotaService;
+import com.is32.core.service.IS32PromotionSnapshotService;
+import com.is32.core.snapshot.IS32PromotionSnapshotEntry;
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import org.apache.commons.configuration.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@UnitTest
+@RunWith(MockitoJUnitRunner.class)
+public class IS32PromotionEvaluationStrategyTest
+{
+    private static final String MAX_RESULTS = "is32core.promotion.evaluation.max.results";
+    private static final String BATCH_CHUNK_SIZE = "is32core.promotion.evaluation.batch.chunksize";
+    private static final String BATCH_PARALLEL = "is32core.promotion.evaluation.batch.parallel";
+    private static final String BATCH_THREADS = "is32core.promotion.evaluation.batch.threads";
+    private static final List<String> LIMITED_UIDS = Arrays.asList("PROMO_QUOTA", "PROMO_LIMITED");
+
+    @InjectMocks
+    private IS32PromotionEvaluationStrategy strategy;
+
+    @Mock
+    private IS32PromotionSnapshotService is32PromotionSnapshotService;
+
+    @Mock
+    private IS32AccountQuotaService is32AccountQuotaService;
+
+    @Mock
+    private ModelService modelService;
+
+    @Mock
+    private ConfigurationService configurationService;
+
+    @Mock
+    private Configuration configuration;
+
+    @Mock
+    private CatalogVersionModel catalogVersion;
+
+    private IS32PromotionModel quotaPromotion;
+    private IS32PromotionModel limitedPromotion;
+    private CustomerModel withQuota;
+    private CustomerModel exhausted;
+    private CustomerModel redeemed;
+    private final Map<PK, IS32PromotionModel> promotions = new HashMap<>();
+
+    @Before
+    public void setUp()
+    {
+        when(modelService.get(any(PK.class))).thenAnswer(invocation -> promotions.get(invocation.<PK>getArgument(0)));
+        quotaPromotion = promotion(101L);
+        limitedPromotion = promotion(102L);
+        final List<IS32PromotionSnapshotEntry> activeEntries = Arrays.asList(
+                new IS32PromotionSnapshotEntry(quotaPromotion.getPk(), "PROMO_QUOTA", 0, 0L, Long.MAX_VALUE, false,
+                        1, 1, new String[] { "ACCT_001" }),
+                new IS32PromotionSnapshotEntry(limitedPromotion.getPk(), "PROMO_LIMITED", 0, 0L, Long.MAX_VALUE, false,
+                        1, 1, new String[0]));
+        when(is32PromotionSnapshotService.getLiveEntriesByPriority(any(Date.class))).thenReturn(activeEntries);
+
+        withQuota = customer(1L);
+        exhausted = customer(2L);
+        redeemed = customer(3L);
+
+        when(configurationService.getConfiguration()).thenReturn(configuration);
+        when(configuration.getInt(MAX_RESULTS, 100)).thenReturn(100);
+    }
+
+    @Test
+    public void testBatchEvaluationMatchesSingleCustomerEvaluation()
+    {
+        givenBatchSettings(500, true);
+        final Map<CustomerModel, IS32AccountQuotas> quotas = new LinkedHashMap<>();
+        quotas.put(withQuota, quotas(5));
+        quotas.put(exhausted, quotas(10));
+        quotas.put(redeemed, quotas(10));
+        final Map<CustomerModel, IS32RedemptionCounts> counts = new HashMap<>();
+        counts.put(withQuota, redemptions("PROMO_QUOTA", "PROMO_LIMITED"));
+        counts.put(exhausted, redemptions("PROMO_QUOTA"));
+        counts.put(redeemed, redemptions("PROMO_QUOTA", "PROMO_LIMITED"));
+        givenQuotaData(quotas, counts);
+        for (final CustomerModel customer : quotas.keySet())
+        {
+            when(is32AccountQuotaService.getAccountQuotas(customer, catalogVersion)).thenReturn(quotas.get(customer));
+            when(is32AccountQuotaService.getRedemptionCounts(LIMITED_UIDS, customer))
+                    .thenReturn(counts.get(customer));
+        }
+
+        final Map<CustomerModel, List<IS32PromotionModel>> results =
+                strategy.evaluateEligiblePromotions(quotas.keySet(), catalogVersion);
+
+        assertEquals(new ArrayList<>(quotas.keySet()), new ArrayList<>(results.keySet()));
+        for (final CustomerModel customer : quotas.keySet())
+        {
+            assertEquals(strategy.evaluateEligiblePromotions(customer, catalogVersion), results.get(customer));
+        }
+        assertEquals("Remaining quota should lift the redemption limit",
+                Collections.singletonList(quotaPromotion), results.get(withQuota));
+        assertEquals(Collections.singletonList(limitedPromotion), results.get(exhausted));
+        assertEquals(Collections.emptyList(), results.get(redeemed));
+    }
+
+    @Test
+    public void testBatchEvaluationRunsOnTheStrategyPool() throws InterruptedException
+    {
+        givenBatchSettings(500, true);
+        when(configuration.getInt(BATCH_THREADS, Runtime.getRuntime().availableProcessors())).thenReturn(2);
+        final Set<String> evaluatingThreads = ConcurrentHashMap.newKeySet();
+        final IS32PromotionEvaluationStrategy pooled = new IS32PromotionEvaluationStrategy()
+        {
+            @Override
+            protected ThreadFactory createThreadFactory()
+            {
+                return Executors.defaultThreadFactory();
+            }
+
+            @Override
+            protected List<IS32PromotionSnapshotEntry> evaluate(final List<IS32PromotionSnapshotEntry> activePromotions,
+                                                                final IS32AccountQuotas accountQuotas,
+                                                                final IS32RedemptionCounts redemptionCounts,
+                                                                final int maxResults)
+            {
+                evaluatingThreads.add(Thread.currentThread().getName());
+                return super.evaluate(activePromotions, accountQuotas, redemptionCounts, maxResults);
+            }
+        };
+        pooled.setIs32PromotionSnapshotService(is32PromotionSnapshotService);
+        pooled.setIs32AccountQuotaService(is32AccountQuotaService);
+        pooled.setModelService(modelService);
+        pooled.setConfigurationService(configurationService);
+        pooled.afterPropertiesSet();
+
+        final Map<CustomerModel, IS32AccountQuotas> quotas = new LinkedHashMap<>();
+        quotas.put(withQuota, quotas(5));
+        quotas.put(exhausted, quotas(10));
+        quotas.put(redeemed, quotas(10));
+        final Map<CustomerModel, IS32RedemptionCounts> counts = new HashMap<>();
+        counts.put(withQuota, redemptions("PROMO_QUOTA", "PROMO_LIMITED"));
+        counts.put(exhausted, redemptions("PROMO_QUOTA"));
+        counts.put(redeemed, redemptions("PROMO_QUOTA", "PROMO_LIMITED"));
+        givenQuotaData(quotas, counts);
+
+        try
+        {
+            final Map<CustomerModel, List<IS32PromotionModel>> results =
+                    pooled.evaluateEligiblePromotions(quotas.keySet(), catalogVersion);
+
+            assertEquals(Collections.singletonList(quotaPromotion), results.get(withQuota));
+            assertEquals(Collections.singletonList(limitedPromotion), results.get(exhausted));
+            assertEquals(Collections.emptyList(), results.get(redeemed));
+            assertFalse(evaluatingThreads.contains(Thread.currentThread().getName()));
+        }
+        finally
+        {
+            pooled.destroy();
+        }
+    }
+
+    @Test
+    public void testBatchEvaluationLoadsQuotaDataPerChunk()
+    {
+        givenBatchSettings(2, false);
+        final List<CustomerModel> customers = Arrays.asList(withQuota, exhausted, redeemed);
+        when(is32AccountQuotaService.getAccountQuotasForCustomers(anyCollection(), eq(catalogVersion)))
+                .thenReturn(Collections.emptyMap());
+        when(is32AccountQuotaService.getRedemptionCountsForCustomers(anyCollection(), anyCollection()))
+                .thenReturn(Collections.emptyMap());
+
+        final Map<CustomerModel, List<IS32PromotionModel>> results =
+                strategy.evaluateEligiblePromotions(customers, catalogVersion);
+
+        assertEquals(3, results.size());
+        verify(is32AccountQuotaService).getAccountQuotasForCustomers(Arrays.asList(withQuota, exhausted), catalogVersion);
+        verify(is32AccountQuotaService).getAccountQuotasForCustomers(Collections.singletonList(redeemed), catalogVersion);
+        verify(is32AccountQuotaService, times(2)).getRedemptionCountsForCustomers(
+                eq(LIMITED_UIDS), anyCollection());
+        verify(is32PromotionSnapshotService, times(1)).getLiveEntriesByPriority(any(Date.class));
+        verify(is32AccountQuotaService, never()).getAccountQuotas(any(CustomerModel.class), any());
+    }
+
+    @Test
+    public void testStreamingEvaluationResolvesCustomersAndSkipsOtherUsers()
+    {
+        givenBatchSettings(500, true);
+        final UserModel employee = mock(UserModel.class);
+        when(modelService.get(PK.fromLong(1L))).thenReturn(withQuota);
+        when(modelService.get(PK.fromLong(9L))).thenReturn(employee);
+        when(modelService.get(PK.fromLong(2L))).thenReturn(exhausted);
+        when(modelService.get(PK.fromLong(7L))).thenThrow(new ModelLoadingException("removed"));
+
+        final Map<CustomerModel, IS32AccountQuotas> quotas = new LinkedHashMap<>();
+        quotas.put(withQuota, quotas(5));
+        quotas.put(exhausted, quotas(10));
+        final Map<CustomerModel, IS32RedemptionCounts> counts = new HashMap<>();
+        counts.put(exhausted, redemptions("PROMO_QUOTA"));
+        givenQuotaData(quotas, counts);
+
+        final Map<CustomerModel, List<IS32PromotionModel>> results = new LinkedHashMap<>();
+        strategy.evaluateEligiblePromotions(
+                Arrays.asList(PK.fromLong(1L), PK.fromLong(9L), PK.fromLong(2L), PK.fromLong(7L)).iterator(),
+                catalogVersion,
+                results::put);
+
+        assertEquals(Arrays.asList(withQuota, exhausted), new ArrayList<>(results.keySet()));
+        assertEquals(Arrays.asList(quotaPromotion, limitedPromotion), results.get(withQuota));
+        assertEquals(Collections.singletonList(limitedPromotion), results.get(exhausted));
+        verify(modelService).detach(withQuota);
+        verify(modelService).detach(exhausted);
+    }
+
+    @Test
+    public void testEvaluationStopsAtMaxResultsInPriorityOrder()
+    {
+        final IS32PromotionModel low = promotion(201L);
+        final IS32PromotionModel high = promotion(202L);
+        final IS32PromotionModel middle = promotion(203L);
+        final IS32PromotionModel noRewards = promotion(204L);
+        final List<IS32PromotionSnapshotEntry> byPriority = Arrays.asList(
+                new IS32PromotionSnapshotEntry(noRewards.getPk(), "PROMO_NO_REWARDS", 50, 0L, Long.MAX_VALUE, false,
+                        IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 0, new String[0]),
+                new IS32PromotionSnapshotEntry(high.getPk(), "PROMO_HIGH", 30, 0L, Long.MAX_VALUE, false,
+                        IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0]),
+                new IS32PromotionSnapshotEntry(middle.getPk(), "PROMO_MIDDLE", 20, 0L, Long.MAX_VALUE, false,
+                        IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0]),
+                new IS32PromotionSnapshotEntry(low.getPk(), "PROMO_LOW", 10, 0L, Long.MAX_VALUE, false,
+                        IS32PromotionSnapshotEntry.NO_REDEMPTION_LIMIT, 1, new String[0]));
+        when(is32PromotionSnapshotService.getLiveEntriesByPriority(any(Date.class))).thenReturn(byPriority);
+        when(configuration.getInt(MAX_RESULTS, 100)).thenReturn(2);
+        when(is32AccountQuotaService.getAccountQuotas(withQuota, catalogVersion)).thenReturn(quotas(5));
+
+        final List<IS32PromotionModel> result = strategy.evaluateEligiblePromotions(withQuota, catalogVersion);
+
+        assertEquals(Arrays.asList(high, middle), result);
+        verify(is32AccountQuotaService, never()).getRedemptionCounts(anyCollection(), any(CustomerModel.class));
+        verify(configuration, times(1)).getInt(MAX_RESULTS, 100);
+    }
+
+    private void givenBatchSettings(final int chunkSize, final boolean parallel)
+    {
+        when(configuration.getInt(BATCH_CHUNK_SIZE, 500)).thenReturn(chunkSize);
+        when(configuration.getBoolean(BATCH_PARALLEL, true)).thenReturn(parallel);
+    }
+
+    private void givenQuotaData(final Map<CustomerModel, IS32AccountQuotas> quotas,
+                                final Map<CustomerModel, IS32RedemptionCounts> counts)
+    {
+        final Map<PK, IS32AccountQuotas> quotasByPk = new HashMap<>();
+        final Map<PK, IS32RedemptionCounts> countsByPk = new HashMap<>();
+        for (final CustomerModel customer : quotas.keySet())
+        {
+            quotasByPk.put(customer.getPk(), quotas.get(customer));
+            countsByPk.put(customer.getPk(), counts.getOrDefault(customer, IS32RedemptionCounts.empty()));
+        }
+        when(is32AccountQuotaService.getAccountQuotasForCustomers(anyCollection(), eq(catalogVersion)))
+                .thenReturn(quotasByPk);
+        when(is32AccountQuotaService.getRedemptionCountsForCustomers(
+                eq(LIMITED_UIDS), anyCollection())).thenReturn(countsByPk);
+    }
+
+    private static IS32AccountQuotas quotas(final int orderedAmt)
+    {
+        return new IS32AccountQuotas(Collections.singletonList(
+                new IS32AccountQuota("ACCT_001", "SBL_001", 10, orderedAmt)));
+    }
+
+    private static IS32RedemptionCounts redemptions(final String... promotionUids)
+    {
+        final Map<String, Integer> counts = new HashMap<>();
+        for (final String uid : promotionUids)
+        {
+            counts.put(uid, 1);
+        }
+        return IS32RedemptionCounts.of(counts);
+    }
+
+    private IS32PromotionModel promotion(final long pk)
+    {
+        final IS32PromotionModel promotion = mock(IS32PromotionModel.class);
+        when(promotion.getPk()).thenReturn(PK.fromLong(pk));
+        promotions.put(PK.fromLong(pk), promotion);
+        return promotion;
+    }
+
+    private static CustomerModel customer(final long pk)
+    {
+        final CustomerModel customer = mock(CustomerModel.class);
+        when(customer.getPk()).thenReturn(PK.fromLong(pk));
+        return customer;
+    }
+}
@@ -13,6 +13,14 @@ public interface IS32PromotionFacade
 
     List<PromotionDisplayData> getPromotionsByTag(String tagCode);
 
+    /**
+     * Returns the live promotions of a tag in descending priority order.
+     *
+     * @param tagCode         the tag code
+     * @param displayTypeCode the code of the tag's IS32PromotionDisplayType, or null for any
+     */
+    List<PromotionDisplayData> getPromotionsByTag(String tagCode, String displayTypeCode);
+
     List<AccountQuotaData> getAccountQuotasForCurrentUser();
 
     PromotionDisplayData getPromotionWithQuotas(String promotionUid);
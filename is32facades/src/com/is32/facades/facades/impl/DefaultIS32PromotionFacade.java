@@ -1,20 +1,24 @@
 package com.is32.facades.facades.impl;
 
+import com.is32.core.attributehandlers.IS32PromotionActiveHandler;
+import com.is32.core.enums.IS32PromotionDisplayType;
 import com.is32.core.model.IS32PromotionModel;
+import com.is32.core.quota.IS32AccountQuota;
+import com.is32.core.quota.IS32AccountQuotas;
 import com.is32.core.service.IS32AccountQuotaService;
 import com.is32.core.service.IS32PromotionService;
 import com.is32.facades.dto.AccountQuotaData;
 import com.is32.facades.dto.PromotionDisplayData;
 import com.is32.facades.facades.IS32PromotionFacade;
+import com.is32.facades.populators.IS32PromotionActiveContext;
 import de.hybris.platform.servicelayer.dto.converter.Converter;
 import de.hybris.platform.servicelayer.user.UserService;
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 public class DefaultIS32PromotionFacade implements IS32PromotionFacade
 {
@@ -23,8 +27,9 @@ public class DefaultIS32PromotionFacade implements IS32PromotionFacade
     private IS32PromotionService is32PromotionService;
     private IS32AccountQuotaService is32AccountQuotaService;
     private Converter<IS32PromotionModel, PromotionDisplayData> is32PromotionConverter;
-    private Converter<Map<String, Object>, AccountQuotaData> accountQuotaConverter;
+    private Converter<IS32AccountQuota, AccountQuotaData> accountQuotaConverter;
     private UserService userService;
+    private IS32PromotionActiveHandler is32PromotionActiveHandler;
 
     @Override
     public PromotionDisplayData getPromotionByUid(final String uid)
@@ -34,39 +39,34 @@ public class DefaultIS32PromotionFacade implements IS32PromotionFacade
         {
             return null;
         }
-        return is32PromotionConverter.convert(promotion);
+        return convertAll(Collections.singletonList(promotion)).get(0);
     }
 
     @Override
     public List<PromotionDisplayData> getActivePromotions()
     {
-        final List<IS32PromotionModel> activePromotions = is32PromotionService.getActiveNonSuspendedPromotions();
-        return activePromotions.stream()
-                .map(is32PromotionConverter::convert)
-                .collect(Collectors.toList());
+        return convertAll(is32PromotionService.getActiveNonSuspendedPromotions());
     }
 
     @Override
     public List<PromotionDisplayData> getPromotionsByTag(final String tagCode)
     {
-        final List<IS32PromotionModel> promotions = is32PromotionService.getPromotionsByTagCode(tagCode);
-        return promotions.stream()
-                .map(is32PromotionConverter::convert)
-                .collect(Collectors.toList());
+        return getPromotionsByTag(tagCode, null);
     }
 
     @Override
-    public List<AccountQuotaData> getAccountQuotasForCurrentUser()
+    public List<PromotionDisplayData> getPromotionsByTag(final String tagCode, final String displayTypeCode)
     {
-        final List<Map<String, Object>> rawQuotas =
-                is32AccountQuotaService.getAccountQuotasForCurrentUser();
+        final IS32PromotionDisplayType displayType = displayTypeCode != null
+                ? IS32PromotionDisplayType.valueOf(displayTypeCode) : null;
+        return convertAll(is32PromotionService.getActivePromotionsByTagCode(tagCode, displayType));
+    }
 
-        final List<AccountQuotaData> result = new ArrayList<>();
-        for (final Map<String, Object> quota : rawQuotas)
-        {
-            result.add(accountQuotaConverter.convert(quota));
-        }
-        return result;
+    @Override
+    public List<AccountQuotaData> getAccountQuotasForCurrentUser()
+    {
+        final IS32AccountQuotas quotas = is32AccountQuotaService.getAccountQuotasForCurrentUser();
+        return accountQuotaConverter.convertAll(quotas.getQuotas());
     }
 
     @Override
@@ -84,6 +84,23 @@ public class DefaultIS32PromotionFacade implements IS32PromotionFacade
         return promotionData;
     }
 
+    /**
+     * Converts the promotions with their active flags evaluated for the whole list against one
+     * instant, so that all entries of a listing agree and the clock and snapshot are read once.
+     */
+    protected List<PromotionDisplayData> convertAll(final List<IS32PromotionModel> promotions)
+    {
+        final List<Boolean> activeStates = is32PromotionActiveHandler.getAll(promotions);
+        return IS32PromotionActiveContext.withActiveStates(promotions, activeStates, () -> {
+            final List<PromotionDisplayData> promotionDataList = new ArrayList<>(promotions.size());
+            for (final IS32PromotionModel promotion : promotions)
+            {
+                promotionDataList.add(is32PromotionConverter.convert(promotion));
+            }
+            return promotionDataList;
+        });
+    }
+
     @Required
     public void setIs32PromotionService(final IS32PromotionService is32PromotionService)
     {
@@ -105,7 +122,7 @@ public class DefaultIS32PromotionFacade implements IS32PromotionFacade
 
     @Required
     public void setAccountQuotaConverter(
-            final Converter<Map<String, Object>, AccountQuotaData> accountQuotaConverter)
+            final Converter<IS32AccountQuota, AccountQuotaData> accountQuotaConverter)
     {
         this.accountQuotaConverter = accountQuotaConverter;
     }
@@ -115,4 +132,10 @@ public class DefaultIS32PromotionFacade implements IS32PromotionFacade
     {
         this.userService = userService;
     }
+
+    @Required
+    public void setIs32PromotionActiveHandler(final IS32PromotionActiveHandler is32PromotionActiveHandler)
+    {
+        this.is32PromotionActiveHandler = is32PromotionActiveHandler;
+    }
 }
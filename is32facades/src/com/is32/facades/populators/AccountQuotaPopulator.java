@@ -1,30 +1,23 @@
 package com.is32.facades.populators;
 
+import com.is32.core.quota.IS32AccountQuota;
 import com.is32.facades.dto.AccountQuotaData;
 import de.hybris.platform.converters.Populator;
 import de.hybris.platform.servicelayer.dto.converter.ConversionException;
 
-import java.util.Map;
-
 /**
- * Populates an AccountQuotaData DTO from a raw Map result produced by the
+ * Populates an AccountQuotaData DTO from an account quota computed by the
  * IS32AccountQuotaService aggregation.
  */
-public class AccountQuotaPopulator implements Populator<Map<String, Object>, AccountQuotaData>
+public class AccountQuotaPopulator implements Populator<IS32AccountQuota, AccountQuotaData>
 {
     @Override
-    public void populate(final Map<String, Object> source, final AccountQuotaData target) throws ConversionException
+    public void populate(final IS32AccountQuota source, final AccountQuotaData target) throws ConversionException
     {
-        target.setAccountId((String) source.get("accountId"));
-        target.setSiebelAcctId((String) source.get("siebelAcctId"));
-
-        final Integer threshold = (Integer) source.get("threshold");
-        target.setThreshold(threshold != null ? threshold : 0);
-
-        final Integer orderedAmt = (Integer) source.get("orderedAmt");
-        target.setOrderedAmt(orderedAmt != null ? orderedAmt : 0);
-
-        final int remaining = (threshold != null ? threshold : 0) - (orderedAmt != null ? orderedAmt : 0);
-        target.setRemainingQuota(Math.max(remaining, 0));
+        target.setAccountId(source.getAccountId());
+        target.setSiebelAcctId(source.getSiebelAcctId());
+        target.setThreshold(source.getThreshold());
+        target.setOrderedAmt(source.getOrderedAmt());
+        target.setRemainingQuota(source.getRemainingQuota());
     }
 }
@@ -0,0 +1,68 @@
+package com.is32.facades.populators;
+
+import com.is32.core.model.IS32PromotionModel;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Hands active states that a caller evaluated for a whole listing to the {@link IS32PromotionPopulator}
+ * for the duration of one conversion on the current thread. Promotions converted outside of it, or
+ * not part of the listing, are evaluated by the populator itself.
+ */
+public final class IS32PromotionActiveContext
+{
+    private static final ThreadLocal<Map<IS32PromotionModel, Boolean>> ACTIVE_STATES = new ThreadLocal<>();
+
+    private IS32PromotionActiveContext()
+    {
+    }
+
+    /**
+     * Runs the conversion with the given active states in context.
+     *
+     * @param promotions   the promotions of the listing
+     * @param activeStates the active state of each promotion, in the order of the promotions
+     * @param conversion   the conversion to run
+     * @return the result of the conversion
+     */
+    public static <T> T withActiveStates(final List<IS32PromotionModel> promotions, final List<Boolean> activeStates,
+                                         final Supplier<T> conversion)
+    {
+        final Map<IS32PromotionModel, Boolean> states = new IdentityHashMap<>(promotions.size() * 2);
+        for (int i = 0; i < promotions.size(); i++)
+        {
+            states.put(promotions.get(i), activeStates.get(i));
+        }
+
+        final Map<IS32PromotionModel, Boolean> outer = ACTIVE_STATES.get();
+        ACTIVE_STATES.set(states);
+        try
+        {
+            return conversion.get();
+        }
+        finally
+        {
+            if (outer != null)
+            {
+                ACTIVE_STATES.set(outer);
+            }
+            else
+            {
+                ACTIVE_STATES.remove();
+            }
+        }
+    }
+
+    /**
+     * @param promotion the promotion being converted
+     * @return the active state supplied for the promotion, or null if none was
+     */
+    public static Boolean getActiveState(final IS32PromotionModel promotion)
+    {
+        final Map<IS32PromotionModel, Boolean> states = ACTIVE_STATES.get();
+        return states != null ? states.get(promotion) : null;
+    }
+}
@@ -15,6 +15,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+/**
+ * Populates the display data of a promotion. The active flag is taken from the
+ * {@link IS32PromotionActiveContext} when the caller evaluated it for a whole listing, and from the
+ * isActive attribute otherwise.
+ */
 public class IS32PromotionPopulator implements Populator<IS32PromotionModel, PromotionDisplayData>
 {
     private static final Logger LOG = Logger.getLogger(IS32PromotionPopulator.class);
@@ -30,7 +35,7 @@ public class IS32PromotionPopulator implements Populator<IS32PromotionModel, Pro
         target.setDescription(source.getDescription());
         target.setStatus(source.getStatus() != null ? source.getStatus().getCode() : null);
         target.setSuspended(Boolean.TRUE.equals(source.getSuspended()));
-        target.setActive(Boolean.TRUE.equals(source.getIsActive()));
+        populateActive(source, target);
         target.setStartDate(source.getStartDate());
         target.setEndDate(source.getEndDate());
         target.setPriority(source.getPriority() != null ? source.getPriority() : 0);
@@ -43,6 +48,12 @@ public class IS32PromotionPopulator implements Populator<IS32PromotionModel, Pro
         populateRewards(source, target);
     }
 
+    protected void populateActive(final IS32PromotionModel source, final PromotionDisplayData target)
+    {
+        final Boolean active = IS32PromotionActiveContext.getActiveState(source);
+        target.setActive(Boolean.TRUE.equals(active != null ? active : source.getIsActive()));
+    }
+
     protected void populatePromotionTag(final IS32PromotionModel source, final PromotionDisplayData target)
     {
         final IS32PromotionTagModel tag = source.getPromotionTag();
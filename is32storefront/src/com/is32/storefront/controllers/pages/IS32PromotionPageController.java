@@ -63,11 +63,13 @@ public class IS32PromotionPageController extends AbstractPageController
 
     @RequestMapping(value = "/tag/{tagCode}", method = RequestMethod.GET)
     public String getPromotionsByTag(@PathVariable("tagCode") final String tagCode,
+                                     @RequestParam(value = "displayType", required = false) final String displayType,
                                      final Model model) throws CMSItemNotFoundException
     {
-        final List<PromotionDisplayData> promotions = is32PromotionFacade.getPromotionsByTag(tagCode);
+        final List<PromotionDisplayData> promotions = is32PromotionFacade.getPromotionsByTag(tagCode, displayType);
         model.addAttribute("promotions", promotions);
         model.addAttribute("selectedTag", tagCode);
+        model.addAttribute("selectedDisplayType", displayType);
 
         storeCmsPageInModel(model, getContentPageForLabelOrId(PROMOTIONS_CMS_PAGE));
         setUpMetaDataForContentPage(model, getContentPageForLabelOrId(PROMOTIONS_CMS_PAGE));